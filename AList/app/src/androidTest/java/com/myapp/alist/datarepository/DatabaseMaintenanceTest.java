@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.datarepository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.myapp.alist.db.AListDatabase;
+import com.myapp.alist.db.Catalog;
+import com.myapp.alist.db.ListEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Runs the maintenance steps directly with a fake clock.  A file database is used because an
+ * in-memory database has no file to shrink.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class DatabaseMaintenanceTest {
+    private static final String TEST_DATABASE_NAME = "maintenance_test.db";
+    private static final int ROW_COUNT = 2000;
+    private static final int DESCRIPTION_LENGTH = 500;
+    private static final long TICK_MILLIS = 50L;
+    private static final int MAX_RUNS = 1000;
+    private Context mContext;
+    private AListDatabase mAListDatabase;
+    private SupportSQLiteDatabase mDb;
+    private ScheduledExecutorService mTimerExecutor;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mContext.deleteDatabase(TEST_DATABASE_NAME);
+        mAListDatabase = Catalog.configure(Room.databaseBuilder(mContext, AListDatabase.class,
+                TEST_DATABASE_NAME)).allowMainThreadQueries().build();
+        mDb = mAListDatabase.getOpenHelper().getWritableDatabase();
+        mTimerExecutor = Executors.newSingleThreadScheduledExecutor();
+
+        // Start from a file written without auto vacuum, like the ones earlier versions wrote.
+        queryLong("PRAGMA auto_vacuum = NONE");
+        mDb.execSQL("VACUUM");
+        assertEquals(DatabaseMaintenance.AUTO_VACUUM_NONE, queryLong("PRAGMA auto_vacuum"));
+        fillAndEmpty();
+    }
+
+    @After
+    public void tearDown() {
+        mTimerExecutor.shutdownNow();
+        mAListDatabase.close();
+        mContext.deleteDatabase(TEST_DATABASE_NAME);
+    }
+
+    @Test
+    public void testRun_whenChargingRunsEveryStepAndReturnsTheFreePages() {
+        final long pageCount = queryLong("PRAGMA page_count");
+        final MaintenanceReport report = createDatabaseMaintenance(new FakeClock(0L)).run(true);
+
+        assertTrue(report.isComplete());
+        assertTrue(report.isIntegrityOk());
+        assertEquals(Arrays.asList(DatabaseMaintenance.STEP_INTEGRITY_CHECK,
+                        DatabaseMaintenance.STEP_ANALYZE, DatabaseMaintenance.STEP_OPTIMIZE,
+                        DatabaseMaintenance.STEP_AUTO_VACUUM,
+                        DatabaseMaintenance.STEP_INCREMENTAL_VACUUM),
+                new ArrayList<>(report.getStepMillis().keySet()));
+        assertTrue(report.getReclaimedBytes() > 0L);
+        assertTrue(queryLong("PRAGMA page_count") < pageCount);
+        assertEquals(0L, queryLong("PRAGMA freelist_count"));
+        assertEquals(DatabaseMaintenance.AUTO_VACUUM_INCREMENTAL,
+                queryLong("PRAGMA auto_vacuum"));
+        // ANALYZE stored the planner's statistics.
+        assertEquals(1L, queryLong(
+                "SELECT COUNT(*) FROM sqlite_master WHERE name = 'sqlite_stat1'"));
+    }
+
+    @Test
+    public void testRun_whenNotChargingTheFileIsNotRebuilt() {
+        final long freePages = queryLong("PRAGMA freelist_count");
+        assertTrue(freePages > 0L);
+
+        final MaintenanceReport report = createDatabaseMaintenance(new FakeClock(0L)).run(false);
+
+        assertTrue(report.isComplete());
+        assertEquals(0L, report.getReclaimedBytes());
+        assertEquals(DatabaseMaintenance.AUTO_VACUUM_NONE, queryLong("PRAGMA auto_vacuum"));
+        // ANALYZE may have reused a few of the free pages.
+        assertTrue(queryLong("PRAGMA freelist_count") > 0L);
+    }
+
+    @Test
+    public void testRun_stopsWhenTheTimeIsUpAndTheNextRunCarriesOn() {
+        final FakeClock fakeClock = new FakeClock(0L);
+        final DatabaseMaintenance databaseMaintenance = createDatabaseMaintenance(fakeClock);
+        assertTrue(databaseMaintenance.run(true).isComplete());
+        // Incremental auto vacuum is on now so the pages freed next are kept until a run.
+        fillAndEmpty();
+        assertTrue(queryLong("PRAGMA freelist_count") > DatabaseMaintenance.VACUUM_PAGES);
+
+        // Each reading of the clock takes a tick so the runs run out of time.
+        fakeClock.setTickMillis(TICK_MILLIS);
+        final List<MaintenanceReport> reports = new ArrayList<>();
+        MaintenanceReport report;
+        do {
+            report = databaseMaintenance.run(true);
+            reports.add(report);
+            // The runs always make progress and start no step once the time is up.
+            assertFalse(report.getStepMillis().isEmpty());
+            assertTrue(reports.size() < MAX_RUNS);
+        } while (!report.isComplete());
+
+        assertTrue(reports.size() > 1);
+        assertFalse(reports.get(0).isComplete());
+        assertEquals(Long.valueOf(TICK_MILLIS), reports.get(0).getStepMillis().get(
+                DatabaseMaintenance.STEP_INTEGRITY_CHECK));
+        // The second run starts with the step the first run did not reach.
+        assertFalse(reports.get(1).getStepMillis().containsKey(
+                DatabaseMaintenance.STEP_INTEGRITY_CHECK));
+        long reclaimedBytes = 0L;
+        for (MaintenanceReport eachReport : reports) {
+            reclaimedBytes += eachReport.getReclaimedBytes();
+        }
+        assertEquals(0L, queryLong("PRAGMA freelist_count"));
+        assertTrue(reclaimedBytes >= DatabaseMaintenance.VACUUM_PAGES *
+                queryLong("PRAGMA page_size"));
+
+        // The next run is a complete run again.
+        assertTrue(databaseMaintenance.run(true).getStepMillis().containsKey(
+                DatabaseMaintenance.STEP_INTEGRITY_CHECK));
+    }
+
+    private DatabaseMaintenance createDatabaseMaintenance(final DatabaseMaintenance.Clock clock) {
+        // The executors are only used by the scheduled checks which these tests do not start.
+        return new DatabaseMaintenance(mAListDatabase, clock, mTimerExecutor, mTimerExecutor,
+                mContext);
+    }
+
+    private void fillAndEmpty() {
+        final char[] description = new char[DESCRIPTION_LENGTH];
+        Arrays.fill(description, 'd');
+        final HashMap<String, String> values = new HashMap<>();
+        final List<ListEntity> listEntities = new ArrayList<>();
+        for (int i = 0; i < ROW_COUNT; i++) {
+            values.put(ListEntity.NAME, "Name " + i);
+            values.put(ListEntity.DESCRIPTION, new String(description));
+            values.put(ListEntity.CATEGORY, "To Do");
+            values.put(ListEntity.STATUS, "Current");
+            final ListEntity listEntity = ListEntity.verifyValues(values);
+            assertNotNull(listEntity);
+            listEntities.add(listEntity);
+        }
+        mAListDatabase.list().insertOrIgnore(listEntities);
+        mDb.execSQL("DELETE FROM list");
+    }
+
+    private long queryLong(final String sql) {
+        final Cursor cursor = mDb.query(sql);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : -1L;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static final class FakeClock implements DatabaseMaintenance.Clock {
+        private long mTickMillis;
+        private long mUptimeMillis;
+
+        FakeClock(final long tickMillis) {
+            mTickMillis = tickMillis;
+        }
+
+        void setTickMillis(final long tickMillis) {
+            mTickMillis = tickMillis;
+        }
+
+        @Override
+        public long uptimeMillis() {
+            final long uptimeMillis = mUptimeMillis;
+            mUptimeMillis += mTickMillis;
+            return uptimeMillis;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return mUptimeMillis;
+        }
+    }
+}
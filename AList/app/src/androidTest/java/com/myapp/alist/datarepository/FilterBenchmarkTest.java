@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.datarepository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteStatement;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.myapp.alist.R;
+import com.myapp.alist.db.AListDatabase;
+import com.myapp.alist.db.Catalog;
+import com.myapp.alist.db.CategoryEntity;
+import com.myapp.alist.db.LabelDictionary;
+import com.myapp.alist.db.ListEntity;
+import com.myapp.alist.db.StatusEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+/**
+ * Compares selecting by category and status with <code>LIKE '%value%'</code> on the labels, as
+ * the app used to, against the exact id match from the {@link QueryCompiler} on a large table.
+ * The median times are written to logcat with the tag "FilterBenchmarkTest".
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class FilterBenchmarkTest {
+    private static final String TAG = "FilterBenchmarkTest";
+    private static final int ROWS = 50000;
+    private static final int WARM_UP_RUNS = 3;
+    private static final int RUNS = 15;
+    private AListDatabase mAListDatabase;
+    private String mCategory;
+    private String mStatus;
+    private int mExpectedRows;
+
+    @Before
+    public void setUp() {
+        final Context context = ApplicationProvider.getApplicationContext();
+        final String[] categories = context.getResources().getStringArray(R.array.category_list);
+        final String[] statuses = context.getResources().getStringArray(R.array.status_list);
+        // Index 0 is "All".
+        mCategory = categories[2];
+        mStatus = statuses[1];
+
+        mAListDatabase = Catalog.configure(Room.inMemoryDatabaseBuilder(context,
+                AListDatabase.class)).allowMainThreadQueries().build();
+        final SupportSQLiteDatabase db = mAListDatabase.getOpenHelper().getWritableDatabase();
+        db.beginTransaction();
+        try {
+            final SupportSQLiteStatement statement = db.compileStatement("INSERT INTO " +
+                    ListEntity.TABLE_NAME + " (" + ListEntity.NAME + ", " +
+                    ListEntity.DESCRIPTION + ", " + ListEntity.CATEGORY + ", " +
+                    ListEntity.STATUS + ") VALUES (?, ?, ?, ?)");
+            for (int i = 0; i < ROWS; i++) {
+                final String category = categories[1 + i % (categories.length - 1)];
+                final String status = statuses[1 + (i / 7) % (statuses.length - 1)];
+                statement.bindString(1, "Item " + i);
+                statement.bindString(2, "Description " + i);
+                statement.bindLong(3, LabelDictionary.categories().getId(category));
+                statement.bindLong(4, LabelDictionary.statuses().getId(status));
+                statement.executeInsert();
+                if (category.equals(mCategory) && status.equals(mStatus)) {
+                    mExpectedRows++;
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        db.execSQL("ANALYZE");
+    }
+
+    @After
+    public void tearDown() {
+        mAListDatabase.close();
+    }
+
+    @Test
+    public void testSelect_compareLikeWithExactMatchAndGetSameRows() {
+        for (QuerySpec.OrderBy orderBy : QuerySpec.OrderBy.values()) {
+            final SupportSQLiteQuery likeQuery = new SimpleSQLiteQuery("SELECT " +
+                    ListEntity._ID + ", " + ListEntity.NAME + ", " + ListEntity.DESCRIPTION +
+                    ", " + ListEntity.CATEGORY + ", " + ListEntity.STATUS + " FROM " +
+                    ListEntity.TABLE_NAME + " WHERE " + ListEntity.CATEGORY + " IN (SELECT " +
+                    CategoryEntity._ID + " FROM " + CategoryEntity.TABLE_NAME + " WHERE " +
+                    CategoryEntity.LABEL + " LIKE ?) AND " + ListEntity.STATUS + " IN (SELECT " +
+                    StatusEntity._ID + " FROM " + StatusEntity.TABLE_NAME + " WHERE " +
+                    StatusEntity.LABEL + " LIKE ?) ORDER BY " +
+                    QueryCompiler.getOrderByClause(orderBy),
+                    new Object[]{"%" + mCategory + "%", "%" + mStatus + "%"});
+            final SupportSQLiteQuery exactQuery = new QueryCompiler().compileSelect(
+                    new QuerySpec.Builder().setCategory(mCategory).setStatus(mStatus)
+                            .setOrderBy(orderBy).build());
+
+            final long likeNanos = time(likeQuery);
+            final long exactNanos = time(exactQuery);
+            Log.i(TAG, orderBy + ": " + ROWS + " rows, " + mExpectedRows + " selected, LIKE " +
+                    likeNanos / 1000L + "us, exact " + exactNanos / 1000L + "us");
+        }
+    }
+
+    /**
+     * Runs a query several times and checks the number of rows.
+     *
+     * @param query the query
+     * @return the median time in nanoseconds
+     */
+    private long time(final SupportSQLiteQuery query) {
+        final long[] nanos = new long[RUNS];
+
+        for (int i = -WARM_UP_RUNS; i < RUNS; i++) {
+            final long start = System.nanoTime();
+            final Cursor cursor = mAListDatabase.query(query);
+            try {
+                int count = 0;
+                while (cursor.moveToNext()) {
+                    count++;
+                }
+                assertEquals(mExpectedRows, count);
+            } finally {
+                cursor.close();
+            }
+            if (i >= 0) {
+                nanos[i] = System.nanoTime() - start;
+            }
+        }
+
+        Arrays.sort(nanos);
+        assertTrue(nanos[RUNS / 2] > 0L);
+        return nanos[RUNS / 2];
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.datarepository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.paging.PagingSource;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.myapp.alist.db.AListDatabase;
+import com.myapp.alist.db.Catalog;
+import com.myapp.alist.db.ListEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class KeysetPagingSourceTest {
+    private static final int ROWS = 23;
+    private static final int LOAD_SIZE = 5;
+    private AListDatabase mAListDatabase;
+    private QueryCompiler mQueryCompiler;
+
+    @Before
+    public void setUp() {
+        final HashMap<String, String> values = new HashMap<>();
+        final String[] categories = {"To Do", "Shopping"};
+
+        mAListDatabase = Catalog.configure(Room.inMemoryDatabaseBuilder(
+                ApplicationProvider.getApplicationContext(), AListDatabase.class))
+                .allowMainThreadQueries().build();
+        mQueryCompiler = new QueryCompiler();
+
+        for (int i = 0; i < ROWS; i++) {
+            values.put(ListEntity.NAME, "Item " + i);
+            values.put(ListEntity.DESCRIPTION, "");
+            values.put(ListEntity.CATEGORY, categories[i % 2]);
+            values.put(ListEntity.STATUS, "Current");
+            ListEntity listEntity = ListEntity.verifyValues(values);
+            assertNotNull(listEntity);
+            mAListDatabase.list().insert(listEntity);
+        }
+    }
+
+    @After
+    public void closeDatabase() {
+        mAListDatabase.close();
+    }
+
+    @Test
+    public void testLoad_appendEveryPageAndGetSameOrderAsSelect() throws Exception {
+        for (QuerySpec.OrderBy orderBy : QuerySpec.OrderBy.values()) {
+            final QuerySpec querySpec = new QuerySpec.Builder().setOrderBy(orderBy).build();
+            final KeysetPagingSource keysetPagingSource = new KeysetPagingSource(mAListDatabase,
+                    mQueryCompiler, querySpec);
+            final List<ListEntity> actual = new ArrayList<>();
+
+            PagingSource.LoadResult.Page<KeysetPagingSource.PageKey, ListEntity> page = load(
+                    keysetPagingSource, new PagingSource.LoadParams.Refresh<>(null, LOAD_SIZE,
+                            true));
+            assertEquals(0, page.getItemsBefore());
+            assertNull(page.getPrevKey());
+            actual.addAll(page.getData());
+            while (page.getNextKey() != null) {
+                page = load(keysetPagingSource, new PagingSource.LoadParams.Append<>(
+                        page.getNextKey(), LOAD_SIZE, true));
+                actual.addAll(page.getData());
+            }
+            // The last page knows that no rows follow it.
+            assertEquals(0, page.getItemsAfter());
+
+            assertSameIds(orderBy.toString(), select(querySpec), actual);
+        }
+    }
+
+    @Test
+    public void testLoad_refreshFromMiddleAndPrependToTop() throws Exception {
+        final QuerySpec querySpec = new QuerySpec.Builder()
+                .setOrderBy(QuerySpec.OrderBy.CATEGORY).build();
+        final List<ListEntity> expected = select(querySpec);
+        final KeysetPagingSource keysetPagingSource = new KeysetPagingSource(mAListDatabase,
+                mQueryCompiler, querySpec);
+
+        // Reload from position 12 as after an invalidation.
+        PagingSource.LoadResult.Page<KeysetPagingSource.PageKey, ListEntity> page = load(
+                keysetPagingSource, new PagingSource.LoadParams.Refresh<>(
+                        KeysetPagingSource.PageKey.after(expected.get(11), 12), LOAD_SIZE,
+                        true));
+        assertEquals(12, page.getItemsBefore());
+        assertSameIds("refresh", expected.subList(12, 12 + LOAD_SIZE), page.getData());
+
+        final List<ListEntity> actual = new ArrayList<>(page.getData());
+        while (page.getPrevKey() != null) {
+            page = load(keysetPagingSource, new PagingSource.LoadParams.Prepend<>(
+                    page.getPrevKey(), LOAD_SIZE, true));
+            assertTrue(page.getData().size() <= LOAD_SIZE);
+            actual.addAll(0, page.getData());
+        }
+        assertEquals(0, page.getItemsBefore());
+
+        assertSameIds("prepend", expected.subList(0, 12 + LOAD_SIZE), actual);
+    }
+
+    @Test
+    public void testLoad_loadFromResultAndGetItsRowsWithoutQuerying() throws Exception {
+        final QuerySpec querySpec = new QuerySpec.Builder()
+                .setOrderBy(QuerySpec.OrderBy.STATUS).build();
+        final List<ListEntity> expected = select(querySpec);
+        final KeysetPagingSource keysetPagingSource = new KeysetPagingSource(mAListDatabase,
+                mQueryCompiler, new ResultSnapshot(querySpec, expected));
+        // The pages come from the result so a change to the table is not seen until the source
+        // is replaced.
+        mAListDatabase.list().delete(expected);
+
+        PagingSource.LoadResult.Page<KeysetPagingSource.PageKey, ListEntity> page = load(
+                keysetPagingSource, new PagingSource.LoadParams.Refresh<>(null, LOAD_SIZE,
+                        true));
+        final List<ListEntity> actual = new ArrayList<>(page.getData());
+        // The result's count tells the pager how many rows follow each page.
+        assertEquals(ROWS - LOAD_SIZE, page.getItemsAfter());
+        while (page.getNextKey() != null) {
+            page = load(keysetPagingSource, new PagingSource.LoadParams.Append<>(
+                    page.getNextKey(), LOAD_SIZE, true));
+            assertEquals(ROWS - actual.size() - page.getData().size(), page.getItemsAfter());
+            actual.addAll(page.getData());
+        }
+        assertSameIds("append", expected, actual);
+
+        page = load(keysetPagingSource, new PagingSource.LoadParams.Prepend<>(
+                KeysetPagingSource.PageKey.before(expected.get(12), 12), LOAD_SIZE, true));
+        assertEquals(12 - LOAD_SIZE, page.getItemsBefore());
+        assertSameIds("prepend", expected.subList(12 - LOAD_SIZE, 12), page.getData());
+    }
+
+    @Test
+    public void testLoad_loadAfterInvalidateAndGetInvalid() throws Exception {
+        final KeysetPagingSource keysetPagingSource = new KeysetPagingSource(mAListDatabase,
+                mQueryCompiler, new QuerySpec.Builder().build());
+        keysetPagingSource.invalidate();
+
+        assertTrue(keysetPagingSource.loadFuture(new PagingSource.LoadParams.Refresh<>(null,
+                LOAD_SIZE, true)).get() instanceof PagingSource.LoadResult.Invalid);
+    }
+
+    private PagingSource.LoadResult.Page<KeysetPagingSource.PageKey, ListEntity> load(
+            KeysetPagingSource keysetPagingSource,
+            PagingSource.LoadParams<KeysetPagingSource.PageKey> params) throws Exception {
+        final PagingSource.LoadResult<KeysetPagingSource.PageKey, ListEntity> loadResult =
+                keysetPagingSource.loadFuture(params).get();
+        assertTrue(loadResult instanceof PagingSource.LoadResult.Page);
+        return (PagingSource.LoadResult.Page<KeysetPagingSource.PageKey, ListEntity>) loadResult;
+    }
+
+    private void assertSameIds(String message, List<ListEntity> expected,
+                               List<ListEntity> actual) {
+        assertEquals(message, expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(message, expected.get(i).getId(), actual.get(i).getId());
+        }
+    }
+
+    private List<ListEntity> select(QuerySpec querySpec) {
+        return mAListDatabase.list().selectPage(mQueryCompiler.compileSelect(querySpec));
+    }
+}
@@ -0,0 +1,378 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.datarepository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import android.database.Cursor;
+import android.os.Build;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteStatement;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.myapp.alist.db.AListDatabase;
+import com.myapp.alist.db.Catalog;
+import com.myapp.alist.db.ListEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class QueryCompilerTest {
+    private static final String NAME_1 = "Grocery shopping";
+    private static final String NAME_2 = "Gardening";
+    private static final String DESCRIPTION_1 = "Milk and bread";
+    private static final String DESCRIPTION_2 = "";
+    private static final String CATEGORY_1 = "Shopping";
+    private static final String CATEGORY_2 = "To Do";
+    private static final String STATUS_1 = "Current";
+    private static final String STATUS_2 = "In Progress";
+    private AListDatabase mAListDatabase;
+    private QueryCompiler mQueryCompiler;
+
+    @Before
+    public void setUp() {
+        mAListDatabase = Catalog.configure(Room.inMemoryDatabaseBuilder(
+                ApplicationProvider.getApplicationContext(), AListDatabase.class))
+                .allowMainThreadQueries().build();
+        mQueryCompiler = new QueryCompiler();
+
+        insert(NAME_1, DESCRIPTION_1, CATEGORY_1, STATUS_1);
+        insert(NAME_2, DESCRIPTION_2, CATEGORY_2, STATUS_2);
+    }
+
+    @After
+    public void closeDatabase() {
+        mAListDatabase.close();
+    }
+
+    @Test
+    public void testCompileSelect_callCompileSelectWithSameShapeAndGetSameSql() {
+        SupportSQLiteQuery query1 = mQueryCompiler.compileSelect(new QuerySpec.Builder()
+                .setName("gro").setCategory(CATEGORY_1).setActivatedId(1L).build());
+        SupportSQLiteQuery query2 = mQueryCompiler.compileSelect(new QuerySpec.Builder()
+                .setName("gar").setCategory(CATEGORY_2).setActivatedId(2L).build());
+
+        // The cached SQL string is reused so nothing is built for the second query.
+        assertSame(query1.getSql(), query2.getSql());
+        assertEquals(3, query1.getArgCount());
+    }
+
+    @Test
+    public void testCompileSelect_callCompileSelectWithDifferentShapeAndGetDifferentSql() {
+        SupportSQLiteQuery query1 = mQueryCompiler.compileSelect(new QuerySpec.Builder()
+                .setName("gro").build());
+        SupportSQLiteQuery query2 = mQueryCompiler.compileSelect(new QuerySpec.Builder()
+                .setName("gro").setOrderBy(QuerySpec.OrderBy.STATUS).build());
+        SupportSQLiteQuery query3 = mQueryCompiler.compileSelect(new QuerySpec.Builder()
+                .setName("gro").setSearchMode(SearchMode.SUBSTRING).build());
+
+        assertNotEquals(query1.getSql(), query2.getSql());
+        assertNotEquals(query1.getSql(), query3.getSql());
+    }
+
+    @Test
+    public void testCompileSelect_callCompileSelectAndGetExpectedData() {
+        List<ListEntity> listEntities = select(new QuerySpec.Builder()
+                .setName("GRO").setDescription("milk").build());
+        assertEquals(1, listEntities.size());
+        assertEquals(NAME_1, listEntities.get(0).getName());
+
+        listEntities = select(new QuerySpec.Builder().setDescription(" ").build());
+        assertEquals(1, listEntities.size());
+        assertEquals(NAME_2, listEntities.get(0).getName());
+
+        listEntities = select(new QuerySpec.Builder().setName("rden")
+                .setSearchMode(SearchMode.SUBSTRING).build());
+        assertEquals(1, listEntities.size());
+        assertEquals(NAME_2, listEntities.get(0).getName());
+
+        listEntities = select(new QuerySpec.Builder().setStatus(STATUS_2).setActivatedId(1L)
+                .build());
+        assertEquals(0, listEntities.size());
+
+        // Shopping comes after To Do in the category list but sorts before it by label.
+        listEntities = select(new QuerySpec.Builder().setOrderBy(QuerySpec.OrderBy.CATEGORY)
+                .build());
+        assertEquals(2, listEntities.size());
+        assertEquals(NAME_1, listEntities.get(0).getName());
+        assertEquals(NAME_2, listEntities.get(1).getName());
+    }
+
+    @Test
+    public void testCompileSelect_callCompileSelectWithCategoryAndGetExactMatchesOnly() {
+        insert("Party", "", CATEGORY_1 + " List", STATUS_1);
+
+        List<ListEntity> listEntities = select(new QuerySpec.Builder().setCategory(CATEGORY_1)
+                .build());
+        assertEquals(1, listEntities.size());
+        assertEquals(NAME_1, listEntities.get(0).getName());
+
+        listEntities = select(new QuerySpec.Builder().setStatus("Progress").build());
+        assertEquals(0, listEntities.size());
+    }
+
+    @Test
+    public void testCompileSelect_callCompileSelectWithSeveralCategoriesAndGetInList() {
+        SupportSQLiteQuery query = mQueryCompiler.compileSelect(new QuerySpec.Builder()
+                .setCategories(Arrays.asList(CATEGORY_2, CATEGORY_1, CATEGORY_2)).build());
+        assertTrue(query.getSql().contains(ListEntity.CATEGORY + " IN (?, ?)"));
+        assertEquals(2, query.getArgCount());
+
+        List<ListEntity> listEntities = select(new QuerySpec.Builder()
+                .setCategories(Arrays.asList(CATEGORY_1, CATEGORY_2))
+                .setStatuses(Arrays.asList(STATUS_1, STATUS_2)).build());
+        assertEquals(2, listEntities.size());
+    }
+
+    @Test
+    public void testCompileCount_callCompileCountAndGetSameCountAsSelect() {
+        final QuerySpec[] querySpecs = {
+                new QuerySpec.Builder().build(),
+                new QuerySpec.Builder().setName("gro").build(),
+                new QuerySpec.Builder().setCategory(CATEGORY_2).setStatus(STATUS_2).build(),
+                new QuerySpec.Builder().setCategory(CATEGORY_2).setStatus(STATUS_1).build()};
+
+        for (QuerySpec querySpec : querySpecs) {
+            assertEquals(select(querySpec).size(),
+                    count(mQueryCompiler.compileCount(querySpec)));
+        }
+    }
+
+    @Test
+    public void testCompileFacets_callCompileFacetsAndGetSameCountsAsSelect() {
+        insert("Groceries", "Eggs", CATEGORY_1, STATUS_2);
+        QuerySpec querySpec = new QuerySpec.Builder().setName("gro").build();
+
+        ArrayList<String> categories = new ArrayList<>();
+        ArrayList<String> statuses = new ArrayList<>();
+        ArrayList<Integer> counts = new ArrayList<>();
+        Cursor cursor = mAListDatabase.query(mQueryCompiler.compileFacets(
+                querySpec.getFacetSpec()));
+        try {
+            while (cursor.moveToNext()) {
+                categories.add(cursor.getString(0));
+                statuses.add(cursor.getString(1));
+                counts.add(cursor.getInt(2));
+            }
+        } finally {
+            cursor.close();
+        }
+        FacetCounts facetCounts = new FacetCounts(categories, statuses, counts);
+
+        assertEquals(select(querySpec).size(), facetCounts.getCount(null, null));
+        assertEquals(select(new QuerySpec.Builder().setName("gro").setCategory(CATEGORY_1)
+                .build()).size(), facetCounts.getCount(CATEGORY_1, null));
+        assertEquals(select(new QuerySpec.Builder().setName("gro").setStatus(STATUS_2)
+                .build()).size(), facetCounts.getCount(null, STATUS_2));
+        assertEquals(0, facetCounts.getCount(CATEGORY_2, null));
+
+        // The category and status don't change the facet spec so the counts can be reused.
+        assertEquals(querySpec.getFacetSpec(), new QuerySpec.Builder().setName("gro")
+                .setCategory(CATEGORY_2).setStatus(STATUS_1).build().getFacetSpec());
+    }
+
+    @Test
+    public void testCompileSoftDelete_callCompileSoftDeleteAndDeleteSameRowsAsSelect()
+            throws Exception {
+        insert("Groceries", "Eggs", CATEGORY_2, STATUS_1);
+        insert("Grout", "", CATEGORY_2, STATUS_2);
+        QuerySpec querySpec = new QuerySpec.Builder().setName("gro").setCategory(CATEGORY_2)
+                .build();
+        int selectedCount = select(querySpec).size();
+        assertEquals(2, selectedCount);
+
+        assertEquals(selectedCount,
+                executeUpdateDelete(mQueryCompiler.compileSoftDelete(querySpec, 1000L)));
+
+        // Only the selected rows are deleted.
+        assertEquals(0, select(querySpec).size());
+        assertEquals(0, count(mQueryCompiler.compileCount(querySpec)));
+        List<ListEntity> listEntities = select(new QuerySpec.Builder().build());
+        assertEquals(2, listEntities.size());
+        assertEquals(NAME_2, listEntities.get(0).getName());
+        assertEquals(NAME_1, listEntities.get(1).getName());
+        // A deleted row is not deleted again.
+        assertEquals(0, executeUpdateDelete(mQueryCompiler.compileSoftDelete(querySpec, 2000L)));
+
+        // The rows are kept until they are purged, and a deleted name can be used again.
+        assertEquals(1000L, mAListDatabase.list().selectLastDeleted());
+        insert("Grout", "New", CATEGORY_2, STATUS_1);
+        assertEquals(1, select(querySpec).size());
+
+        // Undo restores the rows whose names are still free.
+        assertEquals(1, mAListDatabase.list().restoreDeleted(1000L));
+        assertEquals(2, select(querySpec).size());
+        assertEquals(0, mAListDatabase.list().purgeDeleted(1000L, 10));
+        assertEquals(1, mAListDatabase.list().purgeDeleted(1001L, 10));
+        assertEquals(ListEntity.NOT_DELETED, mAListDatabase.list().selectLastDeleted());
+    }
+
+    @Test
+    public void testCompileUpdate_callCompileUpdateAndUpdateSameRowsAsSelect() throws Exception {
+        insert("Groceries", "Eggs", CATEGORY_1, STATUS_1);
+        insert("Grout", "", CATEGORY_2, STATUS_2);
+        QuerySpec querySpec = new QuerySpec.Builder().setName("gro").build();
+        assertEquals(3, select(querySpec).size());
+
+        // The row which already has the status is not rewritten or counted.
+        assertEquals(2, executeUpdateDelete(mQueryCompiler.compileUpdate(querySpec,
+                ListEntity.STATUS, STATUS_2)));
+        assertEquals(3, select(new QuerySpec.Builder().setName("gro").setStatus(STATUS_2)
+                .build()).size());
+        assertEquals(0, select(new QuerySpec.Builder().setStatus(STATUS_1).build()).size());
+
+        // The same shape with another column gives different SQL.
+        SupportSQLiteQuery query1 = mQueryCompiler.compileUpdate(querySpec, ListEntity.STATUS,
+                STATUS_1);
+        SupportSQLiteQuery query2 = mQueryCompiler.compileUpdate(querySpec, ListEntity.CATEGORY,
+                CATEGORY_1);
+        assertNotEquals(query1.getSql(), query2.getSql());
+        assertSame(query1.getSql(), mQueryCompiler.compileUpdate(new QuerySpec.Builder()
+                .setName("gar").build(), ListEntity.STATUS, STATUS_2).getSql());
+    }
+
+    @Test
+    public void testCompileUpdateItem_callCompileUpdateItemAndSetChangedColumnsOnly()
+            throws Exception {
+        ListEntity listEntity = select(new QuerySpec.Builder().setName(NAME_1).build()).get(0);
+        HashMap<String, String> changes = new HashMap<>();
+        changes.put(ListEntity.STATUS, STATUS_2);
+        SupportSQLiteQuery query = mQueryCompiler.compileUpdateItem(listEntity.getId(), changes);
+
+        // Only the status column is set so the unique name index is not maintained.
+        assertFalse(query.getSql().contains(ListEntity.NAME));
+        assertEquals(2, query.getArgCount());
+        assertEquals(1, executeUpdateDelete(query));
+
+        listEntity = select(new QuerySpec.Builder().setName(NAME_1).build()).get(0);
+        assertEquals(NAME_1, listEntity.getName());
+        assertEquals(DESCRIPTION_1, listEntity.getDescription());
+        assertEquals(CATEGORY_1, listEntity.getCategory());
+        assertEquals(STATUS_2, listEntity.getStatus());
+
+        // The SQL is cached by the changed columns.
+        changes.put(ListEntity.STATUS, STATUS_1);
+        assertSame(query.getSql(), mQueryCompiler.compileUpdateItem(2L, changes).getSql());
+        changes.put(ListEntity.NAME, NAME_1);
+        assertNotEquals(query.getSql(), mQueryCompiler.compileUpdateItem(2L, changes).getSql());
+    }
+
+    @Test
+    public void testCompileSelectPage_walkPagesWithoutRowValuesBothWaysAndGetSameOrderAsSelect() {
+        walkPages(new QueryCompiler(false));
+    }
+
+    @Test
+    public void testCompileSelectPage_walkPagesWithRowValuesBothWaysAndGetSameOrderAsSelect() {
+        // Row values need SQLite 3.15.
+        assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.O);
+        walkPages(new QueryCompiler(true));
+    }
+
+    private void walkPages(QueryCompiler queryCompiler) {
+        final String[] categories = {CATEGORY_1, CATEGORY_2};
+        final String[] statuses = {STATUS_1, STATUS_2};
+        final String[] descriptions = {DESCRIPTION_1, DESCRIPTION_2};
+        // Many equal leading keys so the later keys decide the order.
+        for (int i = 0; i < 40; i++) {
+            insert("Item " + i, descriptions[i % 2], categories[(i / 2) % 2],
+                    statuses[(i / 4) % 2]);
+        }
+
+        for (QuerySpec.OrderBy orderBy : QuerySpec.OrderBy.values()) {
+            for (QuerySpec querySpec : new QuerySpec[]{
+                    new QuerySpec.Builder().setOrderBy(orderBy).build(),
+                    new QuerySpec.Builder().setStatus(STATUS_1).setOrderBy(orderBy).build()}) {
+                final List<ListEntity> expected = select(querySpec);
+                final List<ListEntity> actual = new ArrayList<>();
+                ListEntity after = null;
+                List<ListEntity> page;
+                do {
+                    page = mAListDatabase.list().selectPage(
+                            queryCompiler.compileSelectPage(querySpec, after, 7));
+                    actual.addAll(page);
+                    if (!page.isEmpty()) {
+                        after = page.get(page.size() - 1);
+                    }
+                } while (page.size() == 7);
+
+                assertEquals(orderBy.toString(), expected.size(), actual.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(orderBy.toString(), expected.get(i).getId(),
+                            actual.get(i).getId());
+                }
+
+                // Walk back up from the last row.
+                final List<ListEntity> backward = new ArrayList<>();
+                ListEntity before = expected.get(expected.size() - 1);
+                do {
+                    page = mAListDatabase.list().selectPage(
+                            queryCompiler.compileSelectPageBefore(querySpec, before, 7));
+                    backward.addAll(page);
+                    if (!page.isEmpty()) {
+                        before = page.get(page.size() - 1);
+                    }
+                } while (page.size() == 7);
+
+                assertEquals(orderBy.toString(), expected.size() - 1, backward.size());
+                for (int i = 0; i < backward.size(); i++) {
+                    assertEquals(orderBy.toString(), expected.get(expected.size() - 2 - i)
+                            .getId(), backward.get(i).getId());
+                }
+            }
+        }
+    }
+
+    private int executeUpdateDelete(SupportSQLiteQuery query) throws Exception {
+        SupportSQLiteStatement statement = mAListDatabase.compileStatement(query.getSql());
+        query.bindTo(statement);
+        int count = statement.executeUpdateDelete();
+        statement.close();
+        return count;
+    }
+
+    private int count(SupportSQLiteQuery query) {
+        Cursor cursor = mAListDatabase.query(query);
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private List<ListEntity> select(QuerySpec querySpec) {
+        return mAListDatabase.list().selectPage(mQueryCompiler.compileSelect(querySpec));
+    }
+
+    private void insert(String name, String description, String category, String status) {
+        final HashMap<String, String> values = new HashMap<>();
+        values.put(ListEntity.NAME, name);
+        values.put(ListEntity.DESCRIPTION, description);
+        values.put(ListEntity.CATEGORY, category);
+        values.put(ListEntity.STATUS, status);
+        ListEntity listEntity = ListEntity.verifyValues(values);
+        assertNotNull(listEntity);
+        mAListDatabase.list().insert(listEntity);
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.datarepository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.os.CancellationSignal;
+
+import androidx.annotation.NonNull;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.myapp.alist.db.AListDatabase;
+import com.myapp.alist.db.Catalog;
+import com.myapp.alist.db.ListEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class QuerySchedulerTest {
+    private static final String[] NAMES = {"Name 1", "Name 2", "Name 3"};
+    private AListDatabase mAListDatabase;
+    private ScheduledExecutorService mQueryThreadExecutor;
+    private final List<Integer> mCounts = new CopyOnWriteArrayList<>();
+    private final List<QuerySpec> mQuerySpecs = new CopyOnWriteArrayList<>();
+    private CountDownLatch mLatch;
+    private QueryScheduler mQueryScheduler;
+    // Submitted from the listener while the first query is running, if not null.
+    private QuerySpec mSupersedingQuerySpec;
+    private CancellationSignal mSupersededSignal;
+
+    @Before
+    public void setUp() {
+        final HashMap<String, String> values = new HashMap<>();
+
+        mAListDatabase = Catalog.configure(Room.inMemoryDatabaseBuilder(
+                ApplicationProvider.getApplicationContext(), AListDatabase.class))
+                .allowMainThreadQueries().build();
+        mQueryThreadExecutor = Executors.newSingleThreadScheduledExecutor();
+
+        for (String name : NAMES) {
+            values.put(ListEntity.NAME, name);
+            values.put(ListEntity.DESCRIPTION, "");
+            values.put(ListEntity.CATEGORY, "To Do");
+            values.put(ListEntity.STATUS, "Current");
+            ListEntity listEntity = ListEntity.verifyValues(values);
+            assertNotNull(listEntity);
+            mAListDatabase.list().insert(listEntity);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        mQueryThreadExecutor.shutdownNow();
+        mAListDatabase.close();
+    }
+
+    @Test
+    public void testSubmit_callSubmitInBurstAndGetOnlyLatestResult() throws InterruptedException {
+        final QueryScheduler queryScheduler = createQueryScheduler(1);
+
+        for (String name : NAMES) {
+            queryScheduler.submit(new QuerySpec.Builder().setName(name).build(), true);
+        }
+
+        assertTrue("No result delivered", mLatch.await(2, TimeUnit.SECONDS));
+        // Give any superseded query the chance to deliver a result it should not.
+        Thread.sleep(QueryScheduler.DEBOUNCE_MILLIS * 2);
+
+        assertEquals("More than one result delivered", 1, mCounts.size());
+        assertEquals(1, (int) mCounts.get(0));
+        assertEquals(1, mQuerySpecs.size());
+        assertEquals(NAMES[NAMES.length - 1], mQuerySpecs.get(0).getName());
+    }
+
+    @Test
+    public void testRequery_callRequeryAndGetCurrentQueryResultAgain()
+            throws InterruptedException {
+        final QueryScheduler queryScheduler = createQueryScheduler(1);
+
+        queryScheduler.submit(new QuerySpec.Builder().setName(NAMES[0]).build(), false);
+        assertTrue("No result delivered", mLatch.await(2, TimeUnit.SECONDS));
+
+        mLatch = new CountDownLatch(1);
+        queryScheduler.requery();
+        assertTrue("No result delivered", mLatch.await(2, TimeUnit.SECONDS));
+
+        assertEquals(2, mCounts.size());
+        assertEquals(1, (int) mCounts.get(1));
+        // The spec did not change so it is only reported once.
+        assertEquals(1, mQuerySpecs.size());
+    }
+
+    @Test
+    public void testSubmit_submitNarrowerQueryAndGetRefinedResultUntilRequery()
+            throws InterruptedException {
+        final HashMap<String, String> values = new HashMap<>();
+        final QueryScheduler queryScheduler = createQueryScheduler(1);
+
+        queryScheduler.submit(new QuerySpec.Builder().setName("Name").build(), false);
+        assertTrue("No result delivered", mLatch.await(2, TimeUnit.SECONDS));
+        assertEquals(NAMES.length, (int) mCounts.get(0));
+
+        // The scheduler is not told about this insert so a refined result does not include it.
+        values.put(ListEntity.NAME, "Name 33");
+        values.put(ListEntity.DESCRIPTION, "");
+        values.put(ListEntity.CATEGORY, "To Do");
+        values.put(ListEntity.STATUS, "Current");
+        final ListEntity listEntity = ListEntity.verifyValues(values);
+        assertNotNull(listEntity);
+        mAListDatabase.list().insert(listEntity);
+
+        mLatch = new CountDownLatch(1);
+        queryScheduler.submit(new QuerySpec.Builder().setName("Name 3").build(), false);
+        assertTrue("No result delivered", mLatch.await(2, TimeUnit.SECONDS));
+        assertEquals(1, (int) mCounts.get(1));
+
+        mLatch = new CountDownLatch(1);
+        queryScheduler.requery();
+        assertTrue("No result delivered", mLatch.await(2, TimeUnit.SECONDS));
+        assertEquals(3, mCounts.size());
+        assertEquals(2, (int) mCounts.get(2));
+    }
+
+    @Test
+    public void testSubmit_submitWhileQueryRunsAndCancelItsSignal() throws InterruptedException {
+        final QueryScheduler queryScheduler = createQueryScheduler(1);
+        mSupersedingQuerySpec = new QuerySpec.Builder().setName(NAMES[1]).build();
+
+        queryScheduler.submit(new QuerySpec.Builder().setName("Name").build(), false);
+        assertTrue("No result delivered", mLatch.await(2, TimeUnit.SECONDS));
+        Thread.sleep(QueryScheduler.DEBOUNCE_MILLIS);
+
+        assertNotNull("First query was not running", mSupersededSignal);
+        assertTrue("First query was not cancelled", mSupersededSignal.isCanceled());
+        // Only the superseding query's result is delivered.
+        assertEquals(1, mCounts.size());
+        assertEquals(1, (int) mCounts.get(0));
+        assertEquals(2, mQuerySpecs.size());
+        assertEquals(NAMES[1], mQuerySpecs.get(1).getName());
+        assertNull(queryScheduler.getInFlightSignal());
+    }
+
+    private QueryScheduler createQueryScheduler(int expectedResults) {
+        mLatch = new CountDownLatch(expectedResults);
+        mQueryScheduler = new QueryScheduler(mAListDatabase, new QueryCompiler(),
+                mQueryThreadExecutor, new QueryScheduler.Listener() {
+                    @Override
+                    public void onQuerySpecChanged(@NonNull QuerySpec querySpec) {
+                        mQuerySpecs.add(querySpec);
+                        if (mSupersedingQuerySpec != null) {
+                            // Called on the query thread once the query is running but before it
+                            // reads the database.
+                            mSupersededSignal = mQueryScheduler.getInFlightSignal();
+                            final QuerySpec supersedingQuerySpec = mSupersedingQuerySpec;
+                            mSupersedingQuerySpec = null;
+                            mQueryScheduler.submit(supersedingQuerySpec, false);
+                        }
+                    }
+
+                    @Override
+                    public void onResult(@NonNull ResultSnapshot resultSnapshot) {
+                        mCounts.add(resultSnapshot.getCount());
+                        mLatch.countDown();
+                    }
+                });
+        return mQueryScheduler;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.datarepository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ComponentCallbacks2;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.myapp.alist.db.ListEntity;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class ResultCacheTest {
+    private List<ListEntity> mListEntities;
+    private int mResultSnapshotBytes;
+
+    @Before
+    public void setUp() {
+        mListEntities = new ArrayList<>();
+        mListEntities.add(createListEntity("Gardening", "Shopping", "Current"));
+        mListEntities.add(createListEntity("Grocery shopping", "Shopping", "Current"));
+        mResultSnapshotBytes = ResultCache.estimateBytes(new ResultSnapshot(
+                new QuerySpec.Builder().build(), mListEntities));
+    }
+
+    @Test
+    public void testGet_callGetWithEqualSpecAndGetCachedResult() {
+        final ResultCache resultCache = new ResultCache();
+        final ResultSnapshot resultSnapshot = new ResultSnapshot(new QuerySpec.Builder()
+                .setCategory("Shopping").setStatus("Current").build(), mListEntities);
+        resultCache.put(resultSnapshot, resultCache.getVersion());
+
+        // The spec is normalised so the same view built again finds the cached result.
+        assertSame(resultSnapshot, resultCache.get(new QuerySpec.Builder()
+                .setStatus(" Current ").setCategory("Shopping").build()));
+        assertNull(resultCache.get(new QuerySpec.Builder().setCategory("Shopping")
+                .setStatus("Current").setOrderBy(QuerySpec.OrderBy.STATUS).build()));
+    }
+
+    @Test
+    public void testPut_callPutWithCountOnlyAndGetCount() {
+        final ResultCache resultCache = new ResultCache();
+        final QuerySpec querySpec = new QuerySpec.Builder().setName("g").build();
+
+        resultCache.put(new ResultSnapshot(querySpec, 1000), resultCache.getVersion());
+
+        final ResultSnapshot resultSnapshot = resultCache.get(querySpec);
+        assertNotNull(resultSnapshot);
+        assertEquals(1000, resultSnapshot.getCount());
+        assertNull(resultSnapshot.getListEntities());
+        // Only a count is far smaller than the rows.
+        assertTrue(resultCache.size() < mResultSnapshotBytes);
+    }
+
+    @Test
+    public void testPut_callPutBeyondMaxBytesAndGetLeastRecentEvicted() {
+        final ResultCache resultCache = new ResultCache(mResultSnapshotBytes * 2);
+        final QuerySpec querySpec1 = new QuerySpec.Builder().setName("g").build();
+        final QuerySpec querySpec2 = new QuerySpec.Builder().setName("ga").build();
+        final QuerySpec querySpec3 = new QuerySpec.Builder().setName("gr").build();
+
+        resultCache.put(new ResultSnapshot(querySpec1, mListEntities), resultCache.getVersion());
+        resultCache.put(new ResultSnapshot(querySpec2, mListEntities), resultCache.getVersion());
+        assertNotNull(resultCache.get(querySpec1));
+        resultCache.put(new ResultSnapshot(querySpec3, mListEntities), resultCache.getVersion());
+
+        assertEquals(mResultSnapshotBytes * 2, resultCache.size());
+        assertNotNull(resultCache.get(querySpec1));
+        assertNull(resultCache.get(querySpec2));
+        assertNotNull(resultCache.get(querySpec3));
+    }
+
+    @Test
+    public void testInvalidate_callPutAfterInvalidateAndGetNull() {
+        final ResultCache resultCache = new ResultCache();
+        final QuerySpec querySpec = new QuerySpec.Builder().build();
+        final long version = resultCache.getVersion();
+
+        resultCache.put(new ResultSnapshot(querySpec, mListEntities), version);
+        resultCache.invalidate();
+        assertNull(resultCache.get(querySpec));
+
+        // A result queried before the invalidation is not kept.
+        resultCache.put(new ResultSnapshot(querySpec, mListEntities), version);
+        assertNull(resultCache.get(querySpec));
+    }
+
+    @Test
+    public void testTrimMemory_callTrimMemoryAndGetResultsDropped() {
+        final ResultCache resultCache = new ResultCache();
+        final QuerySpec querySpec = new QuerySpec.Builder().build();
+
+        resultCache.put(new ResultSnapshot(querySpec, mListEntities), resultCache.getVersion());
+        resultCache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        assertNotNull(resultCache.get(querySpec));
+
+        resultCache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        assertNull(resultCache.get(querySpec));
+        assertEquals(0, resultCache.size());
+    }
+
+    private static ListEntity createListEntity(final String name, final String category,
+                                               final String status) {
+        final HashMap<String, String> values = new HashMap<>();
+        values.put(ListEntity.NAME, name);
+        values.put(ListEntity.DESCRIPTION, "");
+        values.put(ListEntity.CATEGORY, category);
+        values.put(ListEntity.STATUS, status);
+        final ListEntity listEntity = ListEntity.verifyValues(values);
+        assertNotNull(listEntity);
+        return listEntity;
+    }
+}
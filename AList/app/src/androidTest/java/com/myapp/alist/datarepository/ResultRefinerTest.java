@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.datarepository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.myapp.alist.db.ListEntity;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class ResultRefinerTest {
+    private ResultRefiner mResultRefiner;
+    private QuerySpec mBaseQuerySpec;
+
+    @Before
+    public void setUp() {
+        final List<ListEntity> listEntities = new ArrayList<>();
+        listEntities.add(createListEntity("Gardening", "Shopping", "Current"));
+        listEntities.add(createListEntity("Grocery shopping", "Shopping", "Current"));
+        listEntities.add(createListEntity("Groceries", "To Do", "In Progress"));
+
+        mResultRefiner = new ResultRefiner();
+        mBaseQuerySpec = new QuerySpec.Builder().setName("g").build();
+        mResultRefiner.setBase(new ResultSnapshot(mBaseQuerySpec, listEntities),
+                mResultRefiner.getVersion());
+    }
+
+    @Test
+    public void testRefine_callRefineWithNarrowerSpecAndGetFilteredResult() {
+        ResultSnapshot resultSnapshot = mResultRefiner.refine(
+                new QuerySpec.Builder().setName("gro").build(), new CancellationSignal());
+
+        assertNotNull(resultSnapshot);
+        assertEquals(2, resultSnapshot.getCount());
+        List<ListEntity> listEntities = resultSnapshot.getListEntities();
+        assertNotNull(listEntities);
+        assertEquals("Grocery shopping", listEntities.get(0).getName());
+        assertEquals("Groceries", listEntities.get(1).getName());
+
+        resultSnapshot = mResultRefiner.refine(new QuerySpec.Builder().setName("gro")
+                .setCategory("To Do").build(), new CancellationSignal());
+
+        assertNotNull(resultSnapshot);
+        assertEquals(1, resultSnapshot.getCount());
+        listEntities = resultSnapshot.getListEntities();
+        assertNotNull(listEntities);
+        assertEquals("Groceries", listEntities.get(0).getName());
+    }
+
+    @Test
+    public void testRefine_callRefineWithBroaderOrDifferentSpecAndGetNull() {
+        assertNull(mResultRefiner.refine(new QuerySpec.Builder().build(),
+                new CancellationSignal()));
+        assertNull(mResultRefiner.refine(mBaseQuerySpec, new CancellationSignal()));
+        assertNull(mResultRefiner.refine(new QuerySpec.Builder().setName("gro")
+                .setOrderBy(QuerySpec.OrderBy.STATUS).build(), new CancellationSignal()));
+        assertNull(mResultRefiner.refine(new QuerySpec.Builder().setName("gro")
+                .setSearchMode(SearchMode.SUBSTRING).build(), new CancellationSignal()));
+    }
+
+    @Test
+    public void testRefine_callRefineAfterInvalidateAndGetNull() {
+        final long version = mResultRefiner.getVersion();
+        final QuerySpec querySpec = new QuerySpec.Builder().setName("gro").build();
+
+        mResultRefiner.invalidate();
+        assertNull(mResultRefiner.refine(querySpec, new CancellationSignal()));
+
+        // A result queried before the invalidation is not kept.
+        mResultRefiner.setBase(new ResultSnapshot(mBaseQuerySpec, new ArrayList<ListEntity>()),
+                version);
+        assertNull(mResultRefiner.refine(querySpec, new CancellationSignal()));
+    }
+
+    @Test
+    public void testSetBase_callSetBaseWithCountOnlyAndKeepLastBase() {
+        final QuerySpec querySpec = new QuerySpec.Builder().setName("gro").build();
+
+        // A result of only a count has no rows to refine so the last base is kept.
+        mResultRefiner.setBase(new ResultSnapshot(new QuerySpec.Builder().build(), 1000),
+                mResultRefiner.getVersion());
+
+        final ResultSnapshot resultSnapshot = mResultRefiner.refine(querySpec,
+                new CancellationSignal());
+        assertNotNull(resultSnapshot);
+        assertEquals(2, resultSnapshot.getCount());
+    }
+
+    @Test
+    public void testRefineFacets_callRefineFacetsWithNarrowerTermsAndGetCounts() {
+        final FacetCounts facetCounts = mResultRefiner.refineFacets(new QuerySpec.Builder()
+                .setName("gro").setCategory("Shopping").build().getFacetSpec());
+
+        assertNotNull(facetCounts);
+        assertEquals(2, facetCounts.getCount(null, null));
+        assertEquals(1, facetCounts.getCount("Shopping", "Current"));
+        assertEquals(1, facetCounts.getCount("To Do", null));
+        assertEquals(0, facetCounts.getCount("To Do", "Current"));
+
+        // The base's own search terms are counted too.
+        final FacetCounts baseFacetCounts = mResultRefiner.refineFacets(
+                mBaseQuerySpec.getFacetSpec());
+        assertNotNull(baseFacetCounts);
+        assertEquals(3, baseFacetCounts.getCount(null, null));
+    }
+
+    @Test
+    public void testRefineFacets_callRefineFacetsWithoutEveryCategoryAndGetNull() {
+        assertNull(mResultRefiner.refineFacets(new QuerySpec.Builder().build().getFacetSpec()));
+
+        // A base which selected one category does not have the other categories' rows.
+        mResultRefiner.setBase(new ResultSnapshot(new QuerySpec.Builder().setName("g")
+                .setCategory("Shopping").build(), new ArrayList<ListEntity>()),
+                mResultRefiner.getVersion());
+        assertNull(mResultRefiner.refineFacets(new QuerySpec.Builder().setName("gro").build()
+                .getFacetSpec()));
+    }
+
+    @Test(expected = OperationCanceledException.class)
+    public void testRefine_callRefineWithCancelledSignalAndGetException() {
+        final CancellationSignal cancellationSignal = new CancellationSignal();
+        cancellationSignal.cancel();
+
+        mResultRefiner.refine(new QuerySpec.Builder().setName("gro").build(), cancellationSignal);
+    }
+
+    private static ListEntity createListEntity(final String name, final String category,
+                                               final String status) {
+        final HashMap<String, String> values = new HashMap<>();
+        values.put(ListEntity.NAME, name);
+        values.put(ListEntity.DESCRIPTION, "");
+        values.put(ListEntity.CATEGORY, category);
+        values.put(ListEntity.STATUS, status);
+        final ListEntity listEntity = ListEntity.verifyValues(values);
+        assertNotNull(listEntity);
+        return listEntity;
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.annotation.NonNull;
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.room.Room;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.myapp.alist.R;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Upgrades database files written by earlier versions of the app to the current version.  A
+ * separate file name is used so the app's own <code>a_list_content_provider.db</code> is not
+ * touched.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class AListMigrationsTest {
+    private static final String TEST_DATABASE_NAME = "migration_test.db";
+    private static final String NAME_1 = "Grocery shopping";
+    private static final String NAME_2 = "Gardening";
+    private static final String NAME_3 = "Birthday";
+    private static final String DESCRIPTION_1 = "Milk and bread";
+    private static final String DESCRIPTION_2 = "";
+    private static final String CATEGORY_1 = "Shopping";
+    private static final String CATEGORY_2 = "To Do";
+    private static final String CATEGORY_3 = "Family";
+    private static final String STATUS_1 = "Current";
+    private static final String STATUS_2 = "In Progress";
+    private static final String QUERY_SEARCH = "SELECT * FROM list WHERE deleted = 0 AND _id IN " +
+            "(SELECT rowid FROM list_fts WHERE list_fts MATCH ?)";
+    // The schema Room created for version 1 of the database.
+    private static final String[] VERSION_1_SQL = {
+            "CREATE TABLE IF NOT EXISTS `list` (`_id` INTEGER PRIMARY KEY AUTOINCREMENT NOT " +
+                    "NULL, `name` TEXT, `description` TEXT, `category` TEXT, `status` TEXT)",
+            "CREATE UNIQUE INDEX IF NOT EXISTS `index_list_name` ON `list` (`name`)",
+            "CREATE INDEX IF NOT EXISTS `index_list__id` ON `list` (`_id`)"
+    };
+    private Context mContext;
+    private AListDatabase mAListDatabase;
+
+    // This is needed for LiveData testing combined with LiveDataTestUtil.
+    @Rule
+    public InstantTaskExecutorRule mInstantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mContext.deleteDatabase(TEST_DATABASE_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        if (mAListDatabase != null) {
+            mAListDatabase.close();
+        }
+        mContext.deleteDatabase(TEST_DATABASE_NAME);
+    }
+
+    @Test
+    public void testMigrate_openVersion1DatabaseAndGetRowsSearchableAndIndexesUpdated()
+            throws InterruptedException {
+        createDatabase(1);
+
+        openAndCheckDatabase();
+    }
+
+    @Test
+    public void testMigrate_openVersion2DatabaseAndGetRowsSearchableAndIndexesUpdated()
+            throws InterruptedException {
+        createDatabase(2);
+
+        openAndCheckDatabase();
+    }
+
+    @Test
+    public void testMigrate_openVersion3DatabaseAndGetRowsSearchableAndIndexesUpdated()
+            throws InterruptedException {
+        createDatabase(3);
+
+        openAndCheckDatabase();
+    }
+
+    @Test
+    public void testMigrate_openVersion4DatabaseAndGetRowsSearchableAndIndexesUpdated()
+            throws InterruptedException {
+        createDatabase(4);
+
+        openAndCheckDatabase();
+    }
+
+    @Test
+    public void testMigrate_openVersion3DatabaseWithOtherLabelAndGetLabelKept() {
+        createDatabase(3, CATEGORY_3);
+        openDatabase();
+
+        final long categoryId = LabelDictionary.categories().getId(CATEGORY_3);
+        assertTrue(categoryId > mContext.getResources()
+                .getStringArray(R.array.category_list).length - 1);
+        final List<ListEntity> listEntities = mAListDatabase.list().selectPage(
+                new SimpleSQLiteQuery("SELECT * FROM list WHERE category = ?",
+                        new Object[]{categoryId}));
+        assertEquals(1, listEntities.size());
+        assertEquals(NAME_3, listEntities.get(0).getName());
+        assertEquals(CATEGORY_3, listEntities.get(0).getCategory());
+        assertEquals(STATUS_1, listEntities.get(0).getStatus());
+    }
+
+    @Test
+    public void testMigrate_insertAfterMigrationAndGetNewRowSearchable()
+            throws InterruptedException {
+        createDatabase(1);
+        openDatabase();
+
+        final ListEntity listEntity = new ListEntity();
+        listEntity.setName("Groceries");
+        listEntity.setDescription("");
+        listEntity.setCategory(CATEGORY_1);
+        listEntity.setStatus(STATUS_1);
+        mAListDatabase.list().insert(listEntity);
+
+        List<ListEntity> listEntities = search(
+                ListFtsEntity.toMatchExpression(ListEntity.NAME, "groc"));
+        assertEquals(2, listEntities.size());
+    }
+
+    /**
+     * Writes a database file as an earlier version of the app would have left it.
+     *
+     * @param version the schema version to write, 1, 2, 3 or 4
+     */
+    private void createDatabase(final int version) {
+        createDatabase(version, null);
+    }
+
+    /**
+     * Writes a database file as an earlier version of the app would have left it.
+     *
+     * @param version       the schema version to write, 1, 2, 3 or 4
+     * @param otherCategory a category which is not in the category list for a third row or
+     *                      <code>null</code>
+     */
+    private void createDatabase(final int version, final String otherCategory) {
+        final SupportSQLiteOpenHelper.Configuration configuration =
+                SupportSQLiteOpenHelper.Configuration.builder(mContext)
+                        .name(TEST_DATABASE_NAME)
+                        .callback(new SupportSQLiteOpenHelper.Callback(1) {
+                            @Override
+                            public void onCreate(@NonNull final SupportSQLiteDatabase db) {
+                                for (String sql : VERSION_1_SQL) {
+                                    db.execSQL(sql);
+                                }
+                            }
+
+                            @Override
+                            public void onUpgrade(@NonNull final SupportSQLiteDatabase db,
+                                                  final int oldVersion, final int newVersion) {
+                            }
+                        })
+                        .build();
+        final SupportSQLiteOpenHelper openHelper =
+                new FrameworkSQLiteOpenHelperFactory().create(configuration);
+        final SupportSQLiteDatabase db = openHelper.getWritableDatabase();
+
+        insertRow(db, NAME_1, DESCRIPTION_1, CATEGORY_1, STATUS_1);
+        insertRow(db, NAME_2, DESCRIPTION_2, CATEGORY_2, STATUS_2);
+        if (otherCategory != null) {
+            insertRow(db, NAME_3, DESCRIPTION_2, otherCategory, STATUS_1);
+        }
+
+        if (version >= 2) {
+            AListMigrations.MIGRATION_1_2.migrate(db);
+            db.setVersion(2);
+        }
+
+        if (version >= 3) {
+            AListMigrations.MIGRATION_2_3.migrate(db);
+            db.setVersion(3);
+        }
+
+        if (version >= 4) {
+            AListMigrations.MIGRATION_3_4.migrate(db);
+            db.setVersion(4);
+        }
+
+        openHelper.close();
+    }
+
+    private static void insertRow(final SupportSQLiteDatabase db, final String name,
+                                  final String description, final String category,
+                                  final String status) {
+        final ContentValues contentValues = new ContentValues();
+        contentValues.put(ListEntity.NAME, name);
+        contentValues.put(ListEntity.DESCRIPTION, description);
+        contentValues.put(ListEntity.CATEGORY, category);
+        contentValues.put(ListEntity.STATUS, status);
+        db.insert(ListEntity.TABLE_NAME, SQLiteDatabase.CONFLICT_ABORT, contentValues);
+    }
+
+    /**
+     * Opens the test database file with Room, which runs the migrations and then fails if the
+     * schema is not exactly what it expects.
+     */
+    private void openDatabase() {
+        mAListDatabase = Catalog.configure(Room.databaseBuilder(mContext,
+                        AListDatabase.class, TEST_DATABASE_NAME))
+                .addMigrations(AListMigrations.ALL)
+                .allowMainThreadQueries()
+                .build();
+        // Opening the database runs the migrations.
+        mAListDatabase.getOpenHelper().getWritableDatabase();
+    }
+
+    private void openAndCheckDatabase() throws InterruptedException {
+        openDatabase();
+
+        final SupportSQLiteDatabase db = mAListDatabase.getOpenHelper().getWritableDatabase();
+        assertEquals(5, db.getVersion());
+
+        // The rows are kept and can be found with the full-text search index.
+        List<ListEntity> listEntities = search(
+                ListFtsEntity.toMatchExpression(ListEntity.NAME, "gro"));
+        assertEquals(1, listEntities.size());
+        assertEquals(NAME_1, listEntities.get(0).getName());
+        assertEquals(DESCRIPTION_1, listEntities.get(0).getDescription());
+        assertEquals(CATEGORY_1, listEntities.get(0).getCategory());
+        assertEquals(STATUS_1, listEntities.get(0).getStatus());
+        assertEquals(ListEntity.NOT_DELETED, listEntities.get(0).getDeleted());
+
+        final Set<String> indexNames = getIndexNames(db);
+        assertFalse(indexNames.contains("index_list__id"));
+        assertFalse(indexNames.contains("index_list_name"));
+        assertTrue(indexNames.contains("index_list_name_deleted"));
+        assertTrue(indexNames.contains("index_list_category_status_name_description_deleted"));
+        assertTrue(indexNames.contains("index_list_status_category_name_description_deleted"));
+        assertTrue(indexNames.contains("index_list_description_category_status_name_deleted"));
+        assertTrue(indexNames.contains("index_list_deleted"));
+
+        // The category and status lists are in the lookup tables with the ids of their positions.
+        final String[] categories = mContext.getResources().getStringArray(R.array.category_list);
+        final String[] statuses = mContext.getResources().getStringArray(R.array.status_list);
+        for (int i = 1; i < categories.length; i++) {
+            assertEquals(i, LabelDictionary.categories().getId(categories[i]));
+        }
+        for (int i = 1; i < statuses.length; i++) {
+            assertEquals(i, LabelDictionary.statuses().getId(statuses[i]));
+        }
+        assertEquals(categories.length - 1, LabelDictionary.categories().getLabels().size());
+        assertEquals(statuses.length - 1, LabelDictionary.statuses().getLabels().size());
+    }
+
+    private List<ListEntity> search(final String match) {
+        return mAListDatabase.list().selectPage(new SimpleSQLiteQuery(QUERY_SEARCH,
+                new Object[]{match}));
+    }
+
+    private static Set<String> getIndexNames(final SupportSQLiteDatabase db) {
+        final Set<String> indexNames = new HashSet<>();
+        final Cursor cursor = db.query("PRAGMA index_list(`" + ListEntity.TABLE_NAME + "`)");
+        try {
+            final int nameIndex = cursor.getColumnIndexOrThrow("name");
+            while (cursor.moveToNext()) {
+                indexNames.add(cursor.getString(nameIndex));
+            }
+        } finally {
+            cursor.close();
+        }
+        return indexNames;
+    }
+}
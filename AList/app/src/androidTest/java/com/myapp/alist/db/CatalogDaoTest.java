@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.HashMap;
+
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class CatalogDaoTest {
+    private static final String NAME_1 = "Name 1";
+    private static final String CATEGORY_1 = "To Do";
+    private static final String STATUS_1 = "Current";
+    private static final String NEW_CATEGORY = "Gifts";
+    private static final String NEW_STATUS = "Wrapped";
+    private AListDatabase mAListDatabase;
+    private CatalogDao mCatalogDao;
+    private SupportSQLiteDatabase mDb;
+
+    @Before
+    public void setUp() {
+        // Using an in-memory database because the information stored here disappears when the
+        // process is killed.
+        mAListDatabase = AListDatabase.switchToInMemory(
+                ApplicationProvider.getApplicationContext());
+        mCatalogDao = mAListDatabase.catalog();
+        // Opening the database seeds the lookup tables and loads the catalog.
+        mDb = mAListDatabase.getOpenHelper().getWritableDatabase();
+    }
+
+    @After
+    public void closeDatabase() {
+        mAListDatabase.close();
+    }
+
+    @Test
+    public void testCatalog_loadedWhenOpenedWithTheSeedIds() {
+        final Catalog catalog = Catalog.get();
+        assertEquals(1L, catalog.getCategories().getId(CATEGORY_1));
+        assertEquals(CATEGORY_1, catalog.getCategories().getLabel(1L));
+        assertNotEquals(LabelDictionary.NO_ID, catalog.getStatuses().getId(STATUS_1));
+        assertEquals(LabelDictionary.NO_ID, catalog.getCategories().getId(NEW_CATEGORY));
+    }
+
+    @Test
+    public void testInsertCategory_newLabelIsInTheNextCatalogOnly() {
+        final Catalog before = Catalog.get();
+        final long id = mCatalogDao.insertCategory(NEW_CATEGORY);
+        assertTrue(id > 0L);
+        // The snapshot is not changed until it is loaded again.
+        assertSame(before, Catalog.get());
+        assertEquals(LabelDictionary.NO_ID, Catalog.get().getCategories().getId(NEW_CATEGORY));
+
+        Catalog.load(mDb);
+        final Catalog after = Catalog.get();
+        assertNotEquals(before, after);
+        assertEquals(id, after.getCategories().getId(NEW_CATEGORY));
+        assertEquals(NEW_CATEGORY, after.getCategories().getLabel(id));
+        // The new label is last because the labels are in id order.
+        assertEquals(NEW_CATEGORY, after.getCategories().getLabels().get(
+                after.getCategories().getLabels().size() - 1));
+        // The statuses are unchanged.
+        assertEquals(before.getStatuses().getLabels(), after.getStatuses().getLabels());
+
+        // An item can now be given the new category.
+        final HashMap<String, String> values = new HashMap<>();
+        values.put(ListEntity.NAME, NAME_1);
+        values.put(ListEntity.DESCRIPTION, "");
+        values.put(ListEntity.CATEGORY, NEW_CATEGORY);
+        values.put(ListEntity.STATUS, STATUS_1);
+        final ListEntity listEntity = ListEntity.verifyValues(values);
+        assertNotNull(listEntity);
+        assertEquals(id, listEntity.getCategoryId());
+        assertTrue(mAListDatabase.list().insert(listEntity) > 0L);
+    }
+
+    @Test
+    public void testInsertCategory_usedLabelIsIgnored() {
+        assertEquals(-1L, mCatalogDao.insertCategory(CATEGORY_1));
+    }
+
+    @Test
+    public void testInsertStatus_newLabelIsLoaded() {
+        final long id = mCatalogDao.insertStatus(NEW_STATUS);
+        assertTrue(id > 0L);
+        Catalog.load(mDb);
+        assertEquals(id, Catalog.get().getStatuses().getId(NEW_STATUS));
+    }
+
+    @Test
+    public void testIsValidLabel_blankAllAndUsedLabelsAreNotValid() {
+        final Catalog catalog = Catalog.get();
+        assertFalse(catalog.isValidLabel(ListEntity.CATEGORY, null));
+        assertFalse(catalog.isValidLabel(ListEntity.CATEGORY, " "));
+        assertFalse(catalog.isValidLabel(ListEntity.CATEGORY, catalog.getAllLabel()));
+        assertFalse(catalog.isValidLabel(ListEntity.CATEGORY,
+                " " + CATEGORY_1.toUpperCase() + " "));
+        assertTrue(catalog.isValidLabel(ListEntity.CATEGORY, NEW_CATEGORY));
+    }
+}
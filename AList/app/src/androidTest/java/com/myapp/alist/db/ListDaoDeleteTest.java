@@ -37,11 +37,15 @@ public class ListDaoDeleteTest {
     private static final String STATUS_2 = "In Progress";
     private static final String WHERE = ListEntity.NAME + " LIKE ? AND " +
             ListEntity.DESCRIPTION + " LIKE ? AND " +
-            ListEntity.CATEGORY + " LIKE ? AND " +
-            ListEntity.STATUS + " LIKE ?";
-    private static final String[] WHERE_ARGS = {NAME_1, DESCRIPTION_1, CATEGORY_1, STATUS_1};
+            ListEntity.CATEGORY + " = ? AND " +
+            ListEntity.STATUS + " = ?";
+    // The category and status columns hold the ids of their labels.
+    private static final Object[] WHERE_ARGS = {NAME_1, DESCRIPTION_1,
+            LabelDictionary.categories().getId(CATEGORY_1),
+            LabelDictionary.statuses().getId(STATUS_1)};
     private static final String INVALID = "Invalid";
-    private static final String[] INVALID_WHERE_ARGS = {INVALID, INVALID, INVALID, INVALID};
+    private static final Object[] INVALID_WHERE_ARGS = {INVALID, INVALID, LabelDictionary.NO_ID,
+            LabelDictionary.NO_ID};
     private static final String QUERY = "SELECT * FROM " + ListEntity.TABLE_NAME +
             " WHERE " + WHERE;
     private AListDatabase mAListDatabase;
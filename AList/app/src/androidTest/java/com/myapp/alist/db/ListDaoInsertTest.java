@@ -6,12 +6,14 @@ package com.myapp.alist.db;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.fail;
 
 import android.database.sqlite.SQLiteConstraintException;
 
+import androidx.sqlite.db.SimpleSQLiteQuery;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import androidx.test.filters.LargeTest;
@@ -21,13 +23,16 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 @RunWith(AndroidJUnit4.class)
 @LargeTest
 public class ListDaoInsertTest {
     private static final String NAME_1 = "Name 1";
     private static final String NAME_2 = "Name 2";
+    private static final String NAME_3 = "Name 3";
     private static final String DESCRIPTION_1 = "Description 1";
     private static final String DESCRIPTION_2 = "Description 2";
     private static final String CATEGORY_1 = "To Do";
@@ -161,4 +166,62 @@ public class ListDaoInsertTest {
         // Accept "" but not " ".
         assertEquals(1, id);
     }
+
+    @Test
+    public void testInsertOrIgnore_callInsertOrIgnoreWithDuplicatesAndGetExpectedIds() {
+        testInsert_callInsertAndGetExpectedId();
+
+        final List<ListEntity> listEntities = new ArrayList<>();
+        listEntities.add(createListEntity(NAME_2, DESCRIPTION_2, CATEGORY_2, STATUS_2));
+        // Already in the list table.
+        listEntities.add(createListEntity(NAME_1, DESCRIPTION_2, CATEGORY_2, STATUS_2));
+        // Earlier in the same batch.
+        listEntities.add(createListEntity(NAME_2, DESCRIPTION_1, CATEGORY_1, STATUS_1));
+        listEntities.add(createListEntity(NAME_3, DESCRIPTION_1, CATEGORY_1, STATUS_1));
+
+        final long[] ids = mListDao.insertOrIgnore(listEntities);
+        assertArrayEquals(new long[]{2L, -1L, -1L, 3L}, ids);
+    }
+
+    @Test
+    public void testSelectIdByName_callSelectIdByNameAndGetExistingId() {
+        testInsertOrIgnore_callInsertOrIgnoreWithDuplicatesAndGetExpectedIds();
+
+        assertEquals(1L, mListDao.selectIdByName(NAME_1));
+        assertEquals(3L, mListDao.selectIdByName(NAME_3));
+        assertEquals(0L, mListDao.selectIdByName(NAME_1 + " 1"));
+    }
+
+    @Test
+    public void testUpdateValues_callUpdateValuesAndKeepName() {
+        testInsert_callInsertAndGetExpectedId();
+
+        assertEquals(1, mListDao.updateValues(1L, DESCRIPTION_2,
+                LabelDictionary.categories().getId(CATEGORY_2),
+                LabelDictionary.statuses().getId(STATUS_2)));
+        // The item already has the values so is not rewritten.
+        assertEquals(0, mListDao.updateValues(1L, DESCRIPTION_2,
+                LabelDictionary.categories().getId(CATEGORY_2),
+                LabelDictionary.statuses().getId(STATUS_2)));
+
+        final List<ListEntity> listEntities = mListDao.selectPage(new SimpleSQLiteQuery(
+                "SELECT * FROM list WHERE _id = 1"));
+        assertEquals(1, listEntities.size());
+        assertEquals(NAME_1, listEntities.get(0).getName());
+        assertEquals(DESCRIPTION_2, listEntities.get(0).getDescription());
+        assertEquals(CATEGORY_2, listEntities.get(0).getCategory());
+        assertEquals(STATUS_2, listEntities.get(0).getStatus());
+    }
+
+    private static ListEntity createListEntity(final String name, final String description,
+                                               final String category, final String status) {
+        final HashMap<String, String> values = new HashMap<>();
+        values.put(ListEntity.NAME, name);
+        values.put(ListEntity.DESCRIPTION, description);
+        values.put(ListEntity.CATEGORY, category);
+        values.put(ListEntity.STATUS, status);
+        final ListEntity listEntity = ListEntity.verifyValues(values);
+        assertNotNull(listEntity);
+        return listEntity;
+    }
 }
@@ -38,10 +38,16 @@ public class ListDaoQueryTest {
     private static final String QUERY_SELECT_ALL = "SELECT * FROM " + ListEntity.TABLE_NAME;
     private static final String QUERY = QUERY_SELECT_ALL + " WHERE " +
             ListEntity.NAME + " LIKE ? AND " + ListEntity.DESCRIPTION + " LIKE ? AND " +
-            ListEntity.CATEGORY + " LIKE ? AND " + ListEntity.STATUS + " LIKE ?";
-    private static final String[] WHERE_ARGS = {NAME_1, DESCRIPTION_1, CATEGORY_1, STATUS_1};
-    private static final String[] INVALID_WHERE_ARGS = {"Invalid Name", "Invalid Description",
-            "Invalid Category", "Invalid Status"};
+            ListEntity.CATEGORY + " = ? AND " + ListEntity.STATUS + " = ?";
+    // The category and status columns hold the ids of their labels.
+    private static final Object[] WHERE_ARGS = {NAME_1, DESCRIPTION_1,
+            LabelDictionary.categories().getId(CATEGORY_1),
+            LabelDictionary.statuses().getId(STATUS_1)};
+    // The FTS index is matched first and only the matching rows are read from the list table.
+    private static final String QUERY_SEARCH = "SELECT * FROM list WHERE deleted = 0 AND _id IN " +
+            "(SELECT rowid FROM list_fts WHERE list_fts MATCH ?)";
+    private static final Object[] INVALID_WHERE_ARGS = {"Invalid Name", "Invalid Description",
+            LabelDictionary.NO_ID, LabelDictionary.NO_ID};
     private static final String ORDER_BY = " ORDER BY ";
     private static final String DESC = " DESC";
     private AListDatabase mAListDatabase;
@@ -228,6 +234,60 @@ public class ListDaoQueryTest {
         checkFirstRow(index, listEntities);
     }
 
+    @Test
+    public void testSearch_callSearchWithWordPrefixAndGetExpectedData()
+            throws InterruptedException {
+        List<ListEntity> listEntities = search(
+                ListFtsEntity.toMatchExpression(ListEntity.NAME, "nam 1"));
+        assertNotNull("List<ListEntity> is null", listEntities);
+        assertEquals("List<ListEntity> count is not one", 1, listEntities.size());
+
+        checkFirstRow(0, listEntities);
+    }
+
+    @Test
+    public void testSearch_callSearchWithNameAndDescriptionAndGetExpectedData()
+            throws InterruptedException {
+        List<ListEntity> listEntities = search(
+                ListFtsEntity.toMatchExpression(ListEntity.NAME, "NAME") + " " +
+                        ListFtsEntity.toMatchExpression(ListEntity.DESCRIPTION, "descr 2"));
+        assertNotNull("List<ListEntity> is null", listEntities);
+        assertEquals("List<ListEntity> count is not one", 1, listEntities.size());
+
+        checkSecondRow(0, listEntities);
+    }
+
+    @Test
+    public void testSearch_callSearchWithMiddleOfWordAndGetNoData() throws InterruptedException {
+        List<ListEntity> listEntities = search(
+                ListFtsEntity.toMatchExpression(ListEntity.NAME, "ame"));
+        assertNotNull("List<ListEntity> is null", listEntities);
+        assertEquals("List<ListEntity> count is not zero", 0, listEntities.size());
+    }
+
+    @Test
+    public void testSearch_callSearchAfterUpdateAndGetExpectedData() throws InterruptedException {
+        ListEntity listEntity = search(
+                ListFtsEntity.toMatchExpression(ListEntity.NAME, "name 1")).get(0);
+        listEntity.setName("Groceries");
+        assertEquals(1, mListDao.update(listEntity));
+
+        List<ListEntity> listEntities = search(
+                ListFtsEntity.toMatchExpression(ListEntity.NAME, "gro"));
+        assertNotNull("List<ListEntity> is null", listEntities);
+        assertEquals("List<ListEntity> count is not one", 1, listEntities.size());
+        assertEquals(1, listEntities.get(0).getId());
+
+        listEntities = search(
+                ListFtsEntity.toMatchExpression(ListEntity.NAME, "name 1"));
+        assertNotNull("List<ListEntity> is null", listEntities);
+        assertEquals("List<ListEntity> count is not zero", 0, listEntities.size());
+    }
+
+    private List<ListEntity> search(String match) {
+        return mListDao.selectPage(new SimpleSQLiteQuery(QUERY_SEARCH, new Object[]{match}));
+    }
+
     private List<ListEntity> queryWithSortOrder(String sortOrder) throws InterruptedException {
         List<ListEntity> listEntities = LiveDataTestUtil.getValue(mListDao.doRawQuery(
                 new SimpleSQLiteQuery(QUERY_SELECT_ALL + ORDER_BY + sortOrder)));
@@ -45,11 +45,15 @@ public class ListDaoUpdateTest {
     private static final String STATUS_2 = "In Progress";
     private static final String WHERE = ListEntity.NAME + " LIKE ? AND " +
             ListEntity.DESCRIPTION + " LIKE ? AND " +
-            ListEntity.CATEGORY + " LIKE ? AND " +
-            ListEntity.STATUS + " LIKE ?";
-    private static final String[] WHERE_ARGS = {NAME_1, DESCRIPTION_1, CATEGORY_1, STATUS_1};
-    private static final String[] UPDATED_WHERE_ARGS = {NAME_2, DESCRIPTION_2, CATEGORY_2,
-            STATUS_2};
+            ListEntity.CATEGORY + " = ? AND " +
+            ListEntity.STATUS + " = ?";
+    // The category and status columns hold the ids of their labels.
+    private static final Object[] WHERE_ARGS = {NAME_1, DESCRIPTION_1,
+            LabelDictionary.categories().getId(CATEGORY_1),
+            LabelDictionary.statuses().getId(STATUS_1)};
+    private static final Object[] UPDATED_WHERE_ARGS = {NAME_2, DESCRIPTION_2,
+            LabelDictionary.categories().getId(CATEGORY_2),
+            LabelDictionary.statuses().getId(STATUS_2)};
     private static final String QUERY = "SELECT * FROM " + ListEntity.TABLE_NAME +
             " WHERE " + WHERE;
     private AListDatabase mAListDatabase;
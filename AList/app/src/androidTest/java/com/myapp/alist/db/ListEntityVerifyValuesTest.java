@@ -6,6 +6,8 @@ package com.myapp.alist.db;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 
@@ -21,6 +23,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.util.HashMap;
+import java.util.Locale;
 
 @RunWith(AndroidJUnit4.class)
 @LargeTest
@@ -350,4 +353,35 @@ public class ListEntityVerifyValuesTest {
         listEntity = ListEntity.verifyValues(values);
         assertNull(listEntity);
     }
+
+    @Test
+    public void testVerifyValues_callVerifyValuesWithUnknownCategory() {
+        final HashMap<String, String> values = new HashMap<>();
+        final ListEntity listEntity;
+
+        values.put(ListEntity.NAME, NAME_1);
+        values.put(ListEntity.DESCRIPTION, DESCRIPTION_1);
+        values.put(ListEntity.CATEGORY, "Not A Category");
+        values.put(ListEntity.STATUS, STATUS_1);
+
+        listEntity = ListEntity.verifyValues(values);
+        assertNull(listEntity);
+    }
+
+    @Test
+    public void testVerifyValues_callVerifyValuesWithOtherCaseAndGetDictionaryLabels() {
+        final HashMap<String, String> values = new HashMap<>();
+        final ListEntity listEntity;
+
+        values.put(ListEntity.NAME, NAME_1);
+        values.put(ListEntity.DESCRIPTION, DESCRIPTION_1);
+        values.put(ListEntity.CATEGORY, " " + CATEGORY_1.toLowerCase(Locale.ROOT));
+        values.put(ListEntity.STATUS, STATUS_1.toUpperCase(Locale.ROOT) + " ");
+
+        listEntity = ListEntity.verifyValues(values);
+        assertNotNull(listEntity);
+        assertEquals(LabelDictionary.categories().getId(CATEGORY_1), listEntity.getCategoryId());
+        assertEquals(CATEGORY_1, listEntity.getCategory());
+        assertEquals(STATUS_1, listEntity.getStatus());
+    }
 }
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteStatement;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.myapp.alist.R;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Compares the {@link StorageProfile}s on reads made while a background thread writes, as when
+ * the list is selected again during an import.  Each profile gets a new database file.  The
+ * median and worst read times and the write time are written to logcat with the tag
+ * "StorageBenchmarkTest".
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class StorageBenchmarkTest {
+    private static final String TAG = "StorageBenchmarkTest";
+    private static final String DATABASE_NAME = "storage_benchmark.db";
+    private static final int SEED_ROWS = 20000;
+    private static final int WRITE_TRANSACTIONS = 200;
+    private static final int ROWS_PER_WRITE = 10;
+    private static final int MAX_READS = 10000;
+    private static final String INSERT_SQL = "INSERT INTO " + ListEntity.TABLE_NAME + " (" +
+            ListEntity.NAME + ", " + ListEntity.DESCRIPTION + ", " + ListEntity.CATEGORY + ", " +
+            ListEntity.STATUS + ") VALUES (?, ?, ?, ?)";
+    private Context mContext;
+    private String[] mCategories;
+    private String[] mStatuses;
+    private AListDatabase mAListDatabase;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mCategories = mContext.getResources().getStringArray(R.array.category_list);
+        mStatuses = mContext.getResources().getStringArray(R.array.status_list);
+        mContext.deleteDatabase(DATABASE_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        if (mAListDatabase != null) {
+            mAListDatabase.close();
+        }
+        mContext.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void testProfiles_readWhileWritingAndGetAllRows() throws Exception {
+        final StorageProfile[] storageProfiles = {StorageProfile.LEGACY,
+                StorageProfile.LOW_MEMORY, StorageProfile.STANDARD, StorageProfile.HIGH_MEMORY};
+
+        for (StorageProfile storageProfile : storageProfiles) {
+            run(storageProfile);
+            mAListDatabase.close();
+            mAListDatabase = null;
+            mContext.deleteDatabase(DATABASE_NAME);
+        }
+    }
+
+    /**
+     * Seeds a new database with a profile and then reads from it until a background thread has
+     * finished writing.
+     *
+     * @param storageProfile the profile
+     * @throws Exception if the writer fails
+     */
+    private void run(final StorageProfile storageProfile) throws Exception {
+        mAListDatabase = storageProfile.configure(Catalog.configure(
+                Room.databaseBuilder(mContext, AListDatabase.class, DATABASE_NAME))).build();
+        final SupportSQLiteDatabase db = mAListDatabase.getOpenHelper().getWritableDatabase();
+        assertEquals(storageProfile.getJournalMode() ==
+                RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING, db.isWriteAheadLoggingEnabled());
+        insert(db, 0, SEED_ROWS);
+        db.execSQL("ANALYZE");
+
+        final SupportSQLiteQuery query = new SimpleSQLiteQuery("SELECT " + ListEntity._ID + ", " +
+                ListEntity.NAME + ", " + ListEntity.DESCRIPTION + ", " + ListEntity.CATEGORY +
+                ", " + ListEntity.STATUS + " FROM " + ListEntity.TABLE_NAME + " WHERE " +
+                ListEntity.CATEGORY + " = ? ORDER BY " + ListEntity.NAME,
+                new Object[]{LabelDictionary.categories().getId(mCategories[1])});
+        final AtomicReference<Throwable> writerError = new AtomicReference<>();
+        final long[] writeNanos = new long[1];
+        //noinspection Convert2Lambda
+        final Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final long start = System.nanoTime();
+                    for (int i = 0; i < WRITE_TRANSACTIONS; i++) {
+                        insert(db, SEED_ROWS + i * ROWS_PER_WRITE, ROWS_PER_WRITE);
+                    }
+                    writeNanos[0] = System.nanoTime() - start;
+                } catch (Throwable t) {
+                    writerError.set(t);
+                }
+            }
+        });
+
+        final long[] readNanos = new long[MAX_READS];
+        int reads = 0;
+        writer.start();
+        while (writer.isAlive() && reads < MAX_READS) {
+            final long start = System.nanoTime();
+            final Cursor cursor = mAListDatabase.query(query);
+            try {
+                int count = 0;
+                while (cursor.moveToNext()) {
+                    count++;
+                }
+                assertTrue(count > 0);
+            } finally {
+                cursor.close();
+            }
+            readNanos[reads++] = System.nanoTime() - start;
+        }
+        writer.join();
+        assertNull(writerError.get());
+        assertEquals(SEED_ROWS + WRITE_TRANSACTIONS * ROWS_PER_WRITE,
+                count(new SimpleSQLiteQuery("SELECT COUNT(*) FROM " +
+                        ListEntity.TABLE_NAME)));
+
+        assertTrue(reads > 0);
+        final long[] sortedNanos = Arrays.copyOf(readNanos, reads);
+        Arrays.sort(sortedNanos);
+        Log.i(TAG, storageProfile + ": " + reads + " reads, median " +
+                sortedNanos[reads / 2] / 1000L + "us, worst " + sortedNanos[reads - 1] / 1000L +
+                "us, " + WRITE_TRANSACTIONS + " writes " + writeNanos[0] / 1000000L + "ms");
+    }
+
+    /**
+     * Inserts rows in one transaction.
+     *
+     * @param db    the database
+     * @param first the number of the first row
+     * @param count the number of rows
+     */
+    private void insert(final SupportSQLiteDatabase db, final int first, final int count) {
+        db.beginTransaction();
+        try {
+            final SupportSQLiteStatement statement = db.compileStatement(INSERT_SQL);
+            for (int i = first; i < first + count; i++) {
+                statement.bindString(1, "Item " + i);
+                statement.bindString(2, "Description " + i);
+                // The ids of the array values are their positions.
+                statement.bindLong(3, 1 + i % (mCategories.length - 1));
+                statement.bindLong(4, 1 + (i / 7) % (mStatuses.length - 1));
+                statement.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private int count(final SupportSQLiteQuery query) {
+        final Cursor cursor = mAListDatabase.query(query);
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.suite;
+
+import com.myapp.alist.datarepository.FilterBenchmarkTest;
+import com.myapp.alist.db.StorageBenchmarkTest;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+
+// Kept apart from the database suite because the benchmarks seed large tables and take a while.
+@RunWith(Suite.class)
+@Suite.SuiteClasses({
+        FilterBenchmarkTest.class,
+        StorageBenchmarkTest.class,
+})
+
+public class AListBenchmarkTestSuite {
+}
@@ -4,11 +4,22 @@
 
 package com.myapp.alist.suite;
 
+import com.myapp.alist.datarepository.DatabaseMaintenanceTest;
+import com.myapp.alist.datarepository.KeysetPagingSourceTest;
+import com.myapp.alist.datarepository.QueryCompilerTest;
+import com.myapp.alist.datarepository.QuerySchedulerTest;
+import com.myapp.alist.datarepository.ResultCacheTest;
+import com.myapp.alist.datarepository.ResultRefinerTest;
+import com.myapp.alist.db.AListMigrationsTest;
+import com.myapp.alist.db.CatalogDaoTest;
 import com.myapp.alist.db.ListDaoDeleteTest;
 import com.myapp.alist.db.ListDaoInsertTest;
 import com.myapp.alist.db.ListDaoQueryTest;
 import com.myapp.alist.db.ListDaoUpdateTest;
 import com.myapp.alist.db.ListEntityVerifyValuesTest;
+import com.myapp.alist.transfer.CsvItemReaderTest;
+import com.myapp.alist.transfer.ItemExporterTest;
+import com.myapp.alist.transfer.ItemImporterTest;
 
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
@@ -20,6 +31,17 @@ import org.junit.runners.Suite;
         ListDaoInsertTest.class,
         ListDaoUpdateTest.class,
         ListDaoDeleteTest.class,
+        QueryCompilerTest.class,
+        KeysetPagingSourceTest.class,
+        QuerySchedulerTest.class,
+        ResultRefinerTest.class,
+        ResultCacheTest.class,
+        DatabaseMaintenanceTest.class,
+        AListMigrationsTest.class,
+        CatalogDaoTest.class,
+        CsvItemReaderTest.class,
+        ItemImporterTest.class,
+        ItemExporterTest.class,
 })
 
 public class AListDatabaseTestSuite {
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.transfer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.myapp.alist.db.ListEntity;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class CsvItemReaderTest {
+    @Test
+    public void testReadItem_callReadItemWithQuotedFieldsAndGetExpectedValues() throws IOException {
+        final CsvItemReader csvItemReader = createReader("\uFEFFStatus,Name,Extra,Category\r\n" +
+                "Current,\"Milk, semi-skimmed\",x,Shopping\r\n" +
+                "\r\n" +
+                "In Progress,\"Say \"\"hello\"\"\nto Jo\",,To Do\n");
+
+        HashMap<String, String> values = csvItemReader.readItem();
+        assertNotNull(values);
+        assertEquals("Milk, semi-skimmed", values.get(ListEntity.NAME));
+        assertEquals("", values.get(ListEntity.DESCRIPTION));
+        assertEquals("Shopping", values.get(ListEntity.CATEGORY));
+        assertEquals("Current", values.get(ListEntity.STATUS));
+
+        // The blank line is skipped.
+        values = csvItemReader.readItem();
+        assertNotNull(values);
+        assertEquals("Say \"hello\"\nto Jo", values.get(ListEntity.NAME));
+        assertEquals("To Do", values.get(ListEntity.CATEGORY));
+        assertEquals("In Progress", values.get(ListEntity.STATUS));
+
+        assertNull(csvItemReader.readItem());
+        csvItemReader.close();
+    }
+
+    @Test
+    public void testReadItem_callReadItemWithShortRowAndGetEmptyValues() throws IOException {
+        final CsvItemReader csvItemReader = createReader(
+                "name,description,category,status\nGardening");
+
+        final HashMap<String, String> values = csvItemReader.readItem();
+        assertNotNull(values);
+        assertEquals("Gardening", values.get(ListEntity.NAME));
+        assertEquals("", values.get(ListEntity.CATEGORY));
+        assertNull(ListEntity.verifyValues(values));
+        assertNull(csvItemReader.readItem());
+        csvItemReader.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadItem_callReadItemWithoutNameColumnAndGetException() throws IOException {
+        createReader("description,category,status\nMilk,Shopping,Current\n").readItem();
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadItem_callReadItemWithUnclosedQuoteAndGetException() throws IOException {
+        final CsvItemReader csvItemReader = createReader("name\n\"Milk\nBread\n");
+
+        csvItemReader.readItem();
+    }
+
+    private static CsvItemReader createReader(final String text) {
+        return new CsvItemReader(new ByteArrayInputStream(text.getBytes(
+                Charset.forName("UTF-8"))));
+    }
+}
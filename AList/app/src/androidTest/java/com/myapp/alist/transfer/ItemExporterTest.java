@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.transfer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import android.database.MatrixCursor;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.myapp.alist.db.LabelDictionary;
+import com.myapp.alist.db.ListEntity;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class ItemExporterTest {
+    private static final String NAME_1 = "Milk, semi-skimmed";
+    private static final String NAME_2 = "Say \"hello\"";
+    private static final String DESCRIPTION_1 = "Two pints\nor more";
+    private static final String DESCRIPTION_2 = "";
+    private static final String CATEGORY = "Shopping";
+    private static final String STATUS = "Current";
+    private MatrixCursor mCursor;
+
+    @Before
+    public void setUp() {
+        // The list table stores the category and status ids.
+        final long categoryId = LabelDictionary.categories().getId(CATEGORY);
+        final long statusId = LabelDictionary.statuses().getId(STATUS);
+        mCursor = new MatrixCursor(new String[]{ListEntity._ID, ListEntity.NAME,
+                ListEntity.DESCRIPTION, ListEntity.CATEGORY, ListEntity.STATUS});
+        mCursor.addRow(new Object[]{1L, NAME_1, DESCRIPTION_1, categoryId, statusId});
+        mCursor.addRow(new Object[]{2L, NAME_2, DESCRIPTION_2, categoryId, statusId});
+    }
+
+    @Test
+    public void testExport_callExportWithCsvAndReadSameItemsBack() throws IOException {
+        final byte[] bytes = export(ExportFormat.CSV);
+
+        assertItems(new CsvItemReader(new ByteArrayInputStream(bytes)));
+    }
+
+    @Test
+    public void testExport_callExportWithJsonAndReadSameItemsBack() throws IOException {
+        final byte[] bytes = export(ExportFormat.JSON);
+
+        assertItems(new JsonItemReader(new ByteArrayInputStream(bytes)));
+    }
+
+    @Test
+    public void testExport_callExportWithTextAndGetOneLinePerItem() throws IOException {
+        final String text = new String(export(ExportFormat.TEXT), Charset.forName("UTF-8"));
+
+        assertEquals(NAME_1 + ", " + DESCRIPTION_1 + ", " + CATEGORY + ", " + STATUS + "\n" +
+                NAME_2 + ", " + DESCRIPTION_2 + ", " + CATEGORY + ", " + STATUS + "\n", text);
+    }
+
+    @Test
+    public void testExportText_callExportTextAndGetTextOnlyWithinLimit() {
+        final String line1 = NAME_1 + ", " + DESCRIPTION_1 + ", " + CATEGORY + ", " + STATUS +
+                "\n";
+        final String line2 = NAME_2 + ", " + DESCRIPTION_2 + ", " + CATEGORY + ", " + STATUS +
+                "\n";
+
+        assertEquals(line1 + line2, ItemExporter.exportText(mCursor,
+                line1.length() + line2.length()));
+
+        mCursor.moveToPosition(-1);
+        assertNull(ItemExporter.exportText(mCursor, line1.length() + line2.length() - 1));
+    }
+
+    @Test(expected = OperationCanceledException.class)
+    public void testExport_callExportWithCancelledSignalAndGetException() throws IOException {
+        final CancellationSignal cancellationSignal = new CancellationSignal();
+        cancellationSignal.cancel();
+
+        ItemExporter.export(mCursor, new ByteArrayOutputStream(), ExportFormat.CSV,
+                cancellationSignal);
+    }
+
+    private byte[] export(final ExportFormat exportFormat) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        assertEquals(2, ItemExporter.export(mCursor, outputStream, exportFormat, null));
+        mCursor.close();
+        return outputStream.toByteArray();
+    }
+
+    private static void assertItems(final ItemReader itemReader) throws IOException {
+        HashMap<String, String> values = itemReader.readItem();
+        assertNotNull(values);
+        assertEquals(NAME_1, values.get(ListEntity.NAME));
+        assertEquals(DESCRIPTION_1, values.get(ListEntity.DESCRIPTION));
+        assertEquals(CATEGORY, values.get(ListEntity.CATEGORY));
+        assertEquals(STATUS, values.get(ListEntity.STATUS));
+
+        values = itemReader.readItem();
+        assertNotNull(values);
+        assertEquals(NAME_2, values.get(ListEntity.NAME));
+        assertEquals(DESCRIPTION_2, values.get(ListEntity.DESCRIPTION));
+
+        assertNull(itemReader.readItem());
+        itemReader.close();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.transfer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.os.CancellationSignal;
+
+import androidx.annotation.NonNull;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.myapp.alist.datarepository.DataRepository;
+import com.myapp.alist.datarepository.InsertResult;
+import com.myapp.alist.db.ListEntity;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// The batch writer records the chunks instead of writing to a database so only the importer is
+// tested.  DataRepository.insertItems() is tested through ListDao.insertOrIgnore().
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class ItemImporterTest {
+    private final List<Integer> mChunkSizes = new ArrayList<>();
+    private final Set<String> mNames = new HashSet<>();
+    private ItemImporter mItemImporter;
+
+    @Before
+    public void setUp() {
+        //noinspection Convert2Lambda
+        mItemImporter = new ItemImporter(new ItemImporter.BatchWriter() {
+            @NonNull
+            @Override
+            public List<InsertResult> insertItems(
+                    @NonNull final List<HashMap<String, String>> valuesList) {
+                mChunkSizes.add(valuesList.size());
+                final List<InsertResult> insertResults = new ArrayList<>();
+                for (final HashMap<String, String> values : valuesList) {
+                    final String name = values.get(ListEntity.NAME);
+                    final int status;
+                    if (ListEntity.verifyValues(values) == null) {
+                        status = InsertResult.STATUS_INVALID;
+                    } else if (!mNames.add(name)) {
+                        status = InsertResult.STATUS_DUPLICATE_NAME;
+                    } else {
+                        status = InsertResult.STATUS_INSERTED;
+                    }
+                    insertResults.add(new InsertResult(status, -1L, name));
+                }
+                return insertResults;
+            }
+        });
+    }
+
+    @Test
+    public void testImportItems_callImportItemsWithLargeCsvAndGetChunkedWrites() {
+        final int rowCount = DataRepository.BATCH_CHUNK_SIZE * 2 + 10;
+        final StringBuilder csv = new StringBuilder("name,description,category,status\n");
+        for (int i = 0; i < rowCount; i++) {
+            csv.append("Item ").append(i).append(",,To Do,Current\n");
+        }
+        csv.append("Item 0,,To Do,Current\n");
+        csv.append("Bad,,All,Current\n");
+
+        final List<ImportResult> progress = new ArrayList<>();
+        //noinspection Convert2Lambda
+        final ImportResult importResult = mItemImporter.importItems(new CsvItemReader(
+                toInputStream(csv.toString())), csv.length(), new CancellationSignal(),
+                new ItemImporter.ProgressListener() {
+                    @Override
+                    public void onProgress(@NonNull final ImportResult importResult) {
+                        progress.add(importResult);
+                    }
+                });
+
+        assertEquals(ImportResult.STATE_FINISHED, importResult.getState());
+        assertEquals(rowCount + 2, importResult.getRowCount());
+        assertEquals(rowCount, importResult.getInsertedCount());
+        assertEquals(1, importResult.getDuplicateCount());
+        assertEquals("Item 0", importResult.getDuplicateNames().get(0));
+        assertEquals(1, importResult.getInvalidCount());
+        assertEquals(100, importResult.getPercent());
+
+        assertEquals(3, mChunkSizes.size());
+        assertEquals(DataRepository.BATCH_CHUNK_SIZE, (int) mChunkSizes.get(0));
+        assertEquals(DataRepository.BATCH_CHUNK_SIZE, (int) mChunkSizes.get(1));
+        assertEquals(2, progress.size());
+        assertEquals(DataRepository.BATCH_CHUNK_SIZE, progress.get(0).getRowCount());
+    }
+
+    @Test
+    public void testImportItems_callImportItemsWithJsonAndGetExpectedCounts() {
+        final String json = "[{\"name\": \"Milk\", \"category\": \"Shopping\", " +
+                "\"status\": \"Current\", \"id\": 7},\n" +
+                "{\"name\": \"Gardening\", \"description\": \"Roses\", \"category\": \"To Do\", " +
+                "\"status\": \"In Progress\"},\n" +
+                "{\"name\": \"Milk\", \"category\": \"Shopping\", \"status\": \"Current\"}]";
+
+        final ImportResult importResult = mItemImporter.importItems(new JsonItemReader(
+                toInputStream(json)), -1L, new CancellationSignal(), null);
+
+        assertEquals(ImportResult.STATE_FINISHED, importResult.getState());
+        assertEquals(3, importResult.getRowCount());
+        assertEquals(2, importResult.getInsertedCount());
+        assertEquals(1, importResult.getDuplicateCount());
+        assertEquals(-1, importResult.getPercent());
+    }
+
+    @Test
+    public void testImportItems_callImportItemsWithMalformedJsonAndGetFailed() {
+        final ImportResult importResult = mItemImporter.importItems(new JsonItemReader(
+                toInputStream("{\"name\": \"Milk\"}")), -1L, new CancellationSignal(), null);
+
+        assertEquals(ImportResult.STATE_FAILED, importResult.getState());
+        assertEquals(0, importResult.getRowCount());
+    }
+
+    @Test
+    public void testImportItems_callImportItemsAfterCancelAndGetCancelledBetweenChunks() {
+        final StringBuilder csv = new StringBuilder("name,description,category,status\n");
+        for (int i = 0; i < DataRepository.BATCH_CHUNK_SIZE * 3; i++) {
+            csv.append("Item ").append(i).append(",,To Do,Current\n");
+        }
+
+        final CancellationSignal cancellationSignal = new CancellationSignal();
+        //noinspection Convert2Lambda
+        final ImportResult importResult = mItemImporter.importItems(new CsvItemReader(
+                toInputStream(csv.toString())), -1L, cancellationSignal,
+                new ItemImporter.ProgressListener() {
+                    @Override
+                    public void onProgress(@NonNull final ImportResult importResult) {
+                        cancellationSignal.cancel();
+                    }
+                });
+
+        // The first chunk is kept.
+        assertEquals(ImportResult.STATE_CANCELLED, importResult.getState());
+        assertEquals(DataRepository.BATCH_CHUNK_SIZE, importResult.getInsertedCount());
+        assertTrue(importResult.getRowCount() < DataRepository.BATCH_CHUNK_SIZE * 3);
+    }
+
+    private static ByteArrayInputStream toInputStream(final String text) {
+        return new ByteArrayInputStream(text.getBytes(Charset.forName("UTF-8")));
+    }
+}
@@ -11,6 +11,7 @@ import androidx.annotation.NonNull;
 
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * Global executor pools for the whole application.
@@ -35,6 +36,11 @@ public final class AppExecutors {
      * {@link Executor} which executes {@link Runnable} local tasks on the main thread.
      */
     private final Executor mMainThreadExecutor;
+    /**
+     * {@link ScheduledExecutorService} which executes and delays database queries on a background
+     * thread.
+     */
+    private final ScheduledExecutorService mQueryThreadExecutor;
 
     /**
      * Sets up an {@link Executor} for each of the local background, network background and main
@@ -43,22 +49,26 @@ public final class AppExecutors {
      * @param backgroundThreadExecutor the {@link Executor} for background thread use.
      * @param networkThreadExecutor    the {@link Executor} for network background thread use.
      * @param mainThreadExecutor       the {@link Executor} for main thread use.
+     * @param queryThreadExecutor      the {@link ScheduledExecutorService} for database queries.
      */
     private AppExecutors(final Executor backgroundThreadExecutor,
-                         final Executor networkThreadExecutor, final Executor mainThreadExecutor) {
+                         final Executor networkThreadExecutor, final Executor mainThreadExecutor,
+                         final ScheduledExecutorService queryThreadExecutor) {
         mBackgroundThreadExecutor = backgroundThreadExecutor;
         mNetworkThreadExecutor = networkThreadExecutor;
         mMainThreadExecutor = mainThreadExecutor;
+        mQueryThreadExecutor = queryThreadExecutor;
     }
 
     /**
      * Sets up an {@link Executor} for each of the local background, network background and main
      * threads.  The local background {@link Executor} has a single thread while the network
-     * background {@link Executor} has 3 threads.
+     * background {@link Executor} has 3 threads.  Queries have their own single thread so they
+     * never wait behind inserts, updates and deletes.
      */
     public AppExecutors() {
         this(Executors.newSingleThreadExecutor(), Executors.newFixedThreadPool(3),
-                new MainThreadExecutor());
+                new MainThreadExecutor(), Executors.newSingleThreadScheduledExecutor());
     }
 
     /**
@@ -90,6 +100,15 @@ public final class AppExecutors {
         return mMainThreadExecutor;
     }
 
+    /**
+     * Returns the database query {@link ScheduledExecutorService}.
+     *
+     * @return the database query {@link ScheduledExecutorService}
+     */
+    public ScheduledExecutorService getQueryThreadExecutor() {
+        return mQueryThreadExecutor;
+    }
+
     /**
      * An {@link Executor} which uses a {@link Handler} to run a {@link Runnable} on the main
      * thread.
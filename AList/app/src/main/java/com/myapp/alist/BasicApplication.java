@@ -46,12 +46,25 @@ public final class BasicApplication extends Application {
         sBasicApplication = this;
     }
 
+    /**
+     * Drop cached query results when the system is low on memory.
+     *
+     * @param level the trim memory level
+     */
+    @Override
+    public void onTrimMemory(final int level) {
+        super.onTrimMemory(level);
+
+        DataRepository.trimMemory(level);
+    }
+
     /**
      * Get the {@link DataRepository} database.
      *
      * @return {@link DataRepository} database
      */
     public DataRepository getRepository() {
-        return DataRepository.getInstance(AListDatabase.getInstance(this, APP_EXECUTORS));
+        return DataRepository.getInstance(AListDatabase.getInstance(this, APP_EXECUTORS),
+                APP_EXECUTORS);
     }
 }
@@ -4,18 +4,45 @@
 
 package com.myapp.alist.datarepository;
 
+import android.content.ComponentCallbacks2;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteConstraintException;
+import android.os.CancellationSignal;
 import android.util.Log;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.lifecycle.LiveData;
-import androidx.lifecycle.MediatorLiveData;
-import androidx.lifecycle.Observer;
-import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.lifecycle.MutableLiveData;
+import androidx.paging.InvalidatingPagingSourceFactory;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
+import androidx.paging.PagingSource;
+import androidx.room.InvalidationTracker;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteStatement;
 
+import com.myapp.alist.AppExecutors;
+import com.myapp.alist.BasicApplication;
 import com.myapp.alist.db.AListDatabase;
+import com.myapp.alist.db.Catalog;
+import com.myapp.alist.db.CatalogDao;
+import com.myapp.alist.db.CategoryEntity;
+import com.myapp.alist.db.ListDao;
 import com.myapp.alist.db.ListEntity;
+import com.myapp.alist.db.StatusEntity;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import kotlin.jvm.functions.Function0;
 
 /**
  * Data repository to interface with the database using the Data Access Object (DAO).
@@ -25,6 +52,25 @@ import java.util.List;
  * @since 1.0
  */
 public final class DataRepository {
+    /**
+     * The activated row ID used when no row is activated.  The same value as
+     * <code>RecyclerView.NO_ID</code>.
+     */
+    public static final long NO_ID = -1L;
+    /**
+     * The number of rows loaded in each page of the paged list.
+     */
+    public static final int PAGE_SIZE = 50;
+    /**
+     * The most rows kept in memory by the paged list when the prefetch distance is small.  Pages
+     * further away are dropped and replaced by placeholders.
+     */
+    private static final int MIN_MAX_SIZE = PAGE_SIZE * 8;
+    /**
+     * The most rows written in one transaction by a batch insert.  Larger batches are split so the
+     * database is not locked for too long and the journal stays small.
+     */
+    public static final int BATCH_CHUNK_SIZE = 500;
     /**
      * Data repository singleton instance.
      */
@@ -34,13 +80,57 @@ public final class DataRepository {
      */
     private final AListDatabase mAListDatabase;
     /**
-     * An observable list which can be used to merge different <code>LiveData</code> sources.
+     * The application executors.
+     */
+    private final AppExecutors mAppExecutors;
+    /**
+     * An observable count of the items selected by the latest query.
+     */
+    private final MutableLiveData<Integer> mObservableCount = new MutableLiveData<>();
+    /**
+     * Observable counts of the items for each category and status under the latest search terms.
+     */
+    private final MutableLiveData<FacetCounts> mObservableFacetCounts = new MutableLiveData<>();
+    /**
+     * Finds the facet counts on the query thread.
+     */
+    private final FacetEngine mFacetEngine;
+    /**
+     * Runs the latest select query on the query thread.
+     */
+    private final QueryScheduler mQueryScheduler;
+    /**
+     * Compiles the selection criteria into SQL.
+     */
+    private final QueryCompiler mQueryCompiler = new QueryCompiler();
+    /**
+     * Removes the deleted items once they can no longer be restored.
+     */
+    private final TombstoneCompactor mTombstoneCompactor;
+    /**
+     * Refreshes the query planner's statistics and shrinks the database file.
+     */
+    private final DatabaseMaintenance mDatabaseMaintenance;
+    /**
+     * The time of the last delete which can be undone or {@link ListEntity#NOT_DELETED}.
      */
-    private final MediatorLiveData<List<ListEntity>> mObservableList = new MediatorLiveData<>();
+    private long mLastDeleted = ListEntity.NOT_DELETED;
     /**
-     * The list of items to be used as <code>LiveData</code>.
+     * Creates the paging sources for the latest query result.  Invalidated when the query
+     * scheduler delivers a result, i.e. when the criteria or the list table change, so the
+     * pagers load the new selection.
      */
-    private LiveData<List<ListEntity>> mListEntityLiveData;
+    private final InvalidatingPagingSourceFactory<KeysetPagingSource.PageKey, ListEntity>
+            mPagingSourceFactory;
+    /**
+     * The latest query result, which the paged list shows, or <code>null</code> until the first
+     * query has run.  Set on the query thread and read when a paging source is created.
+     */
+    private volatile ResultSnapshot mPagedResultSnapshot;
+    /**
+     * Increases each time the list table changes.
+     */
+    private long mListVersion;
     /**
      * Stores the classname to tag log errors.
      */
@@ -49,30 +139,114 @@ public final class DataRepository {
     /**
      * Create the data repository singleton instance.
      *
-     * @param database the database containing the DAO
+     * @param database  the database containing the DAO
+     * @param executors the application executors
      */
-    private DataRepository(final AListDatabase database) {
+    private DataRepository(final AListDatabase database, final AppExecutors executors) {
         mAListDatabase = database;
+        mAppExecutors = executors;
+        //noinspection Convert2Lambda
+        mPagingSourceFactory = new InvalidatingPagingSourceFactory<>(
+                new Function0<PagingSource<KeysetPagingSource.PageKey, ListEntity>>() {
+                    @Override
+                    public PagingSource<KeysetPagingSource.PageKey, ListEntity> invoke() {
+                        final ResultSnapshot resultSnapshot = mPagedResultSnapshot;
+                        if (resultSnapshot == null) {
+                            return new KeysetPagingSource(mAListDatabase, mQueryCompiler,
+                                    new QuerySpec.Builder().build());
+                        }
+                        return new KeysetPagingSource(mAListDatabase, mQueryCompiler,
+                                resultSnapshot);
+                    }
+                });
+        mQueryScheduler = new QueryScheduler(database, mQueryCompiler,
+                executors.getQueryThreadExecutor(),
+                new QueryScheduler.Listener() {
+                    @Override
+                    public void onQuerySpecChanged(@NonNull final QuerySpec querySpec) {
+                        mFacetEngine.update(querySpec);
+                    }
+
+                    @Override
+                    public void onResult(@NonNull final ResultSnapshot resultSnapshot) {
+                        // The paged list follows the same debounced criteria as the count and
+                        // is served from the result's rows if it has them.
+                        mPagedResultSnapshot = resultSnapshot;
+                        mPagingSourceFactory.invalidate();
+                        if (mAListDatabase.getDatabaseCreated().getValue() != null) {
+                            // Called on the query thread so must use postValue().
+                            mObservableCount.postValue(resultSnapshot.getCount());
+                        }
+                    }
+                });
+        // The facet counts of narrower search terms are counted from the last query result.
+        //noinspection Convert2Lambda
+        mFacetEngine = new FacetEngine(database, mQueryCompiler,
+                mQueryScheduler.getResultRefiner(), new FacetEngine.Listener() {
+                    @Override
+                    public void onFacetCounts(@NonNull final FacetCounts facetCounts) {
+                        if (mAListDatabase.getDatabaseCreated().getValue() != null) {
+                            // Called on the query thread so must use postValue().
+                            mObservableFacetCounts.postValue(facetCounts);
+                        }
+                    }
+                });
 
-        // This appears to be OK to be called on the main thread (see notes in
-        // MainActivity.onCreate() ViewModelProviders section) because using LiveData.
-        // Room generates all the necessary code to update the LiveData object when a database is
-        // updated. The generated code runs the query asynchronously on a background thread when
-        // needed.
-        mListEntityLiveData = mAListDatabase.list().selectAllQuery();
-        addSourceToObservableList();
+        // Room LiveData queries are run again by Room when the list table changes.  The query
+        // scheduler's queries are not LiveData so watch the table here.  The category and status
+        // tables are also watched so a new choice is seen by the facet counts.
+        // Adding an observer reads the database so do it on the query thread.
+        //noinspection Convert2Lambda
+        executors.getQueryThreadExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                mAListDatabase.getInvalidationTracker().addObserver(
+                        new InvalidationTracker.Observer(ListEntity.TABLE_NAME,
+                                CategoryEntity.TABLE_NAME, StatusEntity.TABLE_NAME) {
+                            @Override
+                            public void onInvalidated(@NonNull final Set<String> tables) {
+                                incrementListVersion();
+                                // The paging sources do not watch the tables themselves.  They
+                                // are invalidated when the query is run again.
+                                mQueryScheduler.requery();
+                                mFacetEngine.invalidate();
+                                //noinspection Convert2Lambda
+                                executors.getQueryThreadExecutor().execute(new Runnable() {
+                                    @Override
+                                    public void run() {
+                                        mFacetEngine.refresh();
+                                    }
+                                });
+                            }
+                        });
+            }
+        });
+
+        // Select all of the items until the UI asks for something else.
+        mQueryScheduler.submit(new QuerySpec.Builder().build(), false);
+
+        // Items deleted before the app last stopped may be ready to be removed.
+        mTombstoneCompactor = new TombstoneCompactor(database,
+                executors.getQueryThreadExecutor(), executors.getBackgroundThreadExecutor());
+        mTombstoneCompactor.schedule(TombstoneCompactor.IDLE_MILLIS);
+        mDatabaseMaintenance = new DatabaseMaintenance(database, DatabaseMaintenance.SYSTEM_CLOCK,
+                executors.getQueryThreadExecutor(), executors.getBackgroundThreadExecutor(),
+                BasicApplication.getContext());
+        mDatabaseMaintenance.start();
     }
 
     /**
      * Get the data repository singleton instance.
      *
-     * @param database the database containing the DAO
+     * @param database  the database containing the DAO
+     * @param executors the application executors
      * @return the data repository singleton instance
      */
-    public static DataRepository getInstance(final AListDatabase database) {
+    public static DataRepository getInstance(final AListDatabase database,
+                                             final AppExecutors executors) {
         synchronized (DataRepository.class) {
             if (sDataRepository == null) {
-                sDataRepository = new DataRepository(database);
+                sDataRepository = new DataRepository(database, executors);
             }
         }
 
@@ -80,109 +254,501 @@ public final class DataRepository {
     }
 
     /**
-     * Get the list of items from the database and get notified when the data changes.
+     * Drops the cached query results to free memory.  Once the app is in the background the
+     * write-ahead log is also checkpointed and SQLite's unused cache memory is freed.  Does
+     * nothing if the data repository has not been created.
+     *
+     * @param level the trim memory level from <code>Application.onTrimMemory(int)</code>
+     */
+    public static void trimMemory(final int level) {
+        final DataRepository dataRepository;
+        synchronized (DataRepository.class) {
+            dataRepository = sDataRepository;
+        }
+
+        if (dataRepository != null) {
+            dataRepository.mQueryScheduler.trimMemory(level);
+            if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+                // The app is in the background so the deleted items can be removed and the
+                // database maintained once idle.
+                dataRepository.mTombstoneCompactor.schedule(0L);
+                dataRepository.mDatabaseMaintenance.schedule(0L);
+                //noinspection Convert2Lambda
+                dataRepository.mAppExecutors.getBackgroundThreadExecutor().execute(
+                        new Runnable() {
+                            @Override
+                            public void run() {
+                                dataRepository.mAListDatabase.checkpoint();
+                            }
+                        });
+            }
+        }
+    }
+
+    /**
+     * Get the version of the list table, which increases each time the table changes.  Read
+     * before querying to find out later if a result derived from the query is out of date.
+     *
+     * @return the version
+     */
+    public synchronized long getListVersion() {
+        return mListVersion;
+    }
+
+    /**
+     * Increases the version of the list table because it has changed.
+     */
+    private synchronized void incrementListVersion() {
+        mListVersion++;
+    }
+
+    /**
+     * Records that a query or write has been asked for, which pauses the background work on the
+     * database until the app is idle again.
+     */
+    private void onActivity() {
+        mTombstoneCompactor.onActivity();
+        mDatabaseMaintenance.onActivity();
+    }
+
+    /**
+     * Get the selection criteria of the displayed items and count, i.e. of the last query the
+     * query scheduler ran.  An action on the displayed items, e.g. a delete, must use these
+     * rather than criteria which are still waiting for the debounce delay to end, so it acts on
+     * the items the user can see.
+     *
+     * @return the selection criteria
+     */
+    @NonNull
+    public QuerySpec getDisplayedQuerySpec() {
+        final ResultSnapshot resultSnapshot = mPagedResultSnapshot;
+        // Every item is selected until the first query has run.
+        return resultSnapshot == null ? new QuerySpec.Builder().build() :
+                resultSnapshot.getQuerySpec();
+    }
+
+    /**
+     * Get the number of items selected by the latest query and get notified when it changes.
+     * The items themselves are loaded a page at a time by the paged list.
+     */
+    public LiveData<Integer> getItemCount() {
+        return mObservableCount;
+    }
+
+    /**
+     * Get the number of items for each category and status under the latest name and description
+     * search terms and get notified when they change.
+     */
+    public LiveData<FacetCounts> getFacetCounts() {
+        return mObservableFacetCounts;
+    }
+
+    /**
+     * Get the items matching the selected criteria a page at a time so only the rows near the
+     * displayed rows are held in memory.  The pages are reloaded when the criteria or the list
+     * table change.
+     *
+     * @param pagingConfig the page size, prefetch distance and placeholder settings, see
+     *                     {@link #createPagingConfig(int)}
+     * @return a new stream of paged items
+     */
+    public LiveData<PagingData<ListEntity>> getPagedItems(
+            @NonNull final PagingConfig pagingConfig) {
+        return PagingLiveData.getLiveData(new Pager<>(pagingConfig, mPagingSourceFactory));
+    }
+
+    /**
+     * Creates the paging configuration for {@link #getPagedItems(PagingConfig)}.  Placeholders
+     * are enabled so a list reloaded from the middle keeps the positions of the rows above the
+     * loaded pages and dropped pages keep their space.
+     *
+     * @param prefetchDistance how many rows beyond the displayed rows to load in advance
+     * @return the paging configuration
      */
-    public LiveData<List<ListEntity>> getItems() {
-        return mObservableList;
+    @NonNull
+    public static PagingConfig createPagingConfig(final int prefetchDistance) {
+        // The pager requires maxSize to be at least pageSize + 2 * prefetchDistance.
+        return new PagingConfig(PAGE_SIZE, prefetchDistance, true, PAGE_SIZE * 3,
+                Math.max(MIN_MAX_SIZE, PAGE_SIZE + 2 * prefetchDistance));
     }
 
     /**
-     * Get a list of items from the database matching the selected criteria.
+     * Query the items matching the selected criteria for reading a row at a time, e.g. to export
+     * them without loading them all.  Must not be called on the main thread.
      *
-     * @param query     the <code>SELECT</code> query including <code>WHERE</code> and
-     *                  <code>ORDER BY</code> details
-     * @param whereArgs the <code>WHERE</code> arguments to insert into the <code>SELECT</code>
-     *                  query in the place of '?' placeholders
+     * @param querySpec          the selection criteria and sort order
+     * @param cancellationSignal cancels the query or <code>null</code>
+     * @return a cursor over all of the list table columns, which must be closed
      */
-    public void selectItems(final String query, final String[] whereArgs) {
-        // This appears to be OK to be called on the main thread (see notes in constructor).
-        mObservableList.removeSource(mListEntityLiveData);
-        mListEntityLiveData = mAListDatabase.list().doRawQuery(
-                new SimpleSQLiteQuery(query, whereArgs));
-        addSourceToObservableList();
+    @NonNull
+    public Cursor queryItems(@NonNull final QuerySpec querySpec,
+                             @Nullable final CancellationSignal cancellationSignal) {
+        return mAListDatabase.query(mQueryCompiler.compileSelect(querySpec), cancellationSignal);
     }
 
     /**
-     * Insert an item into the database.
+     * Get a list of items from the database matching the selected criteria.  The query is run on
+     * the query thread after the input has paused so a burst of calls, e.g. while typing, only
+     * runs the last one.  The results of recent criteria are cached until the list table changes.
+     * See {@link QueryScheduler}.
+     *
+     * @param querySpec the selection criteria and sort order
+     */
+    public void selectItems(@NonNull final QuerySpec querySpec) {
+        this.onActivity();
+        mQueryScheduler.submit(querySpec, true);
+    }
+
+    /**
+     * Insert an item into the database.  A name which is already used is reported as a conflict
+     * with the existing item instead of throwing an exception.  Must not be called on the main
+     * thread.
      *
      * @param values a <code>HashMap</code> containing the item details
-     * @return the row ID of the inserted item
+     * @return the outcome, with the row ID of the inserted item or of the existing item
      */
-    public long insertItem(final HashMap<String, String> values) {
-        final ListEntity listEntity = ListEntity.verifyValues(values);
-        if (listEntity == null) {
-            Log.e(TAG, "insertItem error 1");
-            return -1L;
-        } else {
-            try {
-                // ListDao:
-                // @Insert(onConflict = OnConflictStrategy.ABORT)
-                // long insert(ListEntity item);
-                // causes RuntimeException() to be thrown.
-                return mAListDatabase.list().insert(listEntity);
-            } catch (Exception e) {
-                Log.e(TAG, "insertItem error 2");
-                e.printStackTrace();
-                return -1L;
+    @NonNull
+    public InsertResult insertItem(@NonNull final HashMap<String, String> values) {
+        return writeItems(Collections.singletonList(values), false).get(0);
+    }
+
+    /**
+     * Insert an item into the database or, if its name is already used, update the existing
+     * item's description, category and status.  Must not be called on the main thread.
+     *
+     * @param values a <code>HashMap</code> containing the item details
+     * @return the outcome, with the row ID of the inserted, updated or unchanged item
+     */
+    @NonNull
+    public InsertResult upsertItem(@NonNull final HashMap<String, String> values) {
+        return writeItems(Collections.singletonList(values), true).get(0);
+    }
+
+    /**
+     * Insert items into the database.  Each chunk of {@link #BATCH_CHUNK_SIZE} items is written in
+     * a single transaction instead of a transaction per item.  Items with a name which is already
+     * used, including earlier in the same batch, are skipped and reported as conflicts.  Must not
+     * be called on the main thread.
+     *
+     * @param valuesList a <code>HashMap</code> containing the details of each item
+     * @return the outcome for each item in the same order
+     */
+    @NonNull
+    public List<InsertResult> insertItems(@NonNull final List<HashMap<String, String>> valuesList) {
+        return writeItems(valuesList, false);
+    }
+
+    /**
+     * Insert items into the database or update the existing items with the same names, in chunks
+     * of {@link #BATCH_CHUNK_SIZE} items per transaction.  A name used twice in the same batch
+     * takes the later values.  Must not be called on the main thread.
+     *
+     * @param valuesList a <code>HashMap</code> containing the details of each item
+     * @return the outcome for each item in the same order
+     */
+    @NonNull
+    public List<InsertResult> upsertItems(@NonNull final List<HashMap<String, String>> valuesList) {
+        return writeItems(valuesList, true);
+    }
+
+    /**
+     * Validates items and writes the valid ones in chunks.
+     *
+     * @param valuesList a <code>HashMap</code> containing the details of each item
+     * @param upsert     <code>true</code> to update the items whose names are already used or
+     *                   <code>false</code> to report them as conflicts
+     * @return the outcome for each item in the same order
+     */
+    @NonNull
+    private List<InsertResult> writeItems(@NonNull final List<HashMap<String, String>> valuesList,
+                                          final boolean upsert) {
+        this.onActivity();
+        final int size = valuesList.size();
+        final List<InsertResult> insertResults = new ArrayList<>(size);
+        final List<ListEntity> listEntities = new ArrayList<>(Math.min(size, BATCH_CHUNK_SIZE));
+        // The position in valuesList of each entity in the chunk.
+        final int[] positions = new int[Math.min(size, BATCH_CHUNK_SIZE)];
+
+        for (int i = 0; i < size; i++) {
+            final HashMap<String, String> values = valuesList.get(i);
+            final ListEntity listEntity = ListEntity.verifyValues(values);
+            if (listEntity == null) {
+                insertResults.add(new InsertResult(InsertResult.STATUS_INVALID, -1L,
+                        values.get(ListEntity.NAME)));
+            } else {
+                // Reserve the slot.  Set when the chunk is written.
+                insertResults.add(null);
+                positions[listEntities.size()] = i;
+                listEntities.add(listEntity);
+                if (listEntities.size() == BATCH_CHUNK_SIZE) {
+                    writeChunk(listEntities, positions, insertResults, upsert);
+                }
             }
         }
+
+        if (!listEntities.isEmpty()) {
+            writeChunk(listEntities, positions, insertResults, upsert);
+        }
+
+        return insertResults;
     }
 
+    // A conflict is found from the -1 row ID returned by INSERT OR IGNORE and then the existing
+    // item is found with the unique name index, so no exception is thrown and caught per
+    // duplicate.  SQLite's own UPSERT clause needs SQLite 3.24, i.e. Android 11.
     /**
-     * Update an item in the database.
+     * Writes one chunk of a batch in a single transaction and records the outcomes.
      *
-     * @param id     the id of the row to update
-     * @param values the new values of the row to update
-     * @return the number of rows updated.  Should always be one.
+     * @param listEntities  the valid items of the chunk, emptied afterwards
+     * @param positions     the position of each item in the batch
+     * @param insertResults the outcomes of the batch
+     * @param upsert        <code>true</code> to update the items whose names are already used
      */
-    public long updateItem(final long id, final HashMap<String, String> values) {
-        final ListEntity listEntity = ListEntity.verifyValues(values);
-        if (listEntity == null) {
-            Log.e(TAG, "updateItem error 1");
-            return -1L;
-        } else {
-            try {
-                // ListDao:
-                // @Update(onConflict = OnConflictStrategy.ABORT)
-                // int update(ListEntity item);
-                // causes RuntimeException() to be thrown.
-                listEntity.setId(id);
-                return mAListDatabase.list().update(listEntity);
-            } catch (Exception e) {
-                Log.e(TAG, "updateItem error 2");
-                e.printStackTrace();
+    private void writeChunk(final List<ListEntity> listEntities, final int[] positions,
+                            final List<InsertResult> insertResults, final boolean upsert) {
+        //noinspection Convert2Lambda
+        mAListDatabase.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                final ListDao listDao = mAListDatabase.list();
+                final long[] ids = listDao.insertOrIgnore(listEntities);
+                if (ids.length != listEntities.size()) {
+                    throw new RuntimeException("writeChunk error 1");
+                }
+
+                for (int i = 0; i < ids.length; i++) {
+                    final ListEntity listEntity = listEntities.get(i);
+                    final InsertResult insertResult;
+                    if (ids[i] != -1L) {
+                        insertResult = new InsertResult(InsertResult.STATUS_INSERTED, ids[i],
+                                listEntity.getName());
+                    } else {
+                        final long existingId = listDao.selectIdByName(listEntity.getName());
+                        if (existingId == 0L) {
+                            throw new RuntimeException("writeChunk error 2");
+                        }
+                        if (upsert) {
+                            // Zero rows are changed if the existing item already has the values.
+                            final int updatedCount = listDao.updateValues(existingId,
+                                    listEntity.getDescription(), listEntity.getCategoryId(),
+                                    listEntity.getStatusId());
+                            insertResult = new InsertResult(updatedCount == 0 ?
+                                    InsertResult.STATUS_UNCHANGED : InsertResult.STATUS_UPDATED,
+                                    existingId, listEntity.getName());
+                        } else {
+                            insertResult = new InsertResult(InsertResult.STATUS_DUPLICATE_NAME,
+                                    existingId, listEntity.getName());
+                        }
+                    }
+                    insertResults.set(positions[i], insertResult);
+                }
+            }
+        });
+        listEntities.clear();
+    }
+
+    /**
+     * Update the changed values of an item in the database.  Only the changed columns are written,
+     * so only the indexes containing them are maintained.  Must not be called on the main thread.
+     *
+     * @param id      the id of the row to update
+     * @param changes the new values keyed by column, e.g. only {@link ListEntity#STATUS} if only
+     *                the status has changed
+     * @return the number of rows updated.  Should always be one, or zero if nothing changed.  -1
+     * if a value is not valid or the new name is already used.
+     */
+    public long updateItem(final long id, final HashMap<String, String> changes) {
+        for (Map.Entry<String, String> entry : changes.entrySet()) {
+            if (!ListEntity.verifyValue(entry.getKey(), entry.getValue())) {
+                Log.e(TAG, "updateItem error 1");
                 return -1L;
             }
         }
+
+        if (changes.isEmpty()) {
+            return 0L;
+        }
+
+        this.onActivity();
+        try {
+            //noinspection Convert2Lambda
+            return mAListDatabase.runInTransaction(new Callable<Long>() {
+                @Override
+                public Long call() {
+                    // A new name used by another item is found with the unique name index, as
+                    // when writing a batch, so no exception is thrown for it.
+                    final String name = changes.get(ListEntity.NAME);
+                    if (name != null) {
+                        final long existingId = mAListDatabase.list().selectIdByName(name);
+                        if (existingId != 0L && existingId != id) {
+                            Log.e(TAG, "updateItem error 2");
+                            return -1L;
+                        }
+                    }
+
+                    return (long) executeUpdateDelete(
+                            mQueryCompiler.compileUpdateItem(id, changes));
+                }
+            });
+        } catch (SQLiteConstraintException e) {
+            // The unique name index stays the final check of the name.
+            Log.e(TAG, "updateItem error 3", e);
+            return -1L;
+        }
+    }
+
+    /**
+     * Set the category or status of every item matching the selected criteria with a single
+     * <code>UPDATE</code> statement, however many items there are.  Items which already have the
+     * value are left alone.  The items do not have to be loaded first.  Must not be called on the
+     * main thread.
+     *
+     * @param querySpec the selection criteria
+     * @param column    {@link ListEntity#CATEGORY} or {@link ListEntity#STATUS}
+     * @param value     the new value of the column
+     * @return the number of items updated or -1 if the value is not valid
+     */
+    public int updateItems(@NonNull final QuerySpec querySpec, @NonNull final String column,
+                           @Nullable final String value) {
+        // The value is verified before anything else is done with it, and the verified value is
+        // the one compiled.  It is a dictionary label so it must not be trimmed or changed.
+        if (!ListEntity.verifyValue(column, value)) {
+            Log.e(TAG, "updateItems error 1");
+            return -1;
+        }
+
+        this.onActivity();
+        return executeUpdateDelete(mQueryCompiler.compileUpdate(querySpec, column, value));
+    }
+
+    /**
+     * Delete every item matching the selected criteria with a single <code>UPDATE</code>
+     * statement, however many items there are.  The items do not have to be loaded first.  The
+     * items are only marked as deleted so the delete can be undone with {@link #undoDelete()}
+     * until the next delete, and they are removed from the database later, see
+     * {@link TombstoneCompactor}.  Must not be called on the main thread.
+     *
+     * @param querySpec the selection criteria
+     * @return the number of items deleted
+     */
+    public int deleteItems(@NonNull final QuerySpec querySpec) {
+        this.onActivity();
+        //noinspection Convert2Lambda
+        final int count = mAListDatabase.runInTransaction(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                // Each delete needs its own time so it can be undone on its own.
+                final long deleted = Math.max(System.currentTimeMillis(),
+                        mAListDatabase.list().selectLastDeleted() + 1L);
+                final int deletedCount = executeUpdateDelete(
+                        mQueryCompiler.compileSoftDelete(querySpec, deleted));
+                if (deletedCount > 0) {
+                    DataRepository.this.setLastDeleted(deleted);
+                }
+                return deletedCount;
+            }
+        });
+
+        if (count > 0) {
+            mTombstoneCompactor.schedule(TombstoneCompactor.RETENTION_MILLIS);
+        }
+        return count;
+    }
+
+    /**
+     * Restore the items removed by the last delete, apart from any whose name has been used by
+     * a new item since.  Only one delete can be undone and only until the deleted items are
+     * removed from the database.  Must not be called on the main thread.
+     *
+     * @return the number of items restored
+     */
+    public int undoDelete() {
+        final long deleted = this.setLastDeleted(ListEntity.NOT_DELETED);
+        if (deleted == ListEntity.NOT_DELETED) {
+            return 0;
+        }
+
+        this.onActivity();
+        return mAListDatabase.list().restoreDeleted(deleted);
     }
 
     /**
-     * Delete item(s) from the database.
+     * Sets the time of the last delete which can be undone.
      *
-     * @param listEntities a list of {@link ListEntity} to delete from the
-     *                     database
-     * @return the number of items deleted from the database
+     * @param deleted the time or {@link ListEntity#NOT_DELETED}
+     * @return the previous time
      */
-    public long deleteItems(final List<ListEntity> listEntities) {
-        return mAListDatabase.list().delete(listEntities);
+    private synchronized long setLastDeleted(final long deleted) {
+        final long lastDeleted = mLastDeleted;
+        mLastDeleted = deleted;
+        return lastDeleted;
     }
 
     /**
-     * Add the <code>LiveData</code> list of {@link ListEntity} to the
-     * <code>MediatorLiveData</code> list and observe.
+     * Get the current {@link Catalog} of categories and statuses and get notified when it is
+     * replaced after an edit.
      */
-    private void addSourceToObservableList() {
+    public LiveData<Catalog> getCatalog() {
+        return Catalog.getObservableCatalog();
+    }
+
+    /**
+     * Add a category or status.  The {@link Catalog} is replaced once the new choice is in the
+     * database.  Must not be called on the main thread.
+     *
+     * @param column {@link ListEntity#CATEGORY} or {@link ListEntity#STATUS}
+     * @param label  the label of the new choice
+     * @return the id of the new choice or -1 if the label is blank or already used
+     */
+    public long addChoice(@NonNull final String column, @Nullable final String label) {
+        if (!Catalog.get().isValidLabel(column, label)) {
+            return -1L;
+        }
+
+        final CatalogDao catalogDao = mAListDatabase.catalog();
+        final long id = ListEntity.CATEGORY.equals(column) ?
+                catalogDao.insertCategory(label.trim()) : catalogDao.insertStatus(label.trim());
+        if (id != -1L) {
+            this.loadCatalog();
+        }
+
+        return id;
+    }
+
+    /**
+     * Reads the lookup tables again and replaces the {@link Catalog}.
+     */
+    private void loadCatalog() {
+        Catalog.load(mAListDatabase.getOpenHelper().getWritableDatabase());
+    }
+
+    /**
+     * Runs an <code>UPDATE</code> or <code>DELETE</code> statement in a transaction.  Room
+     * notices the change to the list table when the transaction ends, so the current query is
+     * run again once.
+     *
+     * @param query the statement's SQL and arguments
+     * @return the number of rows changed
+     */
+    private int executeUpdateDelete(@NonNull final SupportSQLiteQuery query) {
         //noinspection Convert2Lambda
-        mObservableList.addSource(mListEntityLiveData,
-                new Observer<List<ListEntity>>() {
-                    @Override
-                    public void onChanged(final List<ListEntity> listEntities) {
-                        if (mAListDatabase.getDatabaseCreated().getValue() != null) {
-                            // Could use setValue() as the code stands because called on the main
-                            // thread.  Use postValue() like example app to future proof.
-                            mObservableList.postValue(listEntities);
-                        }
+        return mAListDatabase.runInTransaction(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                final SupportSQLiteStatement statement =
+                        mAListDatabase.compileStatement(query.getSql());
+                try {
+                    query.bindTo(statement);
+                    return statement.executeUpdateDelete();
+                } finally {
+                    try {
+                        statement.close();
+                    } catch (Exception e) {
+                        Log.e(TAG, "executeUpdateDelete error 1");
+                        e.printStackTrace();
                     }
-                });
+                }
+            }
+        });
     }
 }
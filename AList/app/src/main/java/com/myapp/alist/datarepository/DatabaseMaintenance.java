@@ -0,0 +1,536 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.datarepository;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.os.BatteryManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.myapp.alist.db.AListDatabase;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the database file small and the query planner's statistics up to date.
+ * <p>
+ * Once every {@link #RUN_INTERVAL_MILLIS} the steps are run in order: a quick integrity check,
+ * <code>ANALYZE</code>, <code>PRAGMA optimize</code>, turning on incremental auto vacuum if auto
+ * vacuum is off and an incremental vacuum.  Without them the file never shrinks after the deleted
+ * items are removed, and the planner's statistics describe the list as it was when it was small.
+ * <p>
+ * The steps are run on the background thread like the other writes, only once no query or write
+ * has been asked for in the last {@link #IDLE_MILLIS}, and for at most
+ * {@link #RUN_BUDGET_MILLIS} at a time.  A step which has started finishes, apart from the
+ * incremental vacuum which frees {@link #VACUUM_PAGES} pages at a time, and the next run carries
+ * on from the step that was not reached.  Runs are checked for when the app starts, when it goes
+ * into the background and when the device is plugged in.  Turning on auto vacuum rewrites the
+ * whole file, so it is only done while the device is charging.
+ * <p>
+ * Each run is recorded as a {@link MaintenanceReport} in the <code>maintenance</code> shared
+ * preferences.  The times come from a {@link Clock} so the tests can control them.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+final class DatabaseMaintenance {
+    /**
+     * The step which checks the database is not corrupt.
+     */
+    static final String STEP_INTEGRITY_CHECK = "integrity_check";
+    /**
+     * The step which gathers the query planner's statistics.
+     */
+    static final String STEP_ANALYZE = "analyze";
+    /**
+     * The step which lets SQLite make any other improvements it has found.
+     */
+    static final String STEP_OPTIMIZE = "optimize";
+    /**
+     * The step which turns on incremental auto vacuum.
+     */
+    static final String STEP_AUTO_VACUUM = "auto_vacuum";
+    /**
+     * The step which returns the free pages to the file system.
+     */
+    static final String STEP_INCREMENTAL_VACUUM = "incremental_vacuum";
+    /**
+     * How often the steps are run.
+     */
+    static final long RUN_INTERVAL_MILLIS = 24L * 60L * 60L * 1000L;
+    /**
+     * How long there must be no activity before a run.
+     */
+    static final long IDLE_MILLIS = 10000L;
+    /**
+     * How long a run may start new steps for.
+     */
+    static final long RUN_BUDGET_MILLIS = 500L;
+    /**
+     * The most pages freed in one transaction by the incremental vacuum.
+     */
+    static final int VACUUM_PAGES = 64;
+    /**
+     * The value of <code>PRAGMA auto_vacuum</code> when auto vacuum is off.
+     */
+    static final long AUTO_VACUUM_NONE = 0L;
+    /**
+     * The value of <code>PRAGMA auto_vacuum</code> for incremental auto vacuum.
+     */
+    static final long AUTO_VACUUM_INCREMENTAL = 2L;
+    /**
+     * The rows <code>ANALYZE</code> reads from each index, which bounds its time on a large list.
+     */
+    private static final int ANALYSIS_LIMIT = 1000;
+    /**
+     * The steps in the order they are run.
+     */
+    private static final String[] STEPS = {STEP_INTEGRITY_CHECK, STEP_ANALYZE, STEP_OPTIMIZE,
+            STEP_AUTO_VACUUM, STEP_INCREMENTAL_VACUUM};
+    /**
+     * The name of the shared preferences the runs are recorded in.
+     */
+    private static final String PREFERENCES_NAME = "maintenance";
+    /**
+     * Key for the wall clock time the last complete run started.
+     */
+    private static final String LAST_RUN = "last_run";
+    /**
+     * Key for the last run's {@link MaintenanceReport}.
+     */
+    private static final String LAST_REPORT = "last_report";
+    /**
+     * Stores the classname to tag log errors.
+     */
+    private static final String TAG = DatabaseMaintenance.class.getSimpleName();
+    /**
+     * The clock of the device.
+     */
+    static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long uptimeMillis() {
+            return SystemClock.uptimeMillis();
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+    /**
+     * The database to maintain.
+     */
+    private final AListDatabase mAListDatabase;
+    /**
+     * Gives the times.
+     */
+    private final Clock mClock;
+    /**
+     * Times the checks.  Only the checks run on it, never the steps.
+     */
+    private final ScheduledExecutorService mTimerExecutor;
+    /**
+     * Runs the steps after the other writes.  Must have a single thread.
+     */
+    private final Executor mWriteExecutor;
+    /**
+     * The application context.
+     */
+    private final Context mContext;
+    /**
+     * The record of the runs.
+     */
+    private final SharedPreferences mPreferences;
+    /**
+     * Guards the fields below which are used by the calling threads and the executors.
+     */
+    private final Object mLock = new Object();
+    /**
+     * The uptime of the last query or write asked for.
+     */
+    private long mLastActivityMillis;
+    /**
+     * The uptime of the next check or <code>Long.MAX_VALUE</code> if none is scheduled.
+     */
+    private long mNextCheckMillis = Long.MAX_VALUE;
+    /**
+     * The next check.
+     */
+    private ScheduledFuture<?> mPendingFuture;
+    // Only changed on the write executor.
+    /**
+     * The index in {@link #STEPS} of the step the next run starts with.
+     */
+    private volatile int mNextStep;
+
+    /**
+     * Gives the times used by the maintenance.
+     */
+    interface Clock {
+        /**
+         * Get the milliseconds since boot, not counting deep sleep.
+         */
+        long uptimeMillis();
+
+        /**
+         * Get the wall clock time in milliseconds.
+         */
+        long currentTimeMillis();
+    }
+
+    /**
+     * Creates the maintenance.  Nothing is run until {@link #start()} is called.
+     *
+     * @param database      the database to maintain
+     * @param clock         gives the times
+     * @param timerExecutor times the checks
+     * @param writeExecutor the single thread executor which runs the writes
+     * @param context       the context
+     */
+    DatabaseMaintenance(@NonNull final AListDatabase database, @NonNull final Clock clock,
+                        @NonNull final ScheduledExecutorService timerExecutor,
+                        @NonNull final Executor writeExecutor, @NonNull final Context context) {
+        mAListDatabase = database;
+        mClock = clock;
+        mTimerExecutor = timerExecutor;
+        mWriteExecutor = writeExecutor;
+        mContext = context.getApplicationContext();
+        mPreferences = mContext.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        mLastActivityMillis = clock.uptimeMillis();
+    }
+
+    /**
+     * Checks for a run once the app is idle and again each time the device is plugged in.
+     */
+    void start() {
+        mContext.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(final Context context, final Intent intent) {
+                DatabaseMaintenance.this.schedule(IDLE_MILLIS);
+            }
+        }, new IntentFilter(Intent.ACTION_POWER_CONNECTED));
+        this.schedule(IDLE_MILLIS);
+    }
+
+    /**
+     * Records that a query or write has been asked for, which stops a run at the end of its
+     * current step and delays the next run until the app has been idle for {@link #IDLE_MILLIS}.
+     */
+    void onActivity() {
+        synchronized (mLock) {
+            mLastActivityMillis = mClock.uptimeMillis();
+        }
+    }
+
+    /**
+     * Checks for a run after a delay, unless a check is already due sooner.
+     *
+     * @param delayMillis how long to wait before checking
+     */
+    void schedule(final long delayMillis) {
+        synchronized (mLock) {
+            final long checkMillis = mClock.uptimeMillis() + delayMillis;
+            if (checkMillis >= mNextCheckMillis) {
+                return;
+            }
+
+            if (mPendingFuture != null) {
+                mPendingFuture.cancel(false);
+            }
+            mNextCheckMillis = checkMillis;
+            //noinspection Convert2Lambda
+            mPendingFuture = mTimerExecutor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    DatabaseMaintenance.this.check();
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Hands a run to the write executor if one is due and the app is idle, otherwise checks
+     * again once the app could be idle.
+     */
+    private void check() {
+        final long idleMillis;
+        synchronized (mLock) {
+            mNextCheckMillis = Long.MAX_VALUE;
+            mPendingFuture = null;
+            idleMillis = mClock.uptimeMillis() - mLastActivityMillis;
+        }
+
+        // An unfinished run is carried on, otherwise a run is due once the interval has passed.
+        if (mNextStep == 0 && mClock.currentTimeMillis() - mPreferences.getLong(LAST_RUN, 0L) <
+                RUN_INTERVAL_MILLIS) {
+            return;
+        }
+
+        if (idleMillis < IDLE_MILLIS) {
+            this.schedule(IDLE_MILLIS - idleMillis);
+            return;
+        }
+
+        //noinspection Convert2Lambda
+        mWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                DatabaseMaintenance.this.runAndRecord();
+            }
+        });
+    }
+
+    /**
+     * Runs the steps on the write executor, records the run and schedules the next check if the
+     * steps did not all finish.
+     */
+    private void runAndRecord() {
+        // Activity may have been asked for while the run was waiting behind other writes.
+        synchronized (mLock) {
+            final long idleMillis = mClock.uptimeMillis() - mLastActivityMillis;
+            if (idleMillis < IDLE_MILLIS) {
+                this.schedule(IDLE_MILLIS - idleMillis);
+                return;
+            }
+        }
+
+        try {
+            final MaintenanceReport report = this.run(this.isCharging());
+            final SharedPreferences.Editor editor = mPreferences.edit()
+                    .putString(LAST_REPORT, report.toString());
+            if (report.isComplete()) {
+                editor.putLong(LAST_RUN, report.getStartMillis());
+            } else {
+                // Carry on once the app has been idle again.
+                this.schedule(IDLE_MILLIS);
+            }
+            editor.apply();
+        } catch (Exception e) {
+            // The run is tried again at the next check.
+            Log.e(TAG, "runAndRecord error 1");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Runs the steps from the one the last run did not reach until they have all finished, the
+     * run's time is up or a query or write is asked for.  Must be called on the write executor.
+     *
+     * @param charging <code>true</code> if the device is charging, which allows incremental auto
+     *                 vacuum to be turned on
+     * @return what the run did
+     */
+    @NonNull
+    MaintenanceReport run(final boolean charging) {
+        final long runStartMillis = mClock.uptimeMillis();
+        final long startMillis = mClock.currentTimeMillis();
+        final LinkedHashMap<String, Long> stepMillis = new LinkedHashMap<>();
+        final SupportSQLiteDatabase db = mAListDatabase.getOpenHelper().getWritableDatabase();
+        long reclaimedBytes = 0L;
+        boolean integrityOk = true;
+
+        while (mNextStep < STEPS.length && this.canContinue(runStartMillis)) {
+            final String step = STEPS[mNextStep];
+            final long stepStartMillis = mClock.uptimeMillis();
+            boolean finished = true;
+            switch (step) {
+                case STEP_INTEGRITY_CHECK:
+                    integrityOk = DatabaseMaintenance.isIntact(db);
+                    break;
+                case STEP_ANALYZE:
+                    // Ignored by SQLite before 3.32, where ANALYZE reads every row.
+                    DatabaseMaintenance.runPragma(db, "PRAGMA analysis_limit = " +
+                            ANALYSIS_LIMIT);
+                    db.execSQL("ANALYZE");
+                    break;
+                case STEP_OPTIMIZE:
+                    DatabaseMaintenance.runPragma(db, "PRAGMA optimize");
+                    break;
+                case STEP_AUTO_VACUUM:
+                    if (charging) {
+                        reclaimedBytes += DatabaseMaintenance.switchToIncrementalVacuum(db);
+                    }
+                    break;
+                case STEP_INCREMENTAL_VACUUM:
+                    reclaimedBytes += this.vacuumIncrementally(db, runStartMillis);
+                    // Nothing can be freed until incremental auto vacuum is on, so the step is
+                    // finished.
+                    finished = DatabaseMaintenance.queryLong(db, "PRAGMA auto_vacuum") !=
+                            AUTO_VACUUM_INCREMENTAL ||
+                            DatabaseMaintenance.queryLong(db, "PRAGMA freelist_count") == 0L;
+                    break;
+                default:
+                    throw new RuntimeException("run error 1");
+            }
+            stepMillis.put(step, mClock.uptimeMillis() - stepStartMillis);
+
+            if (!integrityOk) {
+                // Writing to a corrupt file could lose more items, so leave it until the next
+                // interval.
+                Log.e(TAG, "run error 2");
+                mNextStep = STEPS.length;
+            } else if (finished) {
+                mNextStep++;
+            }
+        }
+
+        final boolean complete = mNextStep == STEPS.length;
+        if (complete) {
+            mNextStep = 0;
+        }
+        return new MaintenanceReport(startMillis, stepMillis, reclaimedBytes, integrityOk,
+                complete);
+    }
+
+    /**
+     * Returns free pages to the file system {@link #VACUUM_PAGES} at a time until there are none
+     * or the run must stop.
+     *
+     * @param db             the database
+     * @param runStartMillis the uptime the run started
+     * @return the number of bytes returned to the file system
+     */
+    private long vacuumIncrementally(@NonNull final SupportSQLiteDatabase db,
+                                     final long runStartMillis) {
+        if (DatabaseMaintenance.queryLong(db, "PRAGMA auto_vacuum") != AUTO_VACUUM_INCREMENTAL) {
+            return 0L;
+        }
+
+        final long pageSize = DatabaseMaintenance.queryLong(db, "PRAGMA page_size");
+        long freePages = DatabaseMaintenance.queryLong(db, "PRAGMA freelist_count");
+        long reclaimedBytes = 0L;
+        while (freePages > 0L && this.canContinue(runStartMillis)) {
+            // Each call is its own short transaction.
+            DatabaseMaintenance.runPragma(db, "PRAGMA incremental_vacuum(" + VACUUM_PAGES + ")");
+            final long remainingPages = DatabaseMaintenance.queryLong(db,
+                    "PRAGMA freelist_count");
+            reclaimedBytes += (freePages - remainingPages) * pageSize;
+            freePages = remainingPages;
+        }
+
+        return reclaimedBytes;
+    }
+
+    /**
+     * Determines if a run may start another step or free more pages.
+     *
+     * @param runStartMillis the uptime the run started
+     * @return <code>true</code> if the run's time is not up and nothing has been asked for since
+     * it started
+     */
+    private boolean canContinue(final long runStartMillis) {
+        synchronized (mLock) {
+            if (mLastActivityMillis > runStartMillis) {
+                return false;
+            }
+        }
+
+        return mClock.uptimeMillis() - runStartMillis < RUN_BUDGET_MILLIS;
+    }
+
+    /**
+     * Determines if the device is plugged in.
+     *
+     * @return <code>true</code> if the device is charging
+     */
+    private boolean isCharging() {
+        // The battery status is sticky so no receiver is needed to read it.
+        final Intent batteryStatus = mContext.registerReceiver(null,
+                new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        return batteryStatus != null &&
+                batteryStatus.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+    }
+
+    // Auto vacuum can only be turned on by rebuilding the file, which takes as long as copying
+    // the whole file, so it is done once while the device is charging.
+    /**
+     * Switches the file to incremental auto vacuum if auto vacuum is off.  A file using full auto
+     * vacuum already returns the free pages at each commit so is left alone.
+     *
+     * @param db the database
+     * @return the number of bytes returned to the file system by rebuilding the file
+     */
+    private static long switchToIncrementalVacuum(@NonNull final SupportSQLiteDatabase db) {
+        if (DatabaseMaintenance.queryLong(db, "PRAGMA auto_vacuum") != AUTO_VACUUM_NONE) {
+            return 0L;
+        }
+
+        final long pageCount = DatabaseMaintenance.queryLong(db, "PRAGMA page_count");
+        DatabaseMaintenance.runPragma(db, "PRAGMA auto_vacuum = INCREMENTAL");
+        db.execSQL("VACUUM");
+        return Math.max(0L, pageCount - DatabaseMaintenance.queryLong(db, "PRAGMA page_count")) *
+                DatabaseMaintenance.queryLong(db, "PRAGMA page_size");
+    }
+
+    /**
+     * Runs SQLite's quick integrity check, which checks the structure of the file but not that
+     * the indexes match the tables.
+     *
+     * @param db the database
+     * @return <code>true</code> if no problem was found
+     */
+    private static boolean isIntact(@NonNull final SupportSQLiteDatabase db) {
+        final Cursor cursor = db.query("PRAGMA quick_check");
+        try {
+            // A single "ok" row or a row for each problem.
+            return cursor.moveToFirst() && "ok".equals(cursor.getString(0)) &&
+                    cursor.getCount() == 1;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Runs a pragma which returns a number.
+     *
+     * @param db  the database
+     * @param sql the pragma
+     * @return the number
+     */
+    private static long queryLong(@NonNull final SupportSQLiteDatabase db,
+                                  @NonNull final String sql) {
+        final Cursor cursor = db.query(sql);
+        try {
+            if (!cursor.moveToFirst()) {
+                throw new RuntimeException("queryLong error 1");
+            }
+
+            return cursor.getLong(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // Pragmas which return rows are not allowed by execSQL() so they are run as queries.  Reading
+    // the rows runs the pragma to completion.
+    /**
+     * Runs a pragma and discards any result.
+     *
+     * @param db  the database
+     * @param sql the pragma
+     */
+    private static void runPragma(@NonNull final SupportSQLiteDatabase db,
+                                  @NonNull final String sql) {
+        final Cursor cursor = db.query(sql);
+        try {
+            cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+    }
+}
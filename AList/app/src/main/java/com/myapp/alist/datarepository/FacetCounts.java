@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.datarepository;
+
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The number of items for each combination of category and status under a set of name and
+ * description search terms.  Immutable.
+ * <p>
+ * Used to show how many items each category and status spinner choice would select, so the user
+ * can avoid choices which select nothing.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+public final class FacetCounts {
+    /**
+     * The category of each combination.
+     */
+    private final List<String> mCategories;
+    /**
+     * The status of each combination.
+     */
+    private final List<String> mStatuses;
+    /**
+     * The number of items with each combination.
+     */
+    private final List<Integer> mCounts;
+
+    /**
+     * Creates the counts.  The lists must be the same size and are not copied.
+     *
+     * @param categories the category of each combination
+     * @param statuses   the status of each combination
+     * @param counts     the number of items with each combination
+     */
+    FacetCounts(@NonNull final ArrayList<String> categories,
+                @NonNull final ArrayList<String> statuses,
+                @NonNull final ArrayList<Integer> counts) {
+        mCategories = categories;
+        mStatuses = statuses;
+        mCounts = counts;
+    }
+
+    /**
+     * Get the number of items with a category and a status.
+     *
+     * @param category the category or <code>null</code> for all categories
+     * @param status   the status or <code>null</code> for all statuses
+     * @return the number of items
+     */
+    public int getCount(@Nullable final String category, @Nullable final String status) {
+        int count = 0;
+        final int size = mCounts.size();
+        for (int i = 0; i < size; i++) {
+            if ((category == null || TextUtils.equals(category, mCategories.get(i))) &&
+                    (status == null || TextUtils.equals(status, mStatuses.get(i)))) {
+                count += mCounts.get(i);
+            }
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.datarepository;
+
+import android.database.Cursor;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+
+import com.myapp.alist.db.AListDatabase;
+import com.myapp.alist.db.LabelDictionary;
+
+import java.util.ArrayList;
+
+/**
+ * Finds the {@link FacetCounts} for the name and description search terms of the latest query.
+ * <p>
+ * One <code>GROUP BY category, status</code> query gives the counts for every category and status
+ * choice.  The counts only depend on the search terms so they are cached by those terms, which
+ * means changing the category or status spinner never runs the query.  Narrower search terms,
+ * e.g. one more character typed, are counted from the last query result by the
+ * {@link ResultRefiner} when it has every row under broader terms.  The cache is cleared by
+ * {@link #invalidate()} when the list table changes.
+ * <p>
+ * {@link #update(QuerySpec)} and {@link #refresh()} must be called on the query thread.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+final class FacetEngine {
+    /**
+     * The most sets of search terms to keep the counts for.
+     */
+    private static final int MAX_ENTRIES = 16;
+    /**
+     * The database to query.
+     */
+    private final AListDatabase mAListDatabase;
+    /**
+     * Compiles the specs into SQL.
+     */
+    private final QueryCompiler mQueryCompiler;
+    /**
+     * Counts narrower search terms from the last query result.
+     */
+    private final ResultRefiner mResultRefiner;
+    /**
+     * Receives the counts.
+     */
+    private final Listener mListener;
+    /**
+     * The counts keyed by facet spec.  <code>LruCache</code> is thread safe.
+     */
+    private final LruCache<QuerySpec, FacetCounts> mFacetCountsCache =
+            new LruCache<>(MAX_ENTRIES);
+    /**
+     * Increases each time the list table changes.
+     */
+    private long mVersion;
+    /**
+     * The facet spec of the latest query.  Only used on the query thread.
+     */
+    private QuerySpec mFacetQuerySpec;
+    /**
+     * The counts last delivered.  Only used on the query thread.
+     */
+    private FacetCounts mLastFacetCounts;
+
+    /**
+     * Receives the counts on the query thread.
+     */
+    interface Listener {
+        /**
+         * Called with the counts for the latest query's search terms.
+         *
+         * @param facetCounts the counts
+         */
+        void onFacetCounts(@NonNull FacetCounts facetCounts);
+    }
+
+    /**
+     * Creates the engine.
+     *
+     * @param database      the database to query
+     * @param queryCompiler compiles the specs into SQL
+     * @param resultRefiner counts narrower search terms from the last query result
+     * @param listener      receives the counts
+     */
+    FacetEngine(final AListDatabase database, final QueryCompiler queryCompiler,
+                final ResultRefiner resultRefiner, final Listener listener) {
+        mAListDatabase = database;
+        mQueryCompiler = queryCompiler;
+        mResultRefiner = resultRefiner;
+        mListener = listener;
+    }
+
+    /**
+     * Delivers the counts for a query's search terms, from the cache or the last query result
+     * if possible.  Called before the query runs so the last result is the previous query's.
+     *
+     * @param querySpec the spec of the latest query
+     */
+    void update(@NonNull final QuerySpec querySpec) {
+        mFacetQuerySpec = querySpec.getFacetSpec();
+        FacetCounts facetCounts = mFacetCountsCache.get(mFacetQuerySpec);
+        if (facetCounts == null) {
+            facetCounts = mResultRefiner.refineFacets(mFacetQuerySpec);
+        }
+        if (facetCounts == null) {
+            facetCounts = query(mFacetQuerySpec);
+        }
+
+        if (facetCounts != mLastFacetCounts) {
+            mLastFacetCounts = facetCounts;
+            mListener.onFacetCounts(facetCounts);
+        }
+    }
+
+    /**
+     * Finds and delivers the counts for the latest query's search terms again, e.g. after the
+     * list table has changed.
+     */
+    void refresh() {
+        if (mFacetQuerySpec != null) {
+            mLastFacetCounts = query(mFacetQuerySpec);
+            mListener.onFacetCounts(mLastFacetCounts);
+        }
+    }
+
+    /**
+     * Clears the cache because the list table has changed.  May be called on any thread.
+     */
+    synchronized void invalidate() {
+        mVersion++;
+        mFacetCountsCache.evictAll();
+    }
+
+    /**
+     * Gets the current version of the list table.
+     *
+     * @return the version
+     */
+    private synchronized long getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Runs the <code>GROUP BY</code> query and caches the counts if the list table did not change
+     * while it ran.
+     *
+     * @param facetQuerySpec the facet spec
+     * @return the counts
+     */
+    private FacetCounts query(final QuerySpec facetQuerySpec) {
+        final long version = getVersion();
+        final ArrayList<String> categories = new ArrayList<>();
+        final ArrayList<String> statuses = new ArrayList<>();
+        final ArrayList<Integer> counts = new ArrayList<>();
+
+        final Cursor cursor = mAListDatabase.query(mQueryCompiler.compileFacets(facetQuerySpec));
+        try {
+            while (cursor.moveToNext()) {
+                categories.add(LabelDictionary.categories().getLabel(cursor.getLong(0)));
+                statuses.add(LabelDictionary.statuses().getLabel(cursor.getLong(1)));
+                counts.add(cursor.getInt(2));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        final FacetCounts facetCounts = new FacetCounts(categories, statuses, counts);
+        synchronized (this) {
+            if (version == mVersion) {
+                mFacetCountsCache.put(facetQuerySpec, facetCounts);
+            }
+        }
+
+        return facetCounts;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.datarepository;
+
+import androidx.annotation.Nullable;
+
+/**
+ * The outcome of inserting or upserting one item with
+ * {@link DataRepository#insertItems(java.util.List)} or
+ * {@link DataRepository#upsertItems(java.util.List)}.  Immutable.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+public final class InsertResult {
+    /**
+     * The item was inserted.
+     */
+    public static final int STATUS_INSERTED = 0;
+    /**
+     * The item was not inserted because its name is already in the list table or earlier in the
+     * same batch.  The row ID is the existing item's.
+     */
+    public static final int STATUS_DUPLICATE_NAME = 1;
+    /**
+     * The item was not inserted because its values failed validation.
+     */
+    public static final int STATUS_INVALID = 2;
+    /**
+     * The item's name was already used so the existing item was updated with its values.
+     */
+    public static final int STATUS_UPDATED = 3;
+    /**
+     * The item's name was already used and the existing item already had its values, so nothing
+     * was written.
+     */
+    public static final int STATUS_UNCHANGED = 4;
+    /**
+     * One of the <code>STATUS_</code> constants.
+     */
+    private final int mStatus;
+    /**
+     * The row ID of the inserted or updated item, the row ID of the existing item for a duplicate
+     * name or an unchanged item, or -1.
+     */
+    private final long mId;
+    /**
+     * The name of the item or <code>null</code> if it had no name.
+     */
+    private final String mName;
+
+    /**
+     * Creates the outcome.
+     *
+     * @param status one of the <code>STATUS_</code> constants
+     * @param id     the row ID of the inserted, updated or existing item or -1
+     * @param name   the name of the item or <code>null</code> if it had no name
+     */
+    public InsertResult(final int status, final long id, @Nullable final String name) {
+        mStatus = status;
+        mId = id;
+        mName = name;
+    }
+
+    /**
+     * Get the outcome.
+     *
+     * @return one of the <code>STATUS_</code> constants
+     */
+    public int getStatus() {
+        return mStatus;
+    }
+
+    /**
+     * Get the row ID of the inserted or updated item, or of the existing item with the same name
+     * for {@link #STATUS_DUPLICATE_NAME} and {@link #STATUS_UNCHANGED}.
+     *
+     * @return the row ID or -1 if the item was not valid
+     */
+    public long getId() {
+        return mId;
+    }
+
+    /**
+     * Get the name of the item, e.g. to report which names were already in the list.
+     *
+     * @return the name or <code>null</code> if it had no name
+     */
+    @Nullable
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * Determine if the item was inserted.
+     *
+     * @return <code>true</code> if the item was inserted
+     */
+    public boolean isInserted() {
+        return mStatus == STATUS_INSERTED;
+    }
+}
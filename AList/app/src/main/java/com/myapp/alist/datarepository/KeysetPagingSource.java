@@ -0,0 +1,377 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.datarepository;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.paging.ListenableFuturePagingSource;
+import androidx.paging.PagingState;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.myapp.alist.db.AListDatabase;
+import com.myapp.alist.db.ListDao;
+import com.myapp.alist.db.ListEntity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+/**
+ * Loads the items selected by a {@link QuerySpec} a page at a time for the paged list using
+ * keyset paging, see {@link QueryCompiler#compileSelectPage(QuerySpec, ListEntity, int)}.  Each
+ * page is found from the last row of the page before it, or the first row of the page after it
+ * when scrolling back up, so a page deep in the list costs the same as the first page.
+ * <p>
+ * A source created from a {@link ResultSnapshot} which has every selected row serves the pages
+ * from those rows without querying the database, e.g. when switching back to a recent view or
+ * narrowing a small selection.  The number of rows in the result also tells the pager how many
+ * rows follow each page so the placeholders and the scroll bar cover the whole list.
+ * <p>
+ * The source does not watch the database.  It must be invalidated when the list table or the
+ * lookup tables change, which the data repository does when the {@link QueryScheduler} delivers
+ * the result of the query run again.  A reloaded list starts just before the rows which were on
+ * screen so the list does not jump back to the top.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+final class KeysetPagingSource extends ListenableFuturePagingSource<KeysetPagingSource.PageKey,
+        ListEntity> {
+    /**
+     * The DAO to query.
+     */
+    private final ListDao mListDao;
+    /**
+     * Runs the page queries.
+     */
+    private final Executor mQueryExecutor;
+    /**
+     * Compiles the spec into SQL.
+     */
+    private final QueryCompiler mQueryCompiler;
+    /**
+     * The selection criteria and sort order.
+     */
+    private final QuerySpec mQuerySpec;
+    /**
+     * The result of the spec's query or <code>null</code> if it has not run.
+     */
+    @Nullable
+    private final ResultSnapshot mResultSnapshot;
+
+    /**
+     * Where a page starts or ends.  A page is loaded either after a row, going down the list, or
+     * before a row, going back up it.  The position of the page in the list is kept with the
+     * row so placeholders can be shown for the rows before the page.
+     */
+    static final class PageKey {
+        /**
+         * The row the page is after or before.
+         */
+        private final ListEntity mRow;
+        /**
+         * The position of the first row after the row, or of the row itself for a page before
+         * it.
+         */
+        private final int mPosition;
+        /**
+         * <code>true</code> if the page is before the row.
+         */
+        private final boolean mBackward;
+
+        /**
+         * Creates a key.
+         *
+         * @param row      the row the page is after or before
+         * @param position the position of the first row after the row, or of the row itself for
+         *                 a page before it
+         * @param backward <code>true</code> if the page is before the row
+         */
+        private PageKey(@NonNull final ListEntity row, final int position,
+                        final boolean backward) {
+            mRow = row;
+            mPosition = position;
+            mBackward = backward;
+        }
+
+        /**
+         * Creates the key of the page after a row.
+         *
+         * @param row      the last row before the page
+         * @param position the position of the first row of the page
+         * @return the key
+         */
+        @NonNull
+        static PageKey after(@NonNull final ListEntity row, final int position) {
+            return new PageKey(row, position, false);
+        }
+
+        /**
+         * Creates the key of the page before a row.
+         *
+         * @param row      the first row after the page
+         * @param position the position of the row
+         * @return the key
+         */
+        @NonNull
+        static PageKey before(@NonNull final ListEntity row, final int position) {
+            return new PageKey(row, position, true);
+        }
+    }
+
+    /**
+     * Creates a paging source which queries the database for every page.
+     *
+     * @param database      the database to query
+     * @param queryCompiler compiles the spec into SQL
+     * @param querySpec     the selection criteria and sort order
+     */
+    KeysetPagingSource(@NonNull final AListDatabase database,
+                       @NonNull final QueryCompiler queryCompiler,
+                       @NonNull final QuerySpec querySpec) {
+        this(database, queryCompiler, querySpec, null);
+    }
+
+    /**
+     * Creates a paging source for the result of a query.  The pages are served from the
+     * result's rows if it has every selected row.
+     *
+     * @param database       the database to query
+     * @param queryCompiler  compiles the spec into SQL
+     * @param resultSnapshot the result of the query
+     */
+    KeysetPagingSource(@NonNull final AListDatabase database,
+                       @NonNull final QueryCompiler queryCompiler,
+                       @NonNull final ResultSnapshot resultSnapshot) {
+        this(database, queryCompiler, resultSnapshot.getQuerySpec(), resultSnapshot);
+    }
+
+    /**
+     * Creates the paging source.
+     *
+     * @param database       the database to query
+     * @param queryCompiler  compiles the spec into SQL
+     * @param querySpec      the selection criteria and sort order
+     * @param resultSnapshot the result of the spec's query or <code>null</code> if it has not run
+     */
+    private KeysetPagingSource(@NonNull final AListDatabase database,
+                               @NonNull final QueryCompiler queryCompiler,
+                               @NonNull final QuerySpec querySpec,
+                               @Nullable final ResultSnapshot resultSnapshot) {
+        mListDao = database.list();
+        mQueryExecutor = database.getQueryExecutor();
+        mQueryCompiler = queryCompiler;
+        mQuerySpec = querySpec;
+        mResultSnapshot = resultSnapshot;
+    }
+
+    @NonNull
+    @Override
+    public ListenableFuture<LoadResult<PageKey, ListEntity>> loadFuture(
+            @NonNull final LoadParams<PageKey> params) {
+        //noinspection Convert2Lambda
+        final ListenableFutureTask<LoadResult<PageKey, ListEntity>> task =
+                ListenableFutureTask.create(new Callable<LoadResult<PageKey, ListEntity>>() {
+                    @Override
+                    public LoadResult<PageKey, ListEntity> call() {
+                        return KeysetPagingSource.this.load(params);
+                    }
+                });
+        mQueryExecutor.execute(task);
+        return task;
+    }
+
+    /**
+     * Loads a page on the query executor.
+     *
+     * @param params the key and size of the page
+     * @return the page
+     */
+    @NonNull
+    private LoadResult<PageKey, ListEntity> load(@NonNull final LoadParams<PageKey> params) {
+        if (this.getInvalid()) {
+            return new LoadResult.Invalid<>();
+        }
+
+        final PageKey pageKey = params.getKey();
+        final int loadSize = params.getLoadSize();
+        final LoadResult.Page<PageKey, ListEntity> page = this.loadPage(pageKey, loadSize);
+        if (pageKey != null && params instanceof LoadParams.Refresh && page.getData().isEmpty()) {
+            // The rows around the key have been deleted so start again at the top.
+            return this.loadPage(null, loadSize);
+        }
+        return page;
+    }
+
+    /**
+     * Loads a page from the result's rows if it has them, otherwise from the database.
+     *
+     * @param pageKey  the key of the page or <code>null</code> for the first page
+     * @param loadSize the most rows to load
+     * @return the page
+     */
+    @NonNull
+    private LoadResult.Page<PageKey, ListEntity> loadPage(@Nullable final PageKey pageKey,
+                                                          final int loadSize) {
+        final List<ListEntity> listEntities = mResultSnapshot == null ? null :
+                mResultSnapshot.getListEntities();
+        if (listEntities != null) {
+            return this.loadFromResult(listEntities, pageKey, loadSize);
+        }
+        if (pageKey == null) {
+            return this.loadAfter(null, 0, loadSize);
+        }
+        return pageKey.mBackward ? this.loadBefore(pageKey.mRow, pageKey.mPosition, loadSize) :
+                this.loadAfter(pageKey.mRow, pageKey.mPosition, loadSize);
+    }
+
+    /**
+     * Loads a page from the rows of the result.  The rows are in order so the page is found
+     * from the position in its key.
+     *
+     * @param listEntities every selected row in order
+     * @param pageKey      the key of the page or <code>null</code> for the first page
+     * @param loadSize     the most rows to load
+     * @return the page
+     */
+    @NonNull
+    private LoadResult.Page<PageKey, ListEntity> loadFromResult(
+            @NonNull final List<ListEntity> listEntities, @Nullable final PageKey pageKey,
+            final int loadSize) {
+        final int size = listEntities.size();
+        final int from;
+        final int to;
+        if (pageKey == null) {
+            from = 0;
+            to = Math.min(size, loadSize);
+        } else if (pageKey.mBackward) {
+            to = Math.min(size, pageKey.mPosition);
+            from = Math.max(0, to - loadSize);
+        } else {
+            from = Math.min(size, pageKey.mPosition);
+            to = Math.min(size, from + loadSize);
+        }
+        // The result's rows are never modified so the page can share them.
+        return this.toPage(listEntities.subList(from, to), from, to < size);
+    }
+
+    /**
+     * Loads the page after a row.
+     *
+     * @param after    the last row before the page or <code>null</code> for the first page
+     * @param position the position of the first row of the page
+     * @param loadSize the most rows to load
+     * @return the page
+     */
+    @NonNull
+    private LoadResult.Page<PageKey, ListEntity> loadAfter(@Nullable final ListEntity after,
+                                                           final int position,
+                                                           final int loadSize) {
+        final List<ListEntity> listEntities = mListDao.selectPage(
+                mQueryCompiler.compileSelectPage(mQuerySpec, after, loadSize));
+        // Fewer rows than asked for means the page reaches the end of the list.
+        return this.toPage(listEntities, position, listEntities.size() == loadSize);
+    }
+
+    /**
+     * Loads the page before a row.
+     *
+     * @param before   the first row after the page
+     * @param position the position of the row
+     * @param loadSize the most rows to load
+     * @return the page
+     */
+    @NonNull
+    private LoadResult.Page<PageKey, ListEntity> loadBefore(@NonNull final ListEntity before,
+                                                            final int position,
+                                                            final int loadSize) {
+        final List<ListEntity> listEntities = new ArrayList<>(mListDao.selectPage(
+                mQueryCompiler.compileSelectPageBefore(mQuerySpec, before, loadSize)));
+        Collections.reverse(listEntities);
+        // Fewer rows than asked for means the page reaches the top of the list.
+        final int first = listEntities.size() < loadSize ? 0 :
+                Math.max(0, position - listEntities.size());
+        return this.toPage(listEntities, first, true);
+    }
+
+    /**
+     * Creates a page with the keys of the pages either side of it.  The number of rows after
+     * the page is taken from the result if there is one.
+     *
+     * @param listEntities the rows of the page in order
+     * @param position     the position of the first row
+     * @param hasNext      <code>true</code> if there may be rows after the page
+     * @return the page
+     */
+    @NonNull
+    private LoadResult.Page<PageKey, ListEntity> toPage(
+            @NonNull final List<ListEntity> listEntities, final int position,
+            final boolean hasNext) {
+        final int size = listEntities.size();
+        final PageKey prevKey = position > 0 && size > 0 ?
+                PageKey.before(listEntities.get(0), position) : null;
+        final PageKey nextKey = hasNext && size > 0 ?
+                PageKey.after(listEntities.get(size - 1), position + size) : null;
+        final int itemsAfter;
+        if (nextKey == null) {
+            itemsAfter = 0;
+        } else if (mResultSnapshot != null) {
+            itemsAfter = Math.max(0, mResultSnapshot.getCount() - position - size);
+        } else {
+            // Without a result the number of rows after the page is unknown.
+            itemsAfter = LoadResult.Page.COUNT_UNDEFINED;
+        }
+        return new LoadResult.Page<>(listEntities, prevKey, nextKey, position, itemsAfter);
+    }
+
+    /**
+     * Gets the key to reload the list from after an invalidation.  The list is reloaded from
+     * about half a load before the position the user was looking at so the rows on screen are
+     * loaded first.
+     *
+     * @param state the pages loaded so far and the position the user was looking at
+     * @return the key or <code>null</code> to load from the top of the list
+     */
+    @Nullable
+    @Override
+    public PageKey getRefreshKey(@NonNull final PagingState<PageKey, ListEntity> state) {
+        final Integer anchorPosition = state.getAnchorPosition();
+        final List<LoadResult.Page<PageKey, ListEntity>> pages = state.getPages();
+        if (anchorPosition == null || pages.isEmpty()) {
+            return null;
+        }
+
+        final int start = anchorPosition - state.getConfig().initialLoadSize / 2;
+        int position = pages.get(0).getItemsBefore();
+        if (start <= 0 || position == LoadResult.Page.COUNT_UNDEFINED) {
+            return null;
+        }
+        if (start <= position) {
+            // The start is before the loaded rows so reload the rows before the first of them.
+            final List<ListEntity> listEntities = pages.get(0).getData();
+            return listEntities.isEmpty() ? null : PageKey.before(listEntities.get(0), position);
+        }
+
+        // Find the row before the start.
+        ListEntity last = null;
+        for (LoadResult.Page<PageKey, ListEntity> page : pages) {
+            final List<ListEntity> listEntities = page.getData();
+            if (start - 1 < position + listEntities.size()) {
+                return PageKey.after(listEntities.get(start - 1 - position), start);
+            }
+            position += listEntities.size();
+            if (!listEntities.isEmpty()) {
+                last = listEntities.get(listEntities.size() - 1);
+            }
+        }
+
+        // The start is after the loaded rows so reload from the last of them.
+        return last == null ? null : PageKey.after(last, position);
+    }
+}
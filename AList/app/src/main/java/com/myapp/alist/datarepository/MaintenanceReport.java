@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.datarepository;
+
+import androidx.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * What one run of the {@link DatabaseMaintenance} did.  Immutable.
+ * <p>
+ * A run stops when its time is up, so it may only do some of the steps, which the next run
+ * carries on from.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+final class MaintenanceReport {
+    /**
+     * The wall clock time the run started.
+     */
+    private final long mStartMillis;
+    /**
+     * The milliseconds each step took, in the order they ran.
+     */
+    private final Map<String, Long> mStepMillis;
+    /**
+     * The number of bytes returned to the file system.
+     */
+    private final long mReclaimedBytes;
+    /**
+     * <code>false</code> if the integrity check found a problem.
+     */
+    private final boolean mIntegrityOk;
+    /**
+     * <code>true</code> if the last step finished in this run.
+     */
+    private final boolean mComplete;
+
+    /**
+     * Creates the report.
+     *
+     * @param startMillis    the wall clock time the run started
+     * @param stepMillis     the milliseconds each step took, in the order they ran, not copied
+     * @param reclaimedBytes the number of bytes returned to the file system
+     * @param integrityOk    <code>false</code> if the integrity check found a problem
+     * @param complete       <code>true</code> if the last step finished in this run
+     */
+    MaintenanceReport(final long startMillis, @NonNull final LinkedHashMap<String, Long> stepMillis,
+                      final long reclaimedBytes, final boolean integrityOk,
+                      final boolean complete) {
+        mStartMillis = startMillis;
+        mStepMillis = Collections.unmodifiableMap(stepMillis);
+        mReclaimedBytes = reclaimedBytes;
+        mIntegrityOk = integrityOk;
+        mComplete = complete;
+    }
+
+    /**
+     * Get the wall clock time the run started.
+     */
+    long getStartMillis() {
+        return mStartMillis;
+    }
+
+    /**
+     * Get the milliseconds each step took, keyed by the <code>STEP_</code> constants of
+     * {@link DatabaseMaintenance} in the order they ran.
+     */
+    @NonNull
+    Map<String, Long> getStepMillis() {
+        return mStepMillis;
+    }
+
+    /**
+     * Get the number of bytes returned to the file system.
+     */
+    long getReclaimedBytes() {
+        return mReclaimedBytes;
+    }
+
+    /**
+     * Get whether the integrity check found no problem or did not run.
+     */
+    boolean isIntegrityOk() {
+        return mIntegrityOk;
+    }
+
+    /**
+     * Get whether the last step finished in this run.
+     */
+    boolean isComplete() {
+        return mComplete;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        final StringBuilder stringBuilder = new StringBuilder();
+        stringBuilder.append("start=").append(mStartMillis)
+                .append(" reclaimedBytes=").append(mReclaimedBytes)
+                .append(" integrityOk=").append(mIntegrityOk)
+                .append(" complete=").append(mComplete);
+        for (Map.Entry<String, Long> entry : mStepMillis.entrySet()) {
+            stringBuilder.append(' ').append(entry.getKey()).append('=')
+                    .append(entry.getValue()).append("ms");
+        }
+
+        return stringBuilder.toString();
+    }
+}
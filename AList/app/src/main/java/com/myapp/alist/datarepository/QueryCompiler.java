@@ -0,0 +1,695 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.datarepository;
+
+import android.os.Build;
+import android.text.TextUtils;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteQuery;
+
+import com.myapp.alist.db.CategoryEntity;
+import com.myapp.alist.db.LabelDictionary;
+import com.myapp.alist.db.ListEntity;
+import com.myapp.alist.db.ListFtsEntity;
+import com.myapp.alist.db.StatusEntity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles a {@link QuerySpec} into SQL.
+ * <p>
+ * The SQL only depends on the spec's shape and every value is bound as an argument, so the SQL is
+ * built once per shape and cached.  Because the same shape always gives the same SQL string,
+ * SQLite's per-connection prepared statement cache, which is keyed by the SQL string, also reuses
+ * the compiled statement instead of preparing it again.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+final class QueryCompiler {
+    /**
+     * Contains the column names of the database required for display.
+     */
+    private static final String[] PROJECTION = new String[]{
+            ListEntity._ID,
+            ListEntity.NAME,
+            ListEntity.DESCRIPTION,
+            ListEntity.CATEGORY,
+            ListEntity.STATUS
+    };
+    /**
+     * The columns which can be changed by a single row update, in the order they are set.
+     */
+    private static final String[] UPDATE_ITEM_COLUMNS = new String[]{
+            ListEntity.NAME,
+            ListEntity.DESCRIPTION,
+            ListEntity.CATEGORY,
+            ListEntity.STATUS
+    };
+    /**
+     * The maximum number of shapes to keep the SQL for.
+     */
+    private static final int MAX_SHAPES = 64;
+    /**
+     * The <code>SELECT</code> SQL keyed by shape.  <code>LruCache</code> is thread safe.
+     */
+    private final LruCache<Integer, String> mSelectSqlCache = new LruCache<>(MAX_SHAPES);
+    /**
+     * The keyset page <code>SELECT</code> SQL keyed by shape, with the lowest bit set for pages
+     * after or before a row and the next bit set for pages before a row.
+     */
+    private final LruCache<Integer, String> mSelectPageSqlCache = new LruCache<>(MAX_SHAPES);
+    /**
+     * The <code>SELECT COUNT(*)</code> SQL keyed by shape.
+     */
+    private final LruCache<Integer, String> mCountSqlCache = new LruCache<>(MAX_SHAPES);
+    /**
+     * The facet count SQL keyed by shape.
+     */
+    private final LruCache<Integer, String> mFacetsSqlCache = new LruCache<>(MAX_SHAPES);
+    /**
+     * The soft delete <code>UPDATE</code> SQL keyed by shape.
+     */
+    private final LruCache<Integer, String> mSoftDeleteSqlCache = new LruCache<>(MAX_SHAPES);
+    /**
+     * The <code>UPDATE</code> SQL keyed by shape, with the lowest bit set for the status column.
+     */
+    private final LruCache<Integer, String> mUpdateSqlCache = new LruCache<>(MAX_SHAPES);
+    /**
+     * The single row <code>UPDATE</code> SQL keyed by changed fields mask.
+     */
+    private final LruCache<Integer, String> mUpdateItemSqlCache =
+            new LruCache<>(UPDATE_ITEM_COLUMNS.length << 2);
+    /**
+     * States if SQLite supports row values, i.e. <code>(a, b) &gt; (?, ?)</code>.
+     */
+    private final boolean mUseRowValues;
+
+    /**
+     * Creates the compiler for the device's SQLite.  Row values need SQLite 3.15 which Android
+     * has from Oreo.
+     */
+    QueryCompiler() {
+        this(Build.VERSION.SDK_INT >= Build.VERSION_CODES.O);
+    }
+
+    /**
+     * Creates the compiler.
+     *
+     * @param useRowValues <code>true</code> if SQLite supports row values
+     */
+    QueryCompiler(final boolean useRowValues) {
+        mUseRowValues = useRowValues;
+    }
+
+    /**
+     * Compiles a spec into a <code>SELECT</code> query of all of the display columns.
+     *
+     * @param querySpec the spec to compile
+     * @return the query with its arguments bound
+     */
+    @NonNull
+    SupportSQLiteQuery compileSelect(@NonNull final QuerySpec querySpec) {
+        final int shape = querySpec.getShape();
+        String sql = mSelectSqlCache.get(shape);
+        if (sql == null) {
+            final StringBuilder stringBuilder = new StringBuilder();
+            stringBuilder.append("SELECT ")
+                    .append(TextUtils.join(", ", QueryCompiler.PROJECTION))
+                    .append(" FROM ")
+                    .append(ListEntity.TABLE_NAME);
+            QueryCompiler.appendWhere(stringBuilder, querySpec);
+            stringBuilder.append(" ORDER BY ")
+                    .append(QueryCompiler.getOrderByClause(querySpec.getOrderBy()));
+            sql = stringBuilder.toString();
+            mSelectSqlCache.put(shape, sql);
+        }
+
+        return new SimpleSQLiteQuery(sql, QueryCompiler.getBindArgs(querySpec));
+    }
+
+    /**
+     * Compiles a spec into a <code>SELECT COUNT(*)</code> query.  The sort order is ignored.
+     * With no text search, the category and status indexes hold every column the conditions
+     * need so SQLite counts the index entries without reading the list table.
+     *
+     * @param querySpec the spec to compile
+     * @return the query with its arguments bound
+     */
+    @NonNull
+    SupportSQLiteQuery compileCount(@NonNull final QuerySpec querySpec) {
+        final int shape = querySpec.getShape();
+        String sql = mCountSqlCache.get(shape);
+        if (sql == null) {
+            final StringBuilder stringBuilder = new StringBuilder();
+            stringBuilder.append("SELECT COUNT(*) FROM ").append(ListEntity.TABLE_NAME);
+            QueryCompiler.appendWhere(stringBuilder, querySpec);
+            sql = stringBuilder.toString();
+            mCountSqlCache.put(shape, sql);
+        }
+
+        return new SimpleSQLiteQuery(sql, QueryCompiler.getBindArgs(querySpec));
+    }
+
+    /**
+     * Compiles a spec into a single <code>UPDATE</code> statement which marks every row the spec
+     * selects as deleted, so deleting any number of rows is one statement rather than one per
+     * row.  Only the deleted column is set, so the rows are not moved and the delete can be undone
+     * with {@link com.myapp.alist.db.ListDao#restoreDeleted(long)}.  The sort order is ignored.
+     *
+     * @param querySpec the spec to compile
+     * @param deleted   the time of the delete, which no other delete has used
+     * @return the statement with its arguments, bound with
+     * <code>SupportSQLiteQuery.bindTo()</code>
+     */
+    @NonNull
+    SupportSQLiteQuery compileSoftDelete(@NonNull final QuerySpec querySpec, final long deleted) {
+        final int shape = querySpec.getShape();
+        String sql = mSoftDeleteSqlCache.get(shape);
+        if (sql == null) {
+            final StringBuilder stringBuilder = new StringBuilder();
+            stringBuilder.append("UPDATE ").append(ListEntity.TABLE_NAME).append(" SET ")
+                    .append(ListEntity.DELETED).append(" = ?");
+            QueryCompiler.appendWhere(stringBuilder, querySpec);
+            sql = stringBuilder.toString();
+            mSoftDeleteSqlCache.put(shape, sql);
+        }
+
+        final Object[] whereArgs = QueryCompiler.getBindArgs(querySpec);
+        final Object[] bindArgs = new Object[whereArgs.length + 1];
+        bindArgs[0] = deleted;
+        System.arraycopy(whereArgs, 0, bindArgs, 1, whereArgs.length);
+
+        return new SimpleSQLiteQuery(sql, bindArgs);
+    }
+
+    /**
+     * Compiles a spec into an <code>UPDATE</code> statement which sets the category or status of
+     * every row the spec selects.  Rows which already have the value are not selected, so they are
+     * not rewritten and are not included in the number of rows updated.  The sort order is
+     * ignored.
+     *
+     * @param querySpec the spec to compile
+     * @param column    {@link ListEntity#CATEGORY} or {@link ListEntity#STATUS}
+     * @param value     the new value of the column
+     * @return the statement's SQL and arguments, which can be bound to a compiled statement with
+     * <code>SupportSQLiteQuery.bindTo()</code>
+     */
+    @NonNull
+    SupportSQLiteQuery compileUpdate(@NonNull final QuerySpec querySpec,
+                                     @NonNull final String column, @NonNull final String value) {
+        final int columnBit;
+        if (ListEntity.CATEGORY.equals(column)) {
+            columnBit = 0;
+        } else if (ListEntity.STATUS.equals(column)) {
+            columnBit = 1;
+        } else {
+            throw new RuntimeException("compileUpdate error 1");
+        }
+
+        final int key = querySpec.getShape() << 1 | columnBit;
+        String sql = mUpdateSqlCache.get(key);
+        if (sql == null) {
+            final StringBuilder stringBuilder = new StringBuilder();
+            stringBuilder.append("UPDATE ").append(ListEntity.TABLE_NAME).append(" SET ")
+                    .append(column).append(" = ?");
+            final int start = stringBuilder.length();
+            QueryCompiler.appendWhere(stringBuilder, querySpec);
+            QueryCompiler.appendAnd(stringBuilder, start).append(column).append(" <> ?");
+            sql = stringBuilder.toString();
+            mUpdateSqlCache.put(key, sql);
+        }
+
+        final long id = LabelDictionary.forColumn(column).getId(value);
+        final Object[] whereArgs = QueryCompiler.getBindArgs(querySpec);
+        final Object[] bindArgs = new Object[whereArgs.length + 2];
+        bindArgs[0] = id;
+        System.arraycopy(whereArgs, 0, bindArgs, 1, whereArgs.length);
+        bindArgs[bindArgs.length - 1] = id;
+
+        return new SimpleSQLiteQuery(sql, bindArgs);
+    }
+
+    /**
+     * Compiles the changed values of one row into an <code>UPDATE</code> statement which only
+     * sets the changed columns.  SQLite only maintains the indexes which contain a column that is
+     * set, so e.g. changing the status does not touch the unique name index.
+     *
+     * @param id      the id of the row to update
+     * @param changes the new values keyed by column, which must not be empty
+     * @return the statement's SQL and arguments, which can be bound to a compiled statement with
+     * <code>SupportSQLiteQuery.bindTo()</code>
+     */
+    @NonNull
+    SupportSQLiteQuery compileUpdateItem(final long id,
+                                         @NonNull final Map<String, String> changes) {
+        int changedFields = 0;
+        for (String column : changes.keySet()) {
+            changedFields |= ListEntity.getField(column);
+        }
+        if (changedFields == 0) {
+            throw new RuntimeException("compileUpdateItem error 1");
+        }
+
+        String sql = mUpdateItemSqlCache.get(changedFields);
+        if (sql == null) {
+            final StringBuilder stringBuilder = new StringBuilder();
+            stringBuilder.append("UPDATE ").append(ListEntity.TABLE_NAME).append(" SET ");
+            final int start = stringBuilder.length();
+            for (String column : QueryCompiler.UPDATE_ITEM_COLUMNS) {
+                if ((changedFields & ListEntity.getField(column)) != 0) {
+                    if (stringBuilder.length() != start) {
+                        stringBuilder.append(", ");
+                    }
+                    stringBuilder.append(column).append(" = ?");
+                }
+            }
+            stringBuilder.append(" WHERE ").append(ListEntity._ID).append(" = ?");
+            sql = stringBuilder.toString();
+            mUpdateItemSqlCache.put(changedFields, sql);
+        }
+
+        final ArrayList<Object> bindArgs = new ArrayList<>(changes.size() + 1);
+        for (String column : QueryCompiler.UPDATE_ITEM_COLUMNS) {
+            if ((changedFields & ListEntity.getField(column)) != 0) {
+                bindArgs.add(QueryCompiler.toBindArg(column, changes.get(column)));
+            }
+        }
+        bindArgs.add(id);
+
+        return new SimpleSQLiteQuery(sql, bindArgs.toArray());
+    }
+
+    /**
+     * Compiles a facet spec into a query of the number of items with each combination of
+     * category and status.  Only the name and description conditions apply.  Without a text
+     * search SQLite reads the category index in order and counts each group without a sort.
+     *
+     * @param facetQuerySpec the spec from {@link QuerySpec#getFacetSpec()}
+     * @return the query of category, status and count with its arguments bound
+     */
+    @NonNull
+    SupportSQLiteQuery compileFacets(@NonNull final QuerySpec facetQuerySpec) {
+        final int shape = facetQuerySpec.getShape();
+        String sql = mFacetsSqlCache.get(shape);
+        if (sql == null) {
+            final StringBuilder stringBuilder = new StringBuilder();
+            stringBuilder.append("SELECT ").append(ListEntity.CATEGORY).append(", ")
+                    .append(ListEntity.STATUS).append(", COUNT(*) FROM ")
+                    .append(ListEntity.TABLE_NAME);
+            QueryCompiler.appendWhere(stringBuilder, facetQuerySpec);
+            stringBuilder.append(" GROUP BY ").append(ListEntity.CATEGORY).append(", ")
+                    .append(ListEntity.STATUS);
+            sql = stringBuilder.toString();
+            mFacetsSqlCache.put(shape, sql);
+        }
+
+        return new SimpleSQLiteQuery(sql, QueryCompiler.getBindArgs(facetQuerySpec));
+    }
+
+    /**
+     * Compiles a spec into a query of one page of rows using keyset paging.  The page starts
+     * straight after a row in the spec's order, which SQLite finds with an index seek, so a page
+     * deep in the list costs the same as the first page.  <code>OFFSET</code> would instead read
+     * and discard every row before the page.  The category and status orders have no index, so
+     * SQLite sorts the rows after the given row but still skips the rows before it.
+     * <p>
+     * The sort columns of the row must not be <code>null</code>, which
+     * {@link ListEntity#verifyValues(java.util.HashMap)} ensures.
+     *
+     * @param querySpec the spec to compile
+     * @param after     the last row of the previous page or <code>null</code> for the first page
+     * @param limit     the most rows to select
+     * @return the query with its arguments bound
+     */
+    @NonNull
+    SupportSQLiteQuery compileSelectPage(@NonNull final QuerySpec querySpec,
+                                         @Nullable final ListEntity after, final int limit) {
+        return this.compilePage(querySpec, after, false, limit);
+    }
+
+    /**
+     * Compiles a spec into a query of the page of rows straight before a row in the spec's
+     * order, for scrolling back up a list which was loaded from the middle.  The rows are
+     * selected in reverse order, nearest to the row first, so they must be reversed before use.
+     *
+     * @param querySpec the spec to compile
+     * @param before    the first row of the next page
+     * @param limit     the most rows to select
+     * @return the query with its arguments bound
+     */
+    @NonNull
+    SupportSQLiteQuery compileSelectPageBefore(@NonNull final QuerySpec querySpec,
+                                               @NonNull final ListEntity before,
+                                               final int limit) {
+        return this.compilePage(querySpec, before, true, limit);
+    }
+
+    /**
+     * Compiles a spec into a keyset page query.
+     *
+     * @param querySpec the spec to compile
+     * @param row       the row the page starts after or ends before, or <code>null</code> for
+     *                  the first page
+     * @param backward  <code>true</code> to select the rows before the row in reverse order
+     * @param limit     the most rows to select
+     * @return the query with its arguments bound
+     */
+    @NonNull
+    private SupportSQLiteQuery compilePage(@NonNull final QuerySpec querySpec,
+                                          @Nullable final ListEntity row, final boolean backward,
+                                          final int limit) {
+        final List<String> keyColumns = querySpec.getOrderBy().getKeyColumns();
+        final int key = querySpec.getShape() << 2 | (backward ? 2 : 0) | (row == null ? 0 : 1);
+        String sql = mSelectPageSqlCache.get(key);
+        if (sql == null) {
+            final List<String> sortKeys = QueryCompiler.getSortKeys(keyColumns);
+            final StringBuilder stringBuilder = new StringBuilder();
+            stringBuilder.append("SELECT ")
+                    .append(TextUtils.join(", ", QueryCompiler.PROJECTION))
+                    .append(" FROM ")
+                    .append(ListEntity.TABLE_NAME);
+            final int start = stringBuilder.length();
+            QueryCompiler.appendWhere(stringBuilder, querySpec);
+            if (row != null) {
+                QueryCompiler.appendAnd(stringBuilder, start);
+                if (mUseRowValues) {
+                    QueryCompiler.appendRowValueKeyset(stringBuilder, sortKeys, backward);
+                } else {
+                    QueryCompiler.appendKeyset(stringBuilder, sortKeys, backward);
+                }
+            }
+            stringBuilder.append(" ORDER BY ")
+                    .append(TextUtils.join(backward ? " DESC, " : ", ", sortKeys))
+                    .append(backward ? " DESC LIMIT ?" : " LIMIT ?");
+            sql = stringBuilder.toString();
+            mSelectPageSqlCache.put(key, sql);
+        }
+
+        final ArrayList<Object> bindArgs = new ArrayList<>(
+                Arrays.asList(QueryCompiler.getBindArgs(querySpec)));
+        if (row != null && mUseRowValues) {
+            for (String keyColumn : keyColumns) {
+                bindArgs.add(QueryCompiler.getKeyValue(row, keyColumn));
+            }
+        } else if (row != null) {
+            final Object first = QueryCompiler.getKeyValue(row, keyColumns.get(0));
+            bindArgs.add(first);
+            bindArgs.add(first);
+            for (int i = 1; i < keyColumns.size(); i++) {
+                final Object value = QueryCompiler.getKeyValue(row, keyColumns.get(i));
+                if (i < keyColumns.size() - 1) {
+                    bindArgs.add(value);
+                }
+                bindArgs.add(value);
+            }
+        }
+        bindArgs.add(limit);
+
+        return new SimpleSQLiteQuery(sql, bindArgs.toArray());
+    }
+
+    /**
+     * Gets the <code>ORDER BY</code> list of a sort order.
+     *
+     * @param orderBy the sort order
+     * @return the sort keys separated by commas
+     */
+    @NonNull
+    static String getOrderByClause(@NonNull final QuerySpec.OrderBy orderBy) {
+        return TextUtils.join(", ", QueryCompiler.getSortKeys(orderBy.getKeyColumns()));
+    }
+
+    /**
+     * Gets the expressions to sort by for the sort columns.  The category and status columns
+     * hold ids, so they are sorted by the labels in their lookup tables.  The subquery finds the
+     * label with the primary key of the lookup table.
+     *
+     * @param keyColumns the sort columns in order
+     * @return the sort keys in order
+     */
+    private static List<String> getSortKeys(final List<String> keyColumns) {
+        final List<String> sortKeys = new ArrayList<>(keyColumns.size());
+        for (String keyColumn : keyColumns) {
+            switch (keyColumn) {
+                case ListEntity.CATEGORY:
+                    sortKeys.add("(SELECT " + CategoryEntity.LABEL + " FROM " +
+                            CategoryEntity.TABLE_NAME + " WHERE " + CategoryEntity._ID + " = " +
+                            ListEntity.TABLE_NAME + "." + ListEntity.CATEGORY + ")");
+                    break;
+                case ListEntity.STATUS:
+                    sortKeys.add("(SELECT " + StatusEntity.LABEL + " FROM " +
+                            StatusEntity.TABLE_NAME + " WHERE " + StatusEntity._ID + " = " +
+                            ListEntity.TABLE_NAME + "." + ListEntity.STATUS + ")");
+                    break;
+                default:
+                    sortKeys.add(keyColumn);
+                    break;
+            }
+        }
+
+        return sortKeys;
+    }
+
+    /**
+     * Adds the condition for the rows after or before a row in key order as a row value, i.e.
+     * <code>(a, b, c) &gt; (?, ?, ?)</code>.  SQLite seeks straight to the row in the index
+     * which matches the keys.  The arguments are each key once.
+     *
+     * @param stringBuilder the SQL to add to
+     * @param sortKeys      the sort keys in order
+     * @param backward      <code>true</code> for the rows before the row
+     */
+    private static void appendRowValueKeyset(final StringBuilder stringBuilder,
+                                             final List<String> sortKeys,
+                                             final boolean backward) {
+        stringBuilder.append('(').append(TextUtils.join(", ", sortKeys))
+                .append(backward ? ") < (?" : ") > (?");
+        for (int i = 1; i < sortKeys.size(); i++) {
+            stringBuilder.append(", ?");
+        }
+        stringBuilder.append(')');
+    }
+
+    /**
+     * Adds the condition for the rows after or before a row in key order for SQLite without row
+     * values.  For the rows after a row with keys a, b and c this is
+     * <code>a &gt;= ? AND (a &gt; ? OR (b &gt; ? OR (b = ? AND (c &gt; ?))))</code>.  SQLite
+     * seeks to the first key with <code>a &gt;= ?</code> and then filters out the rows with the
+     * same first key which come before the row.  The rows before a row use the same condition
+     * with the comparisons reversed.
+     * <p>
+     * The arguments are the first key twice, then each middle key twice and then the last key
+     * once.
+     *
+     * @param stringBuilder the SQL to add to
+     * @param sortKeys      the sort keys in order
+     * @param backward      <code>true</code> for the rows before the row
+     */
+    private static void appendKeyset(final StringBuilder stringBuilder,
+                                     final List<String> sortKeys, final boolean backward) {
+        final String beyond = backward ? " < ?" : " > ?";
+        final int count = sortKeys.size();
+        stringBuilder.append(sortKeys.get(0)).append(backward ? " <= ? AND (" : " >= ? AND (")
+                .append(sortKeys.get(0)).append(beyond);
+        for (int i = 1; i < count; i++) {
+            // a >= ? already limits the rows so a = ? is not needed before b > ?.
+            stringBuilder.append(" OR (");
+            if (i > 1) {
+                stringBuilder.append(sortKeys.get(i - 1)).append(" = ? AND (");
+            }
+            stringBuilder.append(sortKeys.get(i)).append(beyond);
+        }
+        for (int i = 1; i < count; i++) {
+            stringBuilder.append(i > 1 ? "))" : ")");
+        }
+        stringBuilder.append(')');
+    }
+
+    /**
+     * Gets the value of a sort column from a row.  The category and status are their labels.
+     *
+     * @param listEntity the row
+     * @param column     the column name
+     * @return the value to bind
+     */
+    private static Object getKeyValue(final ListEntity listEntity, final String column) {
+        switch (column) {
+            case ListEntity._ID:
+                return listEntity.getId();
+            case ListEntity.NAME:
+                return listEntity.getName();
+            case ListEntity.DESCRIPTION:
+                return listEntity.getDescription();
+            case ListEntity.CATEGORY:
+                return listEntity.getCategory();
+            case ListEntity.STATUS:
+                return listEntity.getStatus();
+            default:
+                throw new RuntimeException("getKeyValue error 1");
+        }
+    }
+
+    /**
+     * Gets the argument to bind for the new value of a column.  A category or status label is
+     * bound as its id.
+     *
+     * @param column the column name
+     * @param value  the new value
+     * @return the argument
+     */
+    private static Object toBindArg(final String column, final String value) {
+        if (ListEntity.CATEGORY.equals(column) || ListEntity.STATUS.equals(column)) {
+            return LabelDictionary.forColumn(column).getId(value);
+        }
+
+        return value;
+    }
+
+    /**
+     * Adds the <code>WHERE</code> clause for a spec's shape, which never selects deleted rows.
+     * The conditions are always added in the same order as the arguments from
+     * {@link #getBindArgs(QuerySpec)}.
+     *
+     * @param stringBuilder the SQL to add to
+     * @param querySpec     the spec
+     */
+    private static void appendWhere(final StringBuilder stringBuilder,
+                                    final QuerySpec querySpec) {
+        final int start = stringBuilder.length();
+
+        // Not bound so SQLite knows the value when planning.  Every index ends with the deleted
+        // column so deleted rows are skipped in the index, and as the value is fixed the indexes
+        // still give the sort orders.
+        QueryCompiler.appendAnd(stringBuilder, start).append(ListEntity.DELETED).append(" = ")
+                .append(ListEntity.NOT_DELETED);
+
+        if (querySpec.getNameTerm() == QuerySpec.TERM_BLANK ||
+                querySpec.getNameTerm() == QuerySpec.TERM_LIKE) {
+            QueryCompiler.appendAnd(stringBuilder, start).append(ListEntity.NAME)
+                    .append(" LIKE ?");
+        }
+
+        if (querySpec.getDescriptionTerm() == QuerySpec.TERM_BLANK ||
+                querySpec.getDescriptionTerm() == QuerySpec.TERM_LIKE) {
+            QueryCompiler.appendAnd(stringBuilder, start).append(ListEntity.DESCRIPTION)
+                    .append(" LIKE ?");
+        }
+
+        // The FTS index is matched first and only the matching rows are read from the list table.
+        if (querySpec.getMatch() != null) {
+            QueryCompiler.appendAnd(stringBuilder, start).append(ListEntity._ID)
+                    .append(" IN (SELECT rowid FROM ").append(ListFtsEntity.TABLE_NAME)
+                    .append(" WHERE ").append(ListFtsEntity.TABLE_NAME).append(" MATCH ?)");
+        }
+
+        // Categories and statuses are compared exactly as integer ids, which lets SQLite use the
+        // category and status indexes.
+        QueryCompiler.appendIn(stringBuilder, start, ListEntity.CATEGORY,
+                querySpec.getCategories().size());
+        QueryCompiler.appendIn(stringBuilder, start, ListEntity.STATUS,
+                querySpec.getStatuses().size());
+
+        if (querySpec.getActivatedId() != DataRepository.NO_ID) {
+            QueryCompiler.appendAnd(stringBuilder, start).append(ListEntity._ID).append(" = ?");
+        }
+    }
+
+    /**
+     * Adds " WHERE " for the first condition and " AND " for the others.
+     *
+     * @param stringBuilder the SQL to add to
+     * @param start         the length of the SQL before the first condition
+     * @return the SQL
+     */
+    private static StringBuilder appendAnd(final StringBuilder stringBuilder, final int start) {
+        return stringBuilder.append(stringBuilder.length() == start ? " WHERE " : " AND ");
+    }
+
+    /**
+     * Adds "column = ?" for one value or "column IN (?, ?)" for several values.  Adds nothing for
+     * no values.
+     *
+     * @param stringBuilder the SQL to add to
+     * @param start         the length of the SQL before the first condition
+     * @param column        the column to compare
+     * @param count         the number of values
+     */
+    private static void appendIn(final StringBuilder stringBuilder, final int start,
+                                 final String column, final int count) {
+        if (count == 0) {
+            return;
+        }
+
+        QueryCompiler.appendAnd(stringBuilder, start).append(column);
+        if (count == 1) {
+            stringBuilder.append(" = ?");
+        } else {
+            stringBuilder.append(" IN (?");
+            for (int i = 1; i < count; i++) {
+                stringBuilder.append(", ?");
+            }
+            stringBuilder.append(')');
+        }
+    }
+
+    /**
+     * Gets the arguments to bind for a spec in the order of the conditions from
+     * {@link #appendWhere(StringBuilder, QuerySpec)}.
+     *
+     * @param querySpec the spec
+     * @return the arguments
+     */
+    private static Object[] getBindArgs(final QuerySpec querySpec) {
+        final ArrayList<Object> bindArgs = new ArrayList<>(4 + querySpec.getCategories().size() +
+                querySpec.getStatuses().size());
+
+        QueryCompiler.addTermArg(bindArgs, querySpec.getNameTerm(), querySpec.getName());
+        QueryCompiler.addTermArg(bindArgs, querySpec.getDescriptionTerm(),
+                querySpec.getDescription());
+
+        if (querySpec.getMatch() != null) {
+            bindArgs.add(querySpec.getMatch());
+        }
+
+        // A label which is not in the dictionary is bound as NO_ID, which matches no row.
+        for (String category : querySpec.getCategories()) {
+            bindArgs.add(LabelDictionary.categories().getId(category));
+        }
+        for (String status : querySpec.getStatuses()) {
+            bindArgs.add(LabelDictionary.statuses().getId(status));
+        }
+
+        if (querySpec.getActivatedId() != DataRepository.NO_ID) {
+            bindArgs.add(querySpec.getActivatedId());
+        }
+
+        return bindArgs.toArray();
+    }
+
+    /**
+     * Adds the <code>LIKE</code> argument for a name or description search term.
+     *
+     * @param bindArgs the arguments to add to
+     * @param term     how the search term is used
+     * @param value    the normalised search term
+     */
+    private static void addTermArg(final ArrayList<Object> bindArgs, final int term,
+                                   final String value) {
+        if (term == QuerySpec.TERM_BLANK) {
+            bindArgs.add(value);
+        } else if (term == QuerySpec.TERM_LIKE) {
+            bindArgs.add("%" + value + "%");
+        }
+    }
+}
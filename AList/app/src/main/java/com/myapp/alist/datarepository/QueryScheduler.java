@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.datarepository;
+
+import android.database.Cursor;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import com.myapp.alist.db.AListDatabase;
+import com.myapp.alist.db.ListEntity;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the latest query for the number of selected rows and drops all of the others.
+ * <p>
+ * A burst of queries, e.g. one for each character typed, is coalesced by waiting
+ * {@link #DEBOUNCE_MILLIS} after the last one before running it.  A query which is superseded
+ * while it is running is cancelled with a <code>CancellationSignal</code> so SQLite stops working
+ * on it, and a result which arrives after a newer query was submitted is never delivered.
+ * <p>
+ * The rows themselves are loaded a page at a time by the paged list.  The scheduler only reads
+ * them when there are at most {@link ResultSnapshot#MAX_ROWS}, which counts them and lets a
+ * query which only narrows the last result, e.g. one more character typed, be answered by
+ * filtering that result in memory with a {@link ResultRefiner} instead of querying the database.
+ * A larger selection is counted with <code>COUNT(*)</code>, which only reads the indexes.  A
+ * query with the same spec as a recent one is answered from a {@link ResultCache}.  The result
+ * is delivered as a {@link ResultSnapshot} which the paged list serves its pages from when it
+ * has every selected row.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+final class QueryScheduler {
+    /**
+     * How long to wait for more input before running a query.
+     */
+    static final long DEBOUNCE_MILLIS = 250L;
+    /**
+     * Stores the classname to tag log errors.
+     */
+    private static final String TAG = QueryScheduler.class.getSimpleName();
+    /**
+     * The database to query.
+     */
+    private final AListDatabase mAListDatabase;
+    /**
+     * Compiles the specs into SQL.
+     */
+    private final QueryCompiler mQueryCompiler;
+    /**
+     * Filters the last result for narrower specs.
+     */
+    private final ResultRefiner mResultRefiner = new ResultRefiner();
+    /**
+     * Keeps the results of recent specs.
+     */
+    private final ResultCache mResultCache = new ResultCache();
+    /**
+     * Runs the queries.  Must have a single thread so queries never overlap.
+     */
+    private final ScheduledExecutorService mQueryThreadExecutor;
+    /**
+     * Receives the result of the latest query.
+     */
+    private final Listener mListener;
+    /**
+     * Guards the fields below which are used by both the calling thread and the query thread.
+     */
+    private final Object mLock = new Object();
+    /**
+     * Increases with each submitted query.  A query may only deliver its result if it is still the
+     * latest.
+     */
+    private long mGeneration;
+    /**
+     * The spec of the latest query submitted.  Run again when the list table changes.
+     */
+    private QuerySpec mCurrentQuerySpec;
+    /**
+     * The query waiting for its debounce delay to end.
+     */
+    private ScheduledFuture<?> mPendingFuture;
+    /**
+     * Cancels the query which is running.
+     */
+    private CancellationSignal mInFlightSignal;
+
+    /**
+     * The spec of the last query run.  Only used on the query thread.
+     */
+    private QuerySpec mLastRunQuerySpec;
+
+    /**
+     * Receives the result of the latest query on the query thread.
+     */
+    interface Listener {
+        /**
+         * Called when a query with a different spec from the last one is about to run, i.e. once
+         * the debounce delay has ended.
+         *
+         * @param querySpec the spec of the query
+         */
+        void onQuerySpecChanged(@NonNull QuerySpec querySpec);
+
+        /**
+         * Called with the result of the latest query.
+         *
+         * @param resultSnapshot the result, whose rows must not be modified
+         */
+        void onResult(@NonNull ResultSnapshot resultSnapshot);
+    }
+
+    /**
+     * Creates the scheduler.
+     *
+     * @param database            the database to query
+     * @param queryCompiler       compiles the specs into SQL
+     * @param queryThreadExecutor the single thread executor to run the queries on
+     * @param listener            receives the result of the latest query
+     */
+    QueryScheduler(final AListDatabase database, final QueryCompiler queryCompiler,
+                   final ScheduledExecutorService queryThreadExecutor, final Listener listener) {
+        mAListDatabase = database;
+        mQueryCompiler = queryCompiler;
+        mQueryThreadExecutor = queryThreadExecutor;
+        mListener = listener;
+    }
+
+    /**
+     * Replaces the current query.  Any waiting query is dropped and any running query is
+     * cancelled.
+     *
+     * @param querySpec the spec of the new query
+     * @param debounce  <code>true</code> to wait {@link #DEBOUNCE_MILLIS} for more queries before
+     *                  running it or <code>false</code> to run it straight away
+     */
+    void submit(@NonNull final QuerySpec querySpec, final boolean debounce) {
+        synchronized (mLock) {
+            mCurrentQuerySpec = querySpec;
+            schedule(debounce ? DEBOUNCE_MILLIS : 0L);
+        }
+    }
+
+    /**
+     * Runs the current query again straight away because the list table has changed.  The last
+     * result is no longer used for refining and the cached results are dropped.
+     */
+    void requery() {
+        mResultRefiner.invalidate();
+        mResultCache.invalidate();
+        synchronized (mLock) {
+            if (mCurrentQuerySpec != null) {
+                schedule(0L);
+            }
+        }
+    }
+
+    /**
+     * Gets the refiner which keeps the last result, e.g. to count the facets of narrower search
+     * terms from it.
+     *
+     * @return the refiner
+     */
+    @NonNull
+    ResultRefiner getResultRefiner() {
+        return mResultRefiner;
+    }
+
+    /**
+     * Drops cached results to free memory.
+     *
+     * @param level the trim memory level from <code>Application.onTrimMemory(int)</code>
+     */
+    void trimMemory(final int level) {
+        mResultCache.trimMemory(level);
+    }
+
+    /**
+     * Get the signal which cancels the running query.
+     *
+     * @return the signal or <code>null</code> if no query is running
+     */
+    @VisibleForTesting
+    CancellationSignal getInFlightSignal() {
+        synchronized (mLock) {
+            return mInFlightSignal;
+        }
+    }
+
+    /**
+     * Drops any waiting query, cancels any running query and schedules the current query.  Must
+     * be called holding {@link #mLock}.
+     *
+     * @param delayMillis how long to wait before running the query
+     */
+    private void schedule(final long delayMillis) {
+        final long generation = ++mGeneration;
+        final QuerySpec querySpec = mCurrentQuerySpec;
+
+        if (mPendingFuture != null) {
+            mPendingFuture.cancel(false);
+        }
+        if (mInFlightSignal != null) {
+            mInFlightSignal.cancel();
+        }
+
+        //noinspection Convert2Lambda
+        mPendingFuture = mQueryThreadExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                QueryScheduler.this.run(querySpec, generation);
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs a query on the query thread and delivers the result if no newer query has been
+     * submitted.  A query which fails is logged and delivers no rows.
+     *
+     * @param querySpec  the spec of the query to run
+     * @param generation the generation of the query
+     */
+    private void run(final QuerySpec querySpec, final long generation) {
+        final CancellationSignal cancellationSignal = new CancellationSignal();
+        synchronized (mLock) {
+            if (generation != mGeneration) {
+                return;
+            }
+            mInFlightSignal = cancellationSignal;
+        }
+
+        if (!querySpec.equals(mLastRunQuerySpec)) {
+            mLastRunQuerySpec = querySpec;
+            mListener.onQuerySpecChanged(querySpec);
+        }
+
+        // Read the versions first so a change during the query stops the result being kept.
+        final long refinerVersion = mResultRefiner.getVersion();
+        final long cacheVersion = mResultCache.getVersion();
+        ResultSnapshot resultSnapshot = mResultCache.get(querySpec);
+        try {
+            if (resultSnapshot != null) {
+                // Later narrower queries can be refined from the cached result.
+                mResultRefiner.setBase(resultSnapshot, refinerVersion);
+            } else {
+                resultSnapshot = mResultRefiner.refine(querySpec, cancellationSignal);
+                if (resultSnapshot == null) {
+                    resultSnapshot = querySnapshot(querySpec, cancellationSignal);
+                    mResultRefiner.setBase(resultSnapshot, refinerVersion);
+                }
+                mResultCache.put(resultSnapshot, cacheVersion);
+            }
+        } catch (OperationCanceledException e) {
+            // Superseded by a newer query.
+            resultSnapshot = null;
+        } catch (Exception e) {
+            // Deliver no rows rather than leave the screen waiting for a result.  The empty
+            // result is neither cached nor refined.
+            Log.e(TAG, "run error 1", e);
+            resultSnapshot = new ResultSnapshot(querySpec, Collections.<ListEntity>emptyList());
+        } finally {
+            synchronized (mLock) {
+                if (mInFlightSignal == cancellationSignal) {
+                    mInFlightSignal = null;
+                }
+                if (generation != mGeneration) {
+                    resultSnapshot = null;
+                }
+            }
+        }
+
+        if (resultSnapshot != null) {
+            mListener.onResult(resultSnapshot);
+        }
+    }
+
+    /**
+     * Queries the database for the result of a spec.  The first
+     * {@link ResultSnapshot#MAX_ROWS} rows and one more are read, which is enough to count a
+     * small selection and keep it.  A larger selection is only counted.
+     *
+     * @param querySpec          the spec
+     * @param cancellationSignal cancels the count
+     * @return the result
+     */
+    private ResultSnapshot querySnapshot(final QuerySpec querySpec,
+                                         final CancellationSignal cancellationSignal) {
+        final List<ListEntity> listEntities = mAListDatabase.list().selectPage(
+                mQueryCompiler.compileSelectPage(querySpec, null, ResultSnapshot.MAX_ROWS + 1));
+        if (listEntities.size() <= ResultSnapshot.MAX_ROWS) {
+            return new ResultSnapshot(querySpec, listEntities);
+        }
+
+        cancellationSignal.throwIfCanceled();
+        return new ResultSnapshot(querySpec, queryCount(querySpec, cancellationSignal));
+    }
+
+    /**
+     * Counts the rows selected by a spec.
+     *
+     * @param querySpec          the spec
+     * @param cancellationSignal cancels the query
+     * @return the number of rows
+     */
+    private int queryCount(final QuerySpec querySpec,
+                           final CancellationSignal cancellationSignal) {
+        final Cursor cursor = mAListDatabase.query(mQueryCompiler.compileCount(querySpec),
+                cancellationSignal);
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,767 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.datarepository;
+
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.myapp.alist.db.LabelDictionary;
+import com.myapp.alist.db.ListEntity;
+import com.myapp.alist.db.ListFtsEntity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * The criteria for selecting items from the list table.  Immutable; create with a
+ * {@link Builder}.
+ * <p>
+ * The search terms are normalised when the spec is built.  Specs with the same "shape", i.e. the
+ * same conditions with different values, compile to the same SQL so the SQL is built once per
+ * shape by the {@link QueryCompiler}.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+public final class QuerySpec {
+    /**
+     * The search term is not used.
+     */
+    static final int TERM_NONE = 0;
+    /**
+     * The search term is spaces only which selects a blank column.
+     */
+    static final int TERM_BLANK = 1;
+    /**
+     * The search term is part of the full-text search <code>MATCH</code> expression.
+     */
+    static final int TERM_MATCH = 2;
+    /**
+     * The search term is matched with <code>LIKE '%term%'</code>.
+     */
+    static final int TERM_LIKE = 3;
+    /**
+     * The most categories or statuses a spec can select, limited by the bits for each in the
+     * shape.
+     */
+    static final int MAX_VALUES = 0xff;
+
+    /**
+     * The sort orders.  Each sorts by one column and then by the others to give a stable order.
+     * The id always comes last so no two rows are ever equal, which keyset paging relies on.
+     * The indexes on the list table end with the rowid, i.e. the id, so the id adds no sort.
+     * The category and status columns are sorted by their labels, not by their ids.
+     */
+    public enum OrderBy {
+        /**
+         * Sort by name.  Names are unique and never null so only the id follows, which lets the
+         * unique name index give the order without a sort.
+         */
+        NAME(ListEntity.NAME, ListEntity._ID),
+        /**
+         * Sort by description.
+         */
+        DESCRIPTION(ListEntity.DESCRIPTION, ListEntity.CATEGORY, ListEntity.STATUS,
+                ListEntity.NAME, ListEntity._ID),
+        /**
+         * Sort by category label.  The labels are read from the lookup table, so no index gives
+         * this order and SQLite sorts the selected rows.
+         */
+        CATEGORY(ListEntity.CATEGORY, ListEntity.STATUS, ListEntity.NAME, ListEntity.DESCRIPTION,
+                ListEntity._ID),
+        /**
+         * Sort by status label.  The labels are read from the lookup table, so no index gives
+         * this order and SQLite sorts the selected rows.
+         */
+        STATUS(ListEntity.STATUS, ListEntity.CATEGORY, ListEntity.NAME, ListEntity.DESCRIPTION,
+                ListEntity._ID);
+
+        /**
+         * The <code>ORDER BY</code> columns in order.
+         */
+        private final List<String> mKeyColumns;
+
+        /**
+         * Creates the sort order.
+         *
+         * @param keyColumns the <code>ORDER BY</code> columns in order, ending with the id
+         */
+        OrderBy(final String... keyColumns) {
+            mKeyColumns = Collections.unmodifiableList(Arrays.asList(keyColumns));
+        }
+
+        /**
+         * Get the <code>ORDER BY</code> columns, which are the key of a row in this order.
+         *
+         * @return the columns in order, ending with the id
+         */
+        List<String> getKeyColumns() {
+            return mKeyColumns;
+        }
+    }
+
+    /**
+     * The normalised name search term or <code>null</code>.
+     */
+    private final String mName;
+    /**
+     * The normalised description search term or <code>null</code>.
+     */
+    private final String mDescription;
+    /**
+     * The categories in order or empty for all categories.
+     */
+    private final List<String> mCategories;
+    /**
+     * The statuses in order or empty for all statuses.
+     */
+    private final List<String> mStatuses;
+    /**
+     * The activated row ID or {@link DataRepository#NO_ID}.
+     */
+    private final long mActivatedId;
+    /**
+     * The sort order.
+     */
+    private final OrderBy mOrderBy;
+    /**
+     * How the name and description are matched.
+     */
+    private final SearchMode mSearchMode;
+    /**
+     * How the name search term is used, one of the <code>TERM_</code> constants.
+     */
+    private final int mNameTerm;
+    /**
+     * How the description search term is used, one of the <code>TERM_</code> constants.
+     */
+    private final int mDescriptionTerm;
+    /**
+     * The full-text search <code>MATCH</code> expression or <code>null</code>.
+     */
+    private final String mMatch;
+    /**
+     * The words of the name search term when it is used for full-text search.
+     */
+    private final List<String> mNameTokens;
+    /**
+     * The words of the description search term when it is used for full-text search.
+     */
+    private final List<String> mDescriptionTokens;
+    /**
+     * Identifies the SQL this spec compiles to.
+     */
+    private final int mShape;
+
+    /**
+     * Creates the spec from a builder, normalising the search terms.
+     *
+     * @param builder the builder
+     */
+    private QuerySpec(final Builder builder) {
+        mSearchMode = builder.mSearchMode;
+        mCategories = normaliseValues(builder.mCategories);
+        mStatuses = normaliseValues(builder.mStatuses);
+        mActivatedId = builder.mActivatedId;
+        mOrderBy = builder.mOrderBy;
+
+        // No input means select all.  A space means select rows with a blank column i.e. "".
+        // trim() removes spaces and other characters.
+        mName = TextUtils.isEmpty(builder.mName) ? null : builder.mName.trim();
+        mDescription = TextUtils.isEmpty(builder.mDescription) ? null :
+                builder.mDescription.trim();
+
+        final String nameMatch = toMatchExpression(ListEntity.NAME, mName);
+        final String descriptionMatch = toMatchExpression(ListEntity.DESCRIPTION, mDescription);
+        mNameTerm = getTerm(mName, nameMatch);
+        mDescriptionTerm = getTerm(mDescription, descriptionMatch);
+        mNameTokens = mNameTerm == TERM_MATCH ? ListFtsEntity.tokenize(mName) :
+                Collections.<String>emptyList();
+        mDescriptionTokens = mDescriptionTerm == TERM_MATCH ?
+                ListFtsEntity.tokenize(mDescription) : Collections.<String>emptyList();
+
+        // One MATCH for both columns because FTS can only use one MATCH per query.
+        if (nameMatch != null && descriptionMatch != null) {
+            mMatch = nameMatch + " " + descriptionMatch;
+        } else if (nameMatch != null) {
+            mMatch = nameMatch;
+        } else {
+            mMatch = descriptionMatch;
+        }
+
+        // The number of categories and statuses is part of the shape because it sets the number
+        // of IN list arguments.
+        mShape = mNameTerm |
+                mDescriptionTerm << 2 |
+                (mActivatedId == DataRepository.NO_ID ? 0 : 1) << 4 |
+                mOrderBy.ordinal() << 5 |
+                mCategories.size() << 7 |
+                mStatuses.size() << 15;
+    }
+
+    /**
+     * Trims, sorts and removes duplicates from the selected categories or statuses.  Sorting
+     * means the same selection always gives equal specs and the same arguments.
+     *
+     * @param values the values from the builder
+     * @return the values or an empty list to select all
+     */
+    private static List<String> normaliseValues(final Collection<String> values) {
+        final TreeSet<String> treeSet = new TreeSet<>();
+        for (String value : values) {
+            treeSet.add(value.trim());
+        }
+
+        if (treeSet.size() > MAX_VALUES) {
+            throw new RuntimeException("normaliseValues error 1");
+        }
+
+        return Collections.unmodifiableList(new ArrayList<>(treeSet));
+    }
+
+    /**
+     * Builds the full-text search <code>MATCH</code> expression for a search term.
+     *
+     * @param column the column to search
+     * @param term   the normalised search term
+     * @return the <code>MATCH</code> expression or <code>null</code> if full-text search is not
+     * used for the term
+     */
+    @Nullable
+    private String toMatchExpression(final String column, @Nullable final String term) {
+        if (mSearchMode != SearchMode.FULL_TEXT || term == null || term.length() == 0) {
+            return null;
+        }
+
+        return ListFtsEntity.toMatchExpression(column, term);
+    }
+
+    /**
+     * Determines how a search term is used.  A term without any words, e.g. punctuation only,
+     * falls back to {@link SearchMode#SUBSTRING}.
+     *
+     * @param term  the normalised search term
+     * @param match the term's <code>MATCH</code> expression
+     * @return one of the <code>TERM_</code> constants
+     */
+    private static int getTerm(@Nullable final String term, @Nullable final String match) {
+        if (term == null) {
+            return TERM_NONE;
+        } else if (term.length() == 0) {
+            return TERM_BLANK;
+        } else if (match != null) {
+            return TERM_MATCH;
+        } else {
+            return TERM_LIKE;
+        }
+    }
+
+    /**
+     * Get the normalised name search term.
+     *
+     * @return the name search term or <code>null</code> to select any name
+     */
+    @Nullable
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * Get the normalised description search term.
+     *
+     * @return the description search term or <code>null</code> to select any description
+     */
+    @Nullable
+    public String getDescription() {
+        return mDescription;
+    }
+
+    /**
+     * Get the categories.
+     *
+     * @return the categories in order or an empty list for all categories
+     */
+    @NonNull
+    public List<String> getCategories() {
+        return mCategories;
+    }
+
+    /**
+     * Get the statuses.
+     *
+     * @return the statuses in order or an empty list for all statuses
+     */
+    @NonNull
+    public List<String> getStatuses() {
+        return mStatuses;
+    }
+
+    /**
+     * Get the activated row ID.
+     *
+     * @return the activated row ID or {@link DataRepository#NO_ID}
+     */
+    public long getActivatedId() {
+        return mActivatedId;
+    }
+
+    /**
+     * Get the sort order.
+     *
+     * @return the sort order
+     */
+    @NonNull
+    public OrderBy getOrderBy() {
+        return mOrderBy;
+    }
+
+    /**
+     * Get the search mode.
+     *
+     * @return how the name and description are matched
+     */
+    @NonNull
+    public SearchMode getSearchMode() {
+        return mSearchMode;
+    }
+
+    /**
+     * Get how the name search term is used.
+     *
+     * @return one of the <code>TERM_</code> constants
+     */
+    int getNameTerm() {
+        return mNameTerm;
+    }
+
+    /**
+     * Get how the description search term is used.
+     *
+     * @return one of the <code>TERM_</code> constants
+     */
+    int getDescriptionTerm() {
+        return mDescriptionTerm;
+    }
+
+    /**
+     * Get the full-text search <code>MATCH</code> expression.
+     *
+     * @return the <code>MATCH</code> expression or <code>null</code> if not used
+     */
+    @Nullable
+    String getMatch() {
+        return mMatch;
+    }
+
+    /**
+     * Get the shape which identifies the SQL this spec compiles to.
+     *
+     * @return the shape
+     */
+    int getShape() {
+        return mShape;
+    }
+
+    /**
+     * Determines if this spec selects a strict subset of the rows selected by another spec, in
+     * the same order.  If so, this spec's rows can be found by filtering the other spec's rows
+     * with {@link #matches(ListEntity)} instead of querying the database.
+     * <p>
+     * This is the case when every condition is the same or narrower, e.g. a longer search term or
+     * an added category, and at least one is narrower.
+     *
+     * @param other the spec whose rows are already known
+     * @return <code>true</code> if this spec is strictly narrower than the other spec
+     */
+    boolean isNarrowerThan(@NonNull final QuerySpec other) {
+        return mSearchMode == other.mSearchMode &&
+                mOrderBy == other.mOrderBy &&
+                isNarrowerOrSameTerm(mNameTerm, mName, mNameTokens, other.mNameTerm, other.mName,
+                        other.mNameTokens) &&
+                isNarrowerOrSameTerm(mDescriptionTerm, mDescription, mDescriptionTokens,
+                        other.mDescriptionTerm, other.mDescription, other.mDescriptionTokens) &&
+                isNarrowerOrSameValues(mCategories, other.mCategories) &&
+                isNarrowerOrSameValues(mStatuses, other.mStatuses) &&
+                (other.mActivatedId == DataRepository.NO_ID ||
+                        other.mActivatedId == mActivatedId) &&
+                !this.equals(other);
+    }
+
+    /**
+     * Determines if a category or status selection selects the same or fewer rows than another.
+     *
+     * @param values      this selection
+     * @param otherValues the other selection
+     * @return <code>true</code> if this selection is the same or narrower
+     */
+    private static boolean isNarrowerOrSameValues(final List<String> values,
+                                                  final List<String> otherValues) {
+        return otherValues.isEmpty() || (!values.isEmpty() && otherValues.containsAll(values));
+    }
+
+    /**
+     * Determines if a search term selects the same or fewer rows than another search term.
+     *
+     * @param term        how this search term is used
+     * @param value       this normalised search term
+     * @param tokens      the words of this search term
+     * @param otherTerm   how the other search term is used
+     * @param otherValue  the other normalised search term
+     * @param otherTokens the words of the other search term
+     * @return <code>true</code> if this search term is the same or narrower
+     */
+    private static boolean isNarrowerOrSameTerm(final int term, final String value,
+                                                final List<String> tokens, final int otherTerm,
+                                                final String otherValue,
+                                                final List<String> otherTokens) {
+        switch (otherTerm) {
+            case TERM_NONE:
+                return true;
+            case TERM_BLANK:
+                return term == TERM_BLANK;
+            case TERM_MATCH:
+                // Each word must start with the other's word in the same place, e.g. "groc milk"
+                // is narrower than "gro".
+                if (term != TERM_MATCH || tokens.size() < otherTokens.size()) {
+                    return false;
+                }
+                for (int i = 0; i < otherTokens.size(); i++) {
+                    if (!tokens.get(i).startsWith(otherTokens.get(i))) {
+                        return false;
+                    }
+                }
+                return true;
+            case TERM_LIKE:
+                // LIKE wildcards in the term are not matched in memory.
+                return term == TERM_LIKE && !hasLikeWildcard(value) &&
+                        !hasLikeWildcard(otherValue) &&
+                        toAsciiLowerCase(value).contains(toAsciiLowerCase(otherValue));
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Determines if an item is selected by this spec.  Gives the same result as the SQL from the
+     * {@link QueryCompiler} for the specs that {@link #isNarrowerThan(QuerySpec)} allows.
+     *
+     * @param listEntity the item
+     * @return <code>true</code> if the item is selected
+     */
+    boolean matches(@NonNull final ListEntity listEntity) {
+        return (mActivatedId == DataRepository.NO_ID || mActivatedId == listEntity.getId()) &&
+                QuerySpec.matchesId(mCategories, LabelDictionary.categories(),
+                        listEntity.getCategoryId()) &&
+                QuerySpec.matchesId(mStatuses, LabelDictionary.statuses(),
+                        listEntity.getStatusId()) &&
+                matchesTerm(mNameTerm, mName, mNameTokens, listEntity.getName()) &&
+                matchesTerm(mDescriptionTerm, mDescription, mDescriptionTokens,
+                        listEntity.getDescription());
+    }
+
+    /**
+     * Determines if a category or status id is selected by a list of labels in the same way as
+     * the SQL, which compares the ids of the labels.
+     *
+     * @param labels          the selected labels, which select every id if empty
+     * @param labelDictionary the dictionary of the column
+     * @param id              the id of the item
+     * @return <code>true</code> if the id is selected
+     */
+    private static boolean matchesId(final List<String> labels,
+                                     final LabelDictionary labelDictionary, final long id) {
+        if (labels.isEmpty()) {
+            return true;
+        }
+
+        for (int i = 0; i < labels.size(); i++) {
+            if (labelDictionary.getId(labels.get(i)) == id) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Determines if a column value is selected by a search term.
+     *
+     * @param term   how the search term is used
+     * @param value  the normalised search term
+     * @param tokens the words of the search term
+     * @param column the column value
+     * @return <code>true</code> if the column value is selected
+     */
+    private static boolean matchesTerm(final int term, final String value,
+                                       final List<String> tokens, final String column) {
+        switch (term) {
+            case TERM_NONE:
+                return true;
+            case TERM_BLANK:
+                // LIKE '' only matches "".
+                return column != null && column.length() == 0;
+            case TERM_MATCH:
+                // Every word of the search term must start a word in the column.
+                final List<String> columnTokens = ListFtsEntity.tokenize(column);
+                for (String token : tokens) {
+                    boolean found = false;
+                    for (String columnToken : columnTokens) {
+                        if (columnToken.startsWith(token)) {
+                            found = true;
+                            break;
+                        }
+                    }
+                    if (!found) {
+                        return false;
+                    }
+                }
+                return true;
+            case TERM_LIKE:
+                return containsIgnoreCase(column, value);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Matches <code>LIKE '%value%'</code> which ignores the case of ASCII letters only.
+     *
+     * @param column the column value
+     * @param value  the value to find
+     * @return <code>true</code> if the column contains the value
+     */
+    private static boolean containsIgnoreCase(@Nullable final String column, final String value) {
+        return column != null && toAsciiLowerCase(column).contains(toAsciiLowerCase(value));
+    }
+
+    /**
+     * Folds ASCII letters to lower case, as <code>LIKE</code> does.
+     *
+     * @param value the value to fold
+     * @return the folded value
+     */
+    private static String toAsciiLowerCase(final String value) {
+        final char[] chars = value.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            if (chars[i] >= 'A' && chars[i] <= 'Z') {
+                chars[i] += 'a' - 'A';
+            }
+        }
+
+        return new String(chars);
+    }
+
+    /**
+     * Determines if a search term contains a <code>LIKE</code> wildcard.
+     *
+     * @param value the search term
+     * @return <code>true</code> if the search term contains '%' or '_'
+     */
+    private static boolean hasLikeWildcard(final String value) {
+        return value.indexOf('%') >= 0 || value.indexOf('_') >= 0;
+    }
+
+    /**
+     * Gets a spec with only this spec's name and description search terms, i.e. without the
+     * categories, statuses, activated row or sort order.  The facet counts only depend on these.
+     *
+     * @return the spec of the facet counts
+     */
+    @NonNull
+    QuerySpec getFacetSpec() {
+        // A blank term was spaces before it was normalised, so pass a space to keep it blank.
+        return new Builder()
+                .setName(mNameTerm == TERM_BLANK ? " " : mName)
+                .setDescription(mDescriptionTerm == TERM_BLANK ? " " : mDescription)
+                .setSearchMode(mSearchMode)
+                .build();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof QuerySpec)) {
+            return false;
+        }
+
+        final QuerySpec querySpec = (QuerySpec) o;
+        return mShape == querySpec.mShape &&
+                mActivatedId == querySpec.mActivatedId &&
+                mSearchMode == querySpec.mSearchMode &&
+                TextUtils.equals(mName, querySpec.mName) &&
+                TextUtils.equals(mDescription, querySpec.mDescription) &&
+                mCategories.equals(querySpec.mCategories) &&
+                mStatuses.equals(querySpec.mStatuses);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mShape;
+        result = 31 * result + (int) (mActivatedId ^ (mActivatedId >>> 32));
+        result = 31 * result + mSearchMode.hashCode();
+        result = 31 * result + (mName == null ? 0 : mName.hashCode());
+        result = 31 * result + (mDescription == null ? 0 : mDescription.hashCode());
+        result = 31 * result + mCategories.hashCode();
+        result = 31 * result + mStatuses.hashCode();
+        return result;
+    }
+
+    /**
+     * Builds a {@link QuerySpec}.  By default everything is selected and sorted by name.
+     */
+    public static final class Builder {
+        /**
+         * The name search term.
+         */
+        private String mName;
+        /**
+         * The description search term.
+         */
+        private String mDescription;
+        /**
+         * The categories.
+         */
+        private final List<String> mCategories = new ArrayList<>();
+        /**
+         * The statuses.
+         */
+        private final List<String> mStatuses = new ArrayList<>();
+        /**
+         * The activated row ID.
+         */
+        private long mActivatedId = DataRepository.NO_ID;
+        /**
+         * The sort order.
+         */
+        private OrderBy mOrderBy = OrderBy.NAME;
+        /**
+         * How the name and description are matched.
+         */
+        private SearchMode mSearchMode = SearchMode.FULL_TEXT;
+
+        /**
+         * Sets the name search term.
+         *
+         * @param name <code>null</code> or "" selects any name and spaces only selects a blank
+         *             name
+         * @return this builder
+         */
+        public Builder setName(@Nullable final String name) {
+            mName = name;
+            return this;
+        }
+
+        /**
+         * Sets the description search term.
+         *
+         * @param description <code>null</code> or "" selects any description and spaces only
+         *                    selects a blank description
+         * @return this builder
+         */
+        public Builder setDescription(@Nullable final String description) {
+            mDescription = description;
+            return this;
+        }
+
+        /**
+         * Sets a single category.
+         *
+         * @param category the category or <code>null</code> for all categories
+         * @return this builder
+         */
+        public Builder setCategory(@Nullable final String category) {
+            return setCategories(category == null ? Collections.<String>emptyList() :
+                    Collections.singletonList(category));
+        }
+
+        /**
+         * Sets the categories, any of which are selected.
+         *
+         * @param categories the categories or empty for all categories
+         * @return this builder
+         */
+        public Builder setCategories(@NonNull final Collection<String> categories) {
+            mCategories.clear();
+            mCategories.addAll(categories);
+            return this;
+        }
+
+        /**
+         * Sets a single status.
+         *
+         * @param status the status or <code>null</code> for all statuses
+         * @return this builder
+         */
+        public Builder setStatus(@Nullable final String status) {
+            return setStatuses(status == null ? Collections.<String>emptyList() :
+                    Collections.singletonList(status));
+        }
+
+        /**
+         * Sets the statuses, any of which are selected.
+         *
+         * @param statuses the statuses or empty for all statuses
+         * @return this builder
+         */
+        public Builder setStatuses(@NonNull final Collection<String> statuses) {
+            mStatuses.clear();
+            mStatuses.addAll(statuses);
+            return this;
+        }
+
+        /**
+         * Sets the activated row ID.
+         *
+         * @param activatedId the activated row ID or {@link DataRepository#NO_ID}
+         * @return this builder
+         */
+        public Builder setActivatedId(final long activatedId) {
+            mActivatedId = activatedId;
+            return this;
+        }
+
+        /**
+         * Sets the sort order.
+         *
+         * @param orderBy the sort order
+         * @return this builder
+         */
+        public Builder setOrderBy(@NonNull final OrderBy orderBy) {
+            mOrderBy = orderBy;
+            return this;
+        }
+
+        /**
+         * Sets how the name and description are matched.  The default is
+         * {@link SearchMode#FULL_TEXT}.
+         *
+         * @param searchMode the search mode
+         * @return this builder
+         */
+        public Builder setSearchMode(@NonNull final SearchMode searchMode) {
+            mSearchMode = searchMode;
+            return this;
+        }
+
+        /**
+         * Builds the {@link QuerySpec}.
+         *
+         * @return the new {@link QuerySpec}
+         */
+        @NonNull
+        public QuerySpec build() {
+            return new QuerySpec(this);
+        }
+    }
+}
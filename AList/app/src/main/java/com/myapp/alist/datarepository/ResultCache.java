@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.datarepository;
+
+import android.content.ComponentCallbacks2;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.myapp.alist.db.ListEntity;
+
+import java.util.List;
+
+/**
+ * Keeps the results of recent queries so switching back to a recent view, e.g. from
+ * Shopping/Current to To Do/In Progress and back again, does not query the database again.
+ * <p>
+ * The results are {@link ResultSnapshot}s keyed by their {@link QuerySpec}, which is already
+ * normalised, and the cache is limited by the estimated size of the results in bytes rather than
+ * by the number of results.  A result of only a count costs a few bytes.
+ * {@link #invalidate()} must be called when Room's <code>InvalidationTracker</code> reports a
+ * change to the list table and {@link #trimMemory(int)} when the system is low on memory.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+final class ResultCache {
+    /**
+     * The most bytes of results to keep.
+     */
+    static final int DEFAULT_MAX_BYTES = 4 * 1024 * 1024;
+    /**
+     * The estimated bytes used by a {@link ListEntity} and its strings apart from the characters.
+     */
+    private static final int LIST_ENTITY_OVERHEAD_BYTES = 48 + 2 * 40;
+    /**
+     * The estimated bytes used by each row's slot in the result list.
+     */
+    private static final int LIST_SLOT_BYTES = 8;
+    /**
+     * The estimated bytes used by a {@link ResultSnapshot} and its spec apart from the rows.
+     */
+    private static final int SNAPSHOT_OVERHEAD_BYTES = 32 + 96;
+    /**
+     * The results keyed by spec.  <code>LruCache</code> is thread safe.
+     */
+    private final LruCache<QuerySpec, ResultSnapshot> mLruCache;
+    /**
+     * Increases each time the list table changes.
+     */
+    private long mVersion;
+
+    /**
+     * Creates a cache of {@link #DEFAULT_MAX_BYTES}.
+     */
+    ResultCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxBytes the most bytes of results to keep
+     */
+    ResultCache(final int maxBytes) {
+        mLruCache = new LruCache<QuerySpec, ResultSnapshot>(maxBytes) {
+            @Override
+            protected int sizeOf(@NonNull final QuerySpec key,
+                                 @NonNull final ResultSnapshot value) {
+                return estimateBytes(value);
+            }
+        };
+    }
+
+    /**
+     * Estimates the memory used by a result.
+     *
+     * @param resultSnapshot the result
+     * @return the estimated bytes
+     */
+    static int estimateBytes(@NonNull final ResultSnapshot resultSnapshot) {
+        final List<ListEntity> listEntities = resultSnapshot.getListEntities();
+        final long bytes = SNAPSHOT_OVERHEAD_BYTES +
+                (listEntities == null ? 0L : estimateBytes(listEntities));
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Estimates the memory used by the rows of a result.  Strings are counted at two bytes a
+     * character.  The category and status are ids whose labels are shared, so they are part of
+     * the overhead.
+     *
+     * @param listEntities the rows
+     * @return the estimated bytes
+     */
+    static int estimateBytes(@NonNull final List<ListEntity> listEntities) {
+        long bytes = 0L;
+        final int count = listEntities.size();
+        for (int i = 0; i < count; i++) {
+            final ListEntity listEntity = listEntities.get(i);
+            bytes += LIST_SLOT_BYTES + LIST_ENTITY_OVERHEAD_BYTES
+                    + 2L * (length(listEntity.getName()) + length(listEntity.getDescription()));
+        }
+
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Gets the length of a string which may be <code>null</code>.
+     *
+     * @param string the string
+     * @return the length or 0 for <code>null</code>
+     */
+    private static int length(@Nullable final String string) {
+        return string == null ? 0 : string.length();
+    }
+
+    /**
+     * Gets the current version of the list table.  Read before querying the database and pass to
+     * {@link #put(ResultSnapshot, long)} with the result.
+     *
+     * @return the version
+     */
+    synchronized long getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Gets the result of a recent query with the same spec.
+     *
+     * @param querySpec the spec
+     * @return the result, which must not be modified, or <code>null</code> if not cached
+     */
+    @Nullable
+    ResultSnapshot get(@NonNull final QuerySpec querySpec) {
+        return mLruCache.get(querySpec);
+    }
+
+    /**
+     * Keeps a result.  Ignored if the list table changed after the version was read.  A result
+     * larger than the cache is never kept.
+     *
+     * @param resultSnapshot the result
+     * @param version        the version read before the result was queried
+     */
+    synchronized void put(@NonNull final ResultSnapshot resultSnapshot, final long version) {
+        if (version == mVersion) {
+            mLruCache.put(resultSnapshot.getQuerySpec(), resultSnapshot);
+        }
+    }
+
+    /**
+     * Drops every result because the list table has changed.
+     */
+    synchronized void invalidate() {
+        mVersion++;
+        mLruCache.evictAll();
+    }
+
+    /**
+     * Drops results to free memory.  Called from
+     * <code>Application.onTrimMemory(int)</code>.
+     *
+     * @param level the trim memory level
+     */
+    void trimMemory(final int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND ||
+                level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW ||
+                level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            mLruCache.evictAll();
+        } else {
+            // Keep the most recent results while the app is in use.
+            mLruCache.trimToSize(mLruCache.maxSize() / 2);
+        }
+    }
+
+    /**
+     * Gets the estimated bytes of the results being kept.
+     *
+     * @return the estimated bytes
+     */
+    int size() {
+        return mLruCache.size();
+    }
+}
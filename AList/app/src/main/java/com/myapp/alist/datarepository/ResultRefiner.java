@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.datarepository;
+
+import android.os.CancellationSignal;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.myapp.alist.db.LabelDictionary;
+import com.myapp.alist.db.ListEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the rows for a narrower query by filtering the last result in memory instead of querying
+ * the database again.  For example, typing "gro" and then "groc" only queries the database for
+ * "gro".  Only a {@link ResultSnapshot} which has every selected row can be filtered.
+ * <p>
+ * The facet counts for narrower search terms are also counted from the last result when it
+ * selected every category and status, which saves the <code>GROUP BY</code> query.
+ * <p>
+ * The last result is only used while the list table is unchanged.  {@link #invalidate()} must be
+ * called when Room's <code>InvalidationTracker</code> reports a change to the list table.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+final class ResultRefiner {
+    /**
+     * How many rows are filtered between checks for cancellation.
+     */
+    private static final int CANCELLATION_CHECK_INTERVAL = 256;
+    /**
+     * Increases each time the list table changes.
+     */
+    private long mVersion;
+    /**
+     * The last result with every selected row.
+     */
+    private ResultSnapshot mBaseResultSnapshot;
+
+    /**
+     * Gets the current version of the list table.  Read before querying the database and pass to
+     * {@link #setBase(ResultSnapshot, long)} with the result.
+     *
+     * @return the version
+     */
+    synchronized long getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Drops the last result because the list table has changed.
+     */
+    synchronized void invalidate() {
+        mVersion++;
+        mBaseResultSnapshot = null;
+    }
+
+    /**
+     * Keeps a result so later narrower queries can be refined from it.  Ignored if the list table
+     * changed after the version was read or the result does not have every selected row.
+     *
+     * @param resultSnapshot the result
+     * @param version        the version read before the result was queried
+     */
+    synchronized void setBase(@NonNull final ResultSnapshot resultSnapshot, final long version) {
+        if (version == mVersion && resultSnapshot.isComplete()) {
+            mBaseResultSnapshot = resultSnapshot;
+        }
+    }
+
+    /**
+     * Filters the last result for a spec if the spec is strictly narrower than the last result's
+     * spec.  Runs on the calling thread, which should be a background thread.
+     *
+     * @param querySpec          the spec to find the rows for
+     * @param cancellationSignal cancels the filtering
+     * @return the result with every selected row or <code>null</code> if the database must be
+     * queried
+     * @throws android.os.OperationCanceledException if cancelled
+     */
+    @Nullable
+    ResultSnapshot refine(@NonNull final QuerySpec querySpec,
+                          @NonNull final CancellationSignal cancellationSignal) {
+        final List<ListEntity> baseListEntities;
+        synchronized (this) {
+            if (mBaseResultSnapshot == null ||
+                    !querySpec.isNarrowerThan(mBaseResultSnapshot.getQuerySpec())) {
+                return null;
+            }
+            baseListEntities = mBaseResultSnapshot.getListEntities();
+        }
+
+        // The base list is never modified so it can be read without the lock.
+        final List<ListEntity> listEntities = new ArrayList<>();
+        final int count = baseListEntities.size();
+        for (int i = 0; i < count; i++) {
+            if (i % CANCELLATION_CHECK_INTERVAL == 0) {
+                cancellationSignal.throwIfCanceled();
+            }
+
+            final ListEntity listEntity = baseListEntities.get(i);
+            if (querySpec.matches(listEntity)) {
+                listEntities.add(listEntity);
+            }
+        }
+
+        return new ResultSnapshot(querySpec, listEntities);
+    }
+
+    /**
+     * Counts the facet counts for a facet spec from the last result's rows instead of querying
+     * the database.  Only possible if the last result selected every category and status and
+     * its search terms are the same as or broader than the facet spec's.
+     *
+     * @param facetQuerySpec the facet spec, see {@link QuerySpec#getFacetSpec()}
+     * @return the counts or <code>null</code> if the database must be queried
+     */
+    @Nullable
+    FacetCounts refineFacets(@NonNull final QuerySpec facetQuerySpec) {
+        final ResultSnapshot baseResultSnapshot;
+        synchronized (this) {
+            baseResultSnapshot = mBaseResultSnapshot;
+        }
+        if (baseResultSnapshot == null) {
+            return null;
+        }
+
+        // The base only has every row under its search terms if it selected every category,
+        // status and row.
+        final QuerySpec baseQuerySpec = baseResultSnapshot.getQuerySpec();
+        final QuerySpec baseFacetQuerySpec = baseQuerySpec.getFacetSpec();
+        if (!baseQuerySpec.getCategories().isEmpty() || !baseQuerySpec.getStatuses().isEmpty() ||
+                baseQuerySpec.getActivatedId() != DataRepository.NO_ID ||
+                (!facetQuerySpec.equals(baseFacetQuerySpec) &&
+                        !facetQuerySpec.isNarrowerThan(baseFacetQuerySpec))) {
+            return null;
+        }
+
+        // The base list is never modified so it can be read without the lock.  There are only a
+        // few combinations of category and status so they are found by a linear search.
+        final List<ListEntity> baseListEntities = baseResultSnapshot.getListEntities();
+        final ArrayList<Long> categoryIds = new ArrayList<>();
+        final ArrayList<Long> statusIds = new ArrayList<>();
+        final ArrayList<Integer> counts = new ArrayList<>();
+        for (int i = 0; i < baseListEntities.size(); i++) {
+            final ListEntity listEntity = baseListEntities.get(i);
+            if (!facetQuerySpec.matches(listEntity)) {
+                continue;
+            }
+
+            int j = 0;
+            while (j < counts.size() && (categoryIds.get(j) != listEntity.getCategoryId() ||
+                    statusIds.get(j) != listEntity.getStatusId())) {
+                j++;
+            }
+            if (j < counts.size()) {
+                counts.set(j, counts.get(j) + 1);
+            } else {
+                categoryIds.add(listEntity.getCategoryId());
+                statusIds.add(listEntity.getStatusId());
+                counts.add(1);
+            }
+        }
+
+        final ArrayList<String> categories = new ArrayList<>(counts.size());
+        final ArrayList<String> statuses = new ArrayList<>(counts.size());
+        for (int i = 0; i < counts.size(); i++) {
+            categories.add(LabelDictionary.categories().getLabel(categoryIds.get(i)));
+            statuses.add(LabelDictionary.statuses().getLabel(statusIds.get(i)));
+        }
+
+        return new FacetCounts(categories, statuses, counts);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.datarepository;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.myapp.alist.db.ListEntity;
+
+import java.util.List;
+
+/**
+ * The result of a query kept by the {@link QueryScheduler}.  It always has the number of rows
+ * the query selects.  A small selection, up to {@link #MAX_ROWS} rows, also has every row in
+ * order, which lets a narrower query be answered in memory.  A larger selection is only counted
+ * so its rows are never all held in memory.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+final class ResultSnapshot {
+    /**
+     * The most rows kept with a result.  Reading one more row than this tells whether the
+     * selection fits.
+     */
+    static final int MAX_ROWS = 500;
+    /**
+     * The spec of the query.
+     */
+    private final QuerySpec mQuerySpec;
+    /**
+     * The number of selected rows.
+     */
+    private final int mCount;
+    /**
+     * Every selected row in order or <code>null</code> if there are too many.
+     */
+    private final List<ListEntity> mListEntities;
+
+    /**
+     * Creates a result of only the number of rows.
+     *
+     * @param querySpec the spec of the query
+     * @param count     the number of selected rows
+     */
+    ResultSnapshot(@NonNull final QuerySpec querySpec, final int count) {
+        mQuerySpec = querySpec;
+        mCount = count;
+        mListEntities = null;
+    }
+
+    /**
+     * Creates a result of every selected row.
+     *
+     * @param querySpec    the spec of the query
+     * @param listEntities every selected row in order, which must not be modified afterwards
+     */
+    ResultSnapshot(@NonNull final QuerySpec querySpec,
+                   @NonNull final List<ListEntity> listEntities) {
+        mQuerySpec = querySpec;
+        mCount = listEntities.size();
+        mListEntities = listEntities;
+    }
+
+    /**
+     * Get the spec of the query.
+     */
+    @NonNull
+    QuerySpec getQuerySpec() {
+        return mQuerySpec;
+    }
+
+    /**
+     * Get the number of selected rows.
+     */
+    int getCount() {
+        return mCount;
+    }
+
+    /**
+     * Get every selected row in order, which must not be modified, or <code>null</code> if only
+     * the number of rows was kept.
+     */
+    @Nullable
+    List<ListEntity> getListEntities() {
+        return mListEntities;
+    }
+
+    /**
+     * Determines if the result has every selected row.
+     *
+     * @return <code>true</code> if the rows were kept
+     */
+    boolean isComplete() {
+        return mListEntities != null;
+    }
+}
@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.datarepository;
+
+/**
+ * How the name and description search terms are matched against the list table.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+public enum SearchMode {
+    /**
+     * Every word of the search term must be the start of a word in the column.  Uses the
+     * {@link com.myapp.alist.db.ListFtsEntity} full-text search index.
+     */
+    FULL_TEXT,
+    /**
+     * The search term may appear anywhere in the column.  Uses <code>LIKE '%term%'</code> which
+     * has to scan the whole list table.
+     */
+    SUBSTRING
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.datarepository;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.myapp.alist.db.AListDatabase;
+import com.myapp.alist.db.ListDao;
+import com.myapp.alist.db.ListEntity;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Removes the items which were deleted more than {@link #RETENTION_MILLIS} ago, the tombstones,
+ * while the app is idle.
+ * <p>
+ * A delete only marks the items so it can be undone.  Removing them is left until no query or
+ * write has been asked for in the last {@link #IDLE_MILLIS}, and is then done
+ * {@link #BATCH_SIZE} items at a time, each batch in its own short transaction on the background
+ * thread.  So a large delete never holds the write lock for long, user writes wait behind at most
+ * one batch, and any new activity pauses the removal until the app is idle again.  Reads are not
+ * blocked by a batch when write-ahead logging is in use.
+ * <p>
+ * The next check is timed for when the earliest tombstone expires, so nothing runs while there
+ * are no tombstones.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+final class TombstoneCompactor {
+    /**
+     * How long deleted items are kept so the delete can be undone.
+     */
+    static final long RETENTION_MILLIS = 10L * 60L * 1000L;
+    /**
+     * How long there must be no activity before a batch is removed.
+     */
+    static final long IDLE_MILLIS = 5000L;
+    /**
+     * The most items removed in one transaction.
+     */
+    static final int BATCH_SIZE = 200;
+    /**
+     * Stores the classname to tag log errors.
+     */
+    private static final String TAG = TombstoneCompactor.class.getSimpleName();
+    /**
+     * The database to compact.
+     */
+    private final AListDatabase mAListDatabase;
+    /**
+     * Times the checks.  Only the checks run on it, never the batches.
+     */
+    private final ScheduledExecutorService mTimerExecutor;
+    /**
+     * Runs the batches after the other writes.  Must have a single thread.
+     */
+    private final Executor mWriteExecutor;
+    /**
+     * Guards the fields below which are used by the calling threads and the executors.
+     */
+    private final Object mLock = new Object();
+    /**
+     * The uptime of the last query or write asked for.
+     */
+    private long mLastActivityMillis = SystemClock.uptimeMillis();
+    /**
+     * The uptime of the next check or <code>Long.MAX_VALUE</code> if none is scheduled.
+     */
+    private long mNextCheckMillis = Long.MAX_VALUE;
+    /**
+     * The next check.
+     */
+    private ScheduledFuture<?> mPendingFuture;
+
+    /**
+     * Creates the compactor.
+     *
+     * @param database      the database to compact
+     * @param timerExecutor times the checks
+     * @param writeExecutor the single thread executor which runs the writes
+     */
+    TombstoneCompactor(final AListDatabase database, final ScheduledExecutorService timerExecutor,
+                       final Executor writeExecutor) {
+        mAListDatabase = database;
+        mTimerExecutor = timerExecutor;
+        mWriteExecutor = writeExecutor;
+    }
+
+    /**
+     * Records that a query or write has been asked for, which delays the next batch until the app
+     * has been idle for {@link #IDLE_MILLIS}.
+     */
+    void onActivity() {
+        synchronized (mLock) {
+            mLastActivityMillis = SystemClock.uptimeMillis();
+        }
+    }
+
+    /**
+     * Checks for tombstones to remove after a delay, unless a check is already due sooner.
+     *
+     * @param delayMillis how long to wait before checking
+     */
+    void schedule(final long delayMillis) {
+        synchronized (mLock) {
+            final long checkMillis = SystemClock.uptimeMillis() + delayMillis;
+            if (checkMillis >= mNextCheckMillis) {
+                return;
+            }
+
+            if (mPendingFuture != null) {
+                mPendingFuture.cancel(false);
+            }
+            mNextCheckMillis = checkMillis;
+            //noinspection Convert2Lambda
+            mPendingFuture = mTimerExecutor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    TombstoneCompactor.this.check();
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Hands a batch to the write executor if the app is idle, otherwise checks again once it
+     * could be.
+     */
+    private void check() {
+        final long idleMillis;
+        synchronized (mLock) {
+            mNextCheckMillis = Long.MAX_VALUE;
+            mPendingFuture = null;
+            idleMillis = SystemClock.uptimeMillis() - mLastActivityMillis;
+        }
+
+        if (idleMillis < IDLE_MILLIS) {
+            schedule(IDLE_MILLIS - idleMillis);
+            return;
+        }
+
+        //noinspection Convert2Lambda
+        mWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                TombstoneCompactor.this.removeBatch();
+            }
+        });
+    }
+
+    /**
+     * Removes one batch of expired tombstones on the write executor and schedules the next check.
+     */
+    private void removeBatch() {
+        // Activity may have been asked for while the batch was waiting behind other writes.
+        synchronized (mLock) {
+            final long idleMillis = SystemClock.uptimeMillis() - mLastActivityMillis;
+            if (idleMillis < IDLE_MILLIS) {
+                schedule(IDLE_MILLIS - idleMillis);
+                return;
+            }
+        }
+
+        try {
+            final ListDao listDao = mAListDatabase.list();
+            final long now = System.currentTimeMillis();
+            if (listDao.purgeDeleted(now - RETENTION_MILLIS, BATCH_SIZE) == BATCH_SIZE) {
+                // There may be more, so carry on straight away if the app is still idle.
+                schedule(0L);
+                return;
+            }
+
+            final long firstDeleted = listDao.selectFirstDeleted();
+            if (firstDeleted != ListEntity.NOT_DELETED) {
+                // The first millisecond in which it is older than the retention time.
+                schedule(Math.max(0L, firstDeleted + RETENTION_MILLIS + 1L - now));
+            }
+        } catch (Exception e) {
+            // The tombstones are tried again after the next delete or when the app next starts.
+            Log.e(TAG, "removeBatch error 1");
+            e.printStackTrace();
+        }
+    }
+}
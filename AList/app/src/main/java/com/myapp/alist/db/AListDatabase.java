@@ -25,7 +25,8 @@ import com.myapp.alist.BasicApplication;
  * @version 1.0, 17/04/2023
  * @since 1.0
  */
-@Database(entities = {ListEntity.class}, version = 1, exportSchema = false)
+@Database(entities = {ListEntity.class, ListFtsEntity.class, CategoryEntity.class,
+        StatusEntity.class}, version = 5, exportSchema = false)
 public abstract class AListDatabase extends RoomDatabase {
     // WARNING: the previous version of this app used a content provider which has been removed.
     // Need to use the same name otherwise existing data will not be accessible.
@@ -41,6 +42,13 @@ public abstract class AListDatabase extends RoomDatabase {
      */
     public abstract ListDao list();
 
+    /**
+     * Get the DAO to change the categories and statuses.
+     *
+     * @return the DAO for the {@link CategoryEntity} and {@link StatusEntity} tables
+     */
+    public abstract CatalogDao catalog();
+
     /**
      * The database singleton instance.
      */
@@ -81,7 +89,10 @@ public abstract class AListDatabase extends RoomDatabase {
      */
     private static AListDatabase buildDatabase(final Context appContext,
                                                final AppExecutors executors) {
-        return Room.databaseBuilder(appContext, AListDatabase.class, DATABASE_NAME)
+        // The journal mode and pragmas suit the device's memory, see StorageProfile.
+        final StorageProfile storageProfile = StorageProfile.forDevice(appContext);
+        return storageProfile.configure(Catalog.configure(
+                Room.databaseBuilder(appContext, AListDatabase.class, DATABASE_NAME)))
                 .addCallback(new Callback() {
                     @Override
                     public void onCreate(@NonNull SupportSQLiteDatabase db) {
@@ -95,16 +106,18 @@ public abstract class AListDatabase extends RoomDatabase {
                                 // returned.
                                 AListDatabase aListDatabase =
                                         AListDatabase.getInstance(appContext, executors);
-                                // Inserting of initial data into database would go here.
-                                // Starting with blank database in this app with only user generated
-                                // rows.
+                                // The category and status lookup tables are filled by Catalog.
+                                // Starting with blank list table in this app with only user
+                                // generated rows.
 
                                 // Notify that the database was created and it's ready to be used.
                                 aListDatabase.setDatabaseCreated();
                             }
                         });
                     }
-                }).build();
+                })
+                .addMigrations(AListMigrations.ALL)
+                .build();
     }
 
     /**
@@ -145,6 +158,14 @@ public abstract class AListDatabase extends RoomDatabase {
         return mIsDatabaseCreated;
     }
 
+    /**
+     * Checkpoints the write-ahead log and frees unused page cache memory.  Must not be called on
+     * the main thread.
+     */
+    public void checkpoint() {
+        StorageProfile.checkpoint(this.getOpenHelper().getWritableDatabase());
+    }
+
     /**
      * Switches the internal implementation with an empty in-memory database.
      *
@@ -153,8 +174,8 @@ public abstract class AListDatabase extends RoomDatabase {
      */
     @VisibleForTesting
     static AListDatabase switchToInMemory(final Context context) {
-        return sAListDatabase = Room.inMemoryDatabaseBuilder(
-                context.getApplicationContext(), AListDatabase.class)
+        return sAListDatabase = Catalog.configure(Room.inMemoryDatabaseBuilder(
+                context.getApplicationContext(), AListDatabase.class))
                 // Allowing main thread queries, just for testing.
                 .allowMainThreadQueries()
                 .build();
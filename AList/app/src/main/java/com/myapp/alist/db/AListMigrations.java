@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * The migrations which upgrade an existing {@link AListDatabase} file in place.
+ * <p>
+ * The SQL must create exactly what Room generates for the entities otherwise Room's schema
+ * validation fails after the migration has run.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+public final class AListMigrations {
+    /**
+     * Adds the {@link ListFtsEntity} full-text search index and fills it from the existing rows.
+     */
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull final SupportSQLiteDatabase db) {
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `list_fts` USING FTS4(`name` TEXT, " +
+                    "`description` TEXT, content=`list`)");
+            createFtsTriggers(db);
+            // Index the rows that already exist.
+            db.execSQL("INSERT INTO `list_fts`(`list_fts`) VALUES ('rebuild')");
+        }
+    };
+
+    /**
+     * Drops the index on <code>_id</code>, which duplicated the rowid primary key, and adds the
+     * indexes for the category and status filters and the description, category and status sorts.
+     */
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull final SupportSQLiteDatabase db) {
+            db.execSQL("DROP INDEX IF EXISTS `index_list__id`");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_list_category_status_name_description` " +
+                    "ON `list` (`category`, `status`, `name`, `description`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_list_status_category_name_description` " +
+                    "ON `list` (`status`, `category`, `name`, `description`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_list_description_category_status_name` " +
+                    "ON `list` (`description`, `category`, `status`, `name`)");
+        }
+    };
+
+    /**
+     * Moves the category and status labels into the {@link CategoryEntity} and
+     * {@link StatusEntity} lookup tables and stores their ids in the list table instead.  The
+     * values of the <code>category_list</code> and <code>status_list</code> arrays get the ids the
+     * {@link Catalog} starts with and any other label already used gets a new id, so no row
+     * changes its category or status.
+     * <p>
+     * SQLite cannot change the type of a column so the list table is copied into a new table
+     * which then replaces it.  The rowids are kept so the full-text search index still matches.
+     */
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull final SupportSQLiteDatabase db) {
+            createLookupTable(db, CategoryEntity.TABLE_NAME);
+            createLookupTable(db, StatusEntity.TABLE_NAME);
+            Catalog.seed(db);
+            db.execSQL("INSERT OR IGNORE INTO `category` (`label`) SELECT DISTINCT " +
+                    "IFNULL(`category`, '') FROM `list`");
+            db.execSQL("INSERT OR IGNORE INTO `status` (`label`) SELECT DISTINCT " +
+                    "IFNULL(`status`, '') FROM `list`");
+
+            db.execSQL("CREATE TABLE IF NOT EXISTS `list_new` (`_id` INTEGER PRIMARY KEY " +
+                    "AUTOINCREMENT NOT NULL, `name` TEXT, `description` TEXT, `category` " +
+                    "INTEGER NOT NULL, `status` INTEGER NOT NULL, FOREIGN KEY(`category`) " +
+                    "REFERENCES `category`(`_id`) ON UPDATE NO ACTION ON DELETE NO ACTION , " +
+                    "FOREIGN KEY(`status`) REFERENCES `status`(`_id`) ON UPDATE NO ACTION ON " +
+                    "DELETE NO ACTION )");
+            db.execSQL("INSERT INTO `list_new` (`_id`, `name`, `description`, `category`, " +
+                    "`status`) SELECT `_id`, `name`, `description`, (SELECT `_id` FROM " +
+                    "`category` WHERE `label` = IFNULL(`list`.`category`, '')), (SELECT `_id` " +
+                    "FROM `status` WHERE `label` = IFNULL(`list`.`status`, '')) FROM `list`");
+            // Dropping the list table also drops its indexes and triggers.
+            db.execSQL("DROP TABLE `list`");
+            db.execSQL("ALTER TABLE `list_new` RENAME TO `list`");
+
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_list_name` ON `list` (`name`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_list_category_status_name_description` " +
+                    "ON `list` (`category`, `status`, `name`, `description`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_list_status_category_name_description` " +
+                    "ON `list` (`status`, `category`, `name`, `description`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_list_description_category_status_name` " +
+                    "ON `list` (`description`, `category`, `status`, `name`)");
+            createFtsTriggers(db);
+        }
+    };
+
+    /**
+     * Adds the deleted column, so a delete only marks the items and can be undone, and rebuilds
+     * the indexes with the deleted column at the end.  The name only has to be unique among the
+     * items which are not deleted.  The existing items are not deleted.
+     */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull final SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `list` ADD COLUMN `deleted` INTEGER NOT NULL DEFAULT 0");
+
+            db.execSQL("DROP INDEX IF EXISTS `index_list_name`");
+            db.execSQL("DROP INDEX IF EXISTS `index_list_category_status_name_description`");
+            db.execSQL("DROP INDEX IF EXISTS `index_list_status_category_name_description`");
+            db.execSQL("DROP INDEX IF EXISTS `index_list_description_category_status_name`");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_list_name_deleted` ON `list` " +
+                    "(`name`, `deleted`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS " +
+                    "`index_list_category_status_name_description_deleted` ON `list` " +
+                    "(`category`, `status`, `name`, `description`, `deleted`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS " +
+                    "`index_list_status_category_name_description_deleted` ON `list` " +
+                    "(`status`, `category`, `name`, `description`, `deleted`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS " +
+                    "`index_list_description_category_status_name_deleted` ON `list` " +
+                    "(`description`, `category`, `status`, `name`, `deleted`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_list_deleted` ON `list` (`deleted`)");
+        }
+    };
+
+    /**
+     * All of the migrations in version order.
+     */
+    static final Migration[] ALL = {MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5};
+
+    // Only static members.
+    private AListMigrations() {
+    }
+
+    /**
+     * Creates a {@link CategoryEntity} or {@link StatusEntity} lookup table, which have the same
+     * columns.
+     *
+     * @param db        the database being migrated
+     * @param tableName the lookup table
+     */
+    private static void createLookupTable(final SupportSQLiteDatabase db,
+                                          final String tableName) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS `" + tableName + "` (`_id` INTEGER PRIMARY KEY " +
+                "AUTOINCREMENT NOT NULL, `label` TEXT NOT NULL)");
+        db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_" + tableName + "_label` ON `" +
+                tableName + "` (`label`)");
+    }
+
+    /**
+     * Creates the triggers that keep the {@link ListFtsEntity} index in step with the list table.
+     * These are the same triggers that Room creates for a new database.
+     *
+     * @param db the database being migrated
+     */
+    private static void createFtsTriggers(final SupportSQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_list_fts_BEFORE_UPDATE " +
+                "BEFORE UPDATE ON `list` BEGIN DELETE FROM `list_fts` WHERE `docid`=OLD.`rowid`; " +
+                "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_list_fts_BEFORE_DELETE " +
+                "BEFORE DELETE ON `list` BEGIN DELETE FROM `list_fts` WHERE `docid`=OLD.`rowid`; " +
+                "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_list_fts_AFTER_UPDATE " +
+                "AFTER UPDATE ON `list` BEGIN INSERT INTO `list_fts`(`docid`, `name`, " +
+                "`description`) VALUES (NEW.`rowid`, NEW.`name`, NEW.`description`); END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_list_fts_AFTER_INSERT " +
+                "AFTER INSERT ON `list` BEGIN INSERT INTO `list_fts`(`docid`, `name`, " +
+                "`description`) VALUES (NEW.`rowid`, NEW.`name`, NEW.`description`); END");
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.db;
+
+import android.content.Context;
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.myapp.alist.BasicApplication;
+import com.myapp.alist.R;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An immutable snapshot of the categories and statuses the user can choose from, which are the
+ * rows of the {@link CategoryEntity} and {@link StatusEntity} lookup tables.
+ * <p>
+ * There is one current catalog for the whole process.  It is read from the database when the
+ * database is opened and replaced as a whole each time a category or status is added, so
+ * validation, the spinners and the queries never read the resources or the lookup
+ * tables and a reader never sees the categories of one version with the statuses of another.
+ * Until the database is opened the catalog holds the values of the <code>category_list</code> and
+ * <code>status_list</code> arrays, which are also the rows a new database starts with, so the ids
+ * are the same.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+public final class Catalog {
+    /**
+     * The current catalog or <code>null</code> until it is first used.
+     */
+    private static final AtomicReference<Catalog> sCatalog = new AtomicReference<>();
+    /**
+     * Observable current catalog.
+     */
+    private static final MutableLiveData<Catalog> sObservableCatalog = new MutableLiveData<>();
+    /**
+     * The categories.
+     */
+    private final LabelDictionary mCategories;
+    /**
+     * The statuses.
+     */
+    private final LabelDictionary mStatuses;
+    /**
+     * The choice which selects every category or status.
+     */
+    private final String mAllLabel;
+
+    /**
+     * Creates the catalog.
+     *
+     * @param categories the categories
+     * @param statuses   the statuses
+     * @param allLabel   the choice which selects every category or status
+     */
+    private Catalog(@NonNull final LabelDictionary categories,
+                    @NonNull final LabelDictionary statuses, @NonNull final String allLabel) {
+        mCategories = categories;
+        mStatuses = statuses;
+        mAllLabel = allLabel;
+    }
+
+    /**
+     * Gets the current catalog.
+     *
+     * @return the catalog
+     */
+    @NonNull
+    public static Catalog get() {
+        final Catalog catalog = sCatalog.get();
+        if (catalog != null) {
+            return catalog;
+        }
+
+        // Another thread may have loaded the database's catalog first, which must be kept.
+        sCatalog.compareAndSet(null, Catalog.fromResources());
+        return sCatalog.get();
+    }
+
+    /**
+     * Gets the observable current catalog, which changes on the main thread after each edit.
+     *
+     * @return the catalog
+     */
+    @NonNull
+    public static LiveData<Catalog> getObservableCatalog() {
+        return sObservableCatalog;
+    }
+
+    /**
+     * Adds a callback to a database builder which fills the lookup tables of a new database and
+     * loads the catalog each time the database is opened.
+     *
+     * @param builder the database builder
+     * @param <T>     the type of the database
+     * @return the database builder
+     */
+    @NonNull
+    public static <T extends RoomDatabase> RoomDatabase.Builder<T> configure(
+            @NonNull final RoomDatabase.Builder<T> builder) {
+        return builder.addCallback(new RoomDatabase.Callback() {
+            @Override
+            public void onCreate(@NonNull final SupportSQLiteDatabase db) {
+                super.onCreate(db);
+                Catalog.seed(db);
+            }
+
+            @Override
+            public void onOpen(@NonNull final SupportSQLiteDatabase db) {
+                super.onOpen(db);
+                Catalog.load(db);
+            }
+        });
+    }
+
+    /**
+     * Inserts the values of the <code>category_list</code> and <code>status_list</code> arrays
+     * into the lookup tables with the ids the catalog uses before the database is opened.  Rows
+     * which already exist are kept.
+     *
+     * @param db the database
+     */
+    static void seed(@NonNull final SupportSQLiteDatabase db) {
+        final Catalog catalog = Catalog.fromResources();
+        catalog.mCategories.seed(db, CategoryEntity.TABLE_NAME);
+        catalog.mStatuses.seed(db, StatusEntity.TABLE_NAME);
+    }
+
+    // Loads are one at a time so the last to finish has read every edit made before it started.
+    /**
+     * Reads both lookup tables and replaces the current catalog.  Must not be called on the main
+     * thread.
+     *
+     * @param db the database
+     */
+    public static synchronized void load(@NonNull final SupportSQLiteDatabase db) {
+        final Catalog catalog = new Catalog(
+                LabelDictionary.fromTable(db, CategoryEntity.TABLE_NAME),
+                LabelDictionary.fromTable(db, StatusEntity.TABLE_NAME),
+                Catalog.readAllLabel(BasicApplication.getContext()));
+        sCatalog.set(catalog);
+        sObservableCatalog.postValue(catalog);
+    }
+
+    /**
+     * Creates a catalog from the <code>category_list</code> and <code>status_list</code> arrays.
+     *
+     * @return the catalog
+     */
+    @NonNull
+    private static Catalog fromResources() {
+        final Context context = BasicApplication.getContext();
+        if (context == null) {
+            throw new RuntimeException("fromResources error 1");
+        }
+
+        return new Catalog(
+                LabelDictionary.fromArray(
+                        context.getResources().getStringArray(R.array.category_list)),
+                LabelDictionary.fromArray(
+                        context.getResources().getStringArray(R.array.status_list)),
+                Catalog.readAllLabel(context));
+    }
+
+    /**
+     * Reads the choice which selects every category or status.
+     *
+     * @param context the context
+     * @return the label
+     */
+    @NonNull
+    private static String readAllLabel(@Nullable final Context context) {
+        if (context == null) {
+            throw new RuntimeException("readAllLabel error 1");
+        }
+
+        return context.getString(R.string.all);
+    }
+
+    /**
+     * Get the categories.
+     */
+    @NonNull
+    public LabelDictionary getCategories() {
+        return mCategories;
+    }
+
+    /**
+     * Get the statuses.
+     */
+    @NonNull
+    public LabelDictionary getStatuses() {
+        return mStatuses;
+    }
+
+    /**
+     * Gets the dictionary for a column of the list table.
+     *
+     * @param column {@link ListEntity#CATEGORY} or {@link ListEntity#STATUS}
+     * @return the dictionary
+     */
+    @NonNull
+    public LabelDictionary forColumn(@NonNull final String column) {
+        switch (column) {
+            case ListEntity.CATEGORY:
+                return mCategories;
+            case ListEntity.STATUS:
+                return mStatuses;
+            default:
+                throw new RuntimeException("forColumn error 1");
+        }
+    }
+
+    /**
+     * Get the choice which selects every category or status, e.g. "All".
+     */
+    @NonNull
+    public String getAllLabel() {
+        return mAllLabel;
+    }
+
+    /**
+     * Determines if a label can be added to a column.  It must not be blank, the choice which
+     * selects every value or an existing label, ignoring case and surrounding spaces.
+     *
+     * @param column {@link ListEntity#CATEGORY} or {@link ListEntity#STATUS}
+     * @param label  the label
+     * @return <code>true</code> if the label is valid
+     */
+    public boolean isValidLabel(@NonNull final String column, @Nullable final String label) {
+        if (label == null || TextUtils.isEmpty(label.trim()) ||
+                label.trim().equalsIgnoreCase(mAllLabel)) {
+            return false;
+        }
+
+        return this.forColumn(column).getId(label) == LabelDictionary.NO_ID;
+    }
+}
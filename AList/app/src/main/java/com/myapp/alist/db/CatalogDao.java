@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.db;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+
+/**
+ * Data access object (DAO) for the {@link CategoryEntity} and {@link StatusEntity} lookup tables.
+ * After a change the {@link Catalog} must be loaded again with
+ * {@link Catalog#load(androidx.sqlite.db.SupportSQLiteDatabase)}.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+@Dao
+public interface CatalogDao {
+    /**
+     * Adds a category.
+     *
+     * @param label the label of the category
+     * @return the id of the new category or -1 if the label is already used
+     */
+    @Query("INSERT OR IGNORE INTO category (label) VALUES (:label)")
+    long insertCategory(final String label);
+
+    /**
+     * Adds a status.
+     *
+     * @param label the label of the status
+     * @return the id of the new status or -1 if the label is already used
+     */
+    @Query("INSERT OR IGNORE INTO status (label) VALUES (:label)")
+    long insertStatus(final String label);
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.db;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * An immutable in-memory copy of the {@link CategoryEntity} or {@link StatusEntity} lookup table,
+ * which maps the integer ids stored in the list table to their labels and back.
+ * <p>
+ * The list table only stores the ids, so its rows and indexes are smaller and a category or
+ * status filter is an integer comparison.  The dictionaries in use are held by the current
+ * {@link Catalog}.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+public final class LabelDictionary {
+    /**
+     * The id returned for a label which is not in the dictionary.  Room never gives a row this id.
+     */
+    public static final long NO_ID = 0L;
+    /**
+     * The ids in ascending order.
+     */
+    private final long[] mIds;
+    /**
+     * The labels in the order of {@link #mIds}.
+     */
+    private final List<String> mLabels;
+    /**
+     * The ids keyed by the trimmed lower case label.
+     */
+    private final HashMap<String, Long> mIdsByKey;
+
+    /**
+     * Creates the dictionary.
+     *
+     * @param ids    the ids in ascending order
+     * @param labels the labels in the order of the ids
+     */
+    private LabelDictionary(@NonNull final long[] ids, @NonNull final List<String> labels) {
+        mIds = ids;
+        mLabels = Collections.unmodifiableList(labels);
+        mIdsByKey = new HashMap<>(labels.size() * 2);
+        for (int i = 0; i < ids.length; i++) {
+            final String key = LabelDictionary.toKey(labels.get(i));
+            // Labels that only differ by case map to the lowest id.
+            if (!mIdsByKey.containsKey(key)) {
+                mIdsByKey.put(key, ids[i]);
+            }
+        }
+    }
+
+    /**
+     * Gets the categories of the current {@link Catalog}.
+     *
+     * @return the category dictionary
+     */
+    @NonNull
+    public static LabelDictionary categories() {
+        return Catalog.get().getCategories();
+    }
+
+    /**
+     * Gets the statuses of the current {@link Catalog}.
+     *
+     * @return the status dictionary
+     */
+    @NonNull
+    public static LabelDictionary statuses() {
+        return Catalog.get().getStatuses();
+    }
+
+    /**
+     * Gets the dictionary of the current {@link Catalog} for a column of the list table.
+     *
+     * @param column {@link ListEntity#CATEGORY} or {@link ListEntity#STATUS}
+     * @return the dictionary
+     */
+    @NonNull
+    public static LabelDictionary forColumn(@NonNull final String column) {
+        return Catalog.get().forColumn(column);
+    }
+
+    /**
+     * Inserts the rows of the dictionary into a lookup table with the same ids.  Rows which
+     * already exist are kept.
+     *
+     * @param db        the database
+     * @param tableName the lookup table
+     */
+    void seed(@NonNull final SupportSQLiteDatabase db, @NonNull final String tableName) {
+        final SupportSQLiteStatement statement = db.compileStatement("INSERT OR IGNORE INTO " +
+                tableName + " (" + CategoryEntity._ID + ", " + CategoryEntity.LABEL +
+                ") VALUES (?, ?)");
+        for (int i = 0; i < mIds.length; i++) {
+            statement.bindLong(1, mIds[i]);
+            statement.bindString(2, mLabels.get(i));
+            statement.executeInsert();
+        }
+    }
+
+    /**
+     * Reads a lookup table into a new dictionary.
+     *
+     * @param db        the database
+     * @param tableName the lookup table
+     * @return the dictionary
+     */
+    @NonNull
+    static LabelDictionary fromTable(@NonNull final SupportSQLiteDatabase db,
+                                     @NonNull final String tableName) {
+        final Cursor cursor = db.query("SELECT " + CategoryEntity._ID + ", " +
+                CategoryEntity.LABEL + " FROM " + tableName + " ORDER BY " + CategoryEntity._ID);
+        try {
+            final long[] ids = new long[cursor.getCount()];
+            final ArrayList<String> labels = new ArrayList<>(ids.length);
+            while (cursor.moveToNext()) {
+                ids[cursor.getPosition()] = cursor.getLong(0);
+                labels.add(cursor.getString(1));
+            }
+
+            return new LabelDictionary(ids, labels);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Creates a dictionary from a string array whose first value is "All", which is only used
+     * for selecting.  The other values get the ids 1, 2, 3 etc.
+     *
+     * @param values the string array
+     * @return the dictionary
+     */
+    @NonNull
+    static LabelDictionary fromArray(@NonNull final String[] values) {
+        final long[] ids = new long[values.length - 1];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i + 1;
+        }
+
+        return new LabelDictionary(ids,
+                new ArrayList<>(Arrays.asList(values).subList(1, values.length)));
+    }
+
+    /**
+     * Gets the key a label is looked up by, so surrounding spaces and case are ignored.
+     *
+     * @param label the label
+     * @return the key
+     */
+    @NonNull
+    private static String toKey(@NonNull final String label) {
+        return label.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Gets the id of a label.
+     *
+     * @param label the label, in any case and with or without surrounding spaces
+     * @return the id or {@link #NO_ID} if the label is <code>null</code> or not in the dictionary
+     */
+    public long getId(@Nullable final String label) {
+        if (label == null) {
+            return LabelDictionary.NO_ID;
+        }
+
+        final Long id = mIdsByKey.get(LabelDictionary.toKey(label));
+        return id == null ? LabelDictionary.NO_ID : id;
+    }
+
+    /**
+     * Gets the label of an id.
+     *
+     * @param id the id
+     * @return the label or <code>null</code> if the id is not in the dictionary
+     */
+    @Nullable
+    public String getLabel(final long id) {
+        final int index = Arrays.binarySearch(mIds, id);
+        return index < 0 ? null : mLabels.get(index);
+    }
+
+    /**
+     * Gets the labels in id order, which is the order of the list table's category and status
+     * sorts.
+     *
+     * @return the labels, which cannot be modified
+     */
+    @NonNull
+    public List<String> getLabels() {
+        return mLabels;
+    }
+}
@@ -28,11 +28,11 @@ public interface ListDao {
     // Returns all of the columns.  If columns needed to be excluded, @Ignore could be used in the
     // ListEntity class before the column declaration.
     /**
-     * Selects all of the items in the list table.
+     * Selects all of the items in the list table which are not deleted.
      *
      * @return  the <code>LiveData</code> list of {@link ListEntity} items
      */
-    @Query("SELECT * FROM List")
+    @Query("SELECT * FROM List WHERE deleted = 0")
     LiveData<List<ListEntity>> selectAllQuery();
 
     /*
@@ -67,6 +67,43 @@ public interface ListDao {
     @Insert(onConflict = OnConflictStrategy.ABORT)
     long insert(final ListEntity item);
 
+    // IGNORE skips a row which breaks a constraint, i.e. a duplicate name, without aborting the
+    // rest of the statement or the transaction.  Room runs the whole list in one transaction.
+    /**
+     * Inserts items into the list table, skipping any whose name is already used.
+     *
+     * @param items the new {@link ListEntity} items
+     * @return the row ID of each inserted item in order, or -1 for each skipped item
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    long[] insertOrIgnore(final List<ListEntity> items);
+
+    /**
+     * Gets the row ID of the item with a name which is not deleted, e.g. the item an insert
+     * conflicted with.  Only reads the unique name index.
+     *
+     * @param name the name of the item
+     * @return the row ID or 0 if there is no item with the name
+     */
+    @Query("SELECT _id FROM list WHERE name = :name AND deleted = 0")
+    long selectIdByName(final String name);
+
+    // The values are compared first so a row which already has them is not rewritten.
+    /**
+     * Updates the description, category and status of an item, keeping its name.
+     *
+     * @param id          the row ID of the item to update
+     * @param description the new description
+     * @param category    the new category id
+     * @param status      the new status id
+     * @return the number of items changed, which is zero if the item already had the values
+     */
+    @Query("UPDATE list SET description = :description, category = :category, " +
+            "status = :status WHERE _id = :id AND (description <> :description OR " +
+            "category <> :category OR status <> :status)")
+    int updateValues(final long id, final String description, final long category,
+                     final long status);
+
     // WARNING: RawQuery methods can only be used for read queries. For write queries, use
     // RoomDatabase.getOpenHelper().getWritableDatabase().
     // Tried using RawQuery for DELETE.  It did delete records but return int count was zero.
@@ -81,6 +118,17 @@ public interface ListDao {
     @RawQuery(observedEntities = ListEntity.class)
     LiveData<List<ListEntity>> doRawQuery(final SupportSQLiteQuery query);
 
+    // The query should select the rows after the last row of the previous page rather than use
+    // OFFSET, so a page deep in the list costs the same as the first page.
+    /**
+     * Execute a raw query for one page of items.  Must not be called on the main thread.
+     *
+     * @param query the keyset page <code>SELECT</code> statement to execute
+     * @return the selected {@link ListEntity} items
+     */
+    @RawQuery
+    List<ListEntity> selectPage(final SupportSQLiteQuery query);
+
     // Note: Only int not long is supported by Room.
     // Note: If no item is selected, id passed in is RecyclerView.NO_ID (-1) and zero is returned.
     /**
@@ -94,12 +142,57 @@ public interface ListDao {
     @Update(onConflict = OnConflictStrategy.ABORT)
     int update(final ListEntity item);
 
+    // The app marks items as deleted instead, see QueryCompiler.compileSoftDelete(), so the delete
+    // can be undone and the rows are removed later in small batches.
     /**
-     * Delete the {@link ListEntity} item(s).
+     * Delete the {@link ListEntity} item(s) straight away.  The delete cannot be undone.
      *
      * @param listEntities the list of {@link ListEntity} item(s) to delete
      * @return the number of {@link ListEntity} items deleted
      */
     @Delete
     int delete(final List<ListEntity> listEntities);
+
+    /**
+     * Gets the latest time any item was deleted.  Only reads the end of the deleted index.
+     *
+     * @return the time in milliseconds or {@link ListEntity#NOT_DELETED} if there are no deleted
+     * items
+     */
+    @Query("SELECT IFNULL(MAX(deleted), 0) FROM list")
+    long selectLastDeleted();
+
+    /**
+     * Gets the earliest time an item which has not been removed yet was deleted.  Only reads the
+     * deleted index.
+     *
+     * @return the time in milliseconds or {@link ListEntity#NOT_DELETED} if there are no deleted
+     * items
+     */
+    @Query("SELECT IFNULL(MIN(deleted), 0) FROM list WHERE deleted > 0")
+    long selectFirstDeleted();
+
+    // IGNORE skips an item whose name has been used by a new item since it was deleted, which
+    // stays deleted.
+    /**
+     * Undoes a delete by clearing the deleted mark of the items deleted together.  Only the
+     * items are changed and only the deleted index is searched.
+     *
+     * @param deleted the time the items were deleted
+     * @return the number of items restored
+     */
+    @Query("UPDATE OR IGNORE list SET deleted = 0 WHERE deleted = :deleted")
+    int restoreDeleted(final long deleted);
+
+    /**
+     * Removes some of the items which were deleted before a time.  Each call is a short statement
+     * so a large delete is removed in several small transactions instead of one long one.
+     *
+     * @param before the time before which deleted items are removed
+     * @param limit  the most items to remove
+     * @return the number of items removed, less than <code>limit</code> when there are no more
+     */
+    @Query("DELETE FROM list WHERE _id IN (SELECT _id FROM list WHERE deleted > 0 AND " +
+            "deleted < :before LIMIT :limit)")
+    int purgeDeleted(final long before, final int limit);
 }
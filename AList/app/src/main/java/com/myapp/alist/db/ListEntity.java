@@ -4,29 +4,48 @@
 
 package com.myapp.alist.db;
 
-import android.content.Context;
-import android.content.res.Resources;
 import android.text.TextUtils;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.ForeignKey;
 import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
-import com.myapp.alist.BasicApplication;
-import com.myapp.alist.R;
-
 import java.util.HashMap;
 
 /**
- * Represents one record of the list table.  Name is unique.
+ * Represents one record of the list table.  Name is unique among the items which are not deleted.
+ * The category and status are stored as the ids of {@link CategoryEntity} and {@link StatusEntity}
+ * rows and are read and set as labels through the {@link LabelDictionary}s.
+ * <p>
+ * Deleting an item only marks it as deleted, a tombstone, so the delete can be undone by clearing
+ * the mark.  Tombstones are removed later in small batches, see
+ * {@link ListDao#purgeDeleted(long, int)}.
  *
  * @author Colin Walters
  * @version 1.0, 17/04/2023
  * @since 1.0
  */
-@Entity(tableName = ListEntity.TABLE_NAME, indices = {@Index(value = {"name"}, unique = true)})
+// The unique name index also gives the name sort.  The other indexes serve the category and status
+// filters and the other sorts, and hold every displayed column so the list table itself is not
+// read.  See AListMigrations.MIGRATION_2_3.  The category and status indexes also serve the
+// foreign keys.  Room cannot declare partial indexes and its schema validation fails on indexes
+// it did not create, so instead of leaving tombstones out of the indexes every index ends with the
+// deleted column.  Tombstones are then skipped inside the index without reading the table, and
+// they never clash with a new item of the same name.  The deleted index finds the tombstones.
+@Entity(tableName = ListEntity.TABLE_NAME, foreignKeys = {
+        @ForeignKey(entity = CategoryEntity.class, parentColumns = {"_id"},
+                childColumns = {"category"}),
+        @ForeignKey(entity = StatusEntity.class, parentColumns = {"_id"},
+                childColumns = {"status"})}, indices = {
+        @Index(value = {"name", "deleted"}, unique = true),
+        @Index(value = {"category", "status", "name", "description", "deleted"}),
+        @Index(value = {"status", "category", "name", "description", "deleted"}),
+        @Index(value = {"description", "category", "status", "name", "deleted"}),
+        @Index(value = {"deleted"})})
 public class ListEntity {
     /**
      * The name of the list table.
@@ -58,11 +77,42 @@ public class ListEntity {
      */
     public static final String STATUS = "status";
 
+    /**
+     * The name of the deleted column.
+     */
+    public static final String DELETED = "deleted";
+
+    /**
+     * The deleted column value of an item which is not deleted.
+     */
+    public static final long NOT_DELETED = 0L;
+
+    /**
+     * The changed fields mask bit for the name column.
+     */
+    public static final int FIELD_NAME = 1;
+
+    /**
+     * The changed fields mask bit for the description column.
+     */
+    public static final int FIELD_DESCRIPTION = 1 << 1;
+
+    /**
+     * The changed fields mask bit for the category column.
+     */
+    public static final int FIELD_CATEGORY = 1 << 2;
+
+    /**
+     * The changed fields mask bit for the status column.
+     */
+    public static final int FIELD_STATUS = 1 << 3;
+
     /**
      * The id column.
      */
+    // Not indexed because the primary key is the rowid which is already the table's key.
     @PrimaryKey(autoGenerate = true)
-    @ColumnInfo(index = true, name = _ID)
+    @ColumnInfo(name = _ID)
     private long id;
 
     /**
@@ -78,16 +128,23 @@ public class ListEntity {
     private String description;
 
     /**
-     * The category column.
+     * The category column, the id of a {@link CategoryEntity}.
      */
     @ColumnInfo(name = CATEGORY)
-    private String category;
+    private long categoryId;
 
     /**
-     * The status column.
+     * The status column, the id of a {@link StatusEntity}.
      */
     @ColumnInfo(name = STATUS)
-    private String status;
+    private long statusId;
+
+    /**
+     * The deleted column, {@link #NOT_DELETED} or the time the item was deleted in milliseconds.
+     * The items deleted together share the time, which no other delete uses.
+     */
+    @ColumnInfo(name = DELETED, defaultValue = "0")
+    private long deleted;
 
     // Can't have a private constructor because building app gives:
     // error: Entities and Pojos must have a usable public constructor. You can have an empty
@@ -107,24 +164,12 @@ public class ListEntity {
     @Nullable
     public static ListEntity verifyValues(@Nullable final HashMap<String, String> values) {
         boolean ok = true;
-        final Context context = BasicApplication.getContext();
-        final Resources resources;
         ListEntity listEntity = null;
 
         if (values == null) {
             throw new RuntimeException("verifyValues error 1");
         }
 
-        if (context == null) {
-            throw new RuntimeException("verifyValues error 2");
-        } else {
-            resources = context.getResources();
-        }
-
-        if (resources == null) {
-            throw new RuntimeException("verifyValues error 3");
-        }
-
         if (values.containsKey(ListEntity.NAME)) {
             String name = values.get(ListEntity.NAME);
             if (name == null) {
@@ -159,13 +204,10 @@ public class ListEntity {
                 throw new RuntimeException("verifyValues error 8");
             } else {
                 category = category.trim();
-                if (TextUtils.isEmpty(category)) {
+                // "All" is only used for selecting so is not in the dictionary.
+                if (TextUtils.isEmpty(category) ||
+                        LabelDictionary.categories().getId(category) == LabelDictionary.NO_ID) {
                     ok = false;
-                } else {
-                    if (category.compareToIgnoreCase(
-                            resources.getStringArray(R.array.category_list)[0]) == 0) {
-                        ok = false;
-                    }
                 }
             }
         } else {
@@ -178,13 +220,10 @@ public class ListEntity {
                 throw new RuntimeException("verifyValues error 10");
             } else {
                 status = status.trim();
-                if (TextUtils.isEmpty(status)) {
+                // "All" is only used for selecting so is not in the dictionary.
+                if (TextUtils.isEmpty(status) ||
+                        LabelDictionary.statuses().getId(status) == LabelDictionary.NO_ID) {
                     ok = false;
-                } else {
-                    if (status.compareToIgnoreCase(
-                            resources.getStringArray(R.array.status_list)[0]) == 0) {
-                        ok = false;
-                    }
                 }
             }
         } else {
@@ -203,6 +242,52 @@ public class ListEntity {
         return listEntity;
     }
 
+    /**
+     * Validates the new value of one column for a partial or bulk update with the same rules as
+     * {@link #verifyValues(HashMap)}.
+     *
+     * @param column {@link #NAME}, {@link #DESCRIPTION}, {@link #CATEGORY} or {@link #STATUS}
+     * @param value  the new value of the column
+     * @return <code>true</code> if the value is valid
+     */
+    public static boolean verifyValue(@NonNull final String column, @Nullable final String value) {
+        switch (column) {
+            case ListEntity.NAME:
+                return value != null && !TextUtils.isEmpty(value.trim());
+            case ListEntity.DESCRIPTION:
+                // Allow "" but not " " etc for the description.
+                return value != null && (value.length() == 0 ||
+                        !TextUtils.isEmpty(value.trim()));
+            case ListEntity.CATEGORY:
+            case ListEntity.STATUS:
+                // "All" is only used for selecting so is not in the dictionary.
+                return LabelDictionary.forColumn(column).getId(value) != LabelDictionary.NO_ID;
+            default:
+                throw new RuntimeException("verifyValue error 2");
+        }
+    }
+
+    /**
+     * Gets the changed fields mask bit for a column.
+     *
+     * @param column {@link #NAME}, {@link #DESCRIPTION}, {@link #CATEGORY} or {@link #STATUS}
+     * @return one of the <code>FIELD_</code> constants
+     */
+    public static int getField(@NonNull final String column) {
+        switch (column) {
+            case ListEntity.NAME:
+                return ListEntity.FIELD_NAME;
+            case ListEntity.DESCRIPTION:
+                return ListEntity.FIELD_DESCRIPTION;
+            case ListEntity.CATEGORY:
+                return ListEntity.FIELD_CATEGORY;
+            case ListEntity.STATUS:
+                return ListEntity.FIELD_STATUS;
+            default:
+                throw new RuntimeException("getField error 1");
+        }
+    }
+
     /**
      * Get the id of the list.
      */
@@ -246,32 +331,77 @@ public class ListEntity {
     }
 
     /**
-     * Get the category of the list.
+     * Get the category id of the list.
      */
-    public String getCategory() {
-        return category;
+    public long getCategoryId() {
+        return categoryId;
     }
 
     /**
-     * Set the category of the list.
+     * Set the category id of the list.
      */
     // This needs to be public.
+    public void setCategoryId(final long categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    /**
+     * Get the category label of the list.
+     */
+    public String getCategory() {
+        return LabelDictionary.categories().getLabel(categoryId);
+    }
+
+    /**
+     * Set the category of the list from its label.  An unknown label sets
+     * {@link LabelDictionary#NO_ID}.
+     */
     public void setCategory(final String category) {
-        this.category = category;
+        this.categoryId = LabelDictionary.categories().getId(category);
     }
 
     /**
-     * Get the status of the list.
+     * Get the status id of the list.
      */
-    public String getStatus() {
-        return status;
+    public long getStatusId() {
+        return statusId;
     }
 
     /**
-     * Set the status of the list.
+     * Set the status id of the list.
      */
     // This needs to be public.
+    public void setStatusId(final long statusId) {
+        this.statusId = statusId;
+    }
+
+    /**
+     * Get the status label of the list.
+     */
+    public String getStatus() {
+        return LabelDictionary.statuses().getLabel(statusId);
+    }
+
+    /**
+     * Set the status of the list from its label.  An unknown label sets
+     * {@link LabelDictionary#NO_ID}.
+     */
     public void setStatus(final String status) {
-        this.status = status;
+        this.statusId = LabelDictionary.statuses().getId(status);
+    }
+
+    /**
+     * Get the time the list was deleted or {@link #NOT_DELETED}.
+     */
+    public long getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * Set the time the list was deleted or {@link #NOT_DELETED}.
+     */
+    // This needs to be public.
+    public void setDeleted(final long deleted) {
+        this.deleted = deleted;
     }
 }
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.db;
+
+import androidx.annotation.Nullable;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Full-text search (FTS4) index of the name and description columns of the list table.
+ * <p>
+ * The index is an external content table so the text is not stored twice.  Room creates triggers
+ * on the list table which keep the index in step with every insert, update and delete.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+@Fts4(contentEntity = ListEntity.class)
+@Entity(tableName = ListFtsEntity.TABLE_NAME)
+public class ListFtsEntity {
+    /**
+     * The name of the full-text search table.
+     */
+    public static final String TABLE_NAME = "list_fts";
+
+    /**
+     * The name column.
+     */
+    @ColumnInfo(name = ListEntity.NAME)
+    private String name;
+
+    /**
+     * The description column.
+     */
+    @ColumnInfo(name = ListEntity.DESCRIPTION)
+    private String description;
+
+    // Limit constructor to package access.
+    ListFtsEntity() {
+    }
+
+    /**
+     * Builds an FTS <code>MATCH</code> expression which finds rows where every word of the search
+     * term is the start of a word in the column.  For example "gro mi" finds "Grocery milk" in
+     * the name column with <code>name:gro* name:mi*</code>.
+     * <p>
+     * Characters which are not part of a word for the FTS "simple" tokenizer are dropped so user
+     * input can never form FTS query syntax.
+     *
+     * @param column the column to search, {@link ListEntity#NAME} or
+     *               {@link ListEntity#DESCRIPTION}
+     * @param term   the search term as inputted by the user
+     * @return the <code>MATCH</code> expression or <code>null</code> if the term has no words
+     */
+    @Nullable
+    public static String toMatchExpression(final String column, final String term) {
+        final List<String> tokens = tokenize(term);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+
+        final StringBuilder stringBuilder = new StringBuilder();
+        for (String token : tokens) {
+            if (stringBuilder.length() != 0) {
+                stringBuilder.append(' ');
+            }
+            stringBuilder.append(column).append(':').append(token).append('*');
+        }
+
+        return stringBuilder.toString();
+    }
+
+    /**
+     * Splits text into words the same way as the FTS "simple" tokenizer.  ASCII letters and digits
+     * and all non-ASCII characters are word characters.  ASCII letters are folded to lower case.
+     *
+     * @param text the text to split
+     * @return the words in the order they appear
+     */
+    public static List<String> tokenize(@Nullable final String text) {
+        final List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+
+        final int length = text.length();
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            final boolean isTokenChar = i < length && isTokenChar(text.charAt(i));
+            if (isTokenChar && start < 0) {
+                start = i;
+            } else if (!isTokenChar && start >= 0) {
+                tokens.add(toAsciiLowerCase(text.substring(start, i)));
+                start = -1;
+            }
+        }
+
+        return tokens;
+    }
+
+    /**
+     * Folds ASCII letters to lower case and leaves all other characters alone, as the FTS "simple"
+     * tokenizer does.
+     *
+     * @param token the word to fold
+     * @return the folded word
+     */
+    private static String toAsciiLowerCase(final String token) {
+        final char[] chars = token.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            if (chars[i] >= 'A' && chars[i] <= 'Z') {
+                chars[i] += 'a' - 'A';
+            }
+        }
+
+        return new String(chars);
+    }
+
+    /**
+     * Determines if a character is part of a word for the FTS "simple" tokenizer.
+     *
+     * @param c the character to check
+     * @return <code>true</code> if the character is part of a word
+     */
+    private static boolean isTokenChar(final char c) {
+        return c >= 0x80 || (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') ||
+                (c >= 'A' && c <= 'Z');
+    }
+
+    /**
+     * Get the name of the list.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Set the name of the list.
+     */
+    // This needs to be public.
+    public void setName(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get the description of the list.
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Set the description of the list.
+     */
+    // This needs to be public.
+    public void setDescription(final String description) {
+        this.description = description;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Represents one record of the status lookup table, whose id is stored in the status column
+ * of the list table.  Label is unique.  Read through {@link LabelDictionary#statuses()}.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+@Entity(tableName = StatusEntity.TABLE_NAME, indices = {
+        @Index(value = {"label"}, unique = true)})
+public class StatusEntity {
+    /**
+     * The name of the status table.
+     */
+    public static final String TABLE_NAME = "status";
+
+    /**
+     * The name of the id column.
+     */
+    public static final String _ID = "_id";
+
+    /**
+     * The name of the label column.
+     */
+    public static final String LABEL = "label";
+
+    /**
+     * The id column.
+     */
+    @PrimaryKey(autoGenerate = true)
+    @ColumnInfo(name = _ID)
+    private long id;
+
+    /**
+     * The label column.
+     */
+    @NonNull
+    @ColumnInfo(name = LABEL)
+    private String label = "";
+
+    // Limit constructor to package access.
+    StatusEntity() {
+    }
+
+    /**
+     * Get the id of the status.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Set the id of the status.
+     */
+    public void setId(final long id) {
+        this.id = id;
+    }
+
+    /**
+     * Get the label of the status.
+     */
+    @NonNull
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Set the label of the status.
+     */
+    public void setLabel(@NonNull final String label) {
+        this.label = label;
+    }
+}
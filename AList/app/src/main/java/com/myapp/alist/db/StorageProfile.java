@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.db;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.database.Cursor;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * The SQLite storage settings of the database: the journal mode, the page cache size, the memory
+ * mapped I/O size and when the write-ahead log is checkpointed.
+ * <p>
+ * With write-ahead logging, Android keeps a pool of connections so queries run on reader
+ * connections while a background write is in progress instead of waiting for it, and a write
+ * only appends to the log instead of rewriting the database file.  The log is copied back into
+ * the database, a checkpoint, once it reaches a number of pages.  A larger cache, memory map and
+ * checkpoint interval are faster but use more memory, so the profile is chosen by the device's
+ * memory class.
+ * <p>
+ * The cache, memory map and checkpoint pragmas only apply to the connection that opens the
+ * database, which is the one that writes.  The reader connections use the platform's settings.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+public final class StorageProfile {
+    /**
+     * Room's behaviour on a low RAM device, i.e. a rollback journal with the platform's settings.
+     * Readers wait for writers.  Kept to compare against.
+     */
+    public static final StorageProfile LEGACY = new StorageProfile("legacy",
+            RoomDatabase.JournalMode.TRUNCATE, 0, 0L, 0);
+    /**
+     * Write-ahead logging with a small cache, no memory map and frequent checkpoints.
+     */
+    public static final StorageProfile LOW_MEMORY = new StorageProfile("low memory",
+            RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING, 1024, 0L, 500);
+    /**
+     * Write-ahead logging with SQLite's default checkpoint interval.
+     */
+    public static final StorageProfile STANDARD = new StorageProfile("standard",
+            RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING, 2048, 32L * 1024L * 1024L, 1000);
+    /**
+     * Write-ahead logging with a large cache and memory map.
+     */
+    public static final StorageProfile HIGH_MEMORY = new StorageProfile("high memory",
+            RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING, 8192, 128L * 1024L * 1024L, 2000);
+    /**
+     * The memory class in megabytes below which {@link #LOW_MEMORY} is used.
+     */
+    private static final int LOW_MEMORY_CLASS = 96;
+    /**
+     * The memory class in megabytes from which {@link #HIGH_MEMORY} is used.
+     */
+    private static final int HIGH_MEMORY_CLASS = 256;
+    /**
+     * The size the write-ahead log is truncated to after a checkpoint.
+     */
+    private static final long JOURNAL_SIZE_LIMIT_BYTES = 4L * 1024L * 1024L;
+    /**
+     * Stores the classname to tag log errors.
+     */
+    private static final String TAG = StorageProfile.class.getSimpleName();
+    /**
+     * The name of the profile for logging.
+     */
+    private final String mName;
+    /**
+     * The journal mode.
+     */
+    private final RoomDatabase.JournalMode mJournalMode;
+    /**
+     * The page cache size in KiB or 0 for SQLite's default.
+     */
+    private final int mCacheSizeKiB;
+    /**
+     * The most bytes of the database file to memory map or 0 for none.
+     */
+    private final long mMmapSizeBytes;
+    /**
+     * The number of write-ahead log pages which triggers a checkpoint or 0 for SQLite's default.
+     */
+    private final int mWalAutoCheckpointPages;
+
+    /**
+     * Creates the profile.
+     *
+     * @param name                   the name of the profile for logging
+     * @param journalMode            the journal mode
+     * @param cacheSizeKiB           the page cache size in KiB or 0 for SQLite's default
+     * @param mmapSizeBytes          the most bytes of the database file to memory map or 0 for
+     *                               none
+     * @param walAutoCheckpointPages the number of write-ahead log pages which triggers a
+     *                               checkpoint or 0 for SQLite's default
+     */
+    private StorageProfile(final String name, final RoomDatabase.JournalMode journalMode,
+                           final int cacheSizeKiB, final long mmapSizeBytes,
+                           final int walAutoCheckpointPages) {
+        mName = name;
+        mJournalMode = journalMode;
+        mCacheSizeKiB = cacheSizeKiB;
+        mMmapSizeBytes = mmapSizeBytes;
+        mWalAutoCheckpointPages = walAutoCheckpointPages;
+    }
+
+    /**
+     * Chooses the profile for the device's memory class.
+     *
+     * @param context the context
+     * @return the profile
+     */
+    @NonNull
+    public static StorageProfile forDevice(@NonNull final Context context) {
+        final ActivityManager activityManager =
+                (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if (activityManager == null) {
+            return StorageProfile.LOW_MEMORY;
+        }
+
+        final int memoryClass = activityManager.getMemoryClass();
+        if ((Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT &&
+                activityManager.isLowRamDevice()) || memoryClass < LOW_MEMORY_CLASS) {
+            return StorageProfile.LOW_MEMORY;
+        } else if (memoryClass >= HIGH_MEMORY_CLASS) {
+            return StorageProfile.HIGH_MEMORY;
+        } else {
+            return StorageProfile.STANDARD;
+        }
+    }
+
+    /**
+     * Sets the journal mode of a database builder and adds a callback which sets the pragmas
+     * each time the database is opened.
+     *
+     * @param builder the database builder
+     * @param <T>     the type of the database
+     * @return the database builder
+     */
+    @NonNull
+    public <T extends RoomDatabase> RoomDatabase.Builder<T> configure(
+            @NonNull final RoomDatabase.Builder<T> builder) {
+        return builder
+                .setJournalMode(mJournalMode)
+                .addCallback(new RoomDatabase.Callback() {
+                    @Override
+                    public void onOpen(@NonNull final SupportSQLiteDatabase db) {
+                        super.onOpen(db);
+                        StorageProfile.this.applyPragmas(db);
+                    }
+                });
+    }
+
+    /**
+     * Sets the cache, memory map and checkpoint pragmas on the connection which opened the
+     * database.
+     *
+     * @param db the database
+     */
+    void applyPragmas(@NonNull final SupportSQLiteDatabase db) {
+        if (mCacheSizeKiB > 0) {
+            // A negative size is in KiB rather than pages.
+            StorageProfile.runPragma(db, "PRAGMA cache_size = -" + mCacheSizeKiB);
+        }
+
+        if (mMmapSizeBytes > 0L) {
+            // Ignored if the platform's SQLite was built without memory mapped I/O.
+            StorageProfile.runPragma(db, "PRAGMA mmap_size = " + mMmapSizeBytes);
+        }
+
+        if (mJournalMode == RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING) {
+            // NORMAL only syncs at checkpoints, which cannot corrupt the database in WAL mode.
+            StorageProfile.runPragma(db, "PRAGMA synchronous = NORMAL");
+            if (mWalAutoCheckpointPages > 0) {
+                StorageProfile.runPragma(db,
+                        "PRAGMA wal_autocheckpoint = " + mWalAutoCheckpointPages);
+            }
+            StorageProfile.runPragma(db, "PRAGMA journal_size_limit = " +
+                    JOURNAL_SIZE_LIMIT_BYTES);
+        }
+    }
+
+    /**
+     * Copies as much of the write-ahead log into the database as can be done without waiting for
+     * readers and frees the page cache memory that is not in use.  Must not be called on the main
+     * thread.
+     *
+     * @param db the database
+     */
+    public static void checkpoint(@NonNull final SupportSQLiteDatabase db) {
+        if (db.isWriteAheadLoggingEnabled()) {
+            StorageProfile.runPragma(db, "PRAGMA wal_checkpoint(PASSIVE)");
+        }
+        StorageProfile.runPragma(db, "PRAGMA shrink_memory");
+    }
+
+    // Pragmas which set a value return it as a row, which execSQL() does not allow, so they are
+    // run as queries.
+    /**
+     * Runs a pragma and discards any result.
+     *
+     * @param db  the database
+     * @param sql the pragma
+     */
+    private static void runPragma(@NonNull final SupportSQLiteDatabase db,
+                                  @NonNull final String sql) {
+        try {
+            final Cursor cursor = db.query(sql);
+            try {
+                cursor.moveToFirst();
+            } finally {
+                cursor.close();
+            }
+        } catch (Exception e) {
+            // The settings only affect speed so the database is still usable without them.
+            Log.e(TAG, "runPragma error 1");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Get the journal mode.
+     *
+     * @return the journal mode
+     */
+    @NonNull
+    public RoomDatabase.JournalMode getJournalMode() {
+        return mJournalMode;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return mName;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.transfer;
+
+import androidx.annotation.NonNull;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes read from a stream so the progress through a file can be reported.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+final class CountingInputStream extends FilterInputStream {
+    /**
+     * The number of bytes read.  Written by the reading thread only.
+     */
+    private volatile long mBytesRead;
+
+    /**
+     * Creates the stream.
+     *
+     * @param inputStream the stream to count
+     */
+    CountingInputStream(@NonNull final InputStream inputStream) {
+        super(inputStream);
+    }
+
+    /**
+     * Gets the number of bytes read.
+     *
+     * @return the number of bytes read
+     */
+    long getBytesRead() {
+        return mBytesRead;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int b = super.read();
+        if (b != -1) {
+            mBytesRead++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(@NonNull final byte[] b, final int off, final int len) throws IOException {
+        final int count = super.read(b, off, len);
+        if (count > 0) {
+            mBytesRead += count;
+        }
+        return count;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        final long count = super.skip(n);
+        mBytesRead += count;
+        return count;
+    }
+
+    // Marking is not supported so the count never goes backwards.
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+}
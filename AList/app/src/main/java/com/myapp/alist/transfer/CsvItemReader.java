@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.transfer;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.myapp.alist.db.ListEntity;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads items from a UTF-8 CSV file a row at a time.
+ * <p>
+ * The first row must be a header naming the columns.  The name, description, category and status
+ * columns are found by their names in any order and any other columns are ignored.  Fields may be
+ * quoted with <code>"</code>, in which case they may contain commas, line breaks and doubled
+ * quotes, as described in RFC 4180.  Blank lines are skipped.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+public final class CsvItemReader implements ItemReader {
+    /**
+     * The longest field allowed.  Stops a missing closing quote reading the rest of the file
+     * into memory.
+     */
+    static final int MAX_FIELD_LENGTH = 64 * 1024;
+    /**
+     * The most columns allowed in a row.
+     */
+    static final int MAX_COLUMNS = 256;
+    /**
+     * The byte order mark some editors put at the start of a UTF-8 file.
+     */
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+    /**
+     * Counts the bytes read for the progress.
+     */
+    private final CountingInputStream mCountingInputStream;
+    /**
+     * Reads the characters.
+     */
+    private final BufferedReader mBufferedReader;
+    /**
+     * The fields of the current row.  Reused for each row.
+     */
+    private final List<String> mFields = new ArrayList<>();
+    /**
+     * The characters of the current field.  Reused for each field.
+     */
+    private final StringBuilder mField = new StringBuilder();
+    /**
+     * The values key of each column or <code>null</code> for an ignored column.  Set from the
+     * header.
+     */
+    private String[] mColumnKeys;
+    /**
+     * A character read ahead and not yet used, or -2 if none.
+     */
+    private int mPeek = -2;
+    /**
+     * Determines if no character has been read yet.
+     */
+    private boolean mAtStart = true;
+
+    /**
+     * Creates the reader.
+     *
+     * @param inputStream the CSV file, closed by {@link #close()}
+     */
+    public CsvItemReader(@NonNull final InputStream inputStream) {
+        mCountingInputStream = new CountingInputStream(inputStream);
+        mBufferedReader = new BufferedReader(new InputStreamReader(mCountingInputStream,
+                Charset.forName("UTF-8")));
+    }
+
+    @Nullable
+    @Override
+    public HashMap<String, String> readItem() throws IOException {
+        if (mColumnKeys == null) {
+            readHeader();
+        }
+
+        while (readRow()) {
+            if (mFields.size() == 1 && mFields.get(0).isEmpty()) {
+                // Blank line.
+                continue;
+            }
+
+            final HashMap<String, String> values = createValues();
+            final int count = Math.min(mFields.size(), mColumnKeys.length);
+            for (int i = 0; i < count; i++) {
+                if (mColumnKeys[i] != null) {
+                    values.put(mColumnKeys[i], mFields.get(i));
+                }
+            }
+            return values;
+        }
+
+        return null;
+    }
+
+    @Override
+    public long getBytesRead() {
+        return mCountingInputStream.getBytesRead();
+    }
+
+    @Override
+    public void close() throws IOException {
+        mBufferedReader.close();
+    }
+
+    /**
+     * Creates the values for an item with every key set to "".
+     *
+     * @return the values
+     */
+    @NonNull
+    static HashMap<String, String> createValues() {
+        final HashMap<String, String> values = new HashMap<>();
+        values.put(ListEntity.NAME, "");
+        values.put(ListEntity.DESCRIPTION, "");
+        values.put(ListEntity.CATEGORY, "");
+        values.put(ListEntity.STATUS, "");
+        return values;
+    }
+
+    /**
+     * Reads the header row and finds the column of each value.
+     *
+     * @throws IOException if the file is empty or has no name column
+     */
+    private void readHeader() throws IOException {
+        if (!readRow()) {
+            throw new IOException("readHeader error 1");
+        }
+
+        boolean hasName = false;
+        mColumnKeys = new String[mFields.size()];
+        for (int i = 0; i < mColumnKeys.length; i++) {
+            final String header = mFields.get(i).trim().toLowerCase(Locale.ROOT);
+            switch (header) {
+                case ListEntity.NAME:
+                    hasName = true;
+                    // Fall through.
+                case ListEntity.DESCRIPTION:
+                case ListEntity.CATEGORY:
+                case ListEntity.STATUS:
+                    mColumnKeys[i] = header;
+                    break;
+                default:
+                    mColumnKeys[i] = null;
+                    break;
+            }
+        }
+
+        if (!hasName) {
+            throw new IOException("readHeader error 2");
+        }
+    }
+
+    /**
+     * Reads the next row into {@link #mFields}.
+     *
+     * @return <code>false</code> at the end of the file
+     * @throws IOException if the file cannot be read or a row is malformed
+     */
+    private boolean readRow() throws IOException {
+        mFields.clear();
+        mField.setLength(0);
+        boolean quoted = false;
+        boolean started = false;
+
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                if (quoted) {
+                    throw new IOException("readRow error 1");
+                }
+                if (started) {
+                    endField();
+                }
+                return started;
+            }
+
+            if (mAtStart) {
+                mAtStart = false;
+                if (c == BYTE_ORDER_MARK) {
+                    continue;
+                }
+            }
+            started = true;
+
+            if (quoted) {
+                if (c != '"') {
+                    appendField(c);
+                    continue;
+                }
+
+                c = read();
+                if (c == '"') {
+                    // A doubled quote is a quote inside the field.
+                    appendField(c);
+                    continue;
+                }
+                quoted = false;
+                if (c == -1) {
+                    endField();
+                    return true;
+                }
+            }
+
+            if (c == '"' && mField.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                endField();
+            } else if (c == '\r' || c == '\n') {
+                if (c == '\r') {
+                    final int next = read();
+                    if (next != '\n') {
+                        mPeek = next;
+                    }
+                }
+                endField();
+                return true;
+            } else {
+                appendField(c);
+            }
+        }
+    }
+
+    /**
+     * Reads the next character, using the read ahead character first.
+     *
+     * @return the character or -1 at the end of the file
+     * @throws IOException if the file cannot be read
+     */
+    private int read() throws IOException {
+        if (mPeek != -2) {
+            final int c = mPeek;
+            mPeek = -2;
+            return c;
+        }
+
+        return mBufferedReader.read();
+    }
+
+    /**
+     * Adds a character to the current field.
+     *
+     * @param c the character
+     * @throws IOException if the field is too long
+     */
+    private void appendField(final int c) throws IOException {
+        if (mField.length() >= MAX_FIELD_LENGTH) {
+            throw new IOException("appendField error 1");
+        }
+        mField.append((char) c);
+    }
+
+    /**
+     * Adds the current field to the row and starts a new field.
+     *
+     * @throws IOException if the row has too many columns
+     */
+    private void endField() throws IOException {
+        if (mFields.size() >= MAX_COLUMNS) {
+            throw new IOException("endField error 1");
+        }
+        mFields.add(mField.toString());
+        mField.setLength(0);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.transfer;
+
+import androidx.annotation.NonNull;
+
+/**
+ * The file formats items can be exported in.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+public enum ExportFormat {
+    /**
+     * A header row followed by one row per item, readable by {@link CsvItemReader}.
+     */
+    CSV("text/csv", "csv"),
+    /**
+     * An array of objects, one per item, readable by {@link JsonItemReader}.
+     */
+    JSON("application/json", "json"),
+    /**
+     * One line per item with the values separated by ", ", as shared by earlier versions.
+     */
+    TEXT("text/plain", "txt");
+
+    /**
+     * The MIME type of the file.
+     */
+    private final String mMimeType;
+    /**
+     * The file name extension without the ".".
+     */
+    private final String mExtension;
+
+    /**
+     * Creates the format.
+     *
+     * @param mimeType  the MIME type of the file
+     * @param extension the file name extension without the "."
+     */
+    ExportFormat(final String mimeType, final String extension) {
+        mMimeType = mimeType;
+        mExtension = extension;
+    }
+
+    /**
+     * Get the MIME type of the file.
+     */
+    @NonNull
+    public String getMimeType() {
+        return mMimeType;
+    }
+
+    /**
+     * Get the file name extension without the ".".
+     */
+    @NonNull
+    public String getExtension() {
+        return mExtension;
+    }
+}
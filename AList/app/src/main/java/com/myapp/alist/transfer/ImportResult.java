@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.transfer;
+
+import androidx.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The progress or the outcome of an import.  Immutable.
+ * <p>
+ * Only counts are kept, and a few of the duplicate names, so the result stays the same size
+ * however big the file is.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+public final class ImportResult {
+    /**
+     * The import is still running.
+     */
+    public static final int STATE_RUNNING = 0;
+    /**
+     * The whole file was imported.
+     */
+    public static final int STATE_FINISHED = 1;
+    /**
+     * The import was cancelled.  The rows already written are kept.
+     */
+    public static final int STATE_CANCELLED = 2;
+    /**
+     * The file could not be read.  The rows already written are kept.
+     */
+    public static final int STATE_FAILED = 3;
+    /**
+     * One of the <code>STATE_</code> constants.
+     */
+    private final int mState;
+    /**
+     * The number of rows read from the file.
+     */
+    private final int mRowCount;
+    /**
+     * The number of rows inserted.
+     */
+    private final int mInsertedCount;
+    /**
+     * The number of rows skipped because the name was already used.
+     */
+    private final int mDuplicateCount;
+    /**
+     * The number of rows skipped because they failed validation.
+     */
+    private final int mInvalidCount;
+    /**
+     * The first few names which were already used.
+     */
+    private final List<String> mDuplicateNames;
+    /**
+     * The number of bytes of the file read.
+     */
+    private final long mBytesRead;
+    /**
+     * The size of the file in bytes or -1 if unknown.
+     */
+    private final long mTotalBytes;
+
+    /**
+     * Creates the result.
+     *
+     * @param state          one of the <code>STATE_</code> constants
+     * @param rowCount       the number of rows read from the file
+     * @param insertedCount  the number of rows inserted
+     * @param duplicateCount the number of rows skipped because the name was already used
+     * @param invalidCount   the number of rows skipped because they failed validation
+     * @param duplicateNames the first few names which were already used, not copied
+     * @param bytesRead      the number of bytes of the file read
+     * @param totalBytes     the size of the file in bytes or -1 if unknown
+     */
+    ImportResult(final int state, final int rowCount, final int insertedCount,
+                 final int duplicateCount, final int invalidCount,
+                 @NonNull final List<String> duplicateNames, final long bytesRead,
+                 final long totalBytes) {
+        mState = state;
+        mRowCount = rowCount;
+        mInsertedCount = insertedCount;
+        mDuplicateCount = duplicateCount;
+        mInvalidCount = invalidCount;
+        mDuplicateNames = Collections.unmodifiableList(duplicateNames);
+        mBytesRead = bytesRead;
+        mTotalBytes = totalBytes;
+    }
+
+    /**
+     * Get the state of the import.
+     *
+     * @return one of the <code>STATE_</code> constants
+     */
+    public int getState() {
+        return mState;
+    }
+
+    /**
+     * Get the number of rows read from the file so far.
+     */
+    public int getRowCount() {
+        return mRowCount;
+    }
+
+    /**
+     * Get the number of rows inserted so far.
+     */
+    public int getInsertedCount() {
+        return mInsertedCount;
+    }
+
+    /**
+     * Get the number of rows skipped so far because the name was already used.
+     */
+    public int getDuplicateCount() {
+        return mDuplicateCount;
+    }
+
+    /**
+     * Get the number of rows skipped so far because they failed validation.
+     */
+    public int getInvalidCount() {
+        return mInvalidCount;
+    }
+
+    /**
+     * Get the first {@link ItemImporter#MAX_DUPLICATE_NAMES} names which were already used.
+     */
+    @NonNull
+    public List<String> getDuplicateNames() {
+        return mDuplicateNames;
+    }
+
+    /**
+     * Get the percentage of the file read so far.
+     *
+     * @return the percentage or -1 if the size of the file is unknown
+     */
+    public int getPercent() {
+        if (mTotalBytes <= 0L) {
+            return -1;
+        }
+
+        return (int) Math.min(100L, mBytesRead * 100L / mTotalBytes);
+    }
+}
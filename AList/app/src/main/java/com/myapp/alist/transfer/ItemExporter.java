@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.transfer;
+
+import android.database.Cursor;
+import android.os.CancellationSignal;
+import android.util.JsonWriter;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.myapp.alist.db.LabelDictionary;
+import com.myapp.alist.db.ListEntity;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * Exports items to a file straight from a database cursor.
+ * <p>
+ * Each row is written as it is read through a fixed-size buffer, so neither the items nor the
+ * file are ever held in memory as a whole however many items there are.  Sharing the file rather
+ * than the text also avoids the Binder transaction size limit on large lists.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+public final class ItemExporter {
+    /**
+     * The size of the write buffer in characters.
+     */
+    static final int BUFFER_SIZE = 8 * 1024;
+    /**
+     * How many rows are written between checks for cancellation.
+     */
+    private static final int CANCELLATION_CHECK_INTERVAL = 256;
+
+    // Limit constructor to no access.
+    private ItemExporter() {
+    }
+
+    /**
+     * Writes every row of a cursor to a stream.  Must not be called on the main thread.  Neither
+     * the cursor nor the stream is closed.
+     *
+     * @param cursor             the rows, which must contain all of the list table columns with
+     *                           the category and status ids
+     * @param outputStream       the file
+     * @param exportFormat       the format of the file
+     * @param cancellationSignal cancels the export or <code>null</code>
+     * @return the number of rows written
+     * @throws IOException if the file cannot be written
+     * @throws android.os.OperationCanceledException if cancelled
+     */
+    public static int export(@NonNull final Cursor cursor,
+                             @NonNull final OutputStream outputStream,
+                             @NonNull final ExportFormat exportFormat,
+                             @Nullable final CancellationSignal cancellationSignal)
+            throws IOException {
+        final int nameIndex = cursor.getColumnIndexOrThrow(ListEntity.NAME);
+        final int descriptionIndex = cursor.getColumnIndexOrThrow(ListEntity.DESCRIPTION);
+        final int categoryIndex = cursor.getColumnIndexOrThrow(ListEntity.CATEGORY);
+        final int statusIndex = cursor.getColumnIndexOrThrow(ListEntity.STATUS);
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream,
+                Charset.forName("UTF-8")), BUFFER_SIZE);
+        final JsonWriter jsonWriter = exportFormat == ExportFormat.JSON ?
+                new JsonWriter(writer) : null;
+        int count = 0;
+
+        if (jsonWriter != null) {
+            jsonWriter.beginArray();
+        } else if (exportFormat == ExportFormat.CSV) {
+            writer.write(ListEntity.NAME + "," + ListEntity.DESCRIPTION + "," +
+                    ListEntity.CATEGORY + "," + ListEntity.STATUS + "\r\n");
+        }
+
+        while (cursor.moveToNext()) {
+            if (cancellationSignal != null && count % CANCELLATION_CHECK_INTERVAL == 0) {
+                cancellationSignal.throwIfCanceled();
+            }
+
+            final String name = cursor.getString(nameIndex);
+            final String description = cursor.getString(descriptionIndex);
+            final String category =
+                    LabelDictionary.categories().getLabel(cursor.getLong(categoryIndex));
+            final String status = LabelDictionary.statuses().getLabel(cursor.getLong(statusIndex));
+            switch (exportFormat) {
+                case CSV:
+                    writeCsvField(writer, name);
+                    writer.write(',');
+                    writeCsvField(writer, description);
+                    writer.write(',');
+                    writeCsvField(writer, category);
+                    writer.write(',');
+                    writeCsvField(writer, status);
+                    writer.write("\r\n");
+                    break;
+                case JSON:
+                    jsonWriter.beginObject();
+                    jsonWriter.name(ListEntity.NAME).value(name);
+                    jsonWriter.name(ListEntity.DESCRIPTION).value(description);
+                    jsonWriter.name(ListEntity.CATEGORY).value(category);
+                    jsonWriter.name(ListEntity.STATUS).value(status);
+                    jsonWriter.endObject();
+                    break;
+                case TEXT:
+                    writeTextLine(writer, name, description, category, status);
+                    break;
+                default:
+                    throw new RuntimeException("export error 1");
+            }
+            count++;
+        }
+
+        if (jsonWriter != null) {
+            jsonWriter.endArray();
+            jsonWriter.flush();
+        } else {
+            writer.flush();
+        }
+
+        return count;
+    }
+
+    /**
+     * Reads every row of a cursor into the same text as {@link ExportFormat#TEXT}, giving up as
+     * soon as the text is longer than a limit so a large list never builds a large string.  Must
+     * not be called on the main thread.  The cursor is not closed.
+     *
+     * @param cursor    the rows, which must contain all of the list table columns with the
+     *                  category and status ids
+     * @param maxLength the most characters of text
+     * @return the text or <code>null</code> if it would be longer than <code>maxLength</code>
+     */
+    @Nullable
+    public static String exportText(@NonNull final Cursor cursor, final int maxLength) {
+        final int nameIndex = cursor.getColumnIndexOrThrow(ListEntity.NAME);
+        final int descriptionIndex = cursor.getColumnIndexOrThrow(ListEntity.DESCRIPTION);
+        final int categoryIndex = cursor.getColumnIndexOrThrow(ListEntity.CATEGORY);
+        final int statusIndex = cursor.getColumnIndexOrThrow(ListEntity.STATUS);
+        final StringWriter stringWriter = new StringWriter();
+
+        try {
+            while (cursor.moveToNext()) {
+                writeTextLine(stringWriter, cursor.getString(nameIndex),
+                        cursor.getString(descriptionIndex),
+                        LabelDictionary.categories().getLabel(cursor.getLong(categoryIndex)),
+                        LabelDictionary.statuses().getLabel(cursor.getLong(statusIndex)));
+                if (stringWriter.getBuffer().length() > maxLength) {
+                    return null;
+                }
+            }
+        } catch (IOException e) {
+            // A StringWriter does not throw.
+            throw new RuntimeException("exportText error 1");
+        }
+
+        return stringWriter.toString();
+    }
+
+    /**
+     * Writes one item as a line of text with the values separated by ", ".
+     *
+     * @param writer      the text
+     * @param name        the name
+     * @param description the description
+     * @param category    the category
+     * @param status      the status
+     * @throws IOException if the text cannot be written
+     */
+    static void writeTextLine(@NonNull final Writer writer, final String name,
+                              final String description, final String category,
+                              final String status) throws IOException {
+        writer.write(String.valueOf(name));
+        writer.write(", ");
+        writer.write(String.valueOf(description));
+        writer.write(", ");
+        writer.write(String.valueOf(category));
+        writer.write(", ");
+        writer.write(String.valueOf(status));
+        writer.write('\n');
+    }
+
+    /**
+     * Writes a CSV field, quoting it if it contains a comma, a quote, a line break or leading or
+     * trailing spaces.
+     *
+     * @param writer the file
+     * @param field  the field
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeCsvField(@NonNull final Writer writer, @Nullable final String field)
+            throws IOException {
+        if (field == null || field.isEmpty()) {
+            return;
+        }
+
+        boolean quote = field.charAt(0) == ' ' || field.charAt(field.length() - 1) == ' ';
+        for (int i = 0; !quote && i < field.length(); i++) {
+            final char c = field.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+
+        if (quote) {
+            writer.write('"');
+            writer.write(field.replace("\"", "\"\""));
+            writer.write('"');
+        } else {
+            writer.write(field);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.transfer;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.CancellationSignal;
+import android.provider.OpenableColumns;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.myapp.alist.datarepository.DataRepository;
+import com.myapp.alist.datarepository.InsertResult;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Imports items from a CSV or JSON file into the list table.
+ * <p>
+ * The file is read a row at a time by an {@link ItemReader} and every
+ * {@link DataRepository#BATCH_CHUNK_SIZE} rows are written in one transaction, so memory use does
+ * not grow with the size of the file.  Rows are validated with the same rules as the Insert menu
+ * option and rows with a name which is already used are skipped.  Progress is reported after each
+ * chunk and the import can be cancelled between chunks.  The chunks already written are kept when
+ * the import is cancelled or the file turns out to be malformed.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+public final class ItemImporter {
+    /**
+     * The most duplicate names kept to report.
+     */
+    public static final int MAX_DUPLICATE_NAMES = 20;
+    /**
+     * Stores the classname to tag log errors.
+     */
+    private static final String TAG = ItemImporter.class.getSimpleName();
+    /**
+     * Writes each chunk.
+     */
+    private final BatchWriter mBatchWriter;
+
+    /**
+     * Writes a chunk of rows in one transaction, e.g. {@link DataRepository#insertItems(List)}.
+     */
+    public interface BatchWriter {
+        /**
+         * Inserts the rows.
+         *
+         * @param valuesList the values of each row
+         * @return the outcome for each row in the same order
+         */
+        @NonNull
+        List<InsertResult> insertItems(@NonNull List<HashMap<String, String>> valuesList);
+    }
+
+    /**
+     * Receives the progress of an import on the importing thread.
+     */
+    public interface ProgressListener {
+        /**
+         * Called after each chunk is written.
+         *
+         * @param importResult the progress so far
+         */
+        void onProgress(@NonNull ImportResult importResult);
+    }
+
+    /**
+     * Creates the importer.
+     *
+     * @param batchWriter writes each chunk
+     */
+    public ItemImporter(@NonNull final BatchWriter batchWriter) {
+        mBatchWriter = batchWriter;
+    }
+
+    /**
+     * Opens a file for importing.  JSON files are recognised by their type or a
+     * <code>.json</code> name and every other file is read as CSV.
+     *
+     * @param contentResolver resolves the URI
+     * @param uri             the file chosen by the user
+     * @return the reader, which must be closed
+     * @throws FileNotFoundException if the file cannot be opened
+     */
+    @NonNull
+    public static ItemReader openReader(@NonNull final ContentResolver contentResolver,
+                                        @NonNull final Uri uri) throws FileNotFoundException {
+        final InputStream inputStream = contentResolver.openInputStream(uri);
+        if (inputStream == null) {
+            throw new FileNotFoundException("openReader error 1");
+        }
+
+        final String type = contentResolver.getType(uri);
+        final String path = uri.getLastPathSegment();
+        if ((type != null && type.toLowerCase(Locale.ROOT).contains("json")) ||
+                (path != null && path.toLowerCase(Locale.ROOT).endsWith(".json"))) {
+            return new JsonItemReader(inputStream);
+        }
+
+        return new CsvItemReader(inputStream);
+    }
+
+    /**
+     * Gets the size of a file for the progress.
+     *
+     * @param contentResolver resolves the URI
+     * @param uri             the file chosen by the user
+     * @return the size in bytes or -1 if unknown
+     */
+    public static long getSize(@NonNull final ContentResolver contentResolver,
+                               @NonNull final Uri uri) {
+        final Cursor cursor = contentResolver.query(uri, new String[]{OpenableColumns.SIZE},
+                null, null, null);
+        if (cursor == null) {
+            return -1L;
+        }
+
+        try {
+            return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) : -1L;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Creates the outcome of an import whose file could not be opened.
+     *
+     * @return the outcome
+     */
+    @NonNull
+    public static ImportResult createFailedResult() {
+        return new ImportResult(ImportResult.STATE_FAILED, 0, 0, 0, 0, new ArrayList<String>(),
+                0L, -1L);
+    }
+
+    /**
+     * Imports every row of a file.  Must not be called on the main thread.  The reader is not
+     * closed.
+     *
+     * @param itemReader         reads the rows
+     * @param totalBytes         the size of the file in bytes or -1 if unknown
+     * @param cancellationSignal cancels the import between chunks
+     * @param progressListener   receives the progress or <code>null</code>
+     * @return the outcome
+     */
+    @NonNull
+    public ImportResult importItems(@NonNull final ItemReader itemReader, final long totalBytes,
+                                    @NonNull final CancellationSignal cancellationSignal,
+                                    @Nullable final ProgressListener progressListener) {
+        final List<HashMap<String, String>> valuesList =
+                new ArrayList<>(DataRepository.BATCH_CHUNK_SIZE);
+        final List<String> duplicateNames = new ArrayList<>();
+        int rowCount = 0;
+        int insertedCount = 0;
+        int duplicateCount = 0;
+        int invalidCount = 0;
+        int state = ImportResult.STATE_RUNNING;
+
+        try {
+            boolean more = true;
+            while (more) {
+                if (cancellationSignal.isCanceled()) {
+                    state = ImportResult.STATE_CANCELLED;
+                    break;
+                }
+
+                while (valuesList.size() < DataRepository.BATCH_CHUNK_SIZE) {
+                    final HashMap<String, String> values = itemReader.readItem();
+                    if (values == null) {
+                        more = false;
+                        break;
+                    }
+                    valuesList.add(values);
+                }
+
+                if (!valuesList.isEmpty()) {
+                    rowCount += valuesList.size();
+                    final List<InsertResult> insertResults = mBatchWriter.insertItems(valuesList);
+                    for (final InsertResult insertResult : insertResults) {
+                        switch (insertResult.getStatus()) {
+                            case InsertResult.STATUS_INSERTED:
+                                insertedCount++;
+                                break;
+                            case InsertResult.STATUS_DUPLICATE_NAME:
+                                duplicateCount++;
+                                if (duplicateNames.size() < MAX_DUPLICATE_NAMES) {
+                                    duplicateNames.add(insertResult.getName());
+                                }
+                                break;
+                            default:
+                                invalidCount++;
+                                break;
+                        }
+                    }
+                    valuesList.clear();
+                }
+
+                if (more && progressListener != null) {
+                    progressListener.onProgress(new ImportResult(ImportResult.STATE_RUNNING,
+                            rowCount, insertedCount, duplicateCount, invalidCount,
+                            new ArrayList<>(duplicateNames), itemReader.getBytesRead(),
+                            totalBytes));
+                }
+            }
+
+            if (state == ImportResult.STATE_RUNNING) {
+                state = ImportResult.STATE_FINISHED;
+            }
+        } catch (IOException | IllegalStateException e) {
+            // JsonReader throws IllegalStateException if the file is not an array of objects.
+            Log.e(TAG, "importItems error 1");
+            e.printStackTrace();
+            state = ImportResult.STATE_FAILED;
+        }
+
+        return new ImportResult(state, rowCount, insertedCount, duplicateCount, invalidCount,
+                duplicateNames, itemReader.getBytesRead(), totalBytes);
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.transfer;
+
+import androidx.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+
+/**
+ * Reads items one at a time from a stream so the whole file is never held in memory.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+public interface ItemReader extends Closeable {
+    /**
+     * Reads the next item.  The values always contain the name, description, category and status
+     * keys, set to "" if the file does not have them, ready for
+     * {@link com.myapp.alist.db.ListEntity#verifyValues(HashMap)}.
+     *
+     * @return the item's values or <code>null</code> at the end of the file
+     * @throws IOException if the file cannot be read or is not in the expected format
+     */
+    @Nullable
+    HashMap<String, String> readItem() throws IOException;
+
+    /**
+     * Gets how much of the file has been read so far.
+     *
+     * @return the number of bytes read
+     */
+    long getBytesRead();
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.transfer;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.myapp.alist.db.ListEntity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+
+/**
+ * Reads items from a UTF-8 JSON file a row at a time.
+ * <p>
+ * The file must be an array of objects, one for each item, e.g.
+ * <code>[{"name": "Milk", "description": "", "category": "Shopping", "status": "Current"}]</code>.
+ * Any other properties are ignored.  The file is parsed with a streaming
+ * <code>JsonReader</code> so only one item is held in memory at a time.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+public final class JsonItemReader implements ItemReader {
+    /**
+     * Counts the bytes read for the progress.
+     */
+    private final CountingInputStream mCountingInputStream;
+    /**
+     * Parses the file.
+     */
+    private final JsonReader mJsonReader;
+    /**
+     * Determines if the start of the array has been read.
+     */
+    private boolean mStarted;
+
+    /**
+     * Creates the reader.
+     *
+     * @param inputStream the JSON file, closed by {@link #close()}
+     */
+    public JsonItemReader(@NonNull final InputStream inputStream) {
+        mCountingInputStream = new CountingInputStream(inputStream);
+        mJsonReader = new JsonReader(new InputStreamReader(mCountingInputStream,
+                Charset.forName("UTF-8")));
+    }
+
+    @Nullable
+    @Override
+    public HashMap<String, String> readItem() throws IOException {
+        if (!mStarted) {
+            mStarted = true;
+            mJsonReader.beginArray();
+        }
+
+        if (!mJsonReader.hasNext()) {
+            mJsonReader.endArray();
+            return null;
+        }
+
+        final HashMap<String, String> values = CsvItemReader.createValues();
+        mJsonReader.beginObject();
+        while (mJsonReader.hasNext()) {
+            final String key = mJsonReader.nextName();
+            switch (key) {
+                case ListEntity.NAME:
+                case ListEntity.DESCRIPTION:
+                case ListEntity.CATEGORY:
+                case ListEntity.STATUS:
+                    final JsonToken jsonToken = mJsonReader.peek();
+                    if (jsonToken == JsonToken.STRING || jsonToken == JsonToken.NUMBER) {
+                        values.put(key, mJsonReader.nextString());
+                    } else {
+                        // Left as "" so the item fails validation if the value is required.
+                        mJsonReader.skipValue();
+                    }
+                    break;
+                default:
+                    mJsonReader.skipValue();
+                    break;
+            }
+        }
+        mJsonReader.endObject();
+
+        return values;
+    }
+
+    @Override
+    public long getBytesRead() {
+        return mCountingInputStream.getBytesRead();
+    }
+
+    @Override
+    public void close() throws IOException {
+        mJsonReader.close();
+    }
+}
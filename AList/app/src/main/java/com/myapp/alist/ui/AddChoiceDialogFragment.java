@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.ui;
+
+import android.app.Dialog;
+import android.content.DialogInterface;
+import android.os.Bundle;
+import android.text.InputType;
+import android.util.Log;
+import android.widget.EditText;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
+import androidx.fragment.app.DialogFragment;
+
+import com.myapp.alist.R;
+import com.myapp.alist.db.ListEntity;
+
+/**
+ * Creates a dialog to input a new category or status.
+ * <p>
+ * When the OK button is selected,
+ * {@link MainActivity#doAddChoiceOKPositiveClick(String, String)} is called with the inputted
+ * choice.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+// Must be public.
+public final class AddChoiceDialogFragment extends DialogFragment {
+    /**
+     * Key for the column argument.
+     */
+    private static final String COLUMN = "column";
+    /**
+     * Key for the inputted choice saved when the dialog is re-created.
+     */
+    private static final String LABEL = "label";
+    /**
+     * Class tag used for <code>RuntimeException</code> thrown when the
+     * <code>AddChoiceDialogFragment</code> has an illegal argument.
+     */
+    private final String TAG = this.getClass().getSimpleName();
+    /**
+     * The input box for the new choice.
+     */
+    private EditText mLabelEditText;
+
+    /**
+     * Creates a new <code>AddChoiceDialogFragment</code>.  Causes
+     * {@link #onCreateDialog(Bundle)} to be called.
+     *
+     * @param column {@link ListEntity#CATEGORY} or {@link ListEntity#STATUS}
+     * @return the <code>AddChoiceDialogFragment</code> created with the column set as an argument
+     */
+    static AddChoiceDialogFragment newInstance(@NonNull final String column) {
+        AddChoiceDialogFragment addChoiceDialogFragment = new AddChoiceDialogFragment();
+        // Disable back button.  Must be set on DialogFragment and not AlertDialog.Builder.
+        addChoiceDialogFragment.setCancelable(false);
+        final Bundle args = new Bundle();
+        args.putString(AddChoiceDialogFragment.COLUMN, column);
+        addChoiceDialogFragment.setArguments(args);
+
+        return addChoiceDialogFragment;
+    }
+
+    /**
+     * Uses <code>AlertDialog.Builder</code> to build a dialog with an input box for the new
+     * category or status.
+     *
+     * @param savedInstanceState the bundle containing the inputted choice
+     * @return the created dialog
+     */
+    @NonNull
+    @Override
+    public Dialog onCreateDialog(Bundle savedInstanceState) {
+        final Bundle args = AddChoiceDialogFragment.this.getArguments();
+        final MainActivity mainActivity = (MainActivity) this.getActivity();
+        if (args == null || mainActivity == null) {
+            return super.onCreateDialog(savedInstanceState);
+        }
+
+        final String column = args.getString(AddChoiceDialogFragment.COLUMN);
+        final int title;
+        if (ListEntity.CATEGORY.equals(column)) {
+            title = R.string.add_category;
+        } else if (ListEntity.STATUS.equals(column)) {
+            title = R.string.add_status;
+        } else {
+            Log.e(this.TAG, "onCreateDialog error 1");
+            throw new RuntimeException();
+        }
+
+        this.mLabelEditText = new EditText(mainActivity);
+        this.mLabelEditText.setInputType(InputType.TYPE_CLASS_TEXT |
+                InputType.TYPE_TEXT_FLAG_CAP_WORDS);
+        this.mLabelEditText.setSingleLine(true);
+        if (savedInstanceState != null) {
+            this.mLabelEditText.setText(
+                    savedInstanceState.getString(AddChoiceDialogFragment.LABEL));
+        }
+
+        // The choice is checked when it is added because the catalog may change before then.
+        //noinspection Convert2Lambda
+        return new AlertDialog.Builder(mainActivity)
+                .setTitle(title)
+                .setView(this.mLabelEditText)
+                .setPositiveButton(R.string.ok,
+                        new DialogInterface.OnClickListener() {
+                            public void onClick(DialogInterface dialog, int whichButton) {
+                                mainActivity.doAddChoiceOKPositiveClick(column,
+                                        AddChoiceDialogFragment.this.mLabelEditText.getText()
+                                                .toString().trim());
+                            }
+                        }
+                )
+                .setNegativeButton(R.string.cancel,
+                        new DialogInterface.OnClickListener() {
+                            public void onClick(DialogInterface dialog, int whichButton) {
+                                mainActivity.doAddChoiceCancelNegativeClick();
+                            }
+                        }
+                )
+                .create();
+    }
+
+    @Override
+    public void onSaveInstanceState(@NonNull final Bundle outState) {
+        super.onSaveInstanceState(outState);
+        if (this.mLabelEditText != null) {
+            outState.putString(AddChoiceDialogFragment.LABEL,
+                    this.mLabelEditText.getText().toString());
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.ui;
+
+import android.app.Dialog;
+import android.content.DialogInterface;
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
+import androidx.fragment.app.DialogFragment;
+
+import com.myapp.alist.R;
+import com.myapp.alist.db.LabelDictionary;
+import com.myapp.alist.db.ListEntity;
+
+/**
+ * Creates a dialog to choose the new category or status of every row in the current selection.
+ * <p>
+ * When the OK button is selected,
+ * {@link MainActivity#doBulkUpdateOKPositiveClick(String, String)} is called with the chosen
+ * value.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+// Must be public.
+public final class BulkUpdateDialogFragment extends DialogFragment {
+    /**
+     * Key for the column argument.
+     */
+    private static final String COLUMN = "column";
+    /**
+     * Key for the chosen value saved when the dialog is re-created.
+     */
+    private static final String CHECKED_ITEM = "checkedItem";
+    /**
+     * Class tag used for <code>RuntimeException</code> thrown when the
+     * <code>BulkUpdateDialogFragment</code> has an illegal argument.
+     */
+    private final String TAG = this.getClass().getSimpleName();
+    /**
+     * The index of the chosen value.
+     */
+    private int mCheckedItem;
+
+    /**
+     * Creates a new <code>BulkUpdateDialogFragment</code>.  Causes
+     * {@link #onCreateDialog(Bundle)} to be called.
+     *
+     * @param column {@link ListEntity#CATEGORY} or {@link ListEntity#STATUS}
+     * @return the <code>BulkUpdateDialogFragment</code> created with the column set as an argument
+     */
+    static BulkUpdateDialogFragment newInstance(@NonNull final String column) {
+        BulkUpdateDialogFragment bulkUpdateDialogFragment = new BulkUpdateDialogFragment();
+        // Disable back button.  Must be set on DialogFragment and not AlertDialog.Builder.
+        bulkUpdateDialogFragment.setCancelable(false);
+        final Bundle args = new Bundle();
+        args.putString(BulkUpdateDialogFragment.COLUMN, column);
+        bulkUpdateDialogFragment.setArguments(args);
+
+        return bulkUpdateDialogFragment;
+    }
+
+    /**
+     * Uses <code>AlertDialog.Builder</code> to build a dialog listing the categories or statuses
+     * apart from "All".
+     *
+     * @param savedInstanceState the bundle containing the chosen value
+     * @return the created dialog
+     */
+    @NonNull
+    @Override
+    public Dialog onCreateDialog(Bundle savedInstanceState) {
+        final Bundle args = BulkUpdateDialogFragment.this.getArguments();
+        final MainActivity mainActivity = (MainActivity) this.getActivity();
+        if (args == null || mainActivity == null) {
+            return super.onCreateDialog(savedInstanceState);
+        }
+
+        final String column = args.getString(BulkUpdateDialogFragment.COLUMN);
+        final int title;
+        if (ListEntity.CATEGORY.equals(column)) {
+            title = R.string.set_category;
+        } else if (ListEntity.STATUS.equals(column)) {
+            title = R.string.set_status;
+        } else {
+            Log.e(this.TAG, "onCreateDialog error 1");
+            throw new RuntimeException();
+        }
+
+        // "All" is only used for selecting so is not in the dictionary.
+        final String[] items = LabelDictionary.forColumn(column).getLabels().toArray(new String[0]);
+        if (savedInstanceState != null) {
+            this.mCheckedItem = savedInstanceState.getInt(BulkUpdateDialogFragment.CHECKED_ITEM);
+        }
+
+        //noinspection Convert2Lambda
+        return new AlertDialog.Builder(mainActivity)
+                .setTitle(title)
+                .setSingleChoiceItems(items, this.mCheckedItem,
+                        new DialogInterface.OnClickListener() {
+                            public void onClick(DialogInterface dialog, int which) {
+                                BulkUpdateDialogFragment.this.mCheckedItem = which;
+                            }
+                        }
+                )
+                .setPositiveButton(R.string.ok,
+                        new DialogInterface.OnClickListener() {
+                            public void onClick(DialogInterface dialog, int whichButton) {
+                                mainActivity.doBulkUpdateOKPositiveClick(column,
+                                        items[BulkUpdateDialogFragment.this.mCheckedItem]);
+                            }
+                        }
+                )
+                .setNegativeButton(R.string.cancel,
+                        new DialogInterface.OnClickListener() {
+                            public void onClick(DialogInterface dialog, int whichButton) {
+                                mainActivity.doBulkUpdateCancelNegativeClick();
+                            }
+                        }
+                )
+                .create();
+    }
+
+    @Override
+    public void onSaveInstanceState(@NonNull final Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putInt(BulkUpdateDialogFragment.CHECKED_ITEM, this.mCheckedItem);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.ui;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ArrayAdapter;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.myapp.alist.R;
+import com.myapp.alist.datarepository.FacetCounts;
+import com.myapp.alist.db.Catalog;
+
+import java.util.ArrayList;
+
+/**
+ * A category or status spinner adapter which shows the number of items each choice would select,
+ * e.g. "Shopping (12)".  The first choice is "All" and the others are from the {@link Catalog}.
+ * The items themselves are unchanged so <code>getSelectedItem()</code> still gives the plain
+ * choice.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+final class FacetSpinnerAdapter extends ArrayAdapter<CharSequence> {
+    /**
+     * <code>true</code> for the category choices or <code>false</code> for the status choices.
+     */
+    private final boolean mIsCategory;
+    /**
+     * The counts or <code>null</code> until they are known.
+     */
+    private FacetCounts mFacetCounts;
+    /**
+     * The choice of the other spinner or <code>null</code> for All.
+     */
+    private String mOtherValue;
+
+    /**
+     * Creates the adapter from the current {@link Catalog}.
+     *
+     * @param context    the context
+     * @param isCategory <code>true</code> for the category choices or <code>false</code> for the
+     *                   status choices
+     */
+    FacetSpinnerAdapter(@NonNull final Context context, final boolean isCategory) {
+        // The list must be modifiable so the choices can be replaced.
+        super(context, android.R.layout.simple_spinner_item, new ArrayList<CharSequence>());
+        this.mIsCategory = isCategory;
+        this.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        this.setCatalog(Catalog.get());
+    }
+
+    /**
+     * Replaces the choices with those of a catalog.  The positions of the choices which are
+     * kept do not change unless a choice before them was deleted.
+     *
+     * @param catalog the catalog
+     */
+    void setCatalog(@NonNull final Catalog catalog) {
+        this.setNotifyOnChange(false);
+        this.clear();
+        this.add(catalog.getAllLabel());
+        this.addAll(this.mIsCategory ? catalog.getCategories().getLabels() :
+                catalog.getStatuses().getLabels());
+        this.notifyDataSetChanged();
+    }
+
+    /**
+     * Sets the counts to show.  A category's count depends on the chosen status and a status's
+     * count on the chosen category.
+     *
+     * @param facetCounts the counts or <code>null</code> to show the choices only
+     * @param otherValue  the choice of the other spinner or <code>null</code> for All
+     */
+    void setFacetCounts(@Nullable final FacetCounts facetCounts,
+                        @Nullable final String otherValue) {
+        this.mFacetCounts = facetCounts;
+        this.mOtherValue = otherValue;
+        this.notifyDataSetChanged();
+    }
+
+    @NonNull
+    @Override
+    public View getView(final int position, @Nullable final View convertView,
+                        @NonNull final ViewGroup parent) {
+        return this.setCountText(position, super.getView(position, convertView, parent));
+    }
+
+    @Override
+    public View getDropDownView(final int position, @Nullable final View convertView,
+                                @NonNull final ViewGroup parent) {
+        return this.setCountText(position,
+                super.getDropDownView(position, convertView, parent));
+    }
+
+    /**
+     * Adds the count to a choice's text.
+     *
+     * @param position the position of the choice
+     * @param view     the choice's view which is a <code>TextView</code>
+     * @return the view
+     */
+    private View setCountText(final int position, final View view) {
+        final CharSequence item = this.getItem(position);
+        if (this.mFacetCounts != null && item != null && view instanceof TextView) {
+            // Position 0 is All.
+            final String value = position == 0 ? null : item.toString();
+            final int count = this.mIsCategory ?
+                    this.mFacetCounts.getCount(value, this.mOtherValue) :
+                    this.mFacetCounts.getCount(this.mOtherValue, value);
+            ((TextView) view).setText(this.getContext().getString(R.string.facet_choice, item,
+                    count));
+        }
+
+        return view;
+    }
+}
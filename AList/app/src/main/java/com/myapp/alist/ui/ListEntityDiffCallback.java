@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2023 Colin Walters.  All rights reserved.
+ */
+
+package com.myapp.alist.ui;
+
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.myapp.alist.db.ListEntity;
+
+/**
+ * Compares two lists of {@link ListEntity} so the list only changes the rows which differ.  Rows
+ * are the same item if they have the same id.
+ *
+ * @author Colin Walters
+ * @version 1.0, 17/04/2023
+ * @since 1.0
+ */
+final class ListEntityDiffCallback extends DiffUtil.ItemCallback<ListEntity> {
+    /**
+     * Determines if two rows are the same item.
+     *
+     * @param oldItem the row in the old list
+     * @param newItem the row in the new list
+     * @return <code>true</code> if the rows have the same id
+     */
+    @Override
+    public boolean areItemsTheSame(@NonNull final ListEntity oldItem,
+                                   @NonNull final ListEntity newItem) {
+        return oldItem.getId() == newItem.getId();
+    }
+
+    /**
+     * Determines if the same item is displayed the same.  Only called if
+     * {@link #areItemsTheSame(ListEntity, ListEntity)} is <code>true</code>.
+     *
+     * @param oldItem the row in the old list
+     * @param newItem the row in the new list
+     * @return <code>true</code> if every displayed column is equal
+     */
+    @Override
+    public boolean areContentsTheSame(@NonNull final ListEntity oldItem,
+                                      @NonNull final ListEntity newItem) {
+        return TextUtils.equals(oldItem.getName(), newItem.getName()) &&
+                TextUtils.equals(oldItem.getDescription(), newItem.getDescription()) &&
+                oldItem.getCategoryId() == newItem.getCategoryId() &&
+                oldItem.getStatusId() == newItem.getStatusId();
+    }
+}
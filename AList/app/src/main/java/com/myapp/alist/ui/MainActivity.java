@@ -5,7 +5,9 @@
 package com.myapp.alist.ui;
 
 import android.annotation.SuppressLint;
+import android.content.ClipData;
 import android.content.Intent;
+import android.net.Uri;
 import android.media.AudioManager;
 import android.os.Build;
 import android.os.Bundle;
@@ -29,12 +31,20 @@ import android.window.OnBackInvokedCallback;
 import android.window.OnBackInvokedDispatcher;
 
 import androidx.activity.OnBackPressedCallback;
+import androidx.activity.result.ActivityResultCallback;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
+import androidx.core.content.FileProvider;
 import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.paging.CombinedLoadStates;
+import androidx.paging.LoadState;
+import androidx.paging.PagingData;
+import androidx.paging.PagingDataAdapter;
 import androidx.recyclerview.widget.DividerItemDecoration;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
@@ -45,13 +55,25 @@ import com.myapp.alist.R;
 import com.myapp.alist.databinding.ActivityMainBinding;
 import com.myapp.alist.databinding.ContentMainBinding;
 import com.myapp.alist.databinding.ListRowBinding;
+import com.myapp.alist.datarepository.FacetCounts;
+import com.myapp.alist.datarepository.InsertResult;
+import com.myapp.alist.datarepository.QuerySpec;
+import com.myapp.alist.datarepository.SearchMode;
+import com.myapp.alist.db.Catalog;
 import com.myapp.alist.db.ListEntity;
+import com.myapp.alist.transfer.ExportFormat;
+import com.myapp.alist.transfer.ImportResult;
 import com.myapp.alist.viewmodel.ListViewModel;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.ref.WeakReference;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
+
+import kotlin.Unit;
+import kotlin.jvm.functions.Function1;
 
 /**
  * Displays a list of inputted items which have a name, description, category and status.
@@ -68,20 +90,27 @@ public class MainActivity extends AppCompatActivity {
      * The key for the delete warning dialog.
      */
     private static final String DELETE_ALERT_DIALOG_TAG = "DELETE_ALERT_DIALOG_TAG";
+    /**
+     * The key for the bulk update dialog.
+     */
+    private static final String BULK_UPDATE_DIALOG_TAG = "BULK_UPDATE_DIALOG_TAG";
+    /**
+     * The key for the add category or status dialog.
+     */
+    private static final String ADD_CHOICE_DIALOG_TAG = "ADD_CHOICE_DIALOG_TAG";
     /**
      * The key for the bundle used to save the activity state.
      */
     private static final String MAIN_BUNDLE = "MAIN_BUNDLE_";
     /**
-     * Contains the column names of the database required for display.
+     * The directory in the cache directory which exported files are written to.  Must match
+     * res/xml/file_paths.xml.
+     */
+    private static final String EXPORT_DIRECTORY = "exports";
+    /**
+     * Added to the package name to give the file provider authority.  Must match the manifest.
      */
-    private static final String[] PROJECTION = new String[]{
-            ListEntity._ID,
-            ListEntity.NAME,
-            ListEntity.DESCRIPTION,
-            ListEntity.CATEGORY,
-            ListEntity.STATUS
-    };
+    private static final String FILE_PROVIDER_AUTHORITY_SUFFIX = ".fileprovider";
     /**
      * Stores the classname to tag log errors.
      */
@@ -115,6 +144,11 @@ public class MainActivity extends AppCompatActivity {
      * The currently selected order by column from the database.
      */
     private String mCurrentSelectInput5 = "";
+    /**
+     * <code>true</code> if the search terms only match the starts of words, which uses the
+     * full-text index, or <code>false</code> if they match anywhere in the text.
+     */
+    private boolean mMatchWordStarts = false;
     /**
      * The activity binding to get access to the UI components.
      */
@@ -127,6 +161,33 @@ public class MainActivity extends AppCompatActivity {
      * Used to link the database column names to the views in the row layout in the recycler view.
      */
     private RecyclerViewAdapter mRecyclerViewAdapter;
+    /**
+     * Displays the category choices with their counts.
+     */
+    private FacetSpinnerAdapter mCategorySpinnerAdapter;
+    /**
+     * Displays the status choices with their counts.
+     */
+    private FacetSpinnerAdapter mStatusSpinnerAdapter;
+    /**
+     * The number of items for each category and status or <code>null</code> until known.
+     */
+    private FacetCounts mFacetCounts;
+    /**
+     * Lets the user choose a CSV or JSON file to import.  Must be registered before the activity
+     * is started.
+     */
+    //noinspection Convert2Lambda
+    private final ActivityResultLauncher<String> mImportLauncher = this.registerForActivityResult(
+            new ActivityResultContracts.GetContent(), new ActivityResultCallback<Uri>() {
+                @Override
+                public void onActivityResult(@Nullable final Uri uri) {
+                    if (uri != null && MainActivity.this.mListViewModel != null &&
+                            !MainActivity.this.mListViewModel.isImporting()) {
+                        MainActivity.this.mListViewModel.importItems(uri);
+                    }
+                }
+            });
     /**
      * Displays the currently select parameters text.
      */
@@ -159,22 +220,10 @@ public class MainActivity extends AppCompatActivity {
      * The view model to use to update the database using the data repository.
      */
     private volatile ListViewModel mListViewModel;
-    /**
-     * The list of database items returned from a query.
-     */
-    private volatile List<ListEntity> mListEntities;
     /**
      * Displays the rows of the database.
      */
     private RecyclerView mRecyclerView1;
-    /**
-     * Contains the text to share with another app.
-     */
-    private Intent mSendIntent = null;
-    /**
-     * The text to share with another app.
-     */
-    private StringBuilder mSendText = null;
 
     /**
      * Restores the state if necessary, sets up the display including initiating the
@@ -209,24 +258,15 @@ public class MainActivity extends AppCompatActivity {
         this.mInput2EditText.setMovementMethod(
                 HyperlinkMovementMethod.getHyperlinkMovementMethodInstance());
 
-        // Create an ArrayAdapter using the string array and a default spinner layout.
-        ArrayAdapter<CharSequence> arrayAdapter = ArrayAdapter.createFromResource(this,
-                R.array.category_list, android.R.layout.simple_spinner_item);
-        // Specify the layout to use when the list of choices appears.
-        arrayAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
-        // Apply the adapter to the spinner.
-        this.mSpinner1.setAdapter(arrayAdapter);
-
-        // Create an ArrayAdapter using the string array and a default spinner layout.
-        arrayAdapter = ArrayAdapter.createFromResource(this, R.array.status_list,
-                android.R.layout.simple_spinner_item);
-        // Specify the layout to use when the list of choices appears.
-        arrayAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
-        // Apply the adapter to the spinner.
-        this.mSpinner2.setAdapter(arrayAdapter);
+        // The category and status choices show how many items each would select.
+        this.mCategorySpinnerAdapter = new FacetSpinnerAdapter(this, true);
+        this.mSpinner1.setAdapter(this.mCategorySpinnerAdapter);
+        this.mStatusSpinnerAdapter = new FacetSpinnerAdapter(this, false);
+        this.mSpinner2.setAdapter(this.mStatusSpinnerAdapter);
 
         // Create an ArrayAdapter using the string array and a default spinner layout.
-        arrayAdapter = ArrayAdapter.createFromResource(this, R.array.order_by_list,
+        ArrayAdapter<CharSequence> arrayAdapter = ArrayAdapter.createFromResource(this,
+                R.array.order_by_list,
                 android.R.layout.simple_spinner_item);
         // Specify the layout to use when the list of choices appears.
         arrayAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
@@ -244,6 +284,11 @@ public class MainActivity extends AppCompatActivity {
         this.mRecyclerView1.addItemDecoration(new DividerItemDecoration(
                 this.mRecyclerView1.getContext(), linearLayoutManager.getOrientation()));
 
+        // One adapter for the life of the activity.  Each new list is diffed against the current
+        // one rather than replacing the adapter, which would rebind every row.
+        this.mRecyclerViewAdapter = new RecyclerViewAdapter();
+        this.mRecyclerView1.setAdapter(this.mRecyclerViewAdapter);
+
         if (savedInstanceState != null) {
             // Don't use 'counter' as variable name because it increases with each line for some
             // reason!
@@ -262,6 +307,8 @@ public class MainActivity extends AppCompatActivity {
             this.showMessage(0, savedInstanceState.getString(
                     MainActivity.MAIN_BUNDLE + cnt++));
             this.mActivatedID = savedInstanceState.getLong(MainActivity.MAIN_BUNDLE +
+                    cnt++);
+            this.mMatchWordStarts = savedInstanceState.getBoolean(MainActivity.MAIN_BUNDLE +
                     cnt);
             // There is no need to reactivate a position as this is done automatically by Android.
         } else {
@@ -285,17 +332,44 @@ public class MainActivity extends AppCompatActivity {
         // Re-created activities receive the same ViewModel instance created by the first
         // activity so don't clear ViewModel variables in releaseResources.
         mListViewModel = new ViewModelProvider(this).get(ListViewModel.class);
+        // The views are enabled once the first page of the selected rows has loaded, or failed
+        // to load, rather than waiting for every row.  Sharing exports the rows to a file when it
+        // is selected, see share().  Deleting uses the current selection, see
+        // doDeleteOKPositiveClick().
         //noinspection Convert2Lambda
-        mListViewModel.getItems().observe(this, new Observer<List<ListEntity>>() {
+        this.mRecyclerViewAdapter.addLoadStateListener(
+                new Function1<CombinedLoadStates, Unit>() {
+                    @Override
+                    public Unit invoke(final CombinedLoadStates combinedLoadStates) {
+                        if (!(combinedLoadStates.getRefresh() instanceof LoadState.Loading)) {
+                            MainActivity.this.setViewsStatus(true);
+                        }
+                        return Unit.INSTANCE;
+                    }
+                });
+
+        // Progress is shown in the toolbar because the message text view shows the row count,
+        // which changes as each chunk is written.
+        //noinspection Convert2Lambda
+        mListViewModel.getImportResult().observe(this, new Observer<ImportResult>() {
             @Override
-            public void onChanged(@Nullable final List<ListEntity> listEntities) {
-                if (listEntities != null) {
-                    MainActivity.this.mListEntities = listEntities;
+            public void onChanged(@Nullable final ImportResult importResult) {
+                if (importResult != null) {
+                    MainActivity.this.showImportResult(importResult);
+                }
+            }
+        });
 
-                    MainActivity.this.mRecyclerViewAdapter = new RecyclerViewAdapter(listEntities);
-                    MainActivity.this.mRecyclerView1.setAdapter(mRecyclerViewAdapter);
+        // The count arrives before the first page of rows so the message is shown while they are
+        // loading.
+        //noinspection Convert2Lambda
+        mListViewModel.getItemCount().observe(this, new Observer<Integer>() {
+            @Override
+            public void onChanged(@Nullable final Integer count) {
+                if (count != null) {
+                    // The count is known so the views can be used while the rows are loading.
+                    MainActivity.this.setViewsStatus(true);
 
-                    final int count = listEntities.size();
                     String message = count + " ";
                     if (count == 1) {
                         message += MainActivity.this.getString(R.string.row_selected);
@@ -303,30 +377,42 @@ public class MainActivity extends AppCompatActivity {
                         message += MainActivity.this.getString(R.string.rows_selected);
                     }
                     MainActivity.this.showMessage(0, message);
+                }
+            }
+        });
 
-                    // Send text
-                    MainActivity.this.mSendText = new StringBuilder();
-                    if (count > 0) {
-                        for(int i = 0; i < count; i++) {
-                            ListEntity listEntity = listEntities.get(i);
-                            MainActivity.this.mSendText
-                                    .append(listEntity.getName())
-                                    .append(", ")
-                                    .append(listEntity.getDescription())
-                                    .append(", ")
-                                    .append(listEntity.getCategory())
-                                    .append(", ")
-                                    .append(listEntity.getStatus())
-                                    .append("\n");
-                        }
-                    }
-                    MainActivity.this.setSendText();
+        // The facet counts only change when the search terms or the list table change.
+        //noinspection Convert2Lambda
+        mListViewModel.getFacetCounts().observe(this, new Observer<FacetCounts>() {
+            @Override
+            public void onChanged(@Nullable final FacetCounts facetCounts) {
+                MainActivity.this.mFacetCounts = facetCounts;
+                MainActivity.this.setFacetCounts();
+            }
+        });
 
-                    MainActivity.this.setViewsStatus(true);
+        // A category or status was added.
+        //noinspection Convert2Lambda
+        mListViewModel.getCatalog().observe(this, new Observer<Catalog>() {
+            @Override
+            public void onChanged(@Nullable final Catalog catalog) {
+                if (catalog != null) {
+                    MainActivity.this.setCatalog(catalog);
                 }
             }
         });
 
+        // The list only holds the pages near the displayed rows.  The adapter works out which
+        // rows changed on a background thread so only those rows are rebound and the scroll
+        // position is kept.
+        //noinspection Convert2Lambda
+        mListViewModel.getPagedItems().observe(this, new Observer<PagingData<ListEntity>>() {
+            @Override
+            public void onChanged(@NonNull final PagingData<ListEntity> pagingData) {
+                MainActivity.this.mRecyclerViewAdapter.submitData(pagingData);
+            }
+        });
+
         // If name is changed, redo list.
         this.mInput1EditText.addTextChangedListener(new TextWatcher() {
             @Override
@@ -376,6 +462,8 @@ public class MainActivity extends AppCompatActivity {
             @Override
             public void onItemSelected(final AdapterView<?> parent, final View view, final int
                     position, final long id) {
+                // The other spinner's counts depend on this choice.
+                MainActivity.this.setFacetCounts();
                 if (MainActivity.this.mActivatedID == RecyclerView.NO_ID) {
                     MainActivity.this.select();
                 }
@@ -392,6 +480,8 @@ public class MainActivity extends AppCompatActivity {
             @Override
             public void onItemSelected(final AdapterView<?> parent, final View view, final int
                     position, final long id) {
+                // The other spinner's counts depend on this choice.
+                MainActivity.this.setFacetCounts();
                 if (MainActivity.this.mActivatedID == RecyclerView.NO_ID) {
                     MainActivity.this.select();
                 }
@@ -498,8 +588,10 @@ public class MainActivity extends AppCompatActivity {
                 this.mCurrentSelectInput5);
         outState.putString(MainActivity.MAIN_BUNDLE + cnt++,
                 this.mMessageTextView.getText().toString());
-        outState.putLong(MainActivity.MAIN_BUNDLE + cnt,
+        outState.putLong(MainActivity.MAIN_BUNDLE + cnt++,
                 this.mActivatedID);
+        outState.putBoolean(MainActivity.MAIN_BUNDLE + cnt,
+                this.mMatchWordStarts);
 
         super.onSaveInstanceState(outState);
     }
@@ -528,12 +620,7 @@ public class MainActivity extends AppCompatActivity {
         // Inflate the menu items for use in the action bar.
         MenuInflater inflater = getMenuInflater();
         inflater.inflate(R.menu.main, menu);
-
-        if (this.mSendIntent == null) {
-            this.mSendIntent = new Intent(Intent.ACTION_SEND);
-            this.mSendIntent.setType("text/plain");
-            this.setSendText();
-        }
+        menu.findItem(R.id.action_match_word_starts).setChecked(this.mMatchWordStarts);
 
         return super.onCreateOptionsMenu(menu);
     }
@@ -557,8 +644,10 @@ public class MainActivity extends AppCompatActivity {
         final int itemSelectedID = item.getItemId();
         Intent intent;
 
-        // This is need if the user selects Share then presses back without selecting an app.
-        if (itemSelectedID != R.id.action_share) {
+        // Bulk update, add choice and export only open their submenus so must not disable the
+        // views.
+        if (itemSelectedID != R.id.action_bulk_update &&
+                itemSelectedID != R.id.action_add_choice && itemSelectedID != R.id.action_export) {
             // Stop more than one action caused by rapid tapping on the same action.
             this.setViewsStatus(false);
         }
@@ -573,9 +662,38 @@ public class MainActivity extends AppCompatActivity {
         } else if (itemSelectedID == R.id.action_delete) {
             handled = true;
             this.delete();
+        } else if (itemSelectedID == R.id.action_set_category) {
+            handled = true;
+            this.bulkUpdate(ListEntity.CATEGORY);
+        } else if (itemSelectedID == R.id.action_set_status) {
+            handled = true;
+            this.bulkUpdate(ListEntity.STATUS);
+        } else if (itemSelectedID == R.id.action_add_category) {
+            handled = true;
+            this.addChoice(ListEntity.CATEGORY);
+        } else if (itemSelectedID == R.id.action_add_status) {
+            handled = true;
+            this.addChoice(ListEntity.STATUS);
+        } else if (itemSelectedID == R.id.action_match_word_starts) {
+            handled = true;
+            this.mMatchWordStarts = !item.isChecked();
+            item.setChecked(this.mMatchWordStarts);
+            this.doSelect();
+        } else if (itemSelectedID == R.id.action_import) {
+            handled = true;
+            this.importItems();
         } else if (itemSelectedID == R.id.action_share) {
-            Intent shareIntent = Intent.createChooser(this.mSendIntent, null);
-            startActivity(shareIntent);
+            handled = true;
+            this.share(ExportFormat.TEXT, true);
+        } else if (itemSelectedID == R.id.action_export_csv) {
+            handled = true;
+            this.share(ExportFormat.CSV, false);
+        } else if (itemSelectedID == R.id.action_export_json) {
+            handled = true;
+            this.share(ExportFormat.JSON, false);
+        } else if (itemSelectedID == R.id.action_export_text) {
+            handled = true;
+            this.share(ExportFormat.TEXT, false);
         } else if (itemSelectedID == R.id.action_help) {
             handled = true;
             intent = new Intent(this, HelpActivity.class);
@@ -672,6 +790,9 @@ public class MainActivity extends AppCompatActivity {
         this.mActivityMainBinding = null;
         this.mToolbar = null;
         this.mRecyclerViewAdapter = null;
+        this.mCategorySpinnerAdapter = null;
+        this.mStatusSpinnerAdapter = null;
+        this.mFacetCounts = null;
         this.mCurrentSelectTextView = null;
         this.mMessageTextView = null;
         this.mInput1EditText = null;
@@ -696,14 +817,8 @@ public class MainActivity extends AppCompatActivity {
         // When the owner activity is finished, the framework calls the ViewModel object's
         // onCleared() method so that it can clean up resources.
         this.mListViewModel = null;
-        // Warning: do not do this because this is a pointer to the List<ListEntity> returned by the
-        // ViewModel.  Clearing this would clear the observed list.
-        //this.mListEntities.clear();
-        this.mListEntities = null;
 
         this.mRecyclerView1 = null;
-        this.mSendIntent = null;
-        this.mSendText = null;
     }
 
     /**
@@ -740,10 +855,10 @@ public class MainActivity extends AppCompatActivity {
         } else {
             if (TextUtils.isEmpty(this.mCurrentSelectInput1) &&
                     TextUtils.isEmpty(this.mCurrentSelectInput2) &&
-                    this.mCurrentSelectInput3.compareToIgnoreCase(this.getResources()
-                            .getStringArray(R.array.category_list)[0]) == 0 &&
-                    this.mCurrentSelectInput4.compareToIgnoreCase(this.getResources()
-                            .getStringArray(R.array.status_list)[0]) == 0) {
+                    this.mCurrentSelectInput3.compareToIgnoreCase(
+                            Catalog.get().getAllLabel()) == 0 &&
+                    this.mCurrentSelectInput4.compareToIgnoreCase(
+                            Catalog.get().getAllLabel()) == 0) {
                 currentSelectText += this.getString(R.string.select_all);
             } else {
                 currentSelectText += this.getString(R.string.containing);
@@ -766,37 +881,25 @@ public class MainActivity extends AppCompatActivity {
     }
 
     /**
-     * Creates the order by text.
+     * Gets the sort order chosen in the order by spinner.
      *
-     * @return the order by text
+     * @return the sort order
      */
-    private String getOrderBy() {
-        String orderBy;
+    private QuerySpec.OrderBy getOrderBy() {
+        final QuerySpec.OrderBy orderBy;
 
         switch (this.mCurrentSelectInput5.toLowerCase()) {
             case ListEntity.NAME:
-                orderBy = ListEntity.NAME + ", " +
-                        ListEntity.CATEGORY + ", " +
-                        ListEntity.STATUS + ", " +
-                        ListEntity.DESCRIPTION;
+                orderBy = QuerySpec.OrderBy.NAME;
                 break;
             case ListEntity.DESCRIPTION:
-                orderBy = ListEntity.DESCRIPTION + ", " +
-                        ListEntity.CATEGORY + ", " +
-                        ListEntity.STATUS + ", " +
-                        ListEntity.NAME;
+                orderBy = QuerySpec.OrderBy.DESCRIPTION;
                 break;
             case ListEntity.CATEGORY:
-                orderBy = ListEntity.CATEGORY + ", " +
-                        ListEntity.STATUS + ", " +
-                        ListEntity.NAME + ", " +
-                        ListEntity.DESCRIPTION;
+                orderBy = QuerySpec.OrderBy.CATEGORY;
                 break;
             case ListEntity.STATUS:
-                orderBy = ListEntity.STATUS + ", " +
-                        ListEntity.CATEGORY + ", " +
-                        ListEntity.NAME + ", " +
-                        ListEntity.DESCRIPTION;
+                orderBy = QuerySpec.OrderBy.STATUS;
                 break;
             default:
                 Log.e(this.TAG, "getOrderBy error 1");
@@ -816,7 +919,7 @@ public class MainActivity extends AppCompatActivity {
         BasicApplication.APP_EXECUTORS.getBackgroundThreadExecutor().execute(new Runnable() {
             @Override
             public void run() {
-                long id = -1L;
+                int status = InsertResult.STATUS_INVALID;
                 final WeakReference<MainActivity> mainActivityWeakReference =
                         new WeakReference<>(MainActivity.this);
                 try {
@@ -828,11 +931,11 @@ public class MainActivity extends AppCompatActivity {
 
                     final ListViewModel listViewModel = mainActivity.mListViewModel;
                     if(listViewModel != null) {
-                        id = listViewModel.insertItem(mainActivity.getValues());
+                        status = listViewModel.insertItem(mainActivity.getValues()).getStatus();
                     }
                 } finally {
                     // Must be final to access on main thread.
-                    final long finalId = id;
+                    final int finalStatus = status;
 
                     // Main thread.
                     //noinspection Convert2Lambda
@@ -848,11 +951,14 @@ public class MainActivity extends AppCompatActivity {
                                     }
 
                                     final String message;
-                                    if (finalId > 0) {
+                                    if (finalStatus == InsertResult.STATUS_INSERTED) {
                                         message = mainActivity.getString(R.string.row_inserted);
                                         mainActivity.clearDetails();
                                     } else {
-                                        message = mainActivity.getString(R.string.insert_error);
+                                        message = mainActivity.getString(
+                                                finalStatus == InsertResult.STATUS_DUPLICATE_NAME ?
+                                                        R.string.name_already_used :
+                                                        R.string.insert_error);
                                         mainActivity.setViewsStatus(true);
                                     }
                                     mainActivity.showMessage(1, message);
@@ -863,6 +969,59 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
+    /**
+     * Starts an import by letting the user choose a file, or cancels the running import.  The
+     * import itself runs in the {@link ListViewModel} so it carries on if the activity is
+     * re-created.
+     */
+    private void importItems() {
+        if (this.mListViewModel.isImporting()) {
+            this.mListViewModel.cancelImport();
+        } else {
+            // Any type because CSV files are often not given a CSV type.
+            this.mImportLauncher.launch("*/*");
+        }
+        this.setViewsStatus(true);
+    }
+
+    /**
+     * Shows the progress or the outcome of an import.
+     *
+     * @param importResult the progress or outcome
+     */
+    private void showImportResult(@NonNull final ImportResult importResult) {
+        if (importResult.getState() == ImportResult.STATE_RUNNING) {
+            final int percent = importResult.getPercent();
+            this.mToolbar.setSubtitle(percent < 0 ?
+                    this.getString(R.string.import_progress, importResult.getRowCount()) :
+                    this.getString(R.string.import_progress_percent, percent));
+            return;
+        }
+
+        final int messageId;
+        switch (importResult.getState()) {
+            case ImportResult.STATE_FINISHED:
+                messageId = R.string.import_finished;
+                break;
+            case ImportResult.STATE_CANCELLED:
+                messageId = R.string.import_cancelled;
+                break;
+            default:
+                messageId = R.string.import_error;
+                break;
+        }
+
+        String message = this.getString(messageId, importResult.getInsertedCount(),
+                importResult.getDuplicateCount(), importResult.getInvalidCount());
+        if (!importResult.getDuplicateNames().isEmpty()) {
+            message += "\n" + this.getString(R.string.import_duplicates,
+                    TextUtils.join(", ", importResult.getDuplicateNames()));
+        }
+        this.mToolbar.setSubtitle(null);
+        this.showMessage(1, message);
+        this.mListViewModel.clearImportResult();
+    }
+
     /**
      * Get the search details inputted by the user.  This is called when the selection criteria
      * changes apart from when a row is selected.  See the {@link RecyclerViewAdapter} for the
@@ -883,107 +1042,34 @@ public class MainActivity extends AppCompatActivity {
      * user.
      */
     private void doSelect() {
-        String where = "";
-        ArrayList<String> whereArgs = new ArrayList<>();
-        String[] whereArgsStringArray = null;
-
         this.mCurrentSelectTextView.setText(this.setCurrentSelectDetails());
 
-        StringBuilder stringBuilder = new StringBuilder();
-        stringBuilder.append("SELECT ")
-                .append(TextUtils.join(", ", MainActivity.PROJECTION))
-                .append(" FROM ")
-                .append(ListEntity.TABLE_NAME);
-
-        // No input (for EditTexts) means select all.
-        // A space means select rows with a blank column i.e. "".
-        // trim() removes spaces and other characters.
-        // trim() does not affect the values of the class member variables; to do so the code would
-        // need to be: mCurrentSelectInput1 = mCurrentSelectInput1.trim().
-        if (!TextUtils.isEmpty(this.mCurrentSelectInput1)) {
-            where += ListEntity.NAME + " LIKE ?";
-
-            // Make sure that if spaces only inputted, don't select all.
-            if (this.mCurrentSelectInput1.trim().length() == 0) {
-                whereArgs.add(this.mCurrentSelectInput1.trim());
-            } else {
-                whereArgs.add("%" + this.mCurrentSelectInput1.trim() + "%");
-            }
+        // All means do not select by category or status.
+        final String allLabel = Catalog.get().getAllLabel();
+        String category = null;
+        if (this.mCurrentSelectInput3.compareToIgnoreCase(allLabel) != 0) {
+            category = this.mCurrentSelectInput3;
         }
 
-        if (!TextUtils.isEmpty(this.mCurrentSelectInput2)) {
-            if (where.length() != 0) {
-                where += " AND ";
-            }
-            where += ListEntity.DESCRIPTION + " LIKE ?";
-
-            // Make sure that if spaces only inputted, don't select all.
-            if (this.mCurrentSelectInput2.trim().length() == 0) {
-                whereArgs.add(this.mCurrentSelectInput2.trim());
-            } else {
-                whereArgs.add("%" + this.mCurrentSelectInput2.trim() + "%");
-            }
+        String status = null;
+        if (this.mCurrentSelectInput4.compareToIgnoreCase(allLabel) != 0) {
+            status = this.mCurrentSelectInput4;
         }
 
-        if (this.mCurrentSelectInput3.compareToIgnoreCase(
-                this.getResources().getStringArray(R.array.category_list)[0]) != 0) {
-            if (where.length() != 0) {
-                where += " AND ";
-            }
-            where += ListEntity.CATEGORY + " LIKE ?";
-
-            // Make sure that if spaces only inputted, don't select all.
-            if (this.mCurrentSelectInput3.trim().length() == 0) {
-                whereArgs.add(this.mCurrentSelectInput3.trim());
-            } else {
-                whereArgs.add("%" + this.mCurrentSelectInput3.trim() + "%");
-            }
-        }
-
-        if (this.mCurrentSelectInput4.compareToIgnoreCase(
-                this.getResources().getStringArray(R.array.status_list)[0]) != 0) {
-            if (where.length() != 0) {
-                where += " AND ";
-            }
-            where += ListEntity.STATUS + " LIKE ?";
-
-            // Make sure that if spaces only inputted, don't select all.
-            if (this.mCurrentSelectInput4.trim().length() == 0) {
-                whereArgs.add(this.mCurrentSelectInput4.trim());
-            } else {
-                whereArgs.add("%" + this.mCurrentSelectInput4.trim() + "%");
-            }
-        }
-
-        if (where.length() == 0) {
-            where = null;
-            // whereArgsStringArray is initialised to null.
-        } else {
-            whereArgsStringArray = whereArgs.toArray(new String[0]);
-        }
-
-        boolean addID = this.mActivatedID != RecyclerView.NO_ID;
-
-        if (where == null) {
-            if (addID) {
-                stringBuilder.append(" WHERE ").append(ListEntity._ID).append(" = ")
-                        .append(this.mActivatedID);
-            }
-        } else {
-            stringBuilder.append(" WHERE ").append(where);
-            if (addID) {
-                stringBuilder.append(" AND ").append(ListEntity._ID).append(" = ")
-                        .append(this.mActivatedID);
-            }
-        }
-
-        stringBuilder.append(" ORDER BY ").append(this.getOrderBy());
-
         this.setViewsStatus(false);
 
         // This appears to be OK to be called on the main thread (see notes in onCreate()
         // ViewModelProviders section).
-        this.mListViewModel.selectItems(stringBuilder.toString(), whereArgsStringArray);
+        this.mListViewModel.selectItems(new QuerySpec.Builder()
+                .setName(this.mCurrentSelectInput1)
+                .setDescription(this.mCurrentSelectInput2)
+                .setCategory(category)
+                .setStatus(status)
+                .setActivatedId(this.mActivatedID)
+                .setOrderBy(this.getOrderBy())
+                .setSearchMode(this.mMatchWordStarts ? SearchMode.FULL_TEXT :
+                        SearchMode.SUBSTRING)
+                .build());
     }
 
     // To avoid a memory leak, use a WeakReference to allow garbage collection.
@@ -997,6 +1083,7 @@ public class MainActivity extends AppCompatActivity {
             @Override
             public void run() {
                 long updatedRecordsCount = -1L;
+                boolean noChanges = false;
                 final WeakReference<MainActivity> mainActivityWeakReference =
                         new WeakReference<>(MainActivity.this);
                 try {
@@ -1008,12 +1095,18 @@ public class MainActivity extends AppCompatActivity {
 
                     final ListViewModel listViewModel = mainActivity.mListViewModel;
                     if(listViewModel != null) {
-                        updatedRecordsCount = listViewModel.updateItem(mainActivity.mActivatedID,
-                                mainActivity.getValues());
+                        // Only the changed values are sent so only their columns are written.
+                        final HashMap<String, String> changes = mainActivity.getChangedValues();
+                        noChanges = changes.isEmpty();
+                        if (!noChanges) {
+                            updatedRecordsCount = listViewModel.updateItem(
+                                    mainActivity.mActivatedID, changes);
+                        }
                     }
                 } finally {
                     // Must be final to access on main thread.
                     final long finalUpdatedRecordsCount = updatedRecordsCount;
+                    final boolean finalNoChanges = noChanges;
 
                     // Main thread.
                     //noinspection Convert2Lambda
@@ -1031,7 +1124,10 @@ public class MainActivity extends AppCompatActivity {
                                     // Note: If no item is selected, id passed in is
                                     // RecyclerView.NO_ID (-1) and zero is returned.
                                     final String message;
-                                    if (finalUpdatedRecordsCount > 0) {
+                                    if (finalNoChanges) {
+                                        message = mainActivity.getString(R.string.no_changes);
+                                        mainActivity.setViewsStatus(true);
+                                    } else if (finalUpdatedRecordsCount > 0) {
                                         // Only one row can be updated at a time because the name is
                                         // unique.
                                         message = mainActivity.getString(R.string.row_updated);
@@ -1096,7 +1192,8 @@ public class MainActivity extends AppCompatActivity {
 
                     final ListViewModel listViewModel = mainActivity.mListViewModel;
                     if(listViewModel != null) {
-                        deletedRecordsCount = listViewModel.deleteItems(mainActivity.mListEntities);
+                        // One statement deletes the rows selected by the current query.
+                        deletedRecordsCount = listViewModel.deleteItems();
                     }
                 } finally {
                     // Must be final to access on main thread.
@@ -1125,11 +1222,14 @@ public class MainActivity extends AppCompatActivity {
                                                     R.string.rows_deleted);
                                         }
                                         mainActivity.clearDetails();
+                                        // The rows are only marked as deleted so can be
+                                        // restored.
+                                        mainActivity.showUndoDeleteMessage(message);
                                     } else {
                                         message = mainActivity.getString(R.string.delete_error);
                                         mainActivity.setViewsStatus(true);
+                                        mainActivity.showMessage(1, message);
                                     }
-                                    mainActivity.showMessage(1, message);
                                 }
                             });
                 }
@@ -1144,6 +1244,273 @@ public class MainActivity extends AppCompatActivity {
         this.setViewsStatus(true);
     }
 
+    /**
+     * Shows the number of rows deleted in a <code>Snackbar</code> with an Undo action.
+     *
+     * @param message the message to show
+     */
+    private void showUndoDeleteMessage(final String message) {
+        //noinspection Convert2Lambda
+        Snackbar.make(this.mToolbar, message, Snackbar.LENGTH_LONG)
+                .setAction(R.string.undo, new View.OnClickListener() {
+                    @Override
+                    public void onClick(final View view) {
+                        if (MainActivity.this.mAllowEvents) {
+                            MainActivity.this.undoDelete();
+                        }
+                    }
+                })
+                .show();
+    }
+
+    // To avoid a memory leak, use a WeakReference to allow garbage collection.
+    /**
+     * Restores the rows removed by the last delete.  The list is selected again when the rows
+     * change.
+     */
+    private void undoDelete() {
+        this.setViewsStatus(false);
+
+        // Background thread.
+        //noinspection Convert2Lambda
+        BasicApplication.APP_EXECUTORS.getBackgroundThreadExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                long restoredRecordsCount = 0L;
+                final WeakReference<MainActivity> mainActivityWeakReference =
+                        new WeakReference<>(MainActivity.this);
+                try {
+                    // Get a reference to the activity if it is still there.
+                    final MainActivity mainActivity = mainActivityWeakReference.get();
+                    if (mainActivity == null || mainActivity.isFinishing()) {
+                        return;
+                    }
+
+                    final ListViewModel listViewModel = mainActivity.mListViewModel;
+                    if (listViewModel != null) {
+                        restoredRecordsCount = listViewModel.undoDelete();
+                    }
+                } finally {
+                    // Must be final to access on main thread.
+                    final long finalRestoredRecordsCount = restoredRecordsCount;
+
+                    // Main thread.
+                    //noinspection Convert2Lambda
+                    BasicApplication.APP_EXECUTORS.getMainThreadExecutor().execute(
+                            new Runnable() {
+                                @Override
+                                public void run() {
+                                    // Get a reference to the activity if it is still there.
+                                    final MainActivity mainActivity =
+                                            mainActivityWeakReference.get();
+                                    if (mainActivity == null || mainActivity.isFinishing()) {
+                                        return;
+                                    }
+
+                                    String message;
+                                    if (finalRestoredRecordsCount > 0) {
+                                        message = finalRestoredRecordsCount + " ";
+                                        if (finalRestoredRecordsCount == 1) {
+                                            message += mainActivity.getString(
+                                                    R.string.row_restored);
+                                        } else {
+                                            message += mainActivity.getString(
+                                                    R.string.rows_restored);
+                                        }
+                                    } else {
+                                        message = mainActivity.getString(R.string.undo_error);
+                                    }
+                                    mainActivity.setViewsStatus(true);
+                                    mainActivity.showMessage(1, message);
+                                }
+                            });
+                }
+            }
+        });
+    }
+
+    /**
+     * Starts the Set Category or Set Status action.
+     * <p>
+     * Creates and displays a {@link BulkUpdateDialogFragment} to choose the new value.
+     *
+     * @param column {@link ListEntity#CATEGORY} or {@link ListEntity#STATUS}
+     */
+    private void bulkUpdate(final String column) {
+        // Reset any input to current select details.
+        this.mInput1EditText.setText(this.mCurrentSelectInput1);
+        this.mInput2EditText.setText(this.mCurrentSelectInput2);
+        this.setSpinnerValue(this.mCurrentSelectInput3, this.mSpinner1);
+        this.setSpinnerValue(this.mCurrentSelectInput4, this.mSpinner2);
+
+        this.mCurrentSelectTextView.setText(this.setCurrentSelectDetails());
+
+        // Only allow one dialog to be displayed.
+        if (this.getSupportFragmentManager().findFragmentByTag(
+                MainActivity.BULK_UPDATE_DIALOG_TAG) == null) {
+            BulkUpdateDialogFragment bulkUpdateDialogFragment =
+                    BulkUpdateDialogFragment.newInstance(column);
+            bulkUpdateDialogFragment.show(this.getSupportFragmentManager(),
+                    MainActivity.BULK_UPDATE_DIALOG_TAG);
+        }
+    }
+
+    // To avoid a memory leak, use a WeakReference to allow garbage collection.
+    /**
+     * Sets the category or status of every row in the current selection.
+     *
+     * @param column {@link ListEntity#CATEGORY} or {@link ListEntity#STATUS}
+     * @param value  the new value of the column
+     */
+    void doBulkUpdateOKPositiveClick(final String column, final String value) {
+        // Background thread.
+        //noinspection Convert2Lambda
+        BasicApplication.APP_EXECUTORS.getBackgroundThreadExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                long updatedRecordsCount = -1L;
+                final WeakReference<MainActivity> mainActivityWeakReference =
+                        new WeakReference<>(MainActivity.this);
+                try {
+                    // Get a reference to the activity if it is still there.
+                    final MainActivity mainActivity = mainActivityWeakReference.get();
+                    if (mainActivity == null || mainActivity.isFinishing()) {
+                        return;
+                    }
+
+                    final ListViewModel listViewModel = mainActivity.mListViewModel;
+                    if (listViewModel != null) {
+                        // One statement updates the rows selected by the current query.
+                        updatedRecordsCount = listViewModel.updateItems(column, value);
+                    }
+                } finally {
+                    // Must be final to access on main thread.
+                    final long finalUpdatedRecordsCount = updatedRecordsCount;
+
+                    // Main thread.
+                    //noinspection Convert2Lambda
+                    BasicApplication.APP_EXECUTORS.getMainThreadExecutor().execute(
+                            new Runnable() {
+                                @Override
+                                public void run() {
+                                    // Get a reference to the activity if it is still there.
+                                    final MainActivity mainActivity =
+                                            mainActivityWeakReference.get();
+                                    if (mainActivity == null || mainActivity.isFinishing()) {
+                                        return;
+                                    }
+
+                                    String message;
+                                    if (finalUpdatedRecordsCount >= 0) {
+                                        message = finalUpdatedRecordsCount + " ";
+                                        if (finalUpdatedRecordsCount == 1) {
+                                            message += mainActivity.getString(R.string.row_updated);
+                                        } else {
+                                            message += mainActivity.getString(
+                                                    R.string.rows_updated);
+                                        }
+                                    } else {
+                                        message = mainActivity.getString(R.string.update_error);
+                                    }
+                                    // The list is selected again when the rows change but not
+                                    // when none were updated.
+                                    mainActivity.setViewsStatus(true);
+                                    mainActivity.showMessage(1, message);
+                                }
+                            });
+                }
+            }
+        });
+    }
+
+    /**
+     * Sets the view statuses to true.
+     */
+    void doBulkUpdateCancelNegativeClick() {
+        this.setViewsStatus(true);
+    }
+
+    /**
+     * Starts the Add Category or Add Status action.
+     * <p>
+     * Creates and displays an {@link AddChoiceDialogFragment} to enter the new choice.
+     *
+     * @param column {@link ListEntity#CATEGORY} or {@link ListEntity#STATUS}
+     */
+    private void addChoice(final String column) {
+        // Only allow one dialog to be displayed.
+        if (this.getSupportFragmentManager().findFragmentByTag(
+                MainActivity.ADD_CHOICE_DIALOG_TAG) == null) {
+            AddChoiceDialogFragment addChoiceDialogFragment =
+                    AddChoiceDialogFragment.newInstance(column);
+            addChoiceDialogFragment.show(this.getSupportFragmentManager(),
+                    MainActivity.ADD_CHOICE_DIALOG_TAG);
+        }
+    }
+
+    // To avoid a memory leak, use a WeakReference to allow garbage collection.
+    /**
+     * Adds a category or status.  The spinners are updated when the new {@link Catalog} is
+     * observed.
+     *
+     * @param column {@link ListEntity#CATEGORY} or {@link ListEntity#STATUS}
+     * @param label  the new choice
+     */
+    void doAddChoiceOKPositiveClick(final String column, final String label) {
+        // Background thread.
+        //noinspection Convert2Lambda
+        BasicApplication.APP_EXECUTORS.getBackgroundThreadExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                long id = -1L;
+                final WeakReference<MainActivity> mainActivityWeakReference =
+                        new WeakReference<>(MainActivity.this);
+                try {
+                    // Get a reference to the activity if it is still there.
+                    final MainActivity mainActivity = mainActivityWeakReference.get();
+                    if (mainActivity == null || mainActivity.isFinishing()) {
+                        return;
+                    }
+
+                    final ListViewModel listViewModel = mainActivity.mListViewModel;
+                    if (listViewModel != null) {
+                        id = listViewModel.addChoice(column, label);
+                    }
+                } finally {
+                    // Must be final to access on main thread.
+                    final long finalId = id;
+
+                    // Main thread.
+                    //noinspection Convert2Lambda
+                    BasicApplication.APP_EXECUTORS.getMainThreadExecutor().execute(
+                            new Runnable() {
+                                @Override
+                                public void run() {
+                                    // Get a reference to the activity if it is still there.
+                                    final MainActivity mainActivity =
+                                            mainActivityWeakReference.get();
+                                    if (mainActivity == null || mainActivity.isFinishing()) {
+                                        return;
+                                    }
+
+                                    mainActivity.setViewsStatus(true);
+                                    mainActivity.showMessage(1, mainActivity.getString(
+                                            finalId > 0L ? R.string.choice_added :
+                                                    R.string.add_choice_error));
+                                }
+                            });
+                }
+            }
+        });
+    }
+
+    /**
+     * Sets the view statuses to true.
+     */
+    void doAddChoiceCancelNegativeClick() {
+        this.setViewsStatus(true);
+    }
+
     /**
      * Creates and populates <code>HashMap</code> to insert or update into the database.
      *
@@ -1159,6 +1526,45 @@ public class MainActivity extends AppCompatActivity {
         return values;
     }
 
+    /**
+     * Creates and populates <code>HashMap</code> with only the values which differ from the
+     * activated row, to update into the database.  If no row is activated then every value is
+     * included.
+     *
+     * @return the changed values
+     */
+    private HashMap<String, String> getChangedValues() {
+        HashMap<String, String> values = this.getValues();
+        if (this.mActivatedID == RecyclerView.NO_ID) {
+            return values;
+        }
+
+        // The current select details hold the activated row's values, apart from a blank
+        // description which is held as " ".
+        final String description = this.mCurrentSelectInput2.trim().length() == 0 ? "" :
+                this.mCurrentSelectInput2;
+        this.removeIfUnchanged(values, ListEntity.NAME, this.mCurrentSelectInput1);
+        this.removeIfUnchanged(values, ListEntity.DESCRIPTION, description);
+        this.removeIfUnchanged(values, ListEntity.CATEGORY, this.mCurrentSelectInput3);
+        this.removeIfUnchanged(values, ListEntity.STATUS, this.mCurrentSelectInput4);
+
+        return values;
+    }
+
+    /**
+     * Removes a value which is the same as the activated row's value.
+     *
+     * @param values        the values to update
+     * @param column        the column of the value
+     * @param originalValue the activated row's value
+     */
+    private void removeIfUnchanged(final HashMap<String, String> values, final String column,
+                                   final String originalValue) {
+        if (TextUtils.equals(values.get(column), originalValue)) {
+            values.remove(column);
+        }
+    }
+
     /**
      * Set the value of a spinner.
      *
@@ -1178,13 +1584,160 @@ public class MainActivity extends AppCompatActivity {
     }
 
     /**
-     * Sets the text to send to another app.
+     * Replaces the category and status choices with those of a new catalog, keeping the chosen
+     * values.
+     *
+     * @param catalog the catalog
+     */
+    private void setCatalog(@NonNull final Catalog catalog) {
+        if (this.mCategorySpinnerAdapter == null || this.mStatusSpinnerAdapter == null) {
+            return;
+        }
+
+        final String category = this.mSpinner1.getSelectedItem() == null ? null :
+                this.mSpinner1.getSelectedItem().toString();
+        final String status = this.mSpinner2.getSelectedItem() == null ? null :
+                this.mSpinner2.getSelectedItem().toString();
+        this.mCategorySpinnerAdapter.setCatalog(catalog);
+        this.mStatusSpinnerAdapter.setCatalog(catalog);
+        if (category != null) {
+            this.setSpinnerValue(category, this.mSpinner1);
+        }
+        if (status != null) {
+            this.setSpinnerValue(status, this.mSpinner2);
+        }
+        this.setFacetCounts();
+    }
+
+    /**
+     * Shows the facet counts in the category and status spinners.  Each spinner's counts are
+     * for the other spinner's choice.
      */
-    private void setSendText() {
-        // Send intent could be null if not item type - no Share option available.
-        if (this.mSendIntent != null && this.mSendText != null) {
-            this.mSendIntent.putExtra(Intent.EXTRA_TEXT, this.mSendText.toString());
+    private void setFacetCounts() {
+        if (this.mCategorySpinnerAdapter == null || this.mStatusSpinnerAdapter == null) {
+            return;
         }
+
+        // Position 0 is All.
+        final String category = this.mSpinner1.getSelectedItemPosition() == 0 ? null :
+                this.mSpinner1.getSelectedItem().toString();
+        final String status = this.mSpinner2.getSelectedItemPosition() == 0 ? null :
+                this.mSpinner2.getSelectedItem().toString();
+        this.mCategorySpinnerAdapter.setFacetCounts(this.mFacetCounts, status);
+        this.mStatusSpinnerAdapter.setFacetCounts(this.mFacetCounts, category);
+    }
+
+    // To avoid a memory leak, use a WeakReference to allow garbage collection.
+    /**
+     * Shares the selected rows with another app as text or as a file.  Nothing is built until
+     * this is called and all of the work is done on the background thread.
+     * <p>
+     * The text is kept by the {@link ListViewModel} until the selection or the list changes.  If
+     * the text would be too long for an intent extra the rows are shared as a file instead.  The
+     * rows are streamed from the database to the file so they are never all held in memory, and
+     * the file is shared by a <code>FileProvider</code> URI so a large list does not overflow the
+     * Binder transaction limit.
+     *
+     * @param exportFormat the format of the file
+     * @param asText       <code>true</code> to share the rows as text if they are not too long
+     */
+    private void share(@NonNull final ExportFormat exportFormat, final boolean asText) {
+        final File file = new File(new File(this.getCacheDir(), MainActivity.EXPORT_DIRECTORY),
+                this.getString(R.string.export_file_name) + "." + exportFormat.getExtension());
+
+        // Background thread.
+        //noinspection Convert2Lambda
+        BasicApplication.APP_EXECUTORS.getBackgroundThreadExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                boolean exported = false;
+                String shareText = null;
+                final WeakReference<MainActivity> mainActivityWeakReference =
+                        new WeakReference<>(MainActivity.this);
+                try {
+                    // Get a reference to the activity if it is still there.
+                    final MainActivity mainActivity = mainActivityWeakReference.get();
+                    if (mainActivity == null || mainActivity.isFinishing()) {
+                        return;
+                    }
+
+                    final ListViewModel listViewModel = mainActivity.mListViewModel;
+                    if (listViewModel != null && asText) {
+                        shareText = listViewModel.getShareText();
+                        if (shareText != null) {
+                            return;
+                        }
+                    }
+
+                    final File directory = file.getParentFile();
+                    if (listViewModel != null && directory != null &&
+                            (directory.isDirectory() || directory.mkdirs())) {
+                        final OutputStream outputStream = new FileOutputStream(file);
+                        try {
+                            listViewModel.exportItems(exportFormat, outputStream);
+                            exported = true;
+                        } finally {
+                            outputStream.close();
+                        }
+                    }
+                } catch (IOException e) {
+                    Log.e(MainActivity.this.TAG, "share error 1");
+                    e.printStackTrace();
+                } finally {
+                    // Must be final to access on main thread.
+                    final boolean finalExported = exported;
+                    final String finalShareText = shareText;
+
+                    // Main thread.
+                    //noinspection Convert2Lambda
+                    BasicApplication.APP_EXECUTORS.getMainThreadExecutor().execute(
+                            new Runnable() {
+                                @Override
+                                public void run() {
+                                    // Get a reference to the activity if it is still there.
+                                    final MainActivity mainActivity =
+                                            mainActivityWeakReference.get();
+                                    if (mainActivity == null || mainActivity.isFinishing()) {
+                                        return;
+                                    }
+
+                                    mainActivity.setViewsStatus(true);
+                                    if (finalShareText != null) {
+                                        final Intent sendIntent = new Intent(Intent.ACTION_SEND);
+                                        sendIntent.setType("text/plain");
+                                        sendIntent.putExtra(Intent.EXTRA_TEXT, finalShareText);
+                                        mainActivity.startActivity(
+                                                Intent.createChooser(sendIntent, null));
+                                    } else if (finalExported) {
+                                        mainActivity.startShareActivity(file,
+                                                exportFormat.getMimeType());
+                                    } else {
+                                        mainActivity.showMessage(1,
+                                                mainActivity.getString(R.string.export_error));
+                                    }
+                                }
+                            });
+                }
+            }
+        });
+    }
+
+    /**
+     * Lets the user choose an app to share a file with.
+     *
+     * @param file     the file in the export directory
+     * @param mimeType the MIME type of the file
+     */
+    private void startShareActivity(@NonNull final File file, @NonNull final String mimeType) {
+        final Uri uri = FileProvider.getUriForFile(this,
+                this.getPackageName() + MainActivity.FILE_PROVIDER_AUTHORITY_SUFFIX, file);
+        final Intent sendIntent = new Intent(Intent.ACTION_SEND);
+        sendIntent.setType(mimeType);
+        sendIntent.putExtra(Intent.EXTRA_STREAM, uri);
+        // The clip data carries the read permission through the chooser.
+        sendIntent.setClipData(ClipData.newRawUri(file.getName(), uri));
+        sendIntent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        this.startActivity(Intent.createChooser(sendIntent, null));
     }
 
     /**
@@ -1202,12 +1755,20 @@ public class MainActivity extends AppCompatActivity {
     /**
      * Displays data from the database.
      */
-    private class RecyclerViewAdapter extends RecyclerView.Adapter<RecyclerViewAdapter.ViewHolder> {
-        // Warning: don't call this mListEntities because it clashes with MainActivity member.
+    private class RecyclerViewAdapter extends PagingDataAdapter<ListEntity,
+            RecyclerViewAdapter.ViewHolder> {
+        /**
+         * States if the rows are bound with the activated state.
+         */
+        private boolean mBoundActivated;
+        /**
+         * States if the rows are bound with the category shown.
+         */
+        private boolean mBoundCategoryVisible = true;
         /**
-         * Holds the data from the database.
+         * States if the rows are bound with the status shown.
          */
-        private final List<ListEntity> mRecyclerListEntities;
+        private boolean mBoundStatusVisible = true;
 
         /**
          * Holds the pointers to views in the row and handles user clicks on a row.
@@ -1238,6 +1799,11 @@ public class MainActivity extends AppCompatActivity {
              */
             @Override
             public void onClick(final View view) {
+                // A placeholder row whose page has not loaded yet.
+                if (this.mListRowBinding.idTextView.getText().length() == 0) {
+                    return;
+                }
+
                 long id = Long.parseLong(this.mListRowBinding.idTextView.getText().toString());
 
                 // Selecting means positioning the focus whereas activating means showing a list
@@ -1278,12 +1844,40 @@ public class MainActivity extends AppCompatActivity {
         }
 
         /**
-         * Constructor which sets the listEntities from the database.
+         * Constructor which sets how the rows are compared when a new list is submitted.
+         */
+        RecyclerViewAdapter() {
+            super(new ListEntityDiffCallback());
+        }
+
+        /**
+         * Displays a new generation of pages from the database.  The differences from the
+         * current rows are found on a background thread and then only the changed rows are
+         * updated.
+         * <p>
+         * The activated state and the hidden category and status columns depend on the
+         * selection and not on the rows, so the diff does not see them change.  If they have
+         * changed then every row is rebound.
          *
-         * @param listEntities holds the data from the database
+         * @param pagingData the new pages
          */
-        RecyclerViewAdapter(final List<ListEntity> listEntities) {
-            this.mRecyclerListEntities = listEntities;
+        void submitData(@NonNull final PagingData<ListEntity> pagingData) {
+            final boolean activated = MainActivity.this.mActivatedID != RecyclerView.NO_ID;
+            final boolean categoryVisible =
+                    MainActivity.this.mSpinner1.getSelectedItemPosition() == 0;
+            final boolean statusVisible =
+                    MainActivity.this.mSpinner2.getSelectedItemPosition() == 0;
+
+            if (activated != this.mBoundActivated ||
+                    categoryVisible != this.mBoundCategoryVisible ||
+                    statusVisible != this.mBoundStatusVisible) {
+                this.mBoundActivated = activated;
+                this.mBoundCategoryVisible = categoryVisible;
+                this.mBoundStatusVisible = statusVisible;
+                this.notifyItemRangeChanged(0, this.getItemCount());
+            }
+
+            this.submitData(MainActivity.this.getLifecycle(), pagingData);
         }
 
         /**
@@ -1312,44 +1906,37 @@ public class MainActivity extends AppCompatActivity {
         @SuppressLint("SetTextI18n")
         @Override
         public void onBindViewHolder(@NonNull ViewHolder viewHolder, int position) {
-            if (this.mRecyclerListEntities != null) {
-                viewHolder.itemView.setActivated(MainActivity.this.mActivatedID !=
-                        RecyclerView.NO_ID);
-
-                ListEntity listEntity = this.mRecyclerListEntities.get(position);
-                viewHolder.mListRowBinding.idTextView.setText(Long.toString(listEntity.getId()));
-                viewHolder.mListRowBinding.data1TextView.setText(listEntity.getName());
-                viewHolder.mListRowBinding.data2TextView.setText(listEntity.getDescription());
-                viewHolder.mListRowBinding.data3TextView.setText(listEntity.getCategory());
-                viewHolder.mListRowBinding.data4TextView.setText(listEntity.getStatus());
-
-                // If the category is not All then hide the row category.
-                if (MainActivity.this.mSpinner1.getSelectedItemPosition() == 0) {
-                    viewHolder.mListRowBinding.data3TextView.setVisibility(View.VISIBLE);
-                } else {
-                    viewHolder.mListRowBinding.data3TextView.setVisibility(View.GONE);
-                }
+            ListEntity listEntity = this.getItem(position);
+            if (listEntity == null) {
+                // A placeholder until the row's page is loaded.
+                viewHolder.itemView.setActivated(false);
+                viewHolder.mListRowBinding.idTextView.setText("");
+                viewHolder.mListRowBinding.data1TextView.setText("");
+                viewHolder.mListRowBinding.data2TextView.setText("");
+                viewHolder.mListRowBinding.data3TextView.setText("");
+                viewHolder.mListRowBinding.data4TextView.setText("");
+                return;
+            }
 
-                // If the status is not All then hide the row status.
-                if (MainActivity.this.mSpinner2.getSelectedItemPosition() == 0) {
-                    viewHolder.mListRowBinding.data4TextView.setVisibility(View.VISIBLE);
-                } else {
-                    viewHolder.mListRowBinding.data4TextView.setVisibility(View.GONE);
-                }
+            viewHolder.itemView.setActivated(this.mBoundActivated);
+            viewHolder.mListRowBinding.idTextView.setText(Long.toString(listEntity.getId()));
+            viewHolder.mListRowBinding.data1TextView.setText(listEntity.getName());
+            viewHolder.mListRowBinding.data2TextView.setText(listEntity.getDescription());
+            viewHolder.mListRowBinding.data3TextView.setText(listEntity.getCategory());
+            viewHolder.mListRowBinding.data4TextView.setText(listEntity.getStatus());
+
+            // If the category is not All then hide the row category.
+            if (this.mBoundCategoryVisible) {
+                viewHolder.mListRowBinding.data3TextView.setVisibility(View.VISIBLE);
+            } else {
+                viewHolder.mListRowBinding.data3TextView.setVisibility(View.GONE);
             }
-        }
 
-        /**
-         * The number of items in the list.
-         *
-         * @return the number of items in the list
-         */
-        @Override
-        public int getItemCount() {
-            if (this.mRecyclerListEntities == null) {
-                return 0;
+            // If the status is not All then hide the row status.
+            if (this.mBoundStatusVisible) {
+                viewHolder.mListRowBinding.data4TextView.setVisibility(View.VISIBLE);
             } else {
-                return this.mRecyclerListEntities.size();
+                viewHolder.mListRowBinding.data4TextView.setVisibility(View.GONE);
             }
         }
     }
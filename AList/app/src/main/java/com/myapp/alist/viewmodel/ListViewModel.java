@@ -5,14 +5,35 @@
 package com.myapp.alist.viewmodel;
 
 import android.app.Application;
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.CancellationSignal;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
-import androidx.lifecycle.MediatorLiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
 
 import com.myapp.alist.BasicApplication;
+import com.myapp.alist.R;
+import com.myapp.alist.datarepository.DataRepository;
+import com.myapp.alist.datarepository.FacetCounts;
+import com.myapp.alist.datarepository.InsertResult;
+import com.myapp.alist.datarepository.QuerySpec;
+import com.myapp.alist.db.Catalog;
 import com.myapp.alist.db.ListEntity;
+import com.myapp.alist.transfer.ExportFormat;
+import com.myapp.alist.transfer.ImportResult;
+import com.myapp.alist.transfer.ItemExporter;
+import com.myapp.alist.transfer.ItemImporter;
+import com.myapp.alist.transfer.ItemReader;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.List;
 
@@ -27,78 +48,359 @@ import java.util.List;
  */
 public final class ListViewModel extends AndroidViewModel {
     /**
-     * MediatorLiveData can observe other LiveData objects and react on their emissions.
+     * The most characters of text to share.  Larger lists are shared as a file because an intent
+     * extra must fit in a Binder transaction.
      */
-    private final MediatorLiveData<List<ListEntity>> mObservableItems;
+    public static final int MAX_SHARE_TEXT_LENGTH = 100 * 1024;
+    /**
+     * The selected items a page at a time.  Cached in this view model so a re-created activity
+     * gets the pages already loaded.
+     */
+    private final LiveData<PagingData<ListEntity>> mPagedItems;
+    /**
+     * The progress or outcome of the latest import, or <code>null</code> if none has been run.
+     * Kept in this view model so the import carries on if the activity is re-created.
+     */
+    private final MutableLiveData<ImportResult> mImportResult = new MutableLiveData<>();
+    /**
+     * Cancels the running import or <code>null</code> if none is running.  Only used on the main
+     * thread.
+     */
+    private CancellationSignal mImportCancellationSignal;
+    /**
+     * The selection criteria and sort order of the latest query.
+     */
+    private volatile QuerySpec mQuerySpec = new QuerySpec.Builder().build();
+    /**
+     * Guards the share text fields below.
+     */
+    private final Object mShareTextLock = new Object();
+    /**
+     * The criteria the share text was built for or <code>null</code> if none has been built.
+     */
+    private QuerySpec mShareTextQuerySpec;
+    /**
+     * The list table version the share text was built from.
+     */
+    private long mShareTextListVersion;
+    /**
+     * The share text or <code>null</code> if it was too long.
+     */
+    private String mShareText;
 
     /**
-     * Set the <code>MediatorLiveData</code> observable items from the
-     * {@link com.myapp.alist.datarepository.DataRepository}.
+     * Set the paged items from the {@link com.myapp.alist.datarepository.DataRepository}.
      *
      * @param application the {@link BasicApplication}
      */
     public ListViewModel(final Application application) {
         super(application);
 
-        mObservableItems = new MediatorLiveData<>();
-        // Set by default null, until we get data from the database.
-        mObservableItems.setValue(null);
+        final DataRepository dataRepository = ((BasicApplication) application).getRepository();
+        mPagedItems = PagingLiveData.cachedIn(dataRepository.getPagedItems(
+                DataRepository.createPagingConfig(application.getResources().getInteger(
+                        R.integer.list_prefetch_distance))), this);
+    }
+
+    /**
+     * Expose the number of selected items so the UI can show it before the items are loaded.
+     */
+    public LiveData<Integer> getItemCount() {
+        return ((BasicApplication) this.getApplication()).getRepository().getItemCount();
+    }
 
-        final LiveData<List<ListEntity>> items =
-                ((BasicApplication) application).getRepository().getItems();
+    /**
+     * Expose the number of items for each category and status so the UI can show them with the
+     * spinner choices.
+     */
+    public LiveData<FacetCounts> getFacetCounts() {
+        return ((BasicApplication) this.getApplication()).getRepository().getFacetCounts();
+    }
 
-        // Observe the changes of the items from the database and forward them.
-        mObservableItems.addSource(items, mObservableItems::setValue);
+    /**
+     * Expose the categories and statuses so the UI can show them as the spinner choices.
+     */
+    public LiveData<Catalog> getCatalog() {
+        return ((BasicApplication) this.getApplication()).getRepository().getCatalog();
     }
 
     /**
-     * Expose the LiveData Products query so the UI can observe it.
+     * Expose the selected items a page at a time so the UI can display them.
      */
-    public LiveData<List<ListEntity>> getItems() {
-        return mObservableItems;
+    public LiveData<PagingData<ListEntity>> getPagedItems() {
+        return mPagedItems;
     }
 
     /**
-     * Query to select the required rows from the database.  Updates the observable list in
-     * {@link com.myapp.alist.datarepository.DataRepository} which in turn updates
-     * {@link #mObservableItems}.
+     * Query to select the required rows from the database.  Updates the observable count and the
+     * paged items in {@link com.myapp.alist.datarepository.DataRepository}.
      *
-     * @param query     the <code>SELECT</code> query with <code>WHERE</code> and
-     *                  <code>ORDER BY</code>
-     * @param whereArgs the arguments to insert into the <code>WHERE</code> clause in place of '?'
+     * @param querySpec the selection criteria and sort order
      */
-    public void selectItems(final String query, final String[] whereArgs) {
-        ((BasicApplication) this.getApplication()).getRepository().selectItems(query, whereArgs);
+    public void selectItems(final QuerySpec querySpec) {
+        mQuerySpec = querySpec;
+        ((BasicApplication) this.getApplication()).getRepository().selectItems(querySpec);
     }
 
     /**
-     * Insert a row into the database.
+     * Insert a row into the database.  A name which is already used is reported rather than
+     * thrown.
      *
      * @param values    the <code>HashMap</code> containing the details of the row to insert
-     * @return          the id of the inserted row
+     * @return          the outcome with the id of the inserted row or of the existing row
      */
-    public long insertItem(final HashMap<String, String> values) {
+    @NonNull
+    public InsertResult insertItem(final HashMap<String, String> values) {
         return ((BasicApplication) this.getApplication()).getRepository().insertItem(values);
     }
 
     /**
-     * Update a row in the database.
+     * Insert a row into the database or update the existing row with the same name.
+     *
+     * @param values    the <code>HashMap</code> containing the details of the row to write
+     * @return          the outcome with the id of the inserted, updated or unchanged row
+     */
+    @NonNull
+    public InsertResult upsertItem(final HashMap<String, String> values) {
+        return ((BasicApplication) this.getApplication()).getRepository().upsertItem(values);
+    }
+
+    /**
+     * Insert rows into the database in as few transactions as possible.  Must not be called on the
+     * main thread.
+     *
+     * @param valuesList    the <code>HashMap</code> containing the details of each row to insert
+     * @return              the outcome for each row in the same order
+     */
+    public List<InsertResult> insertItems(final List<HashMap<String, String>> valuesList) {
+        return ((BasicApplication) this.getApplication()).getRepository().insertItems(valuesList);
+    }
+
+    /**
+     * Get the text to share for the rows selected by the latest query.  The text is only built
+     * when it is asked for and is kept until the selection or the list table changes.  Must not
+     * be called on the main thread.
+     *
+     * @return the text or <code>null</code> if it would be longer than
+     * {@link #MAX_SHARE_TEXT_LENGTH}, in which case the rows should be shared as a file
+     */
+    @Nullable
+    public String getShareText() {
+        final DataRepository dataRepository =
+                ((BasicApplication) this.getApplication()).getRepository();
+        final QuerySpec querySpec = mQuerySpec;
+        // Read the version first so a change during the query means the text is built again.
+        final long listVersion = dataRepository.getListVersion();
+
+        synchronized (mShareTextLock) {
+            if (querySpec.equals(mShareTextQuerySpec) && listVersion == mShareTextListVersion) {
+                return mShareText;
+            }
+        }
+
+        final String shareText;
+        final Cursor cursor = dataRepository.queryItems(querySpec, null);
+        try {
+            shareText = ItemExporter.exportText(cursor, MAX_SHARE_TEXT_LENGTH);
+        } finally {
+            cursor.close();
+        }
+
+        synchronized (mShareTextLock) {
+            mShareTextQuerySpec = querySpec;
+            mShareTextListVersion = listVersion;
+            mShareText = shareText;
+        }
+
+        return shareText;
+    }
+
+    /**
+     * Export the rows selected by the latest query to a file, a row at a time.  Must not be
+     * called on the main thread.
+     *
+     * @param exportFormat the format of the file
+     * @param outputStream the file, which is not closed
+     * @return the number of rows exported
+     * @throws IOException if the file cannot be written
+     */
+    public int exportItems(@NonNull final ExportFormat exportFormat,
+                           @NonNull final OutputStream outputStream) throws IOException {
+        final Cursor cursor = ((BasicApplication) this.getApplication()).getRepository()
+                .queryItems(mQuerySpec, null);
+        try {
+            return ItemExporter.export(cursor, outputStream, exportFormat, null);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Expose the progress and outcome of the latest import so the UI can show them.
+     */
+    public LiveData<ImportResult> getImportResult() {
+        return mImportResult;
+    }
+
+    /**
+     * Determine if an import is running.  Must be called on the main thread.
+     *
+     * @return <code>true</code> if an import is running
+     */
+    public boolean isImporting() {
+        return mImportCancellationSignal != null;
+    }
+
+    /**
+     * Import the rows of a CSV or JSON file on the background thread.  The progress and outcome
+     * are posted to {@link #getImportResult()}.  Must be called on the main thread and only when
+     * no import is running.
+     *
+     * @param uri the file chosen by the user
+     */
+    public void importItems(@NonNull final Uri uri) {
+        if (mImportCancellationSignal != null) {
+            throw new RuntimeException("importItems error 1");
+        }
+
+        final CancellationSignal cancellationSignal = new CancellationSignal();
+        mImportCancellationSignal = cancellationSignal;
+        final ContentResolver contentResolver = this.getApplication().getContentResolver();
+        final DataRepository dataRepository =
+                ((BasicApplication) this.getApplication()).getRepository();
+
+        // Background thread.
+        //noinspection Convert2Lambda
+        BasicApplication.APP_EXECUTORS.getBackgroundThreadExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                ImportResult importResult = null;
+                try {
+                    final ItemReader itemReader = ItemImporter.openReader(contentResolver, uri);
+                    try {
+                        //noinspection Convert2Lambda
+                        importResult = new ItemImporter(dataRepository::insertItems).importItems(
+                                itemReader, ItemImporter.getSize(contentResolver, uri),
+                                cancellationSignal, new ItemImporter.ProgressListener() {
+                                    @Override
+                                    public void onProgress(@NonNull final ImportResult progress) {
+                                        mImportResult.postValue(progress);
+                                    }
+                                });
+                    } finally {
+                        itemReader.close();
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                } finally {
+                    final ImportResult finalImportResult = importResult;
+
+                    // Main thread.
+                    //noinspection Convert2Lambda
+                    BasicApplication.APP_EXECUTORS.getMainThreadExecutor().execute(
+                            new Runnable() {
+                                @Override
+                                public void run() {
+                                    if (mImportCancellationSignal == cancellationSignal) {
+                                        mImportCancellationSignal = null;
+                                    }
+                                    mImportResult.setValue(finalImportResult != null ?
+                                            finalImportResult : ItemImporter.createFailedResult());
+                                }
+                            });
+                }
+            }
+        });
+    }
+
+    /**
+     * Clear the outcome of the finished import once the UI has shown it, so it is not shown
+     * again when the activity is re-created.  Must be called on the main thread.
+     */
+    public void clearImportResult() {
+        if (mImportCancellationSignal == null) {
+            mImportResult.setValue(null);
+        }
+    }
+
+    /**
+     * Cancel the running import.  The rows already written are kept.  Must be called on the main
+     * thread.
+     */
+    public void cancelImport() {
+        if (mImportCancellationSignal != null) {
+            mImportCancellationSignal.cancel();
+        }
+    }
+
+    /**
+     * Cancel any running import because the activity is finished.
+     */
+    @Override
+    protected void onCleared() {
+        this.cancelImport();
+
+        super.onCleared();
+    }
+
+    /**
+     * Update the changed values of a row in the database.  Only the changed columns are written.
      *
      * @param id        the id of the row to update
-     * @param values    the new values of the row to update
+     * @param changes   the new values of the changed columns only
      * @return          the number of items updated.  Should always be one.
      */
-    public long updateItem(final long id, final HashMap<String, String> values) {
-        return ((BasicApplication) this.getApplication()).getRepository().updateItem(id, values);
+    public long updateItem(final long id, final HashMap<String, String> changes) {
+        return ((BasicApplication) this.getApplication()).getRepository().updateItem(id, changes);
+    }
+
+    /**
+     * Set the category or status of the displayed rows with one statement, so the rows do not
+     * need to be loaded or updated one at a time.  The rows are those selected by the last query
+     * run, as for {@link #deleteItems()}.  Must not be called on the main thread.
+     *
+     * @param column {@link ListEntity#CATEGORY} or {@link ListEntity#STATUS}
+     * @param value  the new value of the column
+     * @return the number of rows updated or -1 if the value is not valid
+     */
+    public long updateItems(@NonNull final String column, @NonNull final String value) {
+        final DataRepository dataRepository =
+                ((BasicApplication) this.getApplication()).getRepository();
+        return dataRepository.updateItems(dataRepository.getDisplayedQuerySpec(), column, value);
+    }
+
+    /**
+     * Delete the displayed rows from the database with one statement, so the rows do not need to
+     * be loaded first.  The rows are those selected by the last query run, which gave the
+     * displayed count, not by criteria still waiting for the debounce delay to end.  The delete
+     * can be undone with {@link #undoDelete()}.  Must not be called on the main thread.
+     *
+     * @return the number of rows deleted
+     */
+    public long deleteItems() {
+        final DataRepository dataRepository =
+                ((BasicApplication) this.getApplication()).getRepository();
+        return dataRepository.deleteItems(dataRepository.getDisplayedQuerySpec());
+    }
+
+    /**
+     * Restore the rows removed by the last delete.  Must not be called on the main thread.
+     *
+     * @return the number of rows restored
+     */
+    public long undoDelete() {
+        return ((BasicApplication) this.getApplication()).getRepository().undoDelete();
     }
 
     /**
-     * Delete a row(s) from the database.
+     * Add a category or status the user can choose.  Must not be called on the main thread.
      *
-     * @param listEntities  the <code>List<ListEntity></code> containing the rows to delete
-     * @return              the number of row deleted
+     * @param column {@link ListEntity#CATEGORY} or {@link ListEntity#STATUS}
+     * @param label  the label of the new choice
+     * @return the id of the new choice or -1 if the label is blank or already used
      */
-    public long deleteItems(final List<ListEntity> listEntities) {
-        return ((BasicApplication) this.getApplication()).getRepository().deleteItems(listEntities);
+    public long addChoice(@NonNull final String column, @Nullable final String label) {
+        return ((BasicApplication) this.getApplication()).getRepository().addChoice(column,
+                label);
     }
-}
\ No newline at end of file
+}